@@ -9,8 +9,9 @@
  */
 package org.openmrs;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.UUID;
 
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
@@ -19,23 +20,41 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.hibernate.Hibernate;
 import org.hibernate.envers.Audited;
+import org.openmrs.util.UuidUtil;
 
 /**
  * This is the base implementation of the {@link OpenmrsObject} interface.<br>
- * It implements the uuid variable that all objects are expected to have.
+ * It implements the uuid variable that all objects are expected to have.<br>
+ * <br>
+ * The uuid of a new object is only generated when it is first read or when the object is saved, so
+ * that objects loaded from the database don't pay for a uuid that is overwritten right away.
+ *
+ * @see UuidUtil#newUuid()
  */
 @MappedSuperclass
 @Audited
 public abstract class BaseOpenmrsObject implements Serializable, OpenmrsObject {
 	
 	@Column(name = "uuid", unique = true, nullable = false, length = 38, updatable = false)
-	private String uuid = UUID.randomUUID().toString();
+	private String uuid;
+	
+	/**
+	 * Whether the uuid was explicitly set, even to null, in which case it is no longer generated
+	 */
+	private transient boolean uuidAssigned;
 	
 	/**
 	 * @see org.openmrs.OpenmrsObject#getUuid()
+	 * <strong>Should</strong> generate a uuid if none was set
+	 * <strong>Should</strong> return the same uuid every time
+	 * <strong>Should</strong> not generate a uuid if it was set to null
 	 */
 	@Override
 	public String getUuid() {
+		if (uuid == null && !uuidAssigned) {
+			uuid = UuidUtil.newUuid();
+			uuidAssigned = true;
+		}
 		return uuid;
 	}
 	
@@ -45,6 +64,15 @@ public abstract class BaseOpenmrsObject implements Serializable, OpenmrsObject {
 	@Override
 	public void setUuid(String uuid) {
 		this.uuid = uuid;
+		uuidAssigned = true;
+	}
+	
+	/**
+	 * Generates the uuid if it was not yet, so that the copy has the same one
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getUuid();
+		out.defaultWriteObject();
 	}
 	
 	/**
@@ -22,6 +22,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -42,10 +43,8 @@ import org.openmrs.api.db.hibernate.search.TermsFilterFactory;
 import org.openmrs.customdatatype.CustomValueDescriptor;
 import org.openmrs.customdatatype.Customizable;
 import org.openmrs.util.LocaleUtility;
-import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.ObjectUtils;
 
 /**
  * A Concept object can represent either a question or an answer to a data point. That data point is
@@ -124,10 +123,10 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	private Collection<ConceptMap> conceptMappings;
 	
 	/**
-	 * A cache of locales to names which have compatible locales. Built on-the-fly by
-	 * getCompatibleNames().
+	 * An index of the non-voided names by locale, language and country. Built on-the-fly by
+	 * getNameIndex() and discarded whenever one of the names changes.
 	 */
-	private Map<Locale, List<ConceptName>> compatibleCache;
+	private transient NameIndex nameIndex;
 
 	private Set<ConceptAttribute> attributes = new LinkedHashSet<>();
 
@@ -590,7 +589,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	public ConceptName getName(Locale locale, boolean exact) {
 		
 		// fail early if this concept has no names defined
-		if (getNames().isEmpty()) {
+		if (getNameIndex().names.isEmpty()) {
 			log.debug("there are no names defined for: {}", conceptId);
 			return null;
 		}
@@ -657,36 +656,13 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 			return null;
 		}
 		
-		for (ConceptName nameInLocale : getNames(forLocale)) {
-			if (ObjectUtils.nullSafeEquals(nameInLocale.getLocalePreferred(), true)) {
-				return nameInLocale;
-			}
+		// look for partially locale match if not exact - any language matches takes precedence over country matches.
+		ConceptName preferredName = getNameIndex().preferredNames.get(forLocale, exact);
+		if (preferredName != null || exact) {
+			return preferredName;
 		}
 		
-		if (exact) {
-			return null;
-		} else {
-			// look for partially locale match - any language matches takes precedence over country matches.
-			ConceptName bestMatch = null;
-
-			for (ConceptName nameInLocale : getPartiallyCompatibleNames(forLocale)) {
-				if (ObjectUtils.nullSafeEquals(nameInLocale.getLocalePreferred(), true)) {
-					Locale nameLocale = nameInLocale.getLocale();
-					if (forLocale.getLanguage().equals(nameLocale.getLanguage())) {
-						return nameInLocale;
-					} else {
-						bestMatch = nameInLocale;
-					}
-
-				}
-			}
-
-			if (bestMatch != null) {
-				return bestMatch;
-			}
-
-			return getFullySpecifiedName(forLocale);
-		}
+		return getFullySpecifiedName(forLocale);
 	}
 	
 	/**
@@ -697,28 +673,10 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * <strong>Should</strong> return the name marked as fully specified for the given locale
 	 */
 	public ConceptName getFullySpecifiedName(Locale locale) {
-		if (locale != null && !getNames(locale).isEmpty()) {
-			//get the first fully specified name, since every concept must have a fully specified name,
-			//then, this loop will have to return a name
-			for (ConceptName conceptName : getNames(locale)) {
-				if (ObjectUtils.nullSafeEquals(conceptName.isFullySpecifiedName(), true)) {
-					return conceptName;
-				}
-			}
-			
+		NameIndex index = getNameIndex();
+		if (locale != null && !index.getNames(locale).isEmpty()) {
 			// look for partially locale match - any language matches takes precedence over country matches.
-			ConceptName bestMatch = null;
-			for (ConceptName conceptName : getPartiallyCompatibleNames(locale)) {
-				if (ObjectUtils.nullSafeEquals(conceptName.isFullySpecifiedName(), true)) {
-					Locale nameLocale = conceptName.getLocale();
-					if (locale.getLanguage().equals(nameLocale.getLanguage())) {
-						return conceptName;
-					}
-					bestMatch = conceptName;
-				}
-			}
-			return bestMatch;
-			
+			return index.fullySpecifiedNames.get(locale, false);
 		}
 		return null;
 	}
@@ -732,26 +690,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return Collection of ConceptNames with the given locale
 	 */
 	public Collection<ConceptName> getNames(Locale locale) {
-		return getNames().stream()
-				.filter(n -> n.getLocale().equals(locale))
-				.collect(Collectors.toSet());
-	}
-	
-	/**
-	 * Returns all names available for locale language "or" country. <br>
-	 * <br>
-	 * 
-	 * @param locale locale for which names should be returned
-	 * @return Collection of ConceptNames with the given locale language or country
-	 */
-	private Collection<ConceptName> getPartiallyCompatibleNames(Locale locale) {
-		String language = locale.getLanguage();
-		String country = locale.getCountry();
-		
-		return getNames().stream()
-				.filter(n -> language.equals(n.getLocale().getLanguage()) || 
-							StringUtils.isNotBlank(country) && country.equals(n.getLocale().getCountry()))
-				.collect(Collectors.toSet());
+		return new HashSet<>(getNameIndex().getNames(locale));
 	}
 	
 	/**
@@ -766,24 +705,10 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * <strong>Should</strong> exclude incompatible language locales
 	 */
 	public List<ConceptName> getCompatibleNames(Locale desiredLocale) {
-		// lazy create the cache
-		List<ConceptName> compatibleNames = null;
-		if (compatibleCache == null) {
-			compatibleCache = new HashMap<>();
-		} else {
-			compatibleNames = compatibleCache.get(desiredLocale);
-		}
-		
-		if (compatibleNames == null) {
-			compatibleNames = new ArrayList<>();
-			for (ConceptName possibleName : getNames()) {
-				if (LocaleUtility.areCompatible(possibleName.getLocale(), desiredLocale)) {
-					compatibleNames.add(possibleName);
-				}
-			}
-			compatibleCache.put(desiredLocale, compatibleNames);
-		}
-		return compatibleNames;
+		NameIndex index = getNameIndex();
+		return index.compatibleNames.computeIfAbsent(desiredLocale, locale -> index.names.stream()
+		        .filter(possibleName -> LocaleUtility.areCompatible(possibleName.getLocale(), locale))
+		        .collect(Collectors.toList()));
 	}
 	
 	/**
@@ -850,23 +775,11 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return the short name, or null if none has been explicitly set
 	 */
 	public ConceptName getShortNameInLocale(Locale locale) {
-		ConceptName bestMatch = null;
-		if (locale != null && !getShortNames().isEmpty()) {
-			for (ConceptName shortName : getShortNames()) {
-				Locale nameLocale = shortName.getLocale();
-				if (nameLocale.equals(locale)) {
-					return shortName;
-				}
-				// test for partially locale match - any language matches takes precedence over country matches.
-				if (OpenmrsUtil.nullSafeEquals(locale.getLanguage(), nameLocale.getLanguage())) {
-					bestMatch = shortName;
-				} else if (bestMatch == null && StringUtils.isNotBlank(locale.getCountry())
-				        && locale.getCountry().equals(nameLocale.getCountry())) {
-					bestMatch = shortName;
-				}
-			}
+		if (locale == null) {
+			return null;
 		}
-		return bestMatch;
+		// test for partially locale match - any language matches takes precedence over country matches.
+		return getNameIndex().shortNames.get(locale, false);
 	}
 	
 	/**
@@ -875,17 +788,11 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return a collection of all short names for this concept
 	 */
 	public Collection<ConceptName> getShortNames() {
-		List<ConceptName> shortNames = new ArrayList<>();
-		if (getNames().isEmpty()) {
-			if (log.isDebugEnabled()) {
-				log.debug("The Concept with id: " + conceptId + " has no names");
-			}
-		} else {
-			shortNames = getNames().stream()
-							.filter(ConceptName::isShort)
-							.collect(Collectors.toList());
+		NameIndex index = getNameIndex();
+		if (index.names.isEmpty() && log.isDebugEnabled()) {
+			log.debug("The Concept with id: " + conceptId + " has no names");
 		}
-		return shortNames;
+		return new ArrayList<>(index.shortNames.all);
 	}
 	
 	/**
@@ -914,7 +821,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 		ConceptName shortestNameForConcept = null;
 		
 		if (locale != null) {
-			for (ConceptName possibleName : getNames()) {
+			for (ConceptName possibleName : getNameIndex().names) {
 				if (possibleName.getLocale().equals(locale)
 				        && ((shortestNameForLocale == null) || (possibleName.getName().length() < shortestNameForLocale
 				                .getName().length()))) {
@@ -997,6 +904,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 */
 	public void setNames(Collection<ConceptName> names) {
 		this.names = names;
+		nameChanged();
 	}
 	
 	/**
@@ -1038,10 +946,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 					}
 				}
 				names.add(conceptName);
-				if (compatibleCache != null) {
-					// clear the locale cache, forcing it to be rebuilt
-					compatibleCache.clear();
-				}
+				nameChanged();
 			}
 		}
 	}
@@ -1053,13 +958,40 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return true if the entity was removed, false otherwise
 	 */
 	public boolean removeName(ConceptName conceptName) {
-		if (names != null) {
-			return names.remove(conceptName);
+		if (names != null && names.remove(conceptName)) {
+			nameChanged();
+			return true;
 		} else {
 			return false;
 		}
 	}
 	
+	/**
+	 * Discards the index of the names of this concept, forcing it to be rebuilt. Called whenever a
+	 * name is added or removed, or one of the names is modified.
+	 */
+	void nameChanged() {
+		nameIndex = null;
+	}
+	
+	/**
+	 * Gets the index of the non-voided names of this concept, building it if it was discarded or the
+	 * names were replaced since it was built
+	 * 
+	 * @return the name index
+	 */
+	private NameIndex getNameIndex() {
+		if (names == null) {
+			names = new HashSet<>();
+		}
+		NameIndex index = nameIndex;
+		if (index == null || index.source != names || index.sourceSize != names.size()) {
+			index = new NameIndex(names);
+			nameIndex = index;
+		}
+		return index;
+	}
+	
 	/**
 	 * Finds the description of the concept using the current locale in Context.getLocale(). Returns
 	 * null if none found.
@@ -1270,8 +1202,8 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 		
 		List<ConceptName> syns = new ArrayList<>();
 		ConceptName preferredConceptName = null;
-		for (ConceptName possibleSynonymInLoc : getSynonyms()) {
-			if (locale.equals(possibleSynonymInLoc.getLocale())) {
+		for (ConceptName possibleSynonymInLoc : getNameIndex().getNames(locale)) {
+			if (possibleSynonymInLoc.isSynonym()) {
 				if (possibleSynonymInLoc.isPreferred()) {
 					preferredConceptName = possibleSynonymInLoc;
 				} else {
@@ -1687,4 +1619,97 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 		attribute.setOwner(this);
 	}
 
+	/**
+	 * The non-voided names of a concept grouped by locale, with the preferred, fully specified and
+	 * short names resolved for every locale, language and country they are in. It is never modified
+	 * once built, apart from the compatible names memoized on demand.
+	 */
+	private static final class NameIndex {
+		
+		private final Collection<ConceptName> source;
+		
+		private final int sourceSize;
+		
+		private final List<ConceptName> names = new ArrayList<>();
+		
+		private final Map<Locale, List<ConceptName>> namesByLocale = new HashMap<>();
+		
+		private final NameMatches preferredNames = new NameMatches();
+		
+		private final NameMatches fullySpecifiedNames = new NameMatches();
+		
+		private final NameMatches shortNames = new NameMatches();
+		
+		private final Map<Locale, List<ConceptName>> compatibleNames = new ConcurrentHashMap<>();
+		
+		NameIndex(Collection<ConceptName> source) {
+			this.source = source;
+			this.sourceSize = source.size();
+			for (ConceptName name : source) {
+				// the lookups are made among the names returned by getNames(), which leaves out the voided ones
+				if (name.getVoided()) {
+					continue;
+				}
+				names.add(name);
+				if (name.getLocale() == null) {
+					continue;
+				}
+				namesByLocale.computeIfAbsent(name.getLocale(), locale -> new ArrayList<>()).add(name);
+				if (Boolean.TRUE.equals(name.getLocalePreferred())) {
+					preferredNames.add(name);
+				}
+				if (name.isFullySpecifiedName()) {
+					fullySpecifiedNames.add(name);
+				} else if (name.isShort()) {
+					shortNames.add(name);
+				}
+			}
+		}
+		
+		List<ConceptName> getNames(Locale locale) {
+			return namesByLocale.getOrDefault(locale, Collections.emptyList());
+		}
+	}
+	
+	/**
+	 * The names of one kind, e.g. the preferred ones, by the locale, language and country they are
+	 * in.
+	 */
+	private static final class NameMatches {
+		
+		private final List<ConceptName> all = new ArrayList<>();
+		
+		private final Map<Locale, ConceptName> byLocale = new HashMap<>();
+		
+		private final Map<String, ConceptName> byLanguage = new HashMap<>();
+		
+		private final Map<String, ConceptName> byCountry = new HashMap<>();
+		
+		void add(ConceptName name) {
+			Locale locale = name.getLocale();
+			all.add(name);
+			byLocale.putIfAbsent(locale, name);
+			byLanguage.putIfAbsent(locale.getLanguage(), name);
+			if (StringUtils.isNotBlank(locale.getCountry())) {
+				byCountry.putIfAbsent(locale.getCountry(), name);
+			}
+		}
+		
+		/**
+		 * @param locale the locale to get the name in
+		 * @param exact true to only match the locale exactly
+		 * @return the name in the locale, else one in the same language, else one in the same country
+		 */
+		ConceptName get(Locale locale, boolean exact) {
+			ConceptName name = byLocale.get(locale);
+			if (name != null || exact) {
+				return name;
+			}
+			name = byLanguage.get(locale.getLanguage());
+			if (name == null && StringUtils.isNotBlank(locale.getCountry())) {
+				name = byCountry.get(locale.getCountry());
+			}
+			return name;
+		}
+	}
 }
@@ -20,6 +20,7 @@ import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
 import org.apache.lucene.analysis.standard.StandardFilterFactory;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
 import org.codehaus.jackson.annotate.JsonIgnore;
+import org.hibernate.Hibernate;
 import org.hibernate.envers.Audited;
 import org.hibernate.search.annotations.Analyze;
 import org.hibernate.search.annotations.Analyzer;
@@ -27,11 +28,13 @@ import org.hibernate.search.annotations.AnalyzerDef;
 import org.hibernate.search.annotations.DocumentId;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Fields;
 import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.annotations.IndexedEmbedded;
 import org.hibernate.search.annotations.TokenFilterDef;
 import org.hibernate.search.annotations.TokenizerDef;
 import org.openmrs.api.ConceptNameType;
+import org.openmrs.api.db.hibernate.search.LuceneAnalyzers;
 import org.openmrs.api.db.hibernate.search.bridge.LocaleFieldBridge;
 
 /**
@@ -57,7 +60,10 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	@IndexedEmbedded(includeEmbeddedObjectId = true)
 	private Concept concept;
 	
-	@Field
+	@Fields({
+		@Field,
+		@Field(name = "nameStart", analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER))
+	})
 	private String name;
 	
 	@Field(analyze = Analyze.NO)
@@ -129,7 +135,9 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	}
 	
 	public void setConcept(Concept concept) {
+		conceptChanged();
 		this.concept = concept;
+		conceptChanged();
 	}
 	
 	public String getName() {
@@ -142,6 +150,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 			this.setVoided(true);
 		} else {
 			this.name = name;
+			conceptChanged();
 		}
 	}
 	
@@ -151,6 +160,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	
 	public void setLocale(Locale locale) {
 		this.locale = locale;
+		conceptChanged();
 	}
 
 	/**
@@ -217,6 +227,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	@Override
 	public void setVoided(Boolean voided) {
 		this.voided = voided;
+		conceptChanged();
 	}
 	
 	/**
@@ -312,6 +323,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setConceptNameType(ConceptNameType conceptNameType) {
 		this.conceptNameType = conceptNameType;
+		conceptChanged();
 	}
 	
 	/**
@@ -340,6 +352,17 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setLocalePreferred(Boolean localePreferred) {
 		this.localePreferred = localePreferred;
+		conceptChanged();
+	}
+	
+	/**
+	 * Has the concept of this name discard its name index. Concepts not loaded yet are left alone,
+	 * e.g. while this name is being loaded from the database, since they have no index to discard.
+	 */
+	private void conceptChanged() {
+		if (concept != null && Hibernate.isInitialized(concept)) {
+			concept.nameChanged();
+		}
 	}
 	
 	/**
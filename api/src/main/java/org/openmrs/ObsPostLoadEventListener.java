@@ -18,7 +18,10 @@ import org.hibernate.event.service.spi.EventListenerRegistry;
 import org.hibernate.event.spi.EventType;
 import org.hibernate.event.spi.PostLoadEvent;
 import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.event.spi.SaveOrUpdateEvent;
+import org.hibernate.event.spi.SaveOrUpdateEventListener;
 import org.hibernate.internal.SessionFactoryImpl;
+import org.openmrs.api.db.hibernate.PooledIfNotAssignedIdGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +31,10 @@ import org.springframework.stereotype.Component;
  * Hibernate by default calls setters when initializing a persistent entity from the database
  * meaning an Obs would be marked dirty the first time it's loaded by hibernate, therefore we need
  * to use an instance of this PostLoadEventListener to mark an Obs as not dirty when it gets loaded.
+ * <p>
+ * The same goes for a new Obs whose id isn't generated by the database, see
+ * {@link PooledIfNotAssignedIdGenerator}, Hibernate calls the setters with the values changed by the
+ * interceptors after it has set the id, so it is also marked as not dirty once saved.
  * 
  * <pre>
  * Note that in hibernate 4, event listeners are now registered via the new integrator and service
@@ -37,7 +44,7 @@ import org.springframework.stereotype.Component;
  * </pre>
  */
 @Component
-public class ObsPostLoadEventListener implements PostLoadEventListener {
+public class ObsPostLoadEventListener implements PostLoadEventListener, SaveOrUpdateEventListener {
 	
 	private static final Logger log = LoggerFactory.getLogger(ObsPostLoadEventListener.class);
 	
@@ -49,19 +56,35 @@ public class ObsPostLoadEventListener implements PostLoadEventListener {
 		EventListenerRegistry registry = ((SessionFactoryImpl) sessionFactory).getServiceRegistry().getService(
 		    EventListenerRegistry.class);
 		registry.getEventListenerGroup(EventType.POST_LOAD).appendListener(this);
+		if (PooledIfNotAssignedIdGenerator.isSelected((SessionFactoryImpl) sessionFactory, Obs.class)) {
+			registry.getEventListenerGroup(EventType.SAVE_UPDATE).appendListener(this);
+			registry.getEventListenerGroup(EventType.SAVE).appendListener(this);
+		}
 	}
 	
 	@Override
 	public void onPostLoad(PostLoadEvent event) {
-		if (Obs.class.isAssignableFrom(event.getEntity().getClass())) {
+		markAsNotDirty(event.getEntity());
+	}
+	
+	@Override
+	public void onSaveOrUpdate(SaveOrUpdateEvent event) {
+		// only transient entities have no entry and a result id, detached ones have no result id
+		if (event.getEntry() == null && event.getResultId() != null) {
+			markAsNotDirty(event.getEntity());
+		}
+	}
+	
+	private void markAsNotDirty(Object entity) {
+		if (entity != null && Obs.class.isAssignableFrom(entity.getClass())) {
 			Field field = null;
 			try {
 				field = Obs.class.getDeclaredField("dirty");
 				field.setAccessible(true);
-				field.set(event.getEntity(), false);
+				field.set(entity, false);
 			}
 			catch (ReflectiveOperationException e) {
-				log.error("Failed to unset an Obs as dirty after being loaded from the database", e);
+				log.error("Failed to unset an Obs as dirty after being loaded from or saved to the database", e);
 			}
 			finally {
 				if (field != null) {
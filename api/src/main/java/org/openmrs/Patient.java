@@ -17,7 +17,15 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import org.hibernate.envers.Audited;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.Boost;
+import org.hibernate.search.annotations.ClassBridge;
+import org.hibernate.search.annotations.ClassBridges;
 import org.hibernate.search.annotations.ContainedIn;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Parameter;
+import org.openmrs.api.db.hibernate.search.LuceneAnalyzers;
+import org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge;
 
 /**
  * Defines a Patient in the system. A patient is simply an extension of a person and all that that
@@ -25,6 +33,31 @@ import org.hibernate.search.annotations.ContainedIn;
  * 
  * @version 2.0
  */
+@Indexed
+@ClassBridges({
+		@ClassBridge(name = "identifierPhrase", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.PHRASE_ANALYZER), boost = @Boost(8f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.IDENTIFIERS)),
+		@ClassBridge(name = "identifierExact", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(4f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.IDENTIFIERS)),
+		@ClassBridge(name = "identifierStart", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(2f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.IDENTIFIERS)),
+		@ClassBridge(name = "identifierAnywhere", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.IDENTIFIERS)),
+		@ClassBridge(name = "nameExact", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(8f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.NAMES)),
+		@ClassBridge(name = "nameStart", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(4f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.NAMES)),
+		@ClassBridge(name = "nameAnywhere", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER), boost = @Boost(2f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.NAMES)),
+		@ClassBridge(name = "attributePhrase", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.PHRASE_ANALYZER), boost = @Boost(8f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.ATTRIBUTES)),
+		@ClassBridge(name = "attributeExact", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(4f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.ATTRIBUTES)),
+		@ClassBridge(name = "attributeStart", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(2f),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.ATTRIBUTES)),
+		@ClassBridge(name = "attributeAnywhere", impl = PatientSearchBridge.class, analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER),
+				params = @Parameter(name = PatientSearchBridge.VALUES_PARAMETER, value = PatientSearchBridge.ATTRIBUTES))
+})
 @Audited
 public class Patient extends Person {
 	
@@ -19,6 +19,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.hibernate.envers.Audited;
 import org.hibernate.search.annotations.Analyzer;
 import org.hibernate.search.annotations.Boost;
+import org.hibernate.search.annotations.ContainedIn;
 import org.hibernate.search.annotations.DocumentId;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.Fields;
@@ -55,6 +56,7 @@ public class PersonAttribute extends BaseChangeableOpenmrsData implements java.i
 	private Integer personAttributeId;
 
 	@IndexedEmbedded(includeEmbeddedObjectId = true)
+	@ContainedIn
 	private Person person;
 
 	@IndexedEmbedded
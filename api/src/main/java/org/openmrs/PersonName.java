@@ -22,6 +22,7 @@ import org.codehaus.jackson.annotate.JsonIgnore;
 import org.hibernate.envers.Audited;
 import org.hibernate.search.annotations.Analyzer;
 import org.hibernate.search.annotations.Boost;
+import org.hibernate.search.annotations.ContainedIn;
 import org.hibernate.search.annotations.DocumentId;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.Fields;
@@ -53,6 +54,7 @@ public class PersonName extends BaseChangeableOpenmrsData implements java.io.Ser
 	private Integer personNameId;
 
 	@IndexedEmbedded(includeEmbeddedObjectId = true)
+	@ContainedIn
 	private Person person;
 
 	private Boolean preferred = false;
@@ -61,7 +63,9 @@ public class PersonName extends BaseChangeableOpenmrsData implements java.io.Ser
 			@Field(name = "givenNameExact", analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(8f)),
 			@Field(name = "givenNameStart", analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(4f)),
 			@Field(name = "givenNameAnywhere", analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER), boost = @Boost(2f)),
-			@Field(name = "givenNameSoundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f))
+			@Field(name = "givenNameSoundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "givenNameDoubleMetaphone", analyzer = @Analyzer(definition = LuceneAnalyzers.DOUBLE_METAPHONE_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "givenNameBeiderMorse", analyzer = @Analyzer(definition = LuceneAnalyzers.BEIDER_MORSE_ANALYZER), boost = @Boost(1f))
 	})
 	private String givenName;
 	private String prefix;
@@ -70,7 +74,9 @@ public class PersonName extends BaseChangeableOpenmrsData implements java.io.Ser
 			@Field(name = "middleNameExact", analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(4f)),
 			@Field(name = "middleNameStart", analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(2f)),
 			@Field(name = "middleNameAnywhere", analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER)),
-			@Field(name = "middleNameSoundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f))
+			@Field(name = "middleNameSoundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "middleNameDoubleMetaphone", analyzer = @Analyzer(definition = LuceneAnalyzers.DOUBLE_METAPHONE_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "middleNameBeiderMorse", analyzer = @Analyzer(definition = LuceneAnalyzers.BEIDER_MORSE_ANALYZER), boost = @Boost(1f))
 	})
 	private String middleName;
 	
@@ -80,7 +86,9 @@ public class PersonName extends BaseChangeableOpenmrsData implements java.io.Ser
 			@Field(name = "familyNameExact", analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(8f)),
 			@Field(name = "familyNameStart", analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(4f)),
 			@Field(name = "familyNameAnywhere", analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER), boost = @Boost(2f)),
-			@Field(name = "familyNameSoundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f))
+			@Field(name = "familyNameSoundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "familyNameDoubleMetaphone", analyzer = @Analyzer(definition = LuceneAnalyzers.DOUBLE_METAPHONE_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "familyNameBeiderMorse", analyzer = @Analyzer(definition = LuceneAnalyzers.BEIDER_MORSE_ANALYZER), boost = @Boost(1f))
 	})
 	private String familyName;
 
@@ -88,7 +96,9 @@ public class PersonName extends BaseChangeableOpenmrsData implements java.io.Ser
 			@Field(name = "familyName2Exact", analyzer = @Analyzer(definition = LuceneAnalyzers.EXACT_ANALYZER), boost = @Boost(4f)),
 			@Field(name = "familyName2Start", analyzer = @Analyzer(definition = LuceneAnalyzers.START_ANALYZER), boost = @Boost(2f)),
 			@Field(name = "familyName2Anywhere", analyzer = @Analyzer(definition = LuceneAnalyzers.ANYWHERE_ANALYZER)),
-			@Field(name = "familyName2Soundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f))
+			@Field(name = "familyName2Soundex", analyzer =  @Analyzer(definition = LuceneAnalyzers.SOUNDEX_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "familyName2DoubleMetaphone", analyzer = @Analyzer(definition = LuceneAnalyzers.DOUBLE_METAPHONE_ANALYZER), boost = @Boost(1f)),
+			@Field(name = "familyName2BeiderMorse", analyzer = @Analyzer(definition = LuceneAnalyzers.BEIDER_MORSE_ANALYZER), boost = @Boost(1f))
 	})
 	private String familyName2;
 	
@@ -14,6 +14,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.hibernate.envers.Audited;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.util.RoleConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +72,10 @@ public class Role extends BaseChangeableOpenmrsMetadata {
 	 * @param privileges The privileges to set.
 	 */
 	public void setPrivileges(Set<Privilege> privileges) {
+		// hibernate sets the privileges of a loaded role when there aren't any yet
+		if (this.privileges != null && this.privileges != privileges) {
+			UserContext.invalidateCompiledPrivileges();
+		}
 		this.privileges = privileges;
 	}
 	
@@ -90,6 +95,7 @@ public class Role extends BaseChangeableOpenmrsMetadata {
 		}
 		if (privilege != null && !containsPrivilege(privileges, privilege.getPrivilege())) {
 			privileges.add(privilege);
+			UserContext.invalidateCompiledPrivileges();
 		}
 	}
 	
@@ -108,8 +114,8 @@ public class Role extends BaseChangeableOpenmrsMetadata {
 	 * @param privilege Privilege to remove
 	 */
 	public void removePrivilege(Privilege privilege) {
-		if (privileges != null) {
-			privileges.remove(privilege);
+		if (privileges != null && privileges.remove(privilege)) {
+			UserContext.invalidateCompiledPrivileges();
 		}
 	}
 	
@@ -177,6 +183,9 @@ public class Role extends BaseChangeableOpenmrsMetadata {
 	 * @param inheritedRoles The inheritedRoles to set.
 	 */
 	public void setInheritedRoles(Set<Role> inheritedRoles) {
+		if (this.inheritedRoles != null && this.inheritedRoles != inheritedRoles) {
+			UserContext.invalidateCompiledPrivileges();
+		}
 		this.inheritedRoles = inheritedRoles;
 	}
 	
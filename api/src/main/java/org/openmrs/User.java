@@ -46,6 +46,7 @@ import org.hibernate.annotations.Parameter;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
@@ -326,6 +327,7 @@ public class User extends BaseOpenmrsObject implements java.io.Serializable, Att
 	 */
 	public void setRoles(Set<Role> roles) {
 		this.roles = roles;
+		UserContext.invalidateCompiledPrivileges();
 	}
 	
 	/**
@@ -340,6 +342,7 @@ public class User extends BaseOpenmrsObject implements java.io.Serializable, Att
 		}
 		if (!roles.contains(role) && role != null) {
 			roles.add(role);
+			UserContext.invalidateCompiledPrivileges();
 		}
 		
 		return this;
@@ -352,8 +355,8 @@ public class User extends BaseOpenmrsObject implements java.io.Serializable, Att
 	 * @return this user with the given role removed
 	 */
 	public User removeRole(Role role) {
-		if (roles != null) {
-			roles.remove(role);
+		if (roles != null && roles.remove(role)) {
+			UserContext.invalidateCompiledPrivileges();
 		}
 		
 		return this;
@@ -11,6 +11,9 @@ package org.openmrs.aop;
 
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.User;
@@ -22,6 +25,7 @@ import org.openmrs.util.PrivilegeConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.MethodBeforeAdvice;
+import org.springframework.core.MethodClassKey;
 
 /**
  * This class provides the authorization AOP advice performed before every service layer method
@@ -35,6 +39,12 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 	private static final Logger log = LoggerFactory.getLogger(AuthorizationAdvice.class);
         private static final String USER_IS_NOT_AUTHORIZED_TO_ACCESS = "User {} is not authorized to access {}";
 	
+	/**
+	 * Authorization plans resolved from the {@link org.openmrs.annotation.Authorized} annotations,
+	 * keyed by the invoked method and the target class
+	 */
+	private final Map<MethodClassKey, AuthorizationPlan> plans = new ConcurrentHashMap<>();
+	
 	/**
 	 * Allows us to check whether a user is authorized to access a particular method.
 	 * 
@@ -46,6 +56,13 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 	 */
 	@Override
 	public void before(Method method, Object[] args, Object target) throws Throwable {
+		AuthorizationPlan plan = getAuthorizationPlan(method, target);
+		
+		// methods without an @Authorized annotation are open to everyone
+		if (plan.isNoOp()) {
+			return;
+		}
+		
 		log.debug("Calling authorization advice before {}", method.getName());
 		
 		if (log.isDebugEnabled()) {
@@ -60,9 +77,8 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 			return;
 		}
 		
-		AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
-		Collection<String> privileges = attributes.getAttributes(method);
-		boolean requireAll = attributes.getRequireAll(method);
+		Collection<String> privileges = plan.getPrivileges();
+		boolean requireAll = plan.isRequireAll();
 		
 		// Only execute if the "secure" method has authorization attributes
 		// Iterate through required privileges and return only if the user has
@@ -103,11 +119,25 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 				throwUnauthorized(Context.getAuthenticatedUser(), method, privileges);
 			}
 			
-		} else if (attributes.hasAuthorizedAnnotation(method) && !Context.isAuthenticated()) {
+		} else if (!Context.isAuthenticated()) {
+			// annotated without privileges, only authentication is required
 			throwUnauthorized(Context.getAuthenticatedUser(), method);
 		}
 	}
 	
+	/**
+	 * Gets the authorization plan for the given method, reading its annotations only the first time
+	 * the method is invoked on the given target class
+	 * 
+	 * @param method the invoked method
+	 * @param target the object the method is invoked on
+	 * @return the authorization plan
+	 */
+	private AuthorizationPlan getAuthorizationPlan(Method method, Object target) {
+		Class<?> targetClass = target != null ? target.getClass() : null;
+		return plans.computeIfAbsent(new MethodClassKey(method, targetClass), key -> AuthorizationPlan.resolve(method));
+	}
+	
 	/**
 	 * Throws an APIAuthorization exception stating why the user failed
 	 * 
@@ -144,4 +174,52 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 		log.debug(USER_IS_NOT_AUTHORIZED_TO_ACCESS, user, method.getName());
 		throw new APIAuthenticationException(Context.getMessageSourceService().getMessage("error.aunthenticationRequired"));
 	}
+	
+	/**
+	 * The privileges required to invoke a service method as declared by its
+	 * {@link org.openmrs.annotation.Authorized} annotation
+	 */
+	private static final class AuthorizationPlan {
+		
+		private static final AuthorizationPlan NO_OP = new AuthorizationPlan(Collections.emptyList(), false, false);
+		
+		private final Collection<String> privileges;
+		
+		private final boolean requireAll;
+		
+		private final boolean annotated;
+		
+		private AuthorizationPlan(Collection<String> privileges, boolean requireAll, boolean annotated) {
+			this.privileges = privileges;
+			this.requireAll = requireAll;
+			this.annotated = annotated;
+		}
+		
+		static AuthorizationPlan resolve(Method method) {
+			AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
+			if (!attributes.hasAuthorizedAnnotation(method)) {
+				return NO_OP;
+			}
+			return new AuthorizationPlan(Collections.unmodifiableCollection(attributes.getAttributes(method)),
+			        attributes.getRequireAll(method), true);
+		}
+		
+		/**
+		 * @return the required privileges, empty if the method only requires authentication
+		 */
+		Collection<String> getPrivileges() {
+			return privileges;
+		}
+		
+		boolean isRequireAll() {
+			return requireAll;
+		}
+		
+		/**
+		 * @return true if the method is not annotated and hence needs no authorization at all
+		 */
+		boolean isNoOp() {
+			return !annotated;
+		}
+	}
 }
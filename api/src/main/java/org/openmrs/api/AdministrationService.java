@@ -328,6 +328,49 @@ public interface AdministrationService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_GLOBAL_PROPERTIES)
 	public <T> T getGlobalPropertyValue(String propertyName, T defaultValue);
 	
+	/**
+	 * Gets the value of a global property as an int. The value is parsed once and reused until the
+	 * global property changes.
+	 * 
+	 * @param propertyName the name of the global property, case insensitive
+	 * @param defaultValue the value to return if the property does not exist or is not an integer
+	 * @return the property value as an int
+	 * <strong>Should</strong> return the parsed value
+	 * <strong>Should</strong> return default value if property does not exist or is not an integer
+	 * @since 2.8.0
+	 */
+	@Authorized(PrivilegeConstants.GET_GLOBAL_PROPERTIES)
+	public int getGlobalPropertyAsInt(String propertyName, int defaultValue);
+	
+	/**
+	 * Gets the value of a global property as a boolean. The value is parsed once and reused until the
+	 * global property changes.
+	 * 
+	 * @param propertyName the name of the global property, case insensitive
+	 * @param defaultValue the value to return if the property does not exist or is neither "true" nor
+	 *            "false"
+	 * @return the property value as a boolean
+	 * <strong>Should</strong> return the parsed value ignoring case
+	 * <strong>Should</strong> return default value if property does not exist or is not a boolean
+	 * @since 2.8.0
+	 */
+	@Authorized(PrivilegeConstants.GET_GLOBAL_PROPERTIES)
+	public boolean getGlobalPropertyAsBoolean(String propertyName, boolean defaultValue);
+	
+	/**
+	 * Gets the value of a global property as a list of its comma separated elements. The value is
+	 * parsed once and reused until the global property changes.
+	 * 
+	 * @param propertyName the name of the global property, case insensitive
+	 * @return an unmodifiable list of the trimmed, non blank elements, empty if the property does not
+	 *         exist
+	 * <strong>Should</strong> return the trimmed elements skipping blank ones
+	 * <strong>Should</strong> return an empty list if property does not exist
+	 * @since 2.8.0
+	 */
+	@Authorized(PrivilegeConstants.GET_GLOBAL_PROPERTIES)
+	public List<String> getGlobalPropertyAsList(String propertyName);
+	
 	/**
 	 * @param aClass class of object getting length for
 	 * @param fieldName name of the field to get the length for
@@ -406,6 +449,16 @@ public interface AdministrationService extends OpenmrsService {
 	 */
 	public void updatePostgresSequence();
 	
+	/**
+	 * Gets the progress of the last rebuild of the search index, e.g. to show how many entities of
+	 * each type are indexed and the estimated remaining time while the index is rebuilt.
+	 * 
+	 * @return the progress or null if the index has not been rebuilt since the application started
+	 * @since 2.8.0
+	 */
+	@Authorized(PrivilegeConstants.MANAGE_SEARCH_INDEX)
+	public SearchIndexProgress getSearchIndexProgress();
+	
 	/**
 	 * Returns a list of packages and/or individual classes including hierarchy of OpenmrsObject, OpenmmrsMetadata,
 	 * OpenmrsData and other common OpenMRS classes as well as any whitelists defined through GPs with the 
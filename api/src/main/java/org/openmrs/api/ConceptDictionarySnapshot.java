@@ -0,0 +1,540 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, read-only view of the concept dictionary held in memory, for the read paths
+ * resolving concepts by id, uuid, mapping or name over and over. Its lookups never touch the
+ * database or the Hibernate session, so they return {@link ConceptEntry}s rather than
+ * {@link org.openmrs.Concept}s, with the ids of the answers and set members of each concept
+ * precomputed in their sort order.
+ * <p>
+ * Concepts are kept in an array sorted by id, looked up by binary search. A snapshot is never
+ * modified, {@link #withConcepts(Collection, Collection)} returns a new snapshot laying the changed
+ * concepts over this one instead, so that its cost depends on the number of changed concepts rather
+ * than on the size of the dictionary.
+ *
+ * @see ConceptService#getConceptDictionarySnapshot()
+ * @since 2.8.0
+ */
+public final class ConceptDictionarySnapshot {
+
+	private static final int[] NO_IDS = new int[0];
+
+	/**
+	 * The number of changed concepts from which a snapshot laid over another is built as a whole
+	 * instead
+	 */
+	private static final int MIN_CHANGES_TO_REBUILD = 1024;
+
+	/**
+	 * The snapshot the concepts of this one are laid over, null if this one holds all of them
+	 */
+	private final ConceptDictionarySnapshot base;
+
+	/**
+	 * The ids of the concepts of the base which are replaced or removed by this snapshot
+	 */
+	private final Set<Integer> replacedIds;
+
+	private final int size;
+
+	private final int[] conceptIds;
+
+	private final ConceptEntry[] concepts;
+
+	private final Map<String, Integer> conceptIdsByUuid;
+
+	private final Map<String, int[]> conceptIdsByMapping;
+
+	private final Map<String, int[]> conceptIdsByName;
+
+	private ConceptDictionarySnapshot(ConceptEntry[] concepts) {
+		this(null, Collections.emptySet(), concepts);
+	}
+
+	private ConceptDictionarySnapshot(ConceptDictionarySnapshot base, Set<Integer> replacedIds, ConceptEntry[] concepts) {
+		this.base = base;
+		this.replacedIds = replacedIds;
+		Arrays.sort(concepts, (a, b) -> Integer.compare(a.conceptId, b.conceptId));
+		this.concepts = concepts;
+		this.conceptIds = new int[concepts.length];
+		Map<String, Integer> byUuid = new HashMap<>(concepts.length * 2);
+		Map<String, Set<Integer>> byMapping = new HashMap<>();
+		Map<String, Set<Integer>> byName = new HashMap<>();
+		for (int i = 0; i < concepts.length; i++) {
+			ConceptEntry concept = concepts[i];
+			conceptIds[i] = concept.conceptId;
+			if (concept.uuid != null) {
+				byUuid.put(concept.uuid, concept.conceptId);
+			}
+			for (MappingEntry mapping : concept.mappings) {
+				addId(byMapping, toMappingKey(mapping.code, mapping.sourceName), concept.conceptId);
+				if (mapping.sourceHl7Code != null) {
+					addId(byMapping, toMappingKey(mapping.code, mapping.sourceHl7Code), concept.conceptId);
+				}
+			}
+			for (NameEntry name : concept.names) {
+				addId(byName, toKey(name.name), concept.conceptId);
+			}
+		}
+		this.conceptIdsByUuid = byUuid;
+		this.conceptIdsByMapping = toIdArrays(byMapping);
+		this.conceptIdsByName = toIdArrays(byName);
+		int baseSize = 0;
+		if (base != null) {
+			baseSize = base.size;
+			for (Integer replacedId : replacedIds) {
+				if (base.getConcept(replacedId) != null) {
+					baseSize--;
+				}
+			}
+		}
+		this.size = baseSize + concepts.length;
+	}
+
+	/**
+	 * @param concepts the concepts of the dictionary
+	 * @return a snapshot of the given concepts
+	 */
+	public static ConceptDictionarySnapshot of(Collection<ConceptEntry> concepts) {
+		return new ConceptDictionarySnapshot(concepts.toArray(new ConceptEntry[0]));
+	}
+
+	/**
+	 * Creates a copy of this snapshot in which the given concepts are replaced
+	 *
+	 * @param conceptIds the ids of the changed concepts
+	 * @param changedConcepts the current entries of the changed concepts, the concepts missing from it
+	 *            are removed from the copy
+	 * @return the copy
+	 */
+	public ConceptDictionarySnapshot withConcepts(Collection<Integer> conceptIds, Collection<ConceptEntry> changedConcepts) {
+		Set<Integer> replaced = new HashSet<>(conceptIds);
+		for (ConceptEntry concept : changedConcepts) {
+			replaced.add(concept.conceptId);
+		}
+		// changes laid over a snapshot which is itself laid over another are merged with its own
+		List<ConceptEntry> changes = new ArrayList<>(concepts.length + changedConcepts.size());
+		for (ConceptEntry concept : concepts) {
+			if (base != null && !replaced.contains(concept.conceptId)) {
+				changes.add(concept);
+			}
+		}
+		changes.addAll(changedConcepts);
+		ConceptDictionarySnapshot newBase = base != null ? base : this;
+		if (base != null) {
+			replaced.addAll(replacedIds);
+		}
+		if (changes.size() < Math.max(MIN_CHANGES_TO_REBUILD, newBase.concepts.length / 16)) {
+			return new ConceptDictionarySnapshot(newBase, replaced, changes.toArray(new ConceptEntry[0]));
+		}
+		List<ConceptEntry> copy = new ArrayList<>(newBase.concepts.length + changes.size());
+		for (ConceptEntry concept : newBase.concepts) {
+			if (!replaced.contains(concept.conceptId)) {
+				copy.add(concept);
+			}
+		}
+		copy.addAll(changes);
+		return of(copy);
+	}
+
+	/**
+	 * @return the number of concepts in this snapshot
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param conceptId the id of the concept
+	 * @return the concept with the given id or null if there is none
+	 */
+	public ConceptEntry getConcept(int conceptId) {
+		int index = Arrays.binarySearch(conceptIds, conceptId);
+		if (index >= 0) {
+			return concepts[index];
+		}
+		return base == null || replacedIds.contains(conceptId) ? null : base.getConcept(conceptId);
+	}
+
+	/**
+	 * @param uuid the uuid of the concept
+	 * @return the concept with the given uuid or null if there is none
+	 */
+	public ConceptEntry getConceptByUuid(String uuid) {
+		if (uuid == null) {
+			return null;
+		}
+		Integer conceptId = conceptIdsByUuid.get(uuid);
+		if (conceptId != null) {
+			return getConcept(conceptId);
+		}
+		ConceptEntry concept = base == null ? null : base.getConceptByUuid(uuid);
+		return concept == null || replacedIds.contains(concept.conceptId) ? null : concept;
+	}
+
+	/**
+	 * Looks up the concepts mapped to the given code, like
+	 * {@link ConceptService#getConceptsByMapping(String, String, boolean)}
+	 *
+	 * @param code the code of the reference term, case insensitive
+	 * @param sourceName the name or hl7 code of the concept source, case insensitive
+	 * @param includeRetired whether or not to include retired concepts, which come last
+	 * @return the concepts mapped to the code in the source, ordered by id
+	 */
+	public List<ConceptEntry> getConceptsByMapping(String code, String sourceName, boolean includeRetired) {
+		if (code == null || sourceName == null) {
+			return Collections.emptyList();
+		}
+		return getConcepts(getIdsByMapping(toMappingKey(code, sourceName)), includeRetired);
+	}
+
+	/**
+	 * @param name the name, case insensitive
+	 * @param includeRetired whether or not to include retired concepts, which come last
+	 * @return the concepts with a non voided name equal to the given one in any locale, ordered by id
+	 */
+	public List<ConceptEntry> getConceptsByName(String name, boolean includeRetired) {
+		if (name == null) {
+			return Collections.emptyList();
+		}
+		return getConcepts(getIdsByName(toKey(name.trim())), includeRetired);
+	}
+
+	private int[] getIdsByMapping(String key) {
+		return merge(conceptIdsByMapping.get(key), base == null ? null : base.getIdsByMapping(key));
+	}
+
+	private int[] getIdsByName(String key) {
+		return merge(conceptIdsByName.get(key), base == null ? null : base.getIdsByName(key));
+	}
+
+	/**
+	 * Merges the ids of the concepts of this snapshot with the ids of the concepts of the base it
+	 * doesn't replace, in order
+	 */
+	private int[] merge(int[] ids, int[] baseIds) {
+		if (baseIds == null) {
+			return ids;
+		}
+		int[] keptBaseIds = Arrays.stream(baseIds).filter(id -> !replacedIds.contains(id)).toArray();
+		if (ids == null) {
+			return keptBaseIds;
+		}
+		int[] merged = Arrays.copyOf(ids, ids.length + keptBaseIds.length);
+		System.arraycopy(keptBaseIds, 0, merged, ids.length, keptBaseIds.length);
+		Arrays.sort(merged);
+		return merged;
+	}
+
+	private List<ConceptEntry> getConcepts(int[] ids, boolean includeRetired) {
+		if (ids == null) {
+			return Collections.emptyList();
+		}
+		List<ConceptEntry> result = new ArrayList<>(ids.length);
+		List<ConceptEntry> retired = new ArrayList<>();
+		for (int id : ids) {
+			ConceptEntry concept = getConcept(id);
+			if (!concept.retired) {
+				result.add(concept);
+			} else if (includeRetired) {
+				retired.add(concept);
+			}
+		}
+		result.addAll(retired);
+		return result;
+	}
+
+	private static void addId(Map<String, Set<Integer>> index, String key, int conceptId) {
+		index.computeIfAbsent(key, k -> new HashSet<>(2)).add(conceptId);
+	}
+
+	private static Map<String, int[]> toIdArrays(Map<String, Set<Integer>> index) {
+		Map<String, int[]> result = new HashMap<>(index.size() * 2);
+		index.forEach((key, ids) -> {
+			int[] array = ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+			result.put(key, array);
+		});
+		return result;
+	}
+
+	private static String toMappingKey(String code, String source) {
+		return toKey(source) + ":" + toKey(code);
+	}
+
+	private static String toKey(String value) {
+		return value.toLowerCase(Locale.ROOT);
+	}
+
+	private static int[] copyOrEmpty(int[] ids) {
+		return ids == null || ids.length == 0 ? NO_IDS : ids.clone();
+	}
+
+	/**
+	 * A concept of a {@link ConceptDictionarySnapshot}
+	 */
+	public static final class ConceptEntry {
+
+		private final int conceptId;
+
+		private final String uuid;
+
+		private final boolean retired;
+
+		private final boolean set;
+
+		private final Integer datatypeId;
+
+		private final Integer conceptClassId;
+
+		private final NameEntry[] names;
+
+		private final MappingEntry[] mappings;
+
+		private final int[] answerIds;
+
+		private final int[] setMemberIds;
+
+		/**
+		 * @param conceptId the id of the concept
+		 * @param uuid the uuid of the concept
+		 * @param retired whether the concept is retired
+		 * @param set whether the concept is a set
+		 * @param datatypeId the id of the datatype of the concept
+		 * @param conceptClassId the id of the class of the concept
+		 * @param names the non voided names of the concept
+		 * @param mappings the mappings of the concept
+		 * @param answerIds the ids of the answers of the concept in their sort order
+		 * @param setMemberIds the ids of the set members of the concept in their sort order
+		 */
+		public ConceptEntry(int conceptId, String uuid, boolean retired, boolean set, Integer datatypeId,
+		    Integer conceptClassId, List<NameEntry> names, List<MappingEntry> mappings, int[] answerIds,
+		    int[] setMemberIds) {
+			this.conceptId = conceptId;
+			this.uuid = uuid;
+			this.retired = retired;
+			this.set = set;
+			this.datatypeId = datatypeId;
+			this.conceptClassId = conceptClassId;
+			this.names = names.toArray(new NameEntry[0]);
+			this.mappings = mappings.toArray(new MappingEntry[0]);
+			this.answerIds = copyOrEmpty(answerIds);
+			this.setMemberIds = copyOrEmpty(setMemberIds);
+		}
+
+		public int getConceptId() {
+			return conceptId;
+		}
+
+		public String getUuid() {
+			return uuid;
+		}
+
+		public boolean isRetired() {
+			return retired;
+		}
+
+		public boolean isSet() {
+			return set;
+		}
+
+		public Integer getDatatypeId() {
+			return datatypeId;
+		}
+
+		public Integer getConceptClassId() {
+			return conceptClassId;
+		}
+
+		/**
+		 * @return the non voided names of the concept
+		 */
+		public List<NameEntry> getNames() {
+			return Collections.unmodifiableList(Arrays.asList(names));
+		}
+
+		/**
+		 * @return the mappings of the concept
+		 */
+		public List<MappingEntry> getMappings() {
+			return Collections.unmodifiableList(Arrays.asList(mappings));
+		}
+
+		/**
+		 * @return the ids of the answers of the concept in their sort order
+		 */
+		public int[] getAnswerIds() {
+			return answerIds.clone();
+		}
+
+		/**
+		 * @return the ids of the set members of the concept in their sort order
+		 */
+		public int[] getSetMemberIds() {
+			return setMemberIds.clone();
+		}
+
+		/**
+		 * @param conceptId the id of a concept
+		 * @return true if the given concept is an answer of this concept
+		 */
+		public boolean hasAnswer(int conceptId) {
+			for (int answerId : answerIds) {
+				if (answerId == conceptId) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Gets the name to display in the given locale, like
+		 * {@link org.openmrs.Concept#getPreferredName(Locale)} without falling back to other locales
+		 *
+		 * @param locale the locale
+		 * @return the name preferred in the locale, else its fully specified name, else null
+		 */
+		public NameEntry getPreferredName(Locale locale) {
+			NameEntry fullySpecifiedName = null;
+			for (NameEntry name : names) {
+				if (name.locale.equals(locale)) {
+					if (name.localePreferred) {
+						return name;
+					}
+					if (fullySpecifiedName == null && name.type == ConceptNameType.FULLY_SPECIFIED) {
+						fullySpecifiedName = name;
+					}
+				}
+			}
+			return fullySpecifiedName;
+		}
+
+		/**
+		 * @param locale the locale
+		 * @return the fully specified name of the concept in the given locale or null if there is none
+		 */
+		public NameEntry getFullySpecifiedName(Locale locale) {
+			for (NameEntry name : names) {
+				if (name.type == ConceptNameType.FULLY_SPECIFIED && name.locale.equals(locale)) {
+					return name;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A non voided name of a {@link ConceptEntry}
+	 */
+	public static final class NameEntry {
+
+		private final int conceptNameId;
+
+		private final String name;
+
+		private final Locale locale;
+
+		private final ConceptNameType type;
+
+		private final boolean localePreferred;
+
+		/**
+		 * @param conceptNameId the id of the name
+		 * @param name the name
+		 * @param locale the locale of the name
+		 * @param type the type of the name, may be null
+		 * @param localePreferred whether the name is preferred in its locale
+		 */
+		public NameEntry(int conceptNameId, String name, Locale locale, ConceptNameType type, boolean localePreferred) {
+			this.conceptNameId = conceptNameId;
+			this.name = name;
+			this.locale = locale;
+			this.type = type;
+			this.localePreferred = localePreferred;
+		}
+
+		public int getConceptNameId() {
+			return conceptNameId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Locale getLocale() {
+			return locale;
+		}
+
+		public ConceptNameType getType() {
+			return type;
+		}
+
+		public boolean isLocalePreferred() {
+			return localePreferred;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * A mapping of a {@link ConceptEntry} to a reference term
+	 */
+	public static final class MappingEntry {
+
+		private final String code;
+
+		private final String sourceName;
+
+		private final String sourceHl7Code;
+
+		/**
+		 * @param code the code of the reference term
+		 * @param sourceName the name of the source of the reference term
+		 * @param sourceHl7Code the hl7 code of the source of the reference term, may be null
+		 */
+		public MappingEntry(String code, String sourceName, String sourceHl7Code) {
+			this.code = code;
+			this.sourceName = sourceName;
+			this.sourceHl7Code = sourceHl7Code;
+		}
+
+		public String getCode() {
+			return code;
+		}
+
+		public String getSourceName() {
+			return sourceName;
+		}
+
+		public String getSourceHl7Code() {
+			return sourceHl7Code;
+		}
+
+		@Override
+		public String toString() {
+			return sourceName + ":" + code;
+		}
+	}
+}
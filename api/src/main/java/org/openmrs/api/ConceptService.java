@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.openmrs.Concept;
@@ -219,6 +220,19 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Concept getConcept(Integer conceptId) throws APIException;
 	
+	/**
+	 * Gets the concepts with the given ids, loaded together with their names in a few queries instead
+	 * of one query per concept
+	 * 
+	 * @param conceptIds
+	 * @return the matching concepts in the order of the given ids, each concept once
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> return the concepts in the order of the given ids
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<Concept> getConcepts(Collection<Integer> conceptIds) throws APIException;
+	
 	/**
 	 * Gets the concept-name with the given id
 	 * 
@@ -344,6 +358,20 @@ public interface ConceptService extends OpenmrsService {
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Concept getConceptByReference(String conceptRef);
+
+	/**
+	 * Gets the concepts of several references, as {@link #getConceptByReference(String)} would. The
+	 * references in the "SOURCE:CODE" mapping form are looked up together in a single query.
+	 * 
+	 * @param conceptRefs the concept string identifiers
+	 * @return the found concepts by reference, in the order of the given references, leaving out
+	 *         the ones which don't match any concept
+	 * @since 2.8.0
+	 * <strong>Should</strong> find concepts by every form of reference
+	 * <strong>Should</strong> leave out the references which do not match any concept
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public Map<String, Concept> getConceptsByReferences(Collection<String> conceptRefs);
 	
 	/**
 	 * Get Drug by its UUID
@@ -645,6 +673,23 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<ConceptSet> getSetsContainingConcept(Concept concept) throws APIException;
 	
+	/**
+	 * Checks whether a concept is within a concept set, i.e. whether it is among the concepts
+	 * returned by {@link #getConceptsByConceptSet(Concept)} for the set
+	 * 
+	 * @param concept the concept to look for
+	 * @param set the concept representing the concept set
+	 * @return true if the concept is a member of the set or of a set among its members, recursively
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> return true for a direct member of the set
+	 * <strong>Should</strong> return true for a member of a nested set
+	 * <strong>Should</strong> return false for a concept not in the set
+	 * <strong>Should</strong> see members added in the current transaction
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public boolean isConceptInSet(Concept concept, Concept set) throws APIException;
+	
 	/**
 	 * Get a List of all concept proposals
 	 * 
@@ -1226,6 +1271,29 @@ public interface ConceptService extends OpenmrsService {
 	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
 	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept, Integer start, Integer size)
 	                throws APIException;
+	
+	/**
+	 * Suggests concepts for type-ahead search. Every word of the prefix must match the start of a
+	 * word in a name of the concept. Preferred and fully specified names rank higher. Unlike
+	 * {@link #getConcepts(String, List, boolean, List, List, List, List, Concept, Integer, Integer)}
+	 * there is no fuzzy matching, which makes it cheap enough to be called on every keystroke.
+	 * 
+	 * @param prefix the start of the words to match
+	 * @param locales the locales of the names to match, the user's locale if null or empty
+	 * @param limit the maximum number of concepts to return, 10 if null
+	 * @return one search result for each matching concept, holding its best matching name
+	 * @throws APIException
+	 * <strong>Should</strong> return concepts with a name starting with the prefix
+	 * <strong>Should</strong> match the start of every word of the prefix
+	 * <strong>Should</strong> return each concept once
+	 * <strong>Should</strong> rank preferred names higher
+	 * <strong>Should</strong> not return retired concepts nor voided names
+	 * <strong>Should</strong> return an empty list for a blank prefix
+	 * @since 2.8.0
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<ConceptSearchResult> suggestConcepts(String prefix, List<Locale> locales, Integer limit)
+	        throws APIException;
 					
 	/**
 	 * Finds concepts that are possible value coded answers to concept parameter
@@ -2025,5 +2093,24 @@ public interface ConceptService extends OpenmrsService {
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	ConceptReferenceRange getConceptReferenceRangeByUuid(String uuid);
-	
+
+	/**
+	 * Gets the in-memory snapshot of the concept dictionary, whose lookups by id, uuid, mapping and
+	 * name don't touch the database. It is only kept if the
+	 * {@link org.openmrs.util.OpenmrsConstants#CONCEPT_DICTIONARY_SNAPSHOT_RUNTIME_PROPERTY} runtime
+	 * property is true. The returned snapshot never changes, so it should be asked for again rather
+	 * than held on to.
+	 *
+	 * @return the current snapshot, including the changes made by the current transaction, or null
+	 *         if it is disabled or still being built by another thread
+	 * @since 2.8.0
+	 *
+	 * <strong>Should</strong> return null if the snapshot is disabled
+	 * <strong>Should</strong> look up concepts by id uuid mapping and name
+	 * <strong>Should</strong> include the answers and set members of concepts
+	 * <strong>Should</strong> include concepts saved in the current transaction
+	 * <strong>Should</strong> not include purged concepts
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	ConceptDictionarySnapshot getConceptDictionarySnapshot();
 }
@@ -0,0 +1,30 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api;
+
+/**
+ * How {@link PatientService#getPatients(String, boolean, Integer, Integer)} finds patients <br>
+ * <br>
+ * <b>PER_ENTITY</b> - Searches the identifiers, then the names, then the searchable attributes,
+ * each in its own index, listing the patients found by an earlier search first.<br>
+ * <br>
+ * <b>UNIFIED</b> - Searches the identifiers, names and searchable attributes indexed with each
+ * patient at once, ranking identifier matches above name matches and name matches above attribute
+ * matches. Voided identifiers, names and attributes are not indexed with the patient, so searches
+ * including voided patients always use PER_ENTITY.
+ * 
+ * @see org.openmrs.util.OpenmrsConstants#GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY
+ * @since 2.8.0
+ */
+public enum PatientSearchStrategy {
+	
+	PER_ENTITY,
+	UNIFIED
+}
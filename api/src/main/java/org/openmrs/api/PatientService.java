@@ -27,6 +27,7 @@ import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.serialization.SerializationException;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.PrivilegeConstants;
 
 /**
@@ -83,6 +84,20 @@ public interface PatientService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_PATIENTS })
 	public Patient getPatient(Integer patientId) throws APIException;
 	
+	/**
+	 * Get the patients with the given internal identifiers, loaded together with their names,
+	 * identifiers and attributes in a few queries instead of one query per patient
+	 * 
+	 * @param patientIds internal patient identifiers
+	 * @return the patients in the order of the given identifiers, each patient once
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> return the patients in the order of the given ids
+	 * <strong>Should</strong> skip ids without a patient
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public List<Patient> getPatients(Collection<Integer> patientIds) throws APIException;
+	
 	/**
 	 * Get patient by internal identifier. If this id is for an existing person then instantiates a
 	 * new patient from that person, copying over all the fields.
@@ -460,6 +475,28 @@ public interface PatientService extends OpenmrsService {
 	 */
 	@Authorized( { PrivilegeConstants.GET_PATIENTS })
 	public List<Patient> getPatients(String query, boolean includeVoided, Integer start, Integer length) throws APIException;
+	
+	/**
+	 * Same as {@link #getPatients(String, boolean, Integer, Integer)} but with the given search
+	 * strategy instead of the one set by the global property
+	 * {@link org.openmrs.util.OpenmrsConstants#GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY}
+	 * 
+	 * @param query the string to search on
+	 * @param includeVoided true/false whether or not to included voided patients
+	 * @param start the starting index
+	 * @param length the number of patients to return
+	 * @param strategy the search strategy to use
+	 * @return a list of matching Patients
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> find patients by identifier, name and searchable attribute with the unified strategy
+	 * <strong>Should</strong> rank identifier matches first with the unified strategy
+	 * <strong>Should</strong> not find patients by voided names with the unified strategy
+	 * <strong>Should</strong> find patients by updated names with the unified strategy
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public List<Patient> getPatients(String query, boolean includeVoided, Integer start, Integer length,
+	        PatientSearchStrategy strategy) throws APIException;
 		
 	/**
 	 * This method tries to find a patient in the database given the attributes on the given
@@ -491,6 +528,36 @@ public interface PatientService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_PATIENTS })
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws APIException;
 	
+	/**
+	 * Finds the patients which may be duplicates of the given patient. The candidates are the patients
+	 * sharing a blocking key with the patient, e.g. a phonetically similar family name with the same
+	 * birth year and gender, and are scored with the similarity function set by the
+	 * {@link OpenmrsConstants#GP_PATIENT_DUPLICATE_SIMILARITY} global property. The blocking keys are
+	 * updated as patients are saved, the keys of the existing patients are computed by
+	 * {@link #updatePatientBlockingKeys()}.
+	 * 
+	 * @param patient the patient to find possible duplicates of, which does not need to be saved
+	 * @return the patients scoring at least {@link OpenmrsConstants#GP_PATIENT_DUPLICATE_THRESHOLD},
+	 *         the most similar first
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> find patients with similar names and the same birth year and gender
+	 * <strong>Should</strong> not return patients below the similarity threshold
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public List<Patient> getPossibleDuplicatePatients(Patient patient) throws APIException;
+	
+	/**
+	 * Computes the blocking keys of all patients in one pass, replacing the stored keys
+	 * 
+	 * @return the number of stored keys
+	 * @throws APIException
+	 * @see #getPossibleDuplicatePatients(Patient)
+	 * @since 2.8.0
+	 */
+	@Authorized( { PrivilegeConstants.EDIT_PATIENTS })
+	public long updatePatientBlockingKeys() throws APIException;
+	
 	/**
 	 * Convenience method to join two patients' information into one record.
 	 * <ol>
@@ -815,6 +882,17 @@ public interface PatientService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_PATIENTS })
 	public Integer getCountOfPatients(String query, boolean includeVoided);
 	
+	/**
+	 * @param query the string to search on
+	 * @param includeVoided true/false whether or not to included voided patients
+	 * @param strategy the search strategy to use
+	 * @return the number of patients matching the given search phrase
+	 * @since 2.8.0
+	 * <strong>Should</strong> count each matching patient once with the unified strategy
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public Integer getCountOfPatients(String query, boolean includeVoided, PatientSearchStrategy strategy);
+	
 	/**
 	 * Get a limited size of patients from a given start index based on given criteria The
 	 * identifier is matched with the regex <code>OpenmrsConstants.PATIENT_IDENTIFIER_REGEX</code>
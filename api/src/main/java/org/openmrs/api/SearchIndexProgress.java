@@ -0,0 +1,146 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A snapshot of the progress of a rebuild of the search index, counted in indexed entities per
+ * type.
+ *
+ * @see AdministrationService#getSearchIndexProgress()
+ * @since 2.8.0
+ */
+public class SearchIndexProgress {
+
+	private final Date started;
+
+	private final Date finished;
+
+	private final Map<String, Long> totalByType;
+
+	private final Map<String, Long> doneByType;
+
+	/**
+	 * @param started when the rebuild started
+	 * @param finished when the rebuild finished or null if it is still running
+	 * @param totalByType the number of entities to index per type name
+	 * @param doneByType the number of entities indexed so far per type name
+	 */
+	public SearchIndexProgress(Date started, Date finished, Map<String, Long> totalByType, Map<String, Long> doneByType) {
+		this.started = started;
+		this.finished = finished;
+		this.totalByType = Collections.unmodifiableMap(new LinkedHashMap<>(totalByType));
+		this.doneByType = Collections.unmodifiableMap(new LinkedHashMap<>(doneByType));
+	}
+
+	/**
+	 * @return when the rebuild started
+	 */
+	public Date getStarted() {
+		return started;
+	}
+
+	/**
+	 * @return when the rebuild finished or null if it is still running
+	 */
+	public Date getFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return true if the rebuild has not finished yet
+	 */
+	public boolean isRunning() {
+		return finished == null;
+	}
+
+	/**
+	 * @return the names of the indexed types
+	 */
+	public Set<String> getTypes() {
+		return totalByType.keySet();
+	}
+
+	/**
+	 * @param type the name of an indexed type
+	 * @return the number of entities of the given type to index
+	 */
+	public long getTotal(String type) {
+		return totalByType.getOrDefault(type, 0L);
+	}
+
+	/**
+	 * @param type the name of an indexed type
+	 * @return the number of entities of the given type indexed so far
+	 */
+	public long getDone(String type) {
+		return doneByType.getOrDefault(type, 0L);
+	}
+
+	/**
+	 * @return the number of entities to index
+	 */
+	public long getTotal() {
+		return totalByType.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * @return the number of entities indexed so far
+	 */
+	public long getDone() {
+		return doneByType.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * @return the time spent on the rebuild in milliseconds
+	 */
+	public long getElapsed() {
+		return (finished != null ? finished.getTime() : System.currentTimeMillis()) - started.getTime();
+	}
+
+	/**
+	 * Estimates the remaining time from the rate the entities have been indexed at so far.
+	 *
+	 * @return the estimated remaining time in milliseconds, 0 once finished or -1 while nothing has
+	 *         been indexed to estimate from
+	 */
+	public long getEta() {
+		if (finished != null) {
+			return 0;
+		}
+		long done = getDone();
+		if (done == 0) {
+			return -1;
+		}
+		return getElapsed() * Math.max(getTotal() - done, 0) / done;
+	}
+
+	/**
+	 * @return the percentage of the entities indexed so far
+	 */
+	public double getPercentage() {
+		long total = getTotal();
+		if (total == 0) {
+			return finished != null ? 100 : 0;
+		}
+		return Math.min(100.0, 100.0 * getDone() / total);
+	}
+
+	@Override
+	public String toString() {
+		return "SearchIndexProgress[done=" + getDone() + ", total=" + getTotal() + ", elapsed=" + getElapsed() + "ms, eta="
+		        + getEta() + "ms]";
+	}
+}
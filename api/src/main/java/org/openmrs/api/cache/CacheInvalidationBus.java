@@ -0,0 +1,301 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import net.sf.ehcache.Ehcache;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.CacheInvalidation;
+import org.openmrs.api.db.CacheInvalidationDAO;
+import org.openmrs.util.OpenmrsConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the node local caches of several OpenMRS instances sharing the same database consistent
+ * without any extra infrastructure. Changes to a cache are appended to the cache_invalidation table
+ * as part of the transaction making them and every node periodically reads the records added by
+ * other nodes, with a single query on the primary key, and evicts the matching entries from its own
+ * caches.
+ * <p>
+ * Caches of the {@link CacheManager} given to this bus are handled out of the box, i.e. the Spring
+ * caches used by the <code>@Cacheable</code> service methods. Keys are recorded by their string
+ * representation, which an index kept per cache maps back to the evicted key. Other caches can be
+ * kept in sync by calling {@link #publish(String, Object)} when they change and registering a handler
+ * for them with {@link #addHandler(String, Consumer)}.
+ * <p>
+ * The bus is off unless the {@link OpenmrsConstants#CACHE_INVALIDATION_POLL_INTERVAL_RUNTIME_PROPERTY}
+ * runtime property is set to a positive number of seconds. Records are re-read for
+ * {@link #SETTLE_MILLIS} after they were created, so that records whose transaction committed after
+ * that of a record with a greater id aren't missed, and are deleted after {@link #RETENTION_MILLIS}.
+ * A starting node likewise reads the records created within {@link #SETTLE_MILLIS} before it.
+ *
+ * @since 2.8.0
+ */
+public class CacheInvalidationBus {
+
+	private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	static final long SETTLE_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+	static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	private final String nodeId = UUID.randomUUID().toString();
+
+	private final Map<String, Consumer<String>> handlers = new ConcurrentHashMap<>();
+
+	private final Map<String, EhcacheKeyIndex> keyIndexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Ids of the records greater than the watermark that were already applied
+	 */
+	private final Set<Integer> appliedIds = ConcurrentHashMap.newKeySet();
+
+	private CacheInvalidationDAO dao;
+
+	private CacheManager cacheManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private volatile boolean enabled = false;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Every record with an id lower or equal to this one has been applied
+	 */
+	private Integer watermark = 0;
+
+	private long lastPruned = 0;
+
+	private ScheduledExecutorService executor;
+
+	public void setCacheInvalidationDAO(CacheInvalidationDAO dao) {
+		this.dao = dao;
+	}
+
+	/**
+	 * @param cacheManager the manager of the node local caches to evict from, it must not publish
+	 *            evictions itself
+	 */
+	public void setCacheManager(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Starts recording and polling for cache changes if a poll interval is configured
+	 *
+	 * @param props the runtime properties
+	 */
+	public synchronized void startup(Properties props) {
+		long pollInterval = NumberUtils.toLong(
+		    props.getProperty(OpenmrsConstants.CACHE_INVALIDATION_POLL_INTERVAL_RUNTIME_PROPERTY), 0);
+		if (pollInterval <= 0 || enabled) {
+			return;
+		}
+		batchSize = Math.max(1, NumberUtils.toInt(
+		    props.getProperty(OpenmrsConstants.CACHE_INVALIDATION_BATCH_SIZE_RUNTIME_PROPERTY), DEFAULT_BATCH_SIZE));
+
+		// this node's caches are empty, only records whose transaction may still be in flight are read
+		Date settled = new Date(System.currentTimeMillis() - SETTLE_MILLIS);
+		watermark = transactionTemplate.execute(status -> dao.getLatestCacheInvalidationId(settled));
+		appliedIds.clear();
+		if (cacheManager != null) {
+			for (String cacheName : cacheManager.getCacheNames()) {
+				getKeyIndex(cacheName, cacheManager.getCache(cacheName));
+			}
+		}
+		enabled = true;
+
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "OpenMRS-CacheInvalidationBus");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::pollInSession, pollInterval, pollInterval, TimeUnit.SECONDS);
+		log.info("Polling for cache invalidations every {} seconds as node {}", pollInterval, nodeId);
+	}
+
+	/**
+	 * Stops recording and polling for cache changes
+	 */
+	public synchronized void shutdown() {
+		enabled = false;
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * @return true if cache changes are recorded and polled for
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Registers the handler that applies changes made by other nodes to the cache with the given name,
+	 * instead of looking up the cache in the cache manager
+	 *
+	 * @param cacheName the name of the cache
+	 * @param handler called with the changed key or with null if the whole cache was cleared
+	 */
+	public void addHandler(String cacheName, Consumer<String> handler) {
+		handlers.put(cacheName, handler);
+	}
+
+	/**
+	 * Records a change to a cache so that other nodes evict it too. It joins the current transaction,
+	 * if any, so the change is only visible to other nodes once committed.
+	 *
+	 * @param cacheName the name of the cache
+	 * @param key the changed key, compared to the keys of other nodes by its string representation,
+	 *            or null if the whole cache was cleared
+	 */
+	public void publish(String cacheName, Object key) {
+		if (!enabled) {
+			return;
+		}
+		CacheInvalidation cacheInvalidation = newCacheInvalidation(cacheName, key);
+		transactionTemplate.execute(status -> dao.saveCacheInvalidation(cacheInvalidation));
+	}
+
+	/**
+	 * Creates the record of a change to a cache, for callers which have to save it themselves
+	 *
+	 * @param cacheName the name of the cache
+	 * @param key the changed key or null if the whole cache was cleared
+	 * @return the record to save
+	 * @see #publish(String, Object)
+	 */
+	public CacheInvalidation newCacheInvalidation(String cacheName, Object key) {
+		String cacheKey = key == null ? null : String.valueOf(key);
+		if (cacheKey != null && cacheKey.length() > MAX_KEY_LENGTH) {
+			// the key can't be stored as is, so have the whole cache cleared instead
+			cacheKey = null;
+		}
+		return new CacheInvalidation(cacheName, cacheKey, nodeId);
+	}
+
+	/**
+	 * Applies the cache changes made by other nodes since the last poll
+	 *
+	 * @return the number of applied changes
+	 */
+	public synchronized int poll() {
+		if (!enabled) {
+			return 0;
+		}
+		return transactionTemplate.execute(status -> {
+			long now = System.currentTimeMillis();
+			Date settled = new Date(now - SETTLE_MILLIS);
+			boolean settledSoFar = true;
+			int applied = 0;
+			Integer cursor = watermark;
+			List<CacheInvalidation> batch;
+			do {
+				batch = dao.getCacheInvalidations(cursor, batchSize);
+				for (CacheInvalidation cacheInvalidation : batch) {
+					cursor = cacheInvalidation.getCacheInvalidationId();
+					if (appliedIds.add(cursor) && !nodeId.equals(cacheInvalidation.getOrigin())) {
+						apply(cacheInvalidation);
+						applied++;
+					}
+					settledSoFar &= cacheInvalidation.getDateCreated().before(settled);
+					if (settledSoFar) {
+						watermark = cursor;
+					}
+				}
+			} while (batch.size() == batchSize);
+			appliedIds.removeIf(id -> id <= watermark);
+
+			if (now - lastPruned > PRUNE_INTERVAL_MILLIS) {
+				dao.deleteCacheInvalidationsCreatedBefore(new Date(now - RETENTION_MILLIS));
+				lastPruned = now;
+			}
+			return applied;
+		});
+	}
+
+	private void pollInSession() {
+		try {
+			Context.openSession();
+			int applied = poll();
+			if (applied > 0) {
+				log.debug("Applied {} cache invalidations from other nodes", applied);
+			}
+		}
+		catch (Exception e) {
+			log.warn("Failed to poll for cache invalidations", e);
+		}
+		finally {
+			Context.closeSession();
+		}
+	}
+
+	private void apply(CacheInvalidation cacheInvalidation) {
+		String key = cacheInvalidation.getCacheKey();
+		Consumer<String> handler = handlers.get(cacheInvalidation.getCacheName());
+		if (handler != null) {
+			handler.accept(key);
+			return;
+		}
+
+		Cache cache = cacheManager == null ? null : cacheManager.getCache(cacheInvalidation.getCacheName());
+		if (cache == null) {
+			return;
+		}
+		EhcacheKeyIndex keyIndex = getKeyIndex(cacheInvalidation.getCacheName(), cache);
+		if (key == null) {
+			cache.clear();
+		} else if (keyIndex != null) {
+			keyIndex.evict((Ehcache) cache.getNativeCache(), key);
+		} else if (cache.get(key) != null) {
+			cache.evict(key);
+		} else {
+			// the key may have been converted to its string representation
+			cache.clear();
+		}
+	}
+
+	private EhcacheKeyIndex getKeyIndex(String cacheName, Cache cache) {
+		if (cache == null || !(cache.getNativeCache() instanceof Ehcache)) {
+			return null;
+		}
+		return keyIndexes.computeIfAbsent(cacheName, name -> EhcacheKeyIndex.register((Ehcache) cache.getNativeCache()));
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+
+/**
+ * Maps the string representations of the keys of an {@link Ehcache}, which is what
+ * {@link CacheInvalidationBus} records, back to the keys themselves so that applying an eviction
+ * made by another node is a single lookup instead of a scan of the cache.
+ *
+ * @since 2.8.0
+ */
+class EhcacheKeyIndex extends CacheEventListenerAdapter {
+
+	/**
+	 * The key or the {@link Ambiguous} keys by their string representation
+	 */
+	private final Map<String, Object> keys = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the index of the given cache, which is kept up to date as entries are added and removed
+	 *
+	 * @param ehcache the cache to index
+	 * @return the index
+	 */
+	static EhcacheKeyIndex register(Ehcache ehcache) {
+		EhcacheKeyIndex index = new EhcacheKeyIndex();
+		ehcache.getCacheEventNotificationService().registerListener(index);
+		for (Object key : ehcache.getKeys()) {
+			index.add(key);
+		}
+		return index;
+	}
+
+	/**
+	 * Removes the entry whose key has the given string representation
+	 *
+	 * @param ehcache the indexed cache
+	 * @param key the string representation of the key
+	 */
+	void evict(Ehcache ehcache, String key) {
+		Object nativeKey = keys.get(key);
+		if (nativeKey instanceof Ambiguous) {
+			for (Object candidate : ((Ambiguous) nativeKey).keys) {
+				ehcache.remove(candidate);
+			}
+		} else if (nativeKey != null) {
+			ehcache.remove(nativeKey);
+		}
+	}
+
+	@Override
+	public void notifyElementPut(Ehcache ehcache, Element element) throws CacheException {
+		add(element.getObjectKey());
+	}
+
+	@Override
+	public void notifyElementUpdated(Ehcache ehcache, Element element) throws CacheException {
+		add(element.getObjectKey());
+	}
+
+	@Override
+	public void notifyElementRemoved(Ehcache ehcache, Element element) throws CacheException {
+		remove(ehcache, element.getObjectKey());
+	}
+
+	@Override
+	public void notifyElementExpired(Ehcache ehcache, Element element) {
+		remove(ehcache, element.getObjectKey());
+	}
+
+	@Override
+	public void notifyElementEvicted(Ehcache ehcache, Element element) {
+		remove(ehcache, element.getObjectKey());
+	}
+
+	@Override
+	public void notifyRemoveAll(Ehcache ehcache) {
+		keys.clear();
+	}
+
+	/**
+	 * @return the number of indexed string representations
+	 */
+	int size() {
+		return keys.size();
+	}
+
+	private void add(Object key) {
+		keys.merge(String.valueOf(key), key, (existing, added) -> {
+			if (existing instanceof Ambiguous) {
+				return ((Ambiguous) existing).with(added);
+			}
+			return existing.equals(added) ? existing : new Ambiguous(existing).with(added);
+		});
+	}
+
+	private void remove(Ehcache ehcache, Object key) {
+		keys.computeIfPresent(String.valueOf(key), (string, existing) -> {
+			// the key may have been put again by another thread before this notification
+			if (ehcache.isKeyInCache(key)) {
+				return existing;
+			}
+			if (existing instanceof Ambiguous) {
+				return ((Ambiguous) existing).without(key);
+			}
+			return existing.equals(key) ? null : existing;
+		});
+	}
+
+	/**
+	 * The keys sharing a string representation, which is replaced rather than modified
+	 */
+	private static final class Ambiguous {
+
+		private final Set<Object> keys;
+
+		private Ambiguous(Object key) {
+			this(Collections.singleton(key));
+		}
+
+		private Ambiguous(Set<Object> keys) {
+			this.keys = keys;
+		}
+
+		private Ambiguous with(Object key) {
+			if (keys.contains(key)) {
+				return this;
+			}
+			Set<Object> added = new HashSet<>(keys);
+			added.add(key);
+			return new Ambiguous(added);
+		}
+
+		/**
+		 * @return the remaining keys, the last one itself or null if none is left
+		 */
+		private Object without(Object key) {
+			if (!keys.contains(key)) {
+				return this;
+			}
+			Set<Object> remaining = new HashSet<>(keys);
+			remaining.remove(key);
+			if (remaining.size() > 1) {
+				return new Ambiguous(remaining);
+			}
+			return remaining.isEmpty() ? null : remaining.iterator().next();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Decorates the caches of a {@link CacheManager} so that evicting from or clearing them is published
+ * to the other nodes through the {@link CacheInvalidationBus}.
+ *
+ * @since 2.8.0
+ */
+public class InvalidationPublishingCacheManager implements CacheManager {
+
+	private final CacheManager delegate;
+
+	private final CacheInvalidationBus cacheInvalidationBus;
+
+	private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+	public InvalidationPublishingCacheManager(CacheManager delegate, CacheInvalidationBus cacheInvalidationBus) {
+		this.delegate = delegate;
+		this.cacheInvalidationBus = cacheInvalidationBus;
+	}
+
+	/**
+	 * @see org.springframework.cache.CacheManager#getCache(java.lang.String)
+	 */
+	@Override
+	public Cache getCache(String name) {
+		return caches.computeIfAbsent(name, n -> {
+			Cache cache = delegate.getCache(n);
+			return cache == null ? null : new InvalidationPublishingCache(cache);
+		});
+	}
+
+	/**
+	 * @see org.springframework.cache.CacheManager#getCacheNames()
+	 */
+	@Override
+	public Collection<String> getCacheNames() {
+		return delegate.getCacheNames();
+	}
+
+	private class InvalidationPublishingCache implements Cache {
+
+		private final Cache cache;
+
+		private InvalidationPublishingCache(Cache cache) {
+			this.cache = cache;
+		}
+
+		@Override
+		public String getName() {
+			return cache.getName();
+		}
+
+		@Override
+		public Object getNativeCache() {
+			return cache.getNativeCache();
+		}
+
+		@Override
+		public ValueWrapper get(Object key) {
+			return cache.get(key);
+		}
+
+		@Override
+		public <T> T get(Object key, Class<T> type) {
+			return cache.get(key, type);
+		}
+
+		@Override
+		public <T> T get(Object key, Callable<T> valueLoader) {
+			return cache.get(key, valueLoader);
+		}
+
+		@Override
+		public void put(Object key, Object value) {
+			cache.put(key, value);
+		}
+
+		@Override
+		public void evict(Object key) {
+			cache.evict(key);
+			cacheInvalidationBus.publish(getName(), key);
+		}
+
+		@Override
+		public void clear() {
+			cache.clear();
+			cacheInvalidationBus.publish(getName(), null);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.util.RoleConstants;
+
+/**
+ * Immutable snapshot of every privilege granted to a {@link UserContext}, i.e. the privileges of the
+ * authenticated user's expanded roles plus those of the Authenticated and Anonymous roles. Privilege
+ * names are stored lower-cased so that a check is a single hash lookup with the same case
+ * insensitive semantics as {@link Role#hasPrivilege(String)}. Proxy privileges are deliberately not
+ * part of the snapshot since they change on every call.
+ *
+ * @see UserContext#hasPrivilege(String)
+ * @since 2.8.0
+ */
+final class CompiledPrivileges {
+
+	private final User user;
+
+	private final long generation;
+
+	private final boolean superUser;
+
+	private final Set<String> privileges;
+
+	private CompiledPrivileges(User user, long generation, boolean superUser, Set<String> privileges) {
+		this.user = user;
+		this.generation = generation;
+		this.superUser = superUser;
+		this.privileges = privileges;
+	}
+
+	/**
+	 * Expands the roles of the given user and collects their privileges
+	 *
+	 * @param user the authenticated user or <code>null</code> if not authenticated
+	 * @param authenticatedRole the role given to all authenticated users, ignored if user is null
+	 * @param anonymousRole the role given to all users
+	 * @param generation the privilege generation this snapshot is built for
+	 * @return the compiled privileges
+	 */
+	static CompiledPrivileges compile(User user, Role authenticatedRole, Role anonymousRole, long generation) {
+		Set<String> names = new HashSet<>();
+		boolean superUser = false;
+
+		if (user != null) {
+			for (Role role : user.getAllRoles()) {
+				superUser |= addPrivileges(role, names);
+			}
+			superUser |= addPrivileges(authenticatedRole, names);
+			superUser |= user.isSuperUser();
+		}
+		addPrivileges(anonymousRole, names);
+
+		return new CompiledPrivileges(user, generation, superUser, Collections.unmodifiableSet(names));
+	}
+
+	/**
+	 * @return true if the role is the super user role, which implies every privilege
+	 */
+	private static boolean addPrivileges(Role role, Set<String> names) {
+		if (role == null) {
+			return false;
+		}
+		if (role.getPrivileges() != null) {
+			for (Privilege privilege : role.getPrivileges()) {
+				if (privilege.getPrivilege() != null) {
+					names.add(normalize(privilege.getPrivilege()));
+				}
+			}
+		}
+		return RoleConstants.SUPERUSER.equals(role.getRole());
+	}
+
+	private static String normalize(String privilege) {
+		return privilege.toLowerCase(Locale.ROOT).intern();
+	}
+
+	/**
+	 * @param user the user currently set on the user context
+	 * @param generation the current privilege generation
+	 * @return true if this snapshot can still be used for the given user and generation
+	 */
+	boolean isCurrent(User user, long generation) {
+		return this.user == user && this.generation == generation;
+	}
+
+	/**
+	 * @param privilege the privilege to check
+	 * @return true if the snapshot grants the given privilege
+	 */
+	boolean hasPrivilege(String privilege) {
+		if (user != null && (superUser || StringUtils.isEmpty(privilege))) {
+			// all authenticated users have the "" (empty) privilege
+			return true;
+		}
+		return privilege != null && privileges.contains(privilege.toLowerCase(Locale.ROOT));
+	}
+}
@@ -38,10 +38,14 @@ import org.openmrs.api.PatientService;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.ProgramWorkflowService;
 import org.openmrs.api.ProviderService;
+import org.openmrs.api.SearchIndexProgress;
 import org.openmrs.api.SerializationService;
 import org.openmrs.api.UserService;
 import org.openmrs.api.VisitService;
+import org.openmrs.api.cache.CacheInvalidationBus;
 import org.openmrs.api.db.ContextDAO;
+import org.openmrs.api.impl.ConceptDictionarySnapshotCache;
+import org.openmrs.api.impl.ConceptMappingCache;
 import org.openmrs.hl7.HL7Service;
 import org.openmrs.logic.LogicService;
 import org.openmrs.messagesource.MessageSourceService;
@@ -953,6 +957,15 @@ public class Context {
 
 		getContextDAO().setupSearchIndex();
 
+		// keep the caches of this node in sync with other nodes sharing the database, if configured
+		getRegisteredComponent("cacheInvalidationBus", CacheInvalidationBus.class).startup(props);
+
+		// build the in-memory concept dictionary in the background, if configured
+		getRegisteredComponent("conceptDictionarySnapshotCache", ConceptDictionarySnapshotCache.class).startup(props);
+
+		// size the cache of concept ids by mapping for the dictionary
+		getRegisteredComponent("conceptMappingCache", ConceptMappingCache.class).startup();
+
 		// Loop over each module and startup each with these custom properties
 		ModuleUtil.startup(props);
 	}
@@ -1011,6 +1024,21 @@ public class Context {
 			log.warn("Error while shutting down scheduler service", e);
 		}
 
+		log.debug("Shutting down the cache invalidation bus");
+		try {
+			getRegisteredComponent("cacheInvalidationBus", CacheInvalidationBus.class).shutdown();
+		}
+		catch (Exception e) {
+			log.warn("Error while shutting down the cache invalidation bus", e);
+		}
+
+		try {
+			getRegisteredComponent("conceptDictionarySnapshotCache", ConceptDictionarySnapshotCache.class).shutdown();
+		}
+		catch (Exception e) {
+			log.warn("Error while shutting down the concept dictionary snapshot", e);
+		}
+
 		log.debug("Shutting down the modules");
 		try {
 			ModuleUtil.shutdown();
@@ -1436,6 +1464,29 @@ public class Context {
 		getContextDAO().updateSearchIndexForObject(object);
 	}
 
+	/**
+	 * Waits until the changes of committed transactions are applied to the search index. It returns
+	 * right away unless the index is updated asynchronously, see
+	 * {@link org.openmrs.api.db.hibernate.search.AsyncBackendQueueProcessor}.
+	 *
+	 * @since 2.8.0
+	 */
+	public static void flushSearchIndex() {
+		getContextDAO().flushSearchIndex();
+	}
+
+	/**
+	 * Gets the progress of the last rebuild of the search index, which is done by
+	 * {@link #updateSearchIndex()} and {@link #updateSearchIndexAsync()}.
+	 *
+	 * @return the progress or null if the index has not been rebuilt since the application started
+	 * @see AdministrationService#getSearchIndexProgress()
+	 * @since 2.8.0
+	 */
+	public static SearchIndexProgress getSearchIndexProgress() {
+		return getContextDAO().getSearchIndexProgress();
+	}
+
 	/**
 	 * @see org.openmrs.api.context.ServiceContext#setUseSystemClassLoader(boolean)
 	 * @since 1.10
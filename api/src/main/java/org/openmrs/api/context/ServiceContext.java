@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aopalliance.aop.Advice;
 import org.openmrs.api.APIException;
@@ -80,7 +81,11 @@ public class ServiceContext implements ApplicationContextAware {
 
 	private ApplicationContext applicationContext;
 	
-	private static boolean refreshingContext = false;
+	/**
+	 * Read without holding {@link #refreshingContextLock} by {@link #getService(Class)}, so that
+	 * callers only synchronize while a refresh is actually in progress
+	 */
+	private static volatile boolean refreshingContext = false;
 	
 	private static final Object refreshingContextLock = new Object();
 	
@@ -90,8 +95,8 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	private boolean useSystemClassLoader = false;
 	
-	// Cached service objects
-	Map<Class, Object> services = new HashMap<>();
+	// Cached service objects, read concurrently by getService without locking
+	Map<Class, Object> services = new ConcurrentHashMap<>();
 	
 	// Advisors added to services by this service
 	Map<Class, Set<Advisor>> addedAdvisors = new HashMap<>();
@@ -674,6 +679,20 @@ public class ServiceContext implements ApplicationContextAware {
 		
 		// if the context is refreshing, wait until it is
 		// done -- otherwise a null service might be returned
+		if (refreshingContext) {
+			waitForRefreshToFinish(cls);
+		}
+		
+		// the concurrent map doesn't accept null keys, a null class is simply not found
+		Object service = cls != null ? services.get(cls) : null;
+		if (service == null) {
+			throw new ServiceNotFoundException(cls);
+		}
+		
+		return (T) service;
+	}
+	
+	private void waitForRefreshToFinish(Class<?> cls) {
 		synchronized (refreshingContextLock) {
 			try {
 				while (refreshingContext) {
@@ -689,13 +708,6 @@ public class ServiceContext implements ApplicationContextAware {
 				log.warn("Refresh lock was interrupted", e);
 			}
 		}
-		
-		Object service = services.get(cls);
-		if (service == null) {
-			throw new ServiceNotFoundException(cls);
-		}
-		
-		return (T) service;
 	}
 	
 	/**
@@ -863,9 +875,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 *         doneRefreshingContext()
 	 */
 	public boolean isRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			return refreshingContext;
-		}
+		return refreshingContext;
 	}
 	
 	/**
@@ -16,6 +16,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.Location;
@@ -32,6 +33,8 @@ import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.RoleConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Represents an OpenMRS <code>User Context</code> which stores the current user information. Only
@@ -51,6 +54,17 @@ public class UserContext implements Serializable {
 	 */
 	private static final Logger log = LoggerFactory.getLogger(UserContext.class);
 	
+	/**
+	 * Bumped whenever a user, role or privilege changes so that every user context recompiles its
+	 * privileges on the next check
+	 */
+	private static final AtomicLong privilegeGeneration = new AtomicLong();
+	
+	/**
+	 * Bound to the transaction once it bumps the generation again on completion
+	 */
+	private static final Object PRIVILEGE_GENERATION_RESOURCE = new Object();
+	
 	/**
 	 * User object containing details about the authenticated user
 	 */
@@ -76,6 +90,11 @@ public class UserContext implements Serializable {
 	 */
 	private Role anonymousRole = null;
 	
+	/**
+	 * Precompiled privileges of the user, anonymous and authenticated roles
+	 */
+	private transient volatile CompiledPrivileges compiledPrivileges = null;
+	
 	/**
 	 * User's defined location
 	 */
@@ -114,6 +133,7 @@ public class UserContext implements Serializable {
 		try {
 			authenticated = authenticationScheme.authenticate(credentials);
 			this.user = authenticated.getUser();
+			this.compiledPrivileges = null;
 			notifyUserSessionListener(this.user, Event.LOGIN, Status.SUCCESS);
 		}
 		catch (ContextAuthenticationException e) {
@@ -143,6 +163,7 @@ public class UserContext implements Serializable {
 		
 		if (user != null) {
 			user = Context.getUserService().getUser(user.getUserId());
+			compiledPrivileges = null;
 			//update the stored location in the user's session
 			setUserLocation(false);
 			setUserLocale(false);
@@ -184,6 +205,7 @@ public class UserContext implements Serializable {
 		}
 		
 		this.user = userToBecome;
+		this.compiledPrivileges = null;
 		
 		//update the user's location and locale
 		setUserLocation(false);
@@ -219,6 +241,7 @@ public class UserContext implements Serializable {
 		user = null;
 		locationId = null;
 		locale = null;
+		compiledPrivileges = null;
 		proxies.clear();
 	}
 	
@@ -338,17 +361,8 @@ public class UserContext implements Serializable {
 			}
 		}
 		
-		// if a user has logged in, check their privileges
-		if (isAuthenticated()
-			&& (getAuthenticatedUser().hasPrivilege(privilege) || getAuthenticatedRole().hasPrivilege(privilege))) {
-			
-			// check user's privileges
-			notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
-			return true;
-			
-		}
-		
-		if (getAnonymousRole().hasPrivilege(privilege)) {
+		// check the user's, authenticated and anonymous privileges
+		if (getCompiledPrivileges().hasPrivilege(privilege)) {
 			notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
 			return true;
 		}
@@ -358,6 +372,54 @@ public class UserContext implements Serializable {
 		return false;
 	}
 	
+	/**
+	 * Marks the privileges compiled by all user contexts as stale, they are recompiled on the next
+	 * privilege check. This should be called whenever a user's roles or a role's privileges change.
+	 * Within a transaction they are marked stale again once it completes, since other threads may
+	 * have compiled the privileges as still stored in the meantime.
+	 *
+	 * @since 2.8.0
+	 */
+	public static void invalidateCompiledPrivileges() {
+		privilegeGeneration.incrementAndGet();
+		if (TransactionSynchronizationManager.isSynchronizationActive()
+		        && !TransactionSynchronizationManager.hasResource(PRIVILEGE_GENERATION_RESOURCE)) {
+			TransactionSynchronizationManager.bindResource(PRIVILEGE_GENERATION_RESOURCE, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(PRIVILEGE_GENERATION_RESOURCE);
+					privilegeGeneration.incrementAndGet();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Gets the privileges of the authenticated user together with those of the anonymous and
+	 * authenticated roles, compiling them if the user changed or privileges were invalidated
+	 * 
+	 * @return the compiled privileges
+	 * @see #invalidateCompiledPrivileges()
+	 */
+	private CompiledPrivileges getCompiledPrivileges() {
+		User currentUser = getAuthenticatedUser();
+		long generation = privilegeGeneration.get();
+		CompiledPrivileges compiled = compiledPrivileges;
+		if (compiled == null || !compiled.isCurrent(currentUser, generation)) {
+			if (currentUser != null && currentUser.isSuperUser()) {
+				// no need to look up the anonymous and authenticated roles
+				compiled = CompiledPrivileges.compile(currentUser, null, null, generation);
+			} else {
+				compiled = CompiledPrivileges.compile(currentUser, currentUser != null ? getAuthenticatedRole() : null,
+				    getAnonymousRole(), generation);
+			}
+			compiledPrivileges = compiled;
+		}
+		return compiled;
+	}
+	
 	/**
 	 * Convenience method to get the Role in the system designed to be given to all users
 	 *
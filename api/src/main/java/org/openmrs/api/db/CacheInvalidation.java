@@ -0,0 +1,120 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+/**
+ * A record of a change to a node local cache that other nodes sharing the same database have to
+ * apply to their own copy of the cache.
+ *
+ * @see org.openmrs.api.cache.CacheInvalidationBus
+ * @since 2.8.0
+ */
+@Entity
+@Table(name = "cache_invalidation")
+public class CacheInvalidation {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cache_invalidation_id_seq")
+	@GenericGenerator(
+		name = "cache_invalidation_id_seq",
+		strategy = "native",
+		parameters = @Parameter(name = "sequence", value = "cache_invalidation_cache_invalidation_id_seq")
+	)
+	@Column(name = "cache_invalidation_id")
+	private Integer cacheInvalidationId;
+
+	@Column(name = "cache_name", nullable = false, length = 255)
+	private String cacheName;
+
+	@Column(name = "cache_key", length = 255)
+	private String cacheKey;
+
+	@Column(name = "origin", nullable = false, length = 38)
+	private String origin;
+
+	@Column(name = "date_created", nullable = false)
+	private Date dateCreated;
+
+	/**
+	 * Default Constructor
+	 */
+	public CacheInvalidation() {
+	}
+
+	/**
+	 * @param cacheName the name of the invalidated cache
+	 * @param cacheKey the invalidated key or null if the whole cache was cleared
+	 * @param origin the id of the node that made the change
+	 */
+	public CacheInvalidation(String cacheName, String cacheKey, String origin) {
+		this.cacheName = cacheName;
+		this.cacheKey = cacheKey;
+		this.origin = origin;
+		this.dateCreated = new Date();
+	}
+
+	public Integer getCacheInvalidationId() {
+		return cacheInvalidationId;
+	}
+
+	public void setCacheInvalidationId(Integer cacheInvalidationId) {
+		this.cacheInvalidationId = cacheInvalidationId;
+	}
+
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	public void setCacheName(String cacheName) {
+		this.cacheName = cacheName;
+	}
+
+	/**
+	 * @return the invalidated key or null if the whole cache was cleared
+	 */
+	public String getCacheKey() {
+		return cacheKey;
+	}
+
+	public void setCacheKey(String cacheKey) {
+		this.cacheKey = cacheKey;
+	}
+
+	/**
+	 * @return the id of the node that made the change
+	 */
+	public String getOrigin() {
+		return origin;
+	}
+
+	public void setOrigin(String origin) {
+		this.origin = origin;
+	}
+
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+
+	public void setDateCreated(Date dateCreated) {
+		this.dateCreated = dateCreated;
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data access for cache invalidation records
+ * 
+ * @see org.openmrs.api.cache.CacheInvalidationBus
+ * @since 2.8.0
+ */
+public interface CacheInvalidationDAO {
+	
+	/**
+	 * Saves a cache invalidation record
+	 * 
+	 * @param cacheInvalidation the record to save
+	 * @return the saved record
+	 */
+	CacheInvalidation saveCacheInvalidation(CacheInvalidation cacheInvalidation);
+	
+	/**
+	 * Gets the cache invalidation records with an id greater than the given one, ordered by id
+	 * 
+	 * @param afterId the id to start after
+	 * @param maxResults the maximum number of records to return
+	 * @return the records
+	 */
+	List<CacheInvalidation> getCacheInvalidations(Integer afterId, int maxResults);
+	
+	/**
+	 * @param createdBefore the date the records must have been created before
+	 * @return the greatest id of the records created before the given date or 0 if there are none
+	 */
+	Integer getLatestCacheInvalidationId(Date createdBefore);
+	
+	/**
+	 * Deletes the cache invalidation records created before the given date
+	 * 
+	 * @param date the date before which records are deleted
+	 * @return the number of deleted records
+	 */
+	int deleteCacheInvalidationsCreatedBefore(Date date);
+	
+}
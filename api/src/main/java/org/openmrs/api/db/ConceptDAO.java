@@ -40,6 +40,8 @@ import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
 import org.openmrs.DrugIngredient;
 import org.openmrs.api.APIException;
+import org.openmrs.api.ConceptDictionarySnapshot.ConceptEntry;
+import org.openmrs.api.ConceptDictionarySnapshot.MappingEntry;
 import org.openmrs.api.ConceptService;
 
 /**
@@ -84,6 +86,11 @@ public interface ConceptDAO {
 	 */
 	public Concept getConcept(Integer conceptId) throws DAOException;
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConcepts(Collection)
+	 */
+	public List<Concept> getConcepts(Collection<Integer> conceptIds) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptName(java.lang.Integer)
 	 * @param conceptNameId
@@ -121,6 +128,12 @@ public interface ConceptDAO {
 	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept, Integer start, Integer size)
 	        throws DAOException;
 	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 * @since 2.8.0
+	 */
+	public List<ConceptSearchResult> suggestConcepts(String prefix, List<Locale> locales, int limit) throws DAOException;
+	
 	public Integer getCountOfConcepts(String phrase, List<Locale> locales, boolean includeRetired,
 	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
 	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept) throws DAOException;
@@ -219,6 +232,16 @@ public interface ConceptDAO {
 	 */
 	public List<ConceptSet> getSetsContainingConcept(Concept concept) throws DAOException;
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptsByConceptSet(org.openmrs.Concept)
+	 */
+	public List<Concept> getConceptsByConceptSet(Concept concept) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#isConceptInSet(org.openmrs.Concept, org.openmrs.Concept)
+	 */
+	public boolean isConceptInSet(Concept concept, Concept set) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptNumeric(java.lang.Integer)
 	 */
@@ -685,4 +708,51 @@ public interface ConceptDAO {
 	 * @see ConceptService#getConceptReferenceRangeByUuid(String) 
 	 */
 	ConceptReferenceRange getConceptReferenceRangeByUuid(String uuid);
+
+	/**
+	 * Loads the concepts of a {@link org.openmrs.api.ConceptDictionarySnapshot} with their names,
+	 * mappings, answers and set members, reading each of them in a single query
+	 *
+	 * @param conceptIds the ids of the concepts to load or null to load all of them
+	 * @return the loaded concepts, the ids of concepts which don't exist are ignored
+	 * @since 2.8.0
+	 */
+	List<ConceptEntry> getConceptDictionaryEntries(Collection<Integer> conceptIds);
+
+	/**
+	 * Gets the codes and sources of the reference terms the given concept is mapped to as last
+	 * written to the database, ignoring changes to the mappings which weren't flushed yet
+	 *
+	 * @param conceptId the id of the concept
+	 * @return the stored mappings of the concept
+	 * @since 2.8.0
+	 */
+	List<MappingEntry> getStoredConceptMappings(Integer conceptId);
+
+	/**
+	 * Gets the code and source of the given reference term as last written to the database, ignoring
+	 * changes which weren't flushed yet
+	 *
+	 * @param conceptReferenceTermId the id of the reference term
+	 * @return the stored code and source of the term or null if it isn't stored
+	 * @since 2.8.0
+	 */
+	MappingEntry getStoredConceptReferenceTermCode(Integer conceptReferenceTermId);
+
+	/**
+	 * @return the number of mappings of all concepts
+	 * @since 2.8.0
+	 */
+	long getConceptMappingCount();
+
+	/**
+	 * Gets the concept mappings to any of the given codes in any of the sources with one of the given
+	 * names or hl7 codes, along with their terms, sources and concepts
+	 *
+	 * @param codes the codes of the reference terms
+	 * @param sourceNames the names or hl7 codes of the sources
+	 * @return the matching concept mappings
+	 * @since 2.8.0
+	 */
+	List<ConceptMap> getConceptMappingsByCodes(Collection<String> codes, Collection<String> sourceNames);
 }
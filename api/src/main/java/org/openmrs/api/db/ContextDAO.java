@@ -17,6 +17,7 @@ import java.util.concurrent.Future;
 import org.hibernate.SessionFactory;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
+import org.openmrs.api.SearchIndexProgress;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.util.OpenmrsConstants;
@@ -180,7 +181,8 @@ public interface ContextDAO {
 	 * Updates the search index if necessary.
 	 * <p>
 	 * The update is triggered if {@link OpenmrsConstants#GP_SEARCH_INDEX_VERSION} is blank
-	 * or the value does not match {@link OpenmrsConstants#SEARCH_INDEX_VERSION}.
+	 * or the value does not match {@link OpenmrsConstants#SEARCH_INDEX_VERSION}. Otherwise the
+	 * entities whose changes were journaled but not applied to the index are reindexed.
 	 */
 	public void setupSearchIndex();
 	
@@ -203,6 +205,16 @@ public interface ContextDAO {
 	 * @see Context#updateSearchIndexForType(Class)
 	 */
 	public void updateSearchIndexForType(Class<?> type);
+	
+	/**
+	 * @see Context#flushSearchIndex()
+	 */
+	public void flushSearchIndex();
+	
+	/**
+	 * @see Context#getSearchIndexProgress()
+	 */
+	public SearchIndexProgress getSearchIndexProgress();
 
 	/**
 	 * @return a Connection from the OpenMRS database connection pool
@@ -0,0 +1,91 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+/**
+ * A blocking key of a patient, e.g. the phonetic code of the family name together with the birth
+ * year and gender. Patients sharing a blocking key are the candidates compared to find possible
+ * duplicates, so that a patient does not need to be compared with every other patient.
+ *
+ * @see org.openmrs.api.PatientService#getPossibleDuplicatePatients(org.openmrs.Patient)
+ * @since 2.8.0
+ */
+@Entity
+@Table(name = "patient_blocking_key", indexes = {
+		@Index(name = "patient_blocking_key_blocking_key", columnList = "blocking_key"),
+		@Index(name = "patient_blocking_key_patient_id", columnList = "patient_id") })
+public class PatientBlockingKey {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_blocking_key_id_seq")
+	@GenericGenerator(
+		name = "patient_blocking_key_id_seq",
+		strategy = "native",
+		parameters = @Parameter(name = "sequence", value = "patient_blocking_key_patient_blocking_key_id_seq")
+	)
+	@Column(name = "patient_blocking_key_id")
+	private Integer patientBlockingKeyId;
+
+	@Column(name = "patient_id", nullable = false)
+	private Integer patientId;
+
+	@Column(name = "blocking_key", nullable = false, length = 255)
+	private String blockingKey;
+
+	/**
+	 * Default Constructor
+	 */
+	public PatientBlockingKey() {
+	}
+
+	/**
+	 * @param patientId the id of the patient
+	 * @param blockingKey the blocking key of the patient
+	 */
+	public PatientBlockingKey(Integer patientId, String blockingKey) {
+		this.patientId = patientId;
+		this.blockingKey = blockingKey;
+	}
+
+	public Integer getPatientBlockingKeyId() {
+		return patientBlockingKeyId;
+	}
+
+	public void setPatientBlockingKeyId(Integer patientBlockingKeyId) {
+		this.patientBlockingKeyId = patientBlockingKeyId;
+	}
+
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(Integer patientId) {
+		this.patientId = patientId;
+	}
+
+	public String getBlockingKey() {
+		return blockingKey;
+	}
+
+	public void setBlockingKey(String blockingKey) {
+		this.blockingKey = blockingKey;
+	}
+}
@@ -9,6 +9,7 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.openmrs.Allergies;
@@ -18,6 +19,7 @@ import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.PatientProgram;
+import org.openmrs.api.PatientSearchStrategy;
 import org.openmrs.api.PatientService;
 
 /**
@@ -38,6 +40,11 @@ public interface PatientDAO {
 	 */
 	public Patient getPatient(Integer patientId) throws DAOException;
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getPatients(Collection)
+	 */
+	public List<Patient> getPatients(Collection<Integer> patientIds) throws DAOException;
+	
 	/**
 	 * Delete patient from database. This <b>should not be called</b> except for testing and
 	 * administration purposes. Use the void method instead
@@ -125,6 +132,13 @@ public interface PatientDAO {
 	 */
 	public List<Patient> getPatients(String query, boolean includeVoided, Integer start, Integer length) throws DAOException;
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getPatients(String, boolean, Integer, Integer, PatientSearchStrategy)
+	 * @since 2.8.0
+	 */
+	public List<Patient> getPatients(String query, boolean includeVoided, Integer start, Integer length,
+	        PatientSearchStrategy strategy) throws DAOException;
+	
 	/**
 	 * @see PatientService#getPatients(String, String, List, boolean, Integer, Integer)
 	 */
@@ -186,6 +200,22 @@ public interface PatientDAO {
 	 */
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws DAOException;
 	
+	/**
+	 * Gets the ids of the patients sharing a blocking key with the given patient
+	 * 
+	 * @param patient the patient to find possible duplicates of
+	 * @return the ids of the candidate patients, excluding the given patient
+	 * @see org.openmrs.api.PatientService#getPossibleDuplicatePatients(Patient)
+	 * @since 2.8.0
+	 */
+	public List<Integer> getPossibleDuplicatePatientIds(Patient patient) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.PatientService#updatePatientBlockingKeys()
+	 * @since 2.8.0
+	 */
+	public long updatePatientBlockingKeys() throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.PatientService#isIdentifierInUseByAnotherPatient(PatientIdentifier)
 	 */
@@ -243,6 +273,12 @@ public interface PatientDAO {
 	 */
 	public Long getCountOfPatients(String query, boolean includeVoided);
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getCountOfPatients(String, boolean, PatientSearchStrategy)
+	 * @since 2.8.0
+	 */
+	public Long getCountOfPatients(String query, boolean includeVoided, PatientSearchStrategy strategy);
+	
 	/**
 	 * Gets a list of allergies that a patient has
 	 * 
@@ -51,13 +51,15 @@ public class AuditableInterceptor extends EmptyInterceptor {
 	 * <strong>Should</strong> return true if creator was null
 	 * <strong>Should</strong> return false if dateCreated and creator was not null
 	 * <strong>Should</strong> be called when saving OpenmrsObject
-	 * @return true if the object got the dateCreated and creator fields set
+	 * <strong>Should</strong> set the uuid if it was null
+	 * @return true if the object got the uuid, dateCreated or creator fields set
 	 * @see org.hibernate.EmptyInterceptor#onSave(java.lang.Object, java.io.Serializable,
 	 *      java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
 	 */
 	@Override
 	public boolean onSave(Object entity, Serializable id, Object[] entityCurrentState, String[] propertyNames, Type[] types) {
-		return setCreatorAndDateCreatedIfNull(entity, entityCurrentState, propertyNames);
+		boolean uuidWasSet = setUuidIfNull(entity, entityCurrentState, propertyNames);
+		return setCreatorAndDateCreatedIfNull(entity, entityCurrentState, propertyNames) || uuidWasSet;
 	}
 	
 	/**
@@ -127,6 +129,22 @@ public class AuditableInterceptor extends EmptyInterceptor {
 		return objectWasChanged;
 	}
 	
+	/**
+	 * Sets the uuid field if it is null, which is the case of new objects whose uuid was never read
+	 * and that are mapped with field access, since uuids are generated lazily.
+	 *
+	 * @param entity
+	 * @param currentState
+	 * @param propertyNames
+	 * @return true if the uuid was set
+	 */
+	private boolean setUuidIfNull(Object entity, Object[] currentState, String[] propertyNames) {
+		if (entity instanceof OpenmrsObject) {
+			return changePropertyValue(currentState, propertyNames, "uuid", ((OpenmrsObject) entity).getUuid(), true);
+		}
+		return false;
+	}
+	
 	private boolean changeProperties(Object[] currentState, String[] propertyNames, boolean objectWasChanged,
 	        Map<String, Object> propertyValues, Boolean setNullOnly) {
 		
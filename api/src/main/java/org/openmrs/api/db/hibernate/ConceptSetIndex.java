@@ -0,0 +1,498 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.Concept;
+import org.openmrs.ConceptSet;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Node local graph of the concept sets and their members, for HibernateConceptDAO to explode sets
+ * and check whether a concept is in a set without querying the concept_set table once per level.
+ * The transitive members of a set and the transitive sets containing a concept are computed once
+ * from the graph and kept until the graph changes.
+ * <p>
+ * The graph is loaded with two queries when first used. Whenever a concept or concept set is saved
+ * or deleted, the members of the affected set are reloaded the next time the graph is used, once the
+ * transaction has completed, so that uncommitted changes are never served to other threads. The
+ * shared graph is loaded in a transaction of its own, one which started before the changes were
+ * committed may not see them. The
+ * thread making the changes sees the sets it changed, reloaded on each use, laid over the shared
+ * graph in the meantime. Concepts saved or purged through the DAO are published on the
+ * {@link CacheInvalidationBus}, so that other nodes reload their members too. Changes made directly
+ * in the database bypass this index and require a call to {@link #clear()}.
+ *
+ * @since 2.8.0
+ */
+@Component("conceptSetIndex")
+public class ConceptSetIndex extends EmptyInterceptor implements SmartInitializingSingleton {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The name changed sets are published under to the other nodes
+	 *
+	 * @see CacheInvalidationBus
+	 */
+	public static final String CACHE_NAME = "conceptSetIndex";
+
+	private static final int[] NO_IDS = new int[0];
+
+	private final transient AtomicReference<Graph> graph = new AtomicReference<>();
+
+	/**
+	 * Ids of the concepts whose members or set flag changed since the graph was loaded
+	 */
+	private final transient Set<Integer> staleConceptIds = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Incremented on every {@link #clear()} so that a graph loaded before it isn't kept after it
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * The bus depends on the session factory, which depends on this interceptor, so it is looked up
+	 * once all beans are created
+	 */
+	@Autowired
+	private transient ObjectProvider<CacheInvalidationBus> cacheInvalidationBusProvider;
+
+	private transient CacheInvalidationBus cacheInvalidationBus;
+
+	/**
+	 * Registers the handler of the sets changed by other nodes
+	 *
+	 * @see SmartInitializingSingleton#afterSingletonsInstantiated()
+	 */
+	@Override
+	public void afterSingletonsInstantiated() {
+		cacheInvalidationBus = cacheInvalidationBusProvider.getIfAvailable();
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.addHandler(CACHE_NAME, this::changedOnOtherNode);
+		}
+	}
+
+	/**
+	 * Gets the members of the given set and of the sets among them, recursively, in the order of
+	 * {@link org.openmrs.api.ConceptService#getConceptsByConceptSet(Concept)}
+	 *
+	 * @param session the current session
+	 * @param setId the id of the set
+	 * @return the ids of the members, a member of several sets is repeated
+	 */
+	public int[] getConceptIdsInSet(Session session, int setId) {
+		return getGraph(session).getDescendants(setId).clone();
+	}
+
+	/**
+	 * @param session the current session
+	 * @param conceptId the id of the concept
+	 * @param setId the id of the set
+	 * @return true if the concept is a member of the set or of a set among its members, recursively
+	 */
+	public boolean isConceptInSet(Session session, int conceptId, int setId) {
+		return Arrays.binarySearch(getGraph(session).getAncestors(conceptId), setId) >= 0;
+	}
+
+	/**
+	 * @param session the current session
+	 * @param conceptId the id of the concept
+	 * @return true if the concept is a direct member of any set
+	 */
+	public boolean isInAnySet(Session session, int conceptId) {
+		return getGraph(session).getParents(conceptId).length > 0;
+	}
+
+	/**
+	 * Removes the graph so that it is loaded again the next time it is used
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		graph.set(null);
+		staleConceptIds.clear();
+	}
+
+	/**
+	 * Has the members and set flag of the given concept reloaded once the current transaction
+	 * completes, on this node and the others
+	 *
+	 * @param conceptId the id of the saved or purged concept or set
+	 */
+	public void changed(Integer conceptId) {
+		if (conceptId == null) {
+			return;
+		}
+		changedInSession(conceptId);
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, conceptId);
+		}
+	}
+
+	/**
+	 * Like {@link #changed(Integer)} without publishing the change, for the changes found while the
+	 * session is flushed, when the record of the change can't be saved, and for the changes made
+	 * directly in the database by the current transaction. The sets are saved through the DAO, which
+	 * publishes them.
+	 *
+	 * @param conceptId the id of the changed concept or set
+	 */
+	@SuppressWarnings("unchecked")
+	public void changedInSession(Integer conceptId) {
+		if (conceptId == null) {
+			return;
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			staleConceptIds.add(conceptId);
+			return;
+		}
+		Set<Integer> inFlight = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+		if (inFlight == null) {
+			Set<Integer> conceptIds = ConcurrentHashMap.newKeySet();
+			TransactionSynchronizationManager.bindResource(this, conceptIds);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(ConceptSetIndex.this);
+					staleConceptIds.addAll(conceptIds);
+				}
+			});
+			inFlight = conceptIds;
+		}
+		inFlight.add(conceptId);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Graph getGraph(Session session) {
+		Graph current = refresh(session);
+		Set<Integer> inFlight = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+		if (inFlight != null && !inFlight.isEmpty()) {
+			// this thread's own changes aren't committed yet, so the graph including them is not kept
+			current = new OverlayGraph(current, load(session, new ArrayList<>(inFlight)));
+		}
+		return current;
+	}
+
+	private void changedOnOtherNode(String conceptId) {
+		if (conceptId == null) {
+			clear();
+			return;
+		}
+		try {
+			staleConceptIds.add(Integer.valueOf(conceptId));
+		}
+		catch (NumberFormatException e) {
+			clear();
+		}
+	}
+
+	private synchronized Graph refresh(Session session) {
+		Graph current = graph.get();
+		if (current == null) {
+			long expectedGeneration = generation.get();
+			current = new Graph(loadCommitted(session, null));
+			if (generation.get() == expectedGeneration) {
+				graph.compareAndSet(null, current);
+			}
+			return current;
+		}
+		if (!staleConceptIds.isEmpty()) {
+			List<Integer> conceptIds = new ArrayList<>(staleConceptIds);
+			// removed before they are loaded, so that the sets changed again from now on are reloaded again
+			staleConceptIds.removeAll(conceptIds);
+			Graph previous = current;
+			boolean installed = false;
+			try {
+				current = previous.with(loadCommitted(session, conceptIds));
+				// the graph may have been cleared in the meantime
+				installed = graph.compareAndSet(previous, current);
+			}
+			finally {
+				if (!installed) {
+					staleConceptIds.addAll(conceptIds);
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Loads the members and set flags of the given concepts for the shared graph, in a session and
+	 * transaction of their own which see the changes committed before they started
+	 */
+	private Changes loadCommitted(Session session, List<Integer> conceptIds) {
+		try (Session committedSession = session.getSessionFactory().openSession()) {
+			committedSession.setDefaultReadOnly(true);
+			Transaction transaction = committedSession.beginTransaction();
+			try {
+				return load(committedSession, conceptIds);
+			}
+			finally {
+				transaction.rollback();
+			}
+		}
+	}
+
+	/**
+	 * Loads the members and set flags of the given concepts, or of all concepts if null. Querying the
+	 * concept_set table flushes the pending changes to the sets first.
+	 */
+	@SuppressWarnings("unchecked")
+	private Changes load(Session session, List<Integer> conceptIds) {
+		Changes changes = new Changes(conceptIds);
+		String filter = conceptIds == null ? "" : " where s.conceptSet.conceptId in (:conceptIds)";
+		org.hibernate.query.Query<Object[]> membersQuery = session.createQuery(
+		    "select s.conceptSet.conceptId, s.concept.conceptId from ConceptSet s" + filter
+		            + " order by s.sortWeight, s.conceptSetId");
+		String setFilter = conceptIds == null ? "" : " and c.conceptId in (:conceptIds)";
+		org.hibernate.query.Query<Integer> setsQuery = session
+		        .createQuery("select c.conceptId from Concept c where c.set = true" + setFilter);
+		if (conceptIds != null) {
+			membersQuery.setParameterList("conceptIds", conceptIds);
+			setsQuery.setParameterList("conceptIds", conceptIds);
+		}
+
+		Map<Integer, List<Integer>> members = new HashMap<>();
+		for (Object[] row : membersQuery.list()) {
+			members.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]);
+		}
+		members.forEach((setId, ids) -> changes.members.put(setId, ids.stream().mapToInt(Integer::intValue).toArray()));
+		changes.sets.addAll(setsQuery.list());
+		return changes;
+	}
+
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onSave(Object, Serializable, Object[], String[], Type[])
+	 */
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		entityChanged(entity);
+		return false;
+	}
+
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onFlushDirty(Object, Serializable, Object[], Object[],
+	 *      String[], Type[])
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		entityChanged(entity);
+		return false;
+	}
+
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onDelete(Object, Serializable, Object[], String[], Type[])
+	 */
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		entityChanged(entity);
+	}
+
+	private void entityChanged(Object entity) {
+		if (entity instanceof ConceptSet && ((ConceptSet) entity).getConceptSet() != null) {
+			changedInSession(((ConceptSet) entity).getConceptSet().getConceptId());
+		} else if (entity instanceof Concept) {
+			changedInSession(((Concept) entity).getConceptId());
+		}
+	}
+
+	/**
+	 * The members and set flags loaded for some concepts
+	 */
+	private static final class Changes {
+
+		/**
+		 * The ids of the loaded concepts or null if all were loaded
+		 */
+		private final Collection<Integer> conceptIds;
+
+		private final Map<Integer, int[]> members = new HashMap<>();
+
+		private final Set<Integer> sets = new HashSet<>();
+
+		private Changes(Collection<Integer> conceptIds) {
+			this.conceptIds = conceptIds;
+		}
+	}
+
+	/**
+	 * An immutable graph of concept sets, memoizing the transitive members and containing sets of
+	 * the concepts it is asked about
+	 */
+	private static class Graph {
+
+		/**
+		 * Ids of the members of each set in their sort order
+		 */
+		private final Map<Integer, int[]> members;
+
+		/**
+		 * Ids of the sets each concept is a direct member of
+		 */
+		private final Map<Integer, int[]> parents;
+
+		/**
+		 * Ids of the concepts flagged as sets, the only members whose own members are included
+		 */
+		private final Set<Integer> sets;
+
+		private final Map<Integer, int[]> descendants = new ConcurrentHashMap<>();
+
+		private final Map<Integer, int[]> ancestors = new ConcurrentHashMap<>();
+
+		private Graph(Changes changes) {
+			this(changes.members, changes.sets);
+		}
+
+		private Graph(Map<Integer, int[]> members, Set<Integer> sets) {
+			this.members = members;
+			this.sets = sets;
+			Map<Integer, List<Integer>> parentLists = new HashMap<>();
+			members.forEach((setId, memberIds) -> {
+				for (int memberId : memberIds) {
+					parentLists.computeIfAbsent(memberId, id -> new ArrayList<>(2)).add(setId);
+				}
+			});
+			this.parents = new HashMap<>(parentLists.size() * 2);
+			parentLists.forEach((memberId, setIds) -> parents.put(memberId,
+			    setIds.stream().mapToInt(Integer::intValue).distinct().toArray()));
+		}
+
+		private Graph with(Changes changes) {
+			Map<Integer, int[]> newMembers = new HashMap<>(members);
+			Set<Integer> newSets = new HashSet<>(sets);
+			newMembers.keySet().removeAll(changes.conceptIds);
+			newSets.removeAll(changes.conceptIds);
+			newMembers.putAll(changes.members);
+			newSets.addAll(changes.sets);
+			return new Graph(newMembers, newSets);
+		}
+
+		int[] getMembers(int setId) {
+			return members.getOrDefault(setId, NO_IDS);
+		}
+
+		int[] getParents(int conceptId) {
+			return parents.getOrDefault(conceptId, NO_IDS);
+		}
+
+		boolean isSet(int conceptId) {
+			return sets.contains(conceptId);
+		}
+
+		private int[] getDescendants(int setId) {
+			return descendants.computeIfAbsent(setId, id -> {
+				List<Integer> result = new ArrayList<>();
+				addDescendants(id, result, new HashSet<>());
+				return result.stream().mapToInt(Integer::intValue).toArray();
+			});
+		}
+
+		private void addDescendants(int setId, List<Integer> result, Set<Integer> alreadySeen) {
+			if (!alreadySeen.add(setId)) {
+				return;
+			}
+			for (int memberId : getMembers(setId)) {
+				result.add(memberId);
+				if (isSet(memberId)) {
+					addDescendants(memberId, result, alreadySeen);
+				}
+			}
+		}
+
+		/**
+		 * The ancestors of a concept are the sets it is a member of and, for those flagged as sets,
+		 * their own ancestors
+		 */
+		private int[] getAncestors(int conceptId) {
+			return ancestors.computeIfAbsent(conceptId, id -> {
+				Set<Integer> result = new HashSet<>();
+				Deque<Integer> pending = new ArrayDeque<>();
+				for (int setId : getParents(id)) {
+					pending.add(setId);
+				}
+				while (!pending.isEmpty()) {
+					Integer setId = pending.poll();
+					if (result.add(setId) && isSet(setId)) {
+						for (int parentId : getParents(setId)) {
+							pending.add(parentId);
+						}
+					}
+				}
+				return result.stream().mapToInt(Integer::intValue).sorted().toArray();
+			});
+		}
+	}
+
+	/**
+	 * The sets changed by a transaction laid over the shared graph, which is left as is
+	 */
+	private static final class OverlayGraph extends Graph {
+
+		private final Graph base;
+
+		private final Set<Integer> changedIds;
+
+		private OverlayGraph(Graph base, Changes changes) {
+			super(changes);
+			this.base = base;
+			this.changedIds = new HashSet<>(changes.conceptIds);
+		}
+
+		@Override
+		int[] getMembers(int setId) {
+			return changedIds.contains(setId) ? super.getMembers(setId) : base.getMembers(setId);
+		}
+
+		@Override
+		int[] getParents(int conceptId) {
+			int[] changedParents = super.getParents(conceptId);
+			int[] baseParents = base.getParents(conceptId);
+			if (changedParents.length == 0 && Arrays.stream(baseParents).noneMatch(changedIds::contains)) {
+				return baseParents;
+			}
+			// the changed sets list their members again
+			return IntStream.concat(Arrays.stream(baseParents).filter(setId -> !changedIds.contains(setId)),
+			    Arrays.stream(changedParents)).distinct().toArray();
+		}
+
+		@Override
+		boolean isSet(int conceptId) {
+			return changedIds.contains(conceptId) ? super.isSet(conceptId) : base.isSet(conceptId);
+		}
+	}
+}
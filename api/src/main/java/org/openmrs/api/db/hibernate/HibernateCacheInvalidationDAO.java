@@ -0,0 +1,84 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.api.db.CacheInvalidation;
+import org.openmrs.api.db.CacheInvalidationDAO;
+
+/**
+ * Hibernate specific data access for cache invalidation records
+ * 
+ * @see org.openmrs.api.db.CacheInvalidationDAO
+ * @since 2.8.0
+ */
+public class HibernateCacheInvalidationDAO implements CacheInvalidationDAO {
+	
+	private SessionFactory sessionFactory;
+	
+	/**
+	 * Set session factory
+	 * 
+	 * @param sessionFactory
+	 */
+	public void setSessionFactory(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+	
+	private Session session() {
+		return sessionFactory.getCurrentSession();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.CacheInvalidationDAO#saveCacheInvalidation(org.openmrs.api.db.CacheInvalidation)
+	 */
+	@Override
+	public CacheInvalidation saveCacheInvalidation(CacheInvalidation cacheInvalidation) {
+		session().save(cacheInvalidation);
+		return cacheInvalidation;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.CacheInvalidationDAO#getCacheInvalidations(java.lang.Integer, int)
+	 */
+	@Override
+	public List<CacheInvalidation> getCacheInvalidations(Integer afterId, int maxResults) {
+		return session()
+		        .createQuery("from CacheInvalidation where cacheInvalidationId > :afterId order by cacheInvalidationId",
+		            CacheInvalidation.class)
+		        .setParameter("afterId", afterId).setMaxResults(maxResults).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.CacheInvalidationDAO#getLatestCacheInvalidationId(java.util.Date)
+	 */
+	@Override
+	public Integer getLatestCacheInvalidationId(Date createdBefore) {
+		Integer id = session()
+		        .createQuery("select max(cacheInvalidationId) from CacheInvalidation where dateCreated < :createdBefore",
+		            Integer.class)
+		        .setParameter("createdBefore", createdBefore).uniqueResult();
+		return id == null ? 0 : id;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.CacheInvalidationDAO#deleteCacheInvalidationsCreatedBefore(java.util.Date)
+	 */
+	@Override
+	public int deleteCacheInvalidationsCreatedBefore(Date date) {
+		return session().createQuery("delete from CacheInvalidation where dateCreated < :date")
+		        .setParameter("date", date).executeUpdate();
+	}
+	
+}
@@ -10,6 +10,7 @@
 package org.openmrs.api.db.hibernate;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
@@ -18,6 +19,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,13 +31,23 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.query.dsl.BooleanJunction;
+import org.hibernate.search.query.dsl.QueryBuilder;
 import org.openmrs.Concept;
 import org.openmrs.ConceptAnswer;
 import org.openmrs.ConceptAttribute;
@@ -62,12 +74,17 @@ import org.openmrs.DrugIngredient;
 import org.openmrs.DrugReferenceMap;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.api.APIException;
+import org.openmrs.api.ConceptDictionarySnapshot.ConceptEntry;
+import org.openmrs.api.ConceptDictionarySnapshot.MappingEntry;
+import org.openmrs.api.ConceptDictionarySnapshot.NameEntry;
+import org.openmrs.api.ConceptNameType;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.ConceptDAO;
 import org.openmrs.api.db.DAOException;
+import org.openmrs.api.db.hibernate.search.DatabaseSearchFallback;
+import org.openmrs.api.db.hibernate.search.LuceneAnalyzers;
 import org.openmrs.api.db.hibernate.search.LuceneQuery;
-import org.openmrs.collection.ListPart;
 import org.openmrs.util.ConceptMapTypeComparator;
 import org.openmrs.util.OpenmrsConstants;
 import org.slf4j.Logger;
@@ -86,6 +103,23 @@ public class HibernateConceptDAO implements ConceptDAO {
 	
 	private SessionFactory sessionFactory;
 	
+	private ConceptSetIndex conceptSetIndex = new ConceptSetIndex();
+	
+	/**
+	 * The gram sizes of the nameStart field of {@link ConceptName}
+	 * 
+	 * @see org.openmrs.api.db.hibernate.search.LuceneAnalyzerFactory
+	 */
+	private static final int SUGGESTION_MIN_GRAM_SIZE = 2;
+	
+	private static final int SUGGESTION_MAX_GRAM_SIZE = 20;
+	
+	/**
+	 * The number of rows fetched at once, and of concepts loaded per query, when loading the concepts
+	 * of a {@link org.openmrs.api.ConceptDictionarySnapshot}
+	 */
+	private static final int DICTIONARY_FETCH_SIZE = 1000;
+	
 	/**
 	 * Sets the session factory
 	 * 
@@ -94,6 +128,15 @@ public class HibernateConceptDAO implements ConceptDAO {
 	public void setSessionFactory(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
+	
+	/**
+	 * @param conceptSetIndex the graph of concept sets, it should also be registered as an interceptor
+	 *            so that it is kept up to date
+	 * @since 2.8.0
+	 */
+	public void setConceptSetIndex(ConceptSetIndex conceptSetIndex) {
+		this.conceptSetIndex = conceptSetIndex;
+	}
 
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getConceptComplex(java.lang.Integer)
@@ -138,6 +181,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 		}
 		
 		sessionFactory.getCurrentSession().saveOrUpdate(concept);
+		conceptSetIndex.changed(concept.getConceptId());
 		return concept;
 	}
 	
@@ -241,6 +285,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 	@Override
 	public void purgeConcept(Concept concept) throws DAOException {
 		sessionFactory.getCurrentSession().delete(concept);
+		conceptSetIndex.changed(concept.getConceptId());
 	}
 	
 	/**
@@ -251,6 +296,16 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return sessionFactory.getCurrentSession().get(Concept.class, conceptId);
 	}
 	
+	/**
+	 * Loads the concepts with their names
+	 * 
+	 * @see org.openmrs.api.db.ConceptDAO#getConcepts(java.util.Collection)
+	 */
+	@Override
+	public List<Concept> getConcepts(Collection<Integer> conceptIds) throws DAOException {
+		return HibernateUtil.getEntitiesByIds(sessionFactory, Concept.class, "conceptId", conceptIds, "names");
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getConceptName(java.lang.Integer)
 	 */
@@ -590,19 +645,21 @@ public class HibernateConceptDAO implements ConceptDAO {
 				Collections.singletonList(locale),
 		    false, false, classes, null, datatypes, null, null);
 		
-		List<ConceptName> names = conceptNameQuery.list();
-
-		return new ArrayList<>(transformNamesToConcepts(names));
+		return getConcepts(getConceptIds(conceptNameQuery.listProjection("concept.conceptId")));
 	}
 	
 	private LinkedHashSet<Concept> transformNamesToConcepts(List<ConceptName> names) {
-		LinkedHashSet<Concept> concepts = new LinkedHashSet<>();
-		
+		List<Integer> conceptIds = new ArrayList<>();
 		for (ConceptName name : names) {
-			concepts.add(name.getConcept());
+			// reading the id of the concept does not initialize it
+			conceptIds.add(name.getConcept().getConceptId());
 		}
 		
-		return concepts;
+		return new LinkedHashSet<>(getConcepts(conceptIds));
+	}
+	
+	private List<Integer> getConceptIds(List<Object[]> projections) {
+		return projections.stream().map(projection -> (Integer) projection[0]).collect(toList());
 	}
 	
 	private String newConceptNameQuery(final String name, final boolean searchKeywords, final Set<Locale> locales,
@@ -872,12 +929,45 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return session.createQuery(cq).getResultList();
 	}
 
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptsByConceptSet(org.openmrs.Concept)
+	 */
+	@Override
+	public List<Concept> getConceptsByConceptSet(Concept concept) {
+		if (concept.getConceptId() == null) {
+			return new ArrayList<>();
+		}
+		int[] conceptIds = conceptSetIndex.getConceptIdsInSet(sessionFactory.getCurrentSession(), concept.getConceptId());
+		List<Integer> ids = Arrays.stream(conceptIds).boxed().collect(toList());
+		Map<Integer, Concept> concepts = new HashMap<>();
+		for (Concept member : HibernateUtil.getEntitiesByIds(sessionFactory, Concept.class, "conceptId", ids)) {
+			concepts.put(member.getConceptId(), member);
+		}
+		// a concept in several of the exploded sets is listed once for each of them
+		return ids.stream().map(concepts::get).filter(Objects::nonNull).collect(toList());
+	}
+
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#isConceptInSet(org.openmrs.Concept, org.openmrs.Concept)
+	 */
+	@Override
+	public boolean isConceptInSet(Concept concept, Concept set) {
+		if (concept.getConceptId() == null || set.getConceptId() == null) {
+			return false;
+		}
+		return conceptSetIndex.isConceptInSet(sessionFactory.getCurrentSession(), concept.getConceptId(),
+		    set.getConceptId());
+	}
+
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getSetsContainingConcept(org.openmrs.Concept)
 	 */
 	@Override
 	public List<ConceptSet> getSetsContainingConcept(Concept concept) {
 		Session session = sessionFactory.getCurrentSession();
+		if (!conceptSetIndex.isInAnySet(session, concept.getConceptId())) {
+			return new ArrayList<>();
+		}
 		CriteriaBuilder cb = session.getCriteriaBuilder();
 		CriteriaQuery<ConceptSet> cq = cb.createQuery(ConceptSet.class);
 		Root<ConceptSet> root = cq.from(ConceptSet.class);
@@ -887,34 +977,6 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return session.createQuery(cq).getResultList();
 	}
 	
-	/**
-	 * returns a list of n-generations of parents of a concept in a concept set
-	 * 
-	 * @param current
-	 * @return List&lt;Concept&gt;
-	 * @throws DAOException
-	 */
-	@SuppressWarnings("unchecked")
-	private List<Concept> getParents(Concept current) throws DAOException {
-		List<Concept> parents = new ArrayList<>();
-		if (current != null) {
-			Query query = sessionFactory.getCurrentSession().createQuery(
-			    "from Concept c join c.conceptSets sets where sets.concept = ?").setParameter(0, current);
-			List<Concept> immedParents = query.getResultList();
-			for (Concept c : immedParents) {
-				parents.addAll(getParents(c));
-			}
-			parents.add(current);
-			if (log.isDebugEnabled()) {
-				log.debug("parents found: ");
-				for (Concept c : parents) {
-					log.debug("id: {}", c.getConceptId());
-				}
-			}	
-		}
-		return parents;
-	}
-	
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getLocalesOfConceptNames()
 	 */
@@ -1513,25 +1575,130 @@ public class HibernateConceptDAO implements ConceptDAO {
 	        final List<ConceptDatatype> requireDatatypes, final List<ConceptDatatype> excludeDatatypes,
 	        final Concept answersToConcept, final Integer start, final Integer size) throws DAOException {
 		
-		LuceneQuery<ConceptName> query = newConceptNameLuceneQuery(phrase, true, locales, false, includeRetired,
-		    requireClasses, excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept);
-		
-		ListPart<ConceptName> names = query.listPart(start, size);
+		List<ConceptName> names;
+		if (DatabaseSearchFallback.use(DatabaseSearchFallback.CONCEPTS)) {
+			names = getConceptNamesFromDatabase(phrase, locales, includeRetired, requireClasses, excludeClasses,
+			    requireDatatypes, excludeDatatypes, answersToConcept);
+			int from = Math.min(start != null ? start : 0, names.size());
+			names = names.subList(from, size != null ? Math.min(names.size(), from + size) : names.size());
+		} else {
+			LuceneQuery<ConceptName> query = newConceptNameLuceneQuery(phrase, true, locales, false, includeRetired,
+			    requireClasses, excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept);
+			names = query.listPart(start, size).getList();
+		}
 		
 		List<ConceptSearchResult> results = new ArrayList<>();
 		
-		for (ConceptName name : names.getList()) {
+		for (ConceptName name : names) {
 			results.add(new ConceptSearchResult(phrase, name.getConcept(), name));
 		}
 		
 		return results;
 	}
 	
+	/**
+	 * @see ConceptDAO#suggestConcepts(String, List, int)
+	 */
+	@Override
+	public List<ConceptSearchResult> suggestConcepts(final String prefix, final List<Locale> locales, final int limit)
+	        throws DAOException {
+		final Set<String> stopWords = new HashSet<>();
+		for (Locale locale : locales) {
+			stopWords.addAll(Context.getConceptService().getConceptStopWords(locale));
+		}
+		
+		LuceneQuery<ConceptName> query = new LuceneQuery<ConceptName>(ConceptName.class,
+		        sessionFactory.getCurrentSession()) {
+			
+			@Override
+			protected org.apache.lucene.search.Query prepareQuery() {
+				QueryBuilder queryBuilder = newQueryBuilder();
+				BooleanJunction<?> junction = queryBuilder.bool();
+				
+				List<String> tokens = analyzeSuggestionPrefix(getFullTextSession(), prefix);
+				for (int i = 0; i < tokens.size(); i++) {
+					String token = tokens.get(i);
+					// the last word is still being typed
+					boolean lastToken = i == tokens.size() - 1;
+					if (!lastToken && stopWords.contains(token.toUpperCase())) {
+						continue;
+					}
+					if (token.length() < SUGGESTION_MIN_GRAM_SIZE) {
+						// shorter than the grams of the nameStart field
+						junction.must(queryBuilder.keyword().wildcard().onField("name").ignoreAnalyzer().matching(token + "*")
+						        .createQuery());
+					} else {
+						junction.must(queryBuilder.keyword().onField("nameStart").ignoreAnalyzer()
+						        .matching(StringUtils.left(token, SUGGESTION_MAX_GRAM_SIZE)).createQuery());
+					}
+				}
+				
+				BooleanJunction<?> localeJunction = queryBuilder.bool();
+				for (Locale locale : locales) {
+					localeJunction.should(queryBuilder.keyword().wildcard().onField("locale")
+					        .matching(locale.getLanguage() + "*").createQuery());
+				}
+				junction.must(localeJunction.createQuery());
+				junction.must(queryBuilder.keyword().onField("voided").matching(false).createQuery());
+				
+				junction.should(queryBuilder.keyword().onField("localePreferred").boostedTo(2f).matching(true)
+				        .createQuery());
+				junction.should(queryBuilder.keyword().onField("conceptNameType").boostedTo(1f)
+				        .matching(ConceptNameType.FULLY_SPECIFIED).createQuery());
+				return junction.createQuery();
+			}
+		};
+		query.include("concept.retired", false);
+		
+		// names are fetched a page at a time until enough distinct concepts are found
+		List<ConceptSearchResult> results = new ArrayList<>();
+		Set<Integer> conceptIds = new HashSet<>();
+		long pageSize = 2L * limit;
+		for (long firstResult = 0; results.size() < limit; firstResult += pageSize) {
+			List<ConceptName> names = query.listPart(firstResult, pageSize).getList();
+			for (ConceptName name : names) {
+				if (results.size() < limit && conceptIds.add(name.getConcept().getConceptId())) {
+					results.add(new ConceptSearchResult(prefix, name.getConcept(), name));
+				}
+			}
+			if (names.size() < pageSize) {
+				break;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Splits the prefix into words, normalized the way the nameStart field of {@link ConceptName}
+	 * is, minus the edge n-grams
+	 */
+	private static List<String> analyzeSuggestionPrefix(FullTextSession fullTextSession, String prefix) {
+		List<String> tokens = new ArrayList<>();
+		Analyzer analyzer = fullTextSession.getSearchFactory().getAnalyzer(LuceneAnalyzers.EXACT_ANALYZER);
+		try (TokenStream tokenStream = analyzer.tokenStream("nameStart", prefix)) {
+			CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+			tokenStream.reset();
+			while (tokenStream.incrementToken()) {
+				tokens.add(term.toString());
+			}
+			tokenStream.end();
+		}
+		catch (IOException e) {
+			throw new DAOException("Failed to analyze " + prefix, e);
+		}
+		return tokens;
+	}
+	
 	@Override
 	public Integer getCountOfConcepts(final String phrase, List<Locale> locales, boolean includeRetired,
 	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
 	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept) throws DAOException {
 		
+		if (DatabaseSearchFallback.use(DatabaseSearchFallback.CONCEPTS)) {
+			return getCountOfConceptsFromDatabase(phrase, locales, includeRetired, requireClasses, excludeClasses,
+			    requireDatatypes, excludeDatatypes, answersToConcept);
+		}
+		
 		LuceneQuery<ConceptName> query = newConceptNameLuceneQuery(phrase, true, locales, false, includeRetired,
 		    requireClasses, excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept);
 		
@@ -1539,6 +1706,104 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return size.intValue();
 	}
 	
+	/**
+	 * Finds the names starting with the given phrase in the database instead of the search index, see
+	 * {@link DatabaseSearchFallback}, keeping the first name found per concept and reading at most
+	 * {@link DatabaseSearchFallback#MAX_ROWS} names.
+	 */
+	private List<ConceptName> getConceptNamesFromDatabase(String phrase, List<Locale> locales, boolean includeRetired,
+	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
+	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		CriteriaQuery<ConceptName> cq = cb.createQuery(ConceptName.class);
+		Root<ConceptName> root = cq.from(ConceptName.class);
+		Join<ConceptName, Concept> concept = root.join("concept");
+		
+		cq.where(createConceptNameFallbackPredicates(cb, root, concept, phrase, locales, includeRetired, requireClasses,
+		    excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept)).orderBy(cb.asc(root.get("name")));
+		
+		// by id, which doesn't initialize the concept proxies
+		Set<Integer> conceptIds = new HashSet<>();
+		List<ConceptName> names = new ArrayList<>();
+		for (ConceptName name : session.createQuery(cq).setMaxResults(DatabaseSearchFallback.MAX_ROWS).getResultList()) {
+			if (conceptIds.add(name.getConcept().getConceptId())) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+	
+	/**
+	 * Counts the concepts with names starting with the given phrase in the database instead of the
+	 * search index, see {@link DatabaseSearchFallback}
+	 */
+	private Integer getCountOfConceptsFromDatabase(String phrase, List<Locale> locales, boolean includeRetired,
+	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
+	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+		Root<ConceptName> root = cq.from(ConceptName.class);
+		Join<ConceptName, Concept> concept = root.join("concept");
+		
+		cq.select(cb.countDistinct(concept)).where(createConceptNameFallbackPredicates(cb, root, concept, phrase, locales,
+		    includeRetired, requireClasses, excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept));
+		
+		return session.createQuery(cq).getSingleResult().intValue();
+	}
+	
+	private Predicate[] createConceptNameFallbackPredicates(CriteriaBuilder cb, Root<ConceptName> root,
+	        Join<ConceptName, Concept> concept, String phrase, List<Locale> locales, boolean includeRetired,
+	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
+	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept) {
+		List<Predicate> predicates = new ArrayList<>();
+		predicates.add(cb.isFalse(root.get("voided")));
+		if (!StringUtils.isBlank(phrase)) {
+			// the index matches names regardless of case
+			if (Context.getAdministrationService().isDatabaseStringComparisonCaseSensitive()) {
+				predicates.add(cb.like(cb.lower(root.get("name")), MatchMode.START.toLowerCasePattern(phrase.trim())));
+			} else {
+				predicates.add(cb.like(root.get("name"), MatchMode.START.toCaseSensitivePattern(phrase.trim())));
+			}
+		}
+		
+		// names in any locale of the language of the given locales match, as they do in the index
+		List<Predicate> localePredicates = new ArrayList<>();
+		for (Locale locale : locales != null ? locales : Collections.singletonList(Context.getLocale())) {
+			localePredicates.add(cb.like(root.get("locale").as(String.class), MatchMode.START.toCaseSensitivePattern(
+			    locale.getLanguage())));
+		}
+		predicates.add(cb.or(localePredicates.toArray(new Predicate[0])));
+		
+		if (!includeRetired) {
+			predicates.add(cb.isFalse(concept.get("retired")));
+		}
+		if (requireClasses != null && !requireClasses.isEmpty()) {
+			predicates.add(concept.get("conceptClass").in(requireClasses));
+		}
+		if (excludeClasses != null && !excludeClasses.isEmpty()) {
+			predicates.add(cb.not(concept.get("conceptClass").in(excludeClasses)));
+		}
+		if (requireDatatypes != null && !requireDatatypes.isEmpty()) {
+			predicates.add(concept.get("datatype").in(requireDatatypes));
+		}
+		if (excludeDatatypes != null && !excludeDatatypes.isEmpty()) {
+			predicates.add(cb.not(concept.get("datatype").in(excludeDatatypes)));
+		}
+		if (answersToConcept != null) {
+			Collection<ConceptAnswer> answers = answersToConcept.getAnswers(false);
+			if (answers != null && !answers.isEmpty()) {
+				List<Concept> answerConcepts = new ArrayList<>();
+				for (ConceptAnswer conceptAnswer : answers) {
+					answerConcepts.add(conceptAnswer.getAnswerConcept());
+				}
+				predicates.add(concept.in(answerConcepts));
+			}
+		}
+		return predicates.toArray(new Predicate[0]);
+	}
+	
 	private LuceneQuery<ConceptName> newConceptNameLuceneQuery(final String phrase, boolean searchKeywords,
 	        List<Locale> locales, boolean searchExactLocale, boolean includeRetired, List<ConceptClass> requireClasses,
 	        List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
@@ -1967,9 +2232,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 		LuceneQuery<ConceptName> conceptNameQuery = newConceptNameLuceneQuery(name, true, locales, searchExactLocale, false,
 		    null, null, null, null, null);
 		
-		List<ConceptName> names = conceptNameQuery.list();
-
-		return new ArrayList<>(transformNamesToConcepts(names));
+		return getConcepts(getConceptIds(conceptNameQuery.listProjection("concept.conceptId")));
 	}
 	
 	/**
@@ -2397,4 +2660,158 @@ public class HibernateConceptDAO implements ConceptDAO {
 
 		return session.createQuery(cq).uniqueResult();
 	}
+
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptDictionaryEntries(Collection)
+	 */
+	@Override
+	public List<ConceptEntry> getConceptDictionaryEntries(Collection<Integer> conceptIds) {
+		if (conceptIds == null) {
+			return loadConceptDictionaryEntries(null);
+		}
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(conceptIds));
+		List<ConceptEntry> entries = new ArrayList<>(ids.size());
+		for (int i = 0; i < ids.size(); i += DICTIONARY_FETCH_SIZE) {
+			entries.addAll(loadConceptDictionaryEntries(ids.subList(i, Math.min(ids.size(), i + DICTIONARY_FETCH_SIZE))));
+		}
+		return entries;
+	}
+
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getStoredConceptMappings(Integer)
+	 */
+	@Override
+	public List<MappingEntry> getStoredConceptMappings(Integer conceptId) {
+		return getStoredMappings("select t.code, s.name, s.hl7Code from ConceptMap m join m.conceptReferenceTerm t "
+		        + "join t.conceptSource s where m.concept.conceptId = :id", conceptId);
+	}
+
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getStoredConceptReferenceTermCode(Integer)
+	 */
+	@Override
+	public MappingEntry getStoredConceptReferenceTermCode(Integer conceptReferenceTermId) {
+		List<MappingEntry> codes = getStoredMappings("select t.code, s.name, s.hl7Code from ConceptReferenceTerm t "
+		        + "join t.conceptSource s where t.conceptReferenceTermId = :id", conceptReferenceTermId);
+		return codes.isEmpty() ? null : codes.get(0);
+	}
+
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptMappingCount()
+	 */
+	@Override
+	public long getConceptMappingCount() {
+		return (Long) sessionFactory.getCurrentSession().createQuery("select count(*) from ConceptMap").uniqueResult();
+	}
+
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptMappingsByCodes(Collection, Collection)
+	 */
+	@Override
+	public List<ConceptMap> getConceptMappingsByCodes(Collection<String> codes, Collection<String> sourceNames) {
+		if (codes.isEmpty() || sourceNames.isEmpty()) {
+			return Collections.emptyList();
+		}
+		boolean caseSensitive = Context.getAdministrationService().isDatabaseStringComparisonCaseSensitive();
+		String lower = caseSensitive ? "lower" : "";
+		String hql = "select m from ConceptMap m join fetch m.conceptReferenceTerm t join fetch t.conceptSource s "
+		        + "join fetch m.concept where " + lower + "(t.code) in (:codes) and (" + lower + "(s.name) in (:sources) or "
+		        + lower + "(s.hl7Code) in (:sources))";
+		return sessionFactory.getCurrentSession().createQuery(hql, ConceptMap.class)
+		        .setParameterList("codes", caseSensitive ? toLowerCase(codes) : codes)
+		        .setParameterList("sources", caseSensitive ? toLowerCase(sourceNames) : sourceNames).list();
+	}
+
+	private static Set<String> toLowerCase(Collection<String> values) {
+		return values.stream().map(String::toLowerCase).collect(toSet());
+	}
+
+	/**
+	 * Runs the given projection of codes and sources without flushing the session first, so that it
+	 * returns what was stored before the pending changes
+	 */
+	private List<MappingEntry> getStoredMappings(String hql, Integer id) {
+		if (id == null) {
+			return Collections.emptyList();
+		}
+		List<Object[]> rows = sessionFactory.getCurrentSession().createQuery(hql, Object[].class).setParameter("id", id)
+		        .setHibernateFlushMode(FlushMode.MANUAL).list();
+		return rows.stream().map(row -> new MappingEntry((String) row[0], (String) row[1], (String) row[2]))
+		        .collect(toList());
+	}
+
+	/**
+	 * Reads the names, mappings, answers and set members with one projection query each, interning
+	 * the repeated strings and locales, and then assembles the entries of the concepts in parallel.
+	 */
+	private List<ConceptEntry> loadConceptDictionaryEntries(List<Integer> conceptIds) {
+		Map<Object, Object> interned = new HashMap<>();
+
+		Map<Integer, List<NameEntry>> names = new HashMap<>();
+		scrollDictionaryRows("select n.concept.conceptId, n.conceptNameId, n.name, n.locale, n.conceptNameType, "
+		        + "n.localePreferred from ConceptName n where n.voided = false", "n.concept.conceptId", conceptIds,
+		    row -> names.computeIfAbsent((Integer) row[0], id -> new ArrayList<>(4))
+		            .add(new NameEntry((Integer) row[1], intern(interned, (String) row[2]), intern(interned, (Locale) row[3]),
+		                    (ConceptNameType) row[4], Boolean.TRUE.equals(row[5]))));
+
+		Map<Integer, List<MappingEntry>> mappings = new HashMap<>();
+		scrollDictionaryRows("select m.concept.conceptId, t.code, s.name, s.hl7Code from ConceptMap m "
+		        + "join m.conceptReferenceTerm t join t.conceptSource s", "m.concept.conceptId", conceptIds,
+		    row -> mappings.computeIfAbsent((Integer) row[0], id -> new ArrayList<>(4)).add(new MappingEntry(
+		        intern(interned, (String) row[1]), intern(interned, (String) row[2]), intern(interned, (String) row[3]))));
+
+		Map<Integer, List<Integer>> answers = new HashMap<>();
+		scrollDictionaryRows("select a.concept.conceptId, a.answerConcept.conceptId from ConceptAnswer a "
+		        + "where a.answerConcept is not null order by a.sortWeight, a.conceptAnswerId",
+		    "a.concept.conceptId", conceptIds,
+		    row -> answers.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]));
+
+		Map<Integer, List<Integer>> setMembers = new HashMap<>();
+		scrollDictionaryRows("select s.conceptSet.conceptId, s.concept.conceptId from ConceptSet s "
+		        + "order by s.sortWeight, s.conceptSetId", "s.conceptSet.conceptId", conceptIds,
+		    row -> setMembers.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]));
+
+		List<Object[]> concepts = new ArrayList<>();
+		scrollDictionaryRows("select c.conceptId, c.uuid, c.retired, c.set, c.datatype.conceptDatatypeId, "
+		        + "c.conceptClass.conceptClassId from Concept c", "c.conceptId", conceptIds, concepts::add);
+
+		return concepts.parallelStream().map(row -> {
+			Integer conceptId = (Integer) row[0];
+			return new ConceptEntry(conceptId, (String) row[1], Boolean.TRUE.equals(row[2]), Boolean.TRUE.equals(row[3]),
+			        (Integer) row[4], (Integer) row[5], names.getOrDefault(conceptId, Collections.emptyList()),
+			        mappings.getOrDefault(conceptId, Collections.emptyList()), toIntArray(answers.get(conceptId)),
+			        toIntArray(setMembers.get(conceptId)));
+		}).collect(toList());
+	}
+
+	private void scrollDictionaryRows(String hql, String conceptIdProperty, List<Integer> conceptIds,
+	        Consumer<Object[]> consumer) {
+		String query = hql;
+		if (conceptIds != null) {
+			int orderBy = query.indexOf(" order by ");
+			String select = orderBy < 0 ? query : query.substring(0, orderBy);
+			String order = orderBy < 0 ? "" : query.substring(orderBy);
+			query = select + (select.contains(" where ") ? " and " : " where ") + conceptIdProperty
+			        + " in (:conceptIds)" + order;
+		}
+		org.hibernate.query.Query<?> dictionaryQuery = sessionFactory.getCurrentSession().createQuery(query)
+		        .setFetchSize(DICTIONARY_FETCH_SIZE).setReadOnly(true);
+		if (conceptIds != null) {
+			dictionaryQuery.setParameterList("conceptIds", conceptIds);
+		}
+		try (ScrollableResults rows = dictionaryQuery.scroll(ScrollMode.FORWARD_ONLY)) {
+			while (rows.next()) {
+				consumer.accept(rows.get());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T intern(Map<Object, Object> interned, T value) {
+		return value == null ? null : (T) interned.computeIfAbsent(value, v -> v);
+	}
+
+	private static int[] toIntArray(List<Integer> ids) {
+		return ids == null ? null : ids.stream().mapToInt(Integer::intValue).toArray();
+	}
 }
@@ -10,25 +10,33 @@
 package org.openmrs.api.db.hibernate;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hibernate.CacheMode;
 import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
 import org.hibernate.stat.QueryStatistics;
 import org.hibernate.stat.Statistics;
 import org.hibernate.type.StandardBasicTypes;
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
+import org.openmrs.api.SearchIndexProgress;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.context.Daemon;
 import org.openmrs.api.db.ContextDAO;
 import org.openmrs.api.db.FullTextSessionFactory;
 import org.openmrs.api.db.UserDAO;
+import org.openmrs.api.db.hibernate.search.AsyncBackendQueueProcessor;
+import org.openmrs.api.db.hibernate.search.SearchIndexer;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.Security;
@@ -41,6 +49,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.File;
+import java.io.Serializable;
 import java.net.URL;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -48,7 +57,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -62,6 +73,8 @@ public class HibernateContextDAO implements ContextDAO {
 	
 	private static final Logger log = LoggerFactory.getLogger(HibernateContextDAO.class);
 	
+	private static final String SEARCH_INDEX_CHECKPOINT = "indexes.checkpoint";
+	
 	private static final Long DEFAULT_UNLOCK_ACCOUNT_WAITING_TIME = TimeUnit.MILLISECONDS.convert(5L, TimeUnit.MINUTES);
 	
 	/**
@@ -74,6 +87,18 @@ public class HibernateContextDAO implements ContextDAO {
 	
 	private UserDAO userDao;
 	
+	private VerifiedCredentialsCache verifiedCredentialsCache;
+	
+	/**
+	 * the indexer of the last rebuild of the search index
+	 */
+	private volatile SearchIndexer searchIndexer;
+	
+	/**
+	 * whether an entity has pooled ids, see {@link PooledIfNotAssignedIdGenerator#isSelected}
+	 */
+	private volatile Boolean pooledIds;
+	
 	/**
 	 * Session factory to use for this DAO. This is usually injected by spring and its application
 	 * context.
@@ -87,6 +112,10 @@ public class HibernateContextDAO implements ContextDAO {
 	public void setUserDAO(UserDAO userDao) {
 		this.userDao = userDao;
 	}
+	
+	public void setVerifiedCredentialsCache(VerifiedCredentialsCache verifiedCredentialsCache) {
+		this.verifiedCredentialsCache = verifiedCredentialsCache;
+	}
 
 	/**
 	 * @see org.openmrs.api.db.ContextDAO#authenticate(java.lang.String, java.lang.String)
@@ -99,6 +128,7 @@ public class HibernateContextDAO implements ContextDAO {
 		Session session = sessionFactory.getCurrentSession();
 
 		User candidateUser = null;
+		long verificationGeneration = 0;
 
 		if (StringUtils.isNotBlank(login)) {
 			// loginWithoutDash is used to compare to the system id
@@ -107,6 +137,13 @@ public class HibernateContextDAO implements ContextDAO {
 				loginWithDash = login.substring(0, login.length() - 1) + "-" + login.charAt(login.length() - 1);
 			}
 
+			// skip the lookup and the password hashing if these credentials were verified recently
+			verificationGeneration = verifiedCredentialsCache.getGeneration();
+			User verifiedUser = getRecentlyVerifiedUser(session, login, loginWithDash, password);
+			if (verifiedUser != null) {
+				return verifiedUser;
+			}
+
 			try {
 				candidateUser = session.createQuery(
 					"from User u where (u.username = ?1 or u.systemId = ?2 or u.systemId = ?3) and u.retired = false",
@@ -178,6 +215,7 @@ public class HibernateContextDAO implements ContextDAO {
 				}
 				setLastLoginTime(candidateUser);
 				saveUserProperties(candidateUser);
+				verifiedCredentialsCache.putVerified(login, password, candidateUser.getUserId(), verificationGeneration);
 
 				// skip out of the method early (instead of throwing the exception)
 				// to indicate that this is the valid user
@@ -185,6 +223,7 @@ public class HibernateContextDAO implements ContextDAO {
 			} else {
 				// the user failed the username/password, increment their
 				// attempts here and set the "lockout" timestamp if necessary
+				verifiedCredentialsCache.evict(candidateUser.getUserId());
 				int attempts = getUsersLoginAttempts(candidateUser);
 
 				attempts++;
@@ -217,6 +256,55 @@ public class HibernateContextDAO implements ContextDAO {
 		throw new ContextAuthenticationException(errorMsg);
 	}
 	
+	/**
+	 * Gets the user matching the given login if the given password was verified for it recently
+	 * 
+	 * @param session the current session
+	 * @param login the username or system id
+	 * @param loginWithDash the login with a dash before the check digit
+	 * @param password the plain text password
+	 * @return the hydrated user or null if the credentials have to be verified against the database
+	 */
+	private User getRecentlyVerifiedUser(Session session, String login, String loginWithDash, String password) {
+		if (password == null) {
+			return null;
+		}
+		Integer userId = verifiedCredentialsCache.getVerifiedUserId(login, password);
+		if (userId == null) {
+			return null;
+		}
+		
+		User user = session.get(User.class, userId);
+		if (user == null || user.getRetired() || !(login.equals(user.getUsername()) || login.equals(user.getSystemId())
+		        || loginWithDash.equals(user.getSystemId()))) {
+			verifiedCredentialsCache.evict(userId);
+			return null;
+		}
+		
+		// leave locked out users to the full authentication, which also unlocks them once the time is up
+		String lockoutTimeString = user.getUserProperty(OpenmrsConstants.USER_PROPERTY_LOCKOUT_TIMESTAMP, null);
+		if (StringUtils.isNotBlank(lockoutTimeString) && !"0".equals(lockoutTimeString)) {
+			verifiedCredentialsCache.evict(userId);
+			return null;
+		}
+		
+		log.debug("Credentials of user id {} were verified recently", userId);
+		// hydrate the user object
+		user.getAllRoles().size();
+		user.getUserProperties().size();
+		user.getPrivileges().size();
+		
+		// the last login time only needs to be as accurate as the cache
+		long lastLoginTime = NumberUtils.toLong(
+		    user.getUserProperty(OpenmrsConstants.USER_PROPERTY_LAST_LOGIN_TIMESTAMP), 0);
+		if (System.currentTimeMillis() - lastLoginTime > TimeUnit.SECONDS
+		        .toMillis(VerifiedCredentialsCache.TIME_TO_LIVE_SECONDS)) {
+			setLastLoginTime(user);
+			saveUserProperties(user);
+		}
+		return user;
+	}
+	
 	private void setLastLoginTime(User candidateUser) {
 		candidateUser.setUserProperty(
 			OpenmrsConstants.USER_PROPERTY_LAST_LOGIN_TIMESTAMP,
@@ -370,9 +458,21 @@ public class HibernateContextDAO implements ContextDAO {
 	 */
 	@Override
 	public void evictFromSession(Object obj) {
+		if (hasPooledIds()) {
+			// entities with pooled ids are only inserted on flush, an evicted one would never be, so write
+			// the pending inserts first as if their ids had been generated by the database
+			((SessionImplementor) sessionFactory.getCurrentSession()).getActionQueue().executeInserts();
+		}
 		sessionFactory.getCurrentSession().evict(obj);
 	}
 
+	private boolean hasPooledIds() {
+		if (pooledIds == null) {
+			pooledIds = PooledIfNotAssignedIdGenerator.isSelected((SessionFactoryImplementor) sessionFactory);
+		}
+		return pooledIds;
+	}
+
 	/**
 	 * @see org.openmrs.api.db.ContextDAO#evictEntity(OpenmrsObject)
 	 */
@@ -517,8 +617,9 @@ public class HibernateContextDAO implements ContextDAO {
 		FullTextSession session = fullTextSessionFactory.getFullTextSession();
 		session.purgeAll(type);
 		
-		//Prepare session for batch work
+		//Prepare session for batch work, indexing the pending changes while their lazy associations can be loaded
 		session.flush();
+		session.flushToIndexes();
 		session.clear();
 		
 		FlushMode flushMode = session.getHibernateFlushMode();
@@ -572,9 +673,56 @@ public class HibernateContextDAO implements ContextDAO {
 	public void setupSearchIndex() {
 		String gp = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_VERSION, "");
 		
-		if (!OpenmrsConstants.SEARCH_INDEX_VERSION.toString().equals(gp)) {
+		boolean rebuild = !OpenmrsConstants.SEARCH_INDEX_VERSION.toString().equals(gp);
+		if (rebuild) {
 			updateSearchIndex();
 		}
+		
+		// changes that were queued but not applied when the application stopped
+		for (AsyncBackendQueueProcessor processor : AsyncBackendQueueProcessor.getProcessors()) {
+			if (!rebuild && !processor.getJournaledEntities().isEmpty()) {
+				log.info("Reindexing the journaled changes of the {} index", processor.getIndexName());
+				reindexEntities(processor.getJournaledEntities());
+			}
+			processor.journalReplayed();
+		}
+	}
+	
+	private void reindexEntities(Map<String, Set<String>> entities) {
+		try (Session session = sessionFactory.openSession()) {
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			Transaction transaction = fullTextSession.beginTransaction();
+			for (Map.Entry<String, Set<String>> entry : entities.entrySet()) {
+				Class<?> type;
+				try {
+					type = Context.loadClass(entry.getKey());
+				}
+				catch (ClassNotFoundException e) {
+					log.warn("Skipping the journaled changes of {} which is not found", entry.getKey());
+					continue;
+				}
+				Class<?> idType = ((SessionFactoryImplementor) sessionFactory).getMetamodel().entityPersister(type)
+				        .getIdentifierType().getReturnedClass();
+				for (String value : entry.getValue()) {
+					Serializable id = Integer.class.equals(idType) ? Integer.valueOf(value) : value;
+					Object entity = fullTextSession.get(type, id);
+					if (entity != null) {
+						fullTextSession.index(entity);
+					} else {
+						fullTextSession.purge(type, id);
+					}
+				}
+			}
+			transaction.commit();
+		}
+	}
+	
+	/**
+	 * @see ContextDAO#flushSearchIndex()
+	 */
+	@Override
+	public void flushSearchIndex() {
+		AsyncBackendQueueProcessor.flushAll();
 	}
 	
 	/**
@@ -584,7 +732,7 @@ public class HibernateContextDAO implements ContextDAO {
 	public void updateSearchIndex() {
 		try {
 			log.info("Updating the search index... It may take a few minutes.");
-			fullTextSessionFactory.getFullTextSession().createIndexer().startAndWait();
+			rebuildSearchIndex();
 			GlobalProperty gp = Context.getAdministrationService().getGlobalPropertyObject(
 			    OpenmrsConstants.GP_SEARCH_INDEX_VERSION);
 			if (gp == null) {
@@ -606,13 +754,38 @@ public class HibernateContextDAO implements ContextDAO {
 	public Future<?> updateSearchIndexAsync() {
 		try {
 			log.info("Started asynchronously updating the search index...");
-			return fullTextSessionFactory.getFullTextSession().createIndexer().start();
+			FutureTask<Void> task = new FutureTask<>(this::rebuildSearchIndex, null);
+			Thread thread = new Thread(task, "Search index update");
+			thread.setDaemon(true);
+			thread.start();
+			return task;
 		}
 		catch (Exception e) {
 			throw new RuntimeException("Failed to start asynchronous search index update", e);
 		}
 	}
 
+	/**
+	 * Rebuilds the index of all indexed types, resuming a previous rebuild of the same version which
+	 * did not finish.
+	 */
+	private void rebuildSearchIndex() {
+		File checkpoint = new File(OpenmrsUtil.getDirectoryInApplicationDataDirectory("lucene"), SEARCH_INDEX_CHECKPOINT);
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, checkpoint);
+		searchIndexer = indexer;
+		indexer.index(indexer.getIndexedTypes(), OpenmrsConstants.SEARCH_INDEX_VERSION.toString());
+		log.info("Indexed {}", indexer.getProgress());
+	}
+
+	/**
+	 * @see ContextDAO#getSearchIndexProgress()
+	 */
+	@Override
+	public SearchIndexProgress getSearchIndexProgress() {
+		SearchIndexer indexer = searchIndexer;
+		return indexer != null ? indexer.getProgress() : null;
+	}
+
 	/**
 	 * @see ContextDAO#getDatabaseConnection() 
 	 */
@@ -27,6 +27,8 @@ import org.hibernate.FlushMode;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
@@ -344,6 +346,11 @@ public class HibernateObsDAO implements ObsDAO {
 		FlushMode flushMode = session.getHibernateFlushMode();
 		session.setHibernateFlushMode(FlushMode.MANUAL);
 		try {
+			if (PooledIfNotAssignedIdGenerator.isSelected((SessionFactoryImplementor) sessionFactory, Obs.class)) {
+				// obs are only inserted when the session is flushed since their ids aren't generated by the
+				// database, write the pending ones as they were saved so that they can be read back
+				((SessionImplementor) session).getActionQueue().executeInserts();
+			}
 			SQLQuery sql = session.createSQLQuery("select status from obs where obs_id = :obsId");
 			sql.setParameter("obsId", obs.getObsId());
 			return Obs.Status.valueOf((String) sql.uniqueResult());
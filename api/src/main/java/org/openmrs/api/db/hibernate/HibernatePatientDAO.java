@@ -11,21 +11,35 @@ package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -41,10 +55,13 @@ import org.openmrs.PatientProgram;
 import org.openmrs.Person;
 import org.openmrs.PersonAttribute;
 import org.openmrs.PersonName;
+import org.openmrs.api.PatientSearchStrategy;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.PatientDAO;
+import org.openmrs.api.db.hibernate.search.DatabaseSearchFallback;
 import org.openmrs.api.db.hibernate.search.LuceneQuery;
+import org.openmrs.api.db.hibernate.search.LuceneQuery.MatchType;
 import org.openmrs.collection.ListPart;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
@@ -61,12 +78,30 @@ import org.slf4j.LoggerFactory;
 public class HibernatePatientDAO implements PatientDAO {
 	
 	private static final Logger log = LoggerFactory.getLogger(HibernatePatientDAO.class);
+
+	/**
+	 * Boosts of the identifier, name and attribute matches of a unified patient search, far enough
+	 * apart to rank the matches in the same order as the per entity search does
+	 */
+	private static final float IDENTIFIER_MATCH_BOOST = 100f;
+	
+	private static final float NAME_MATCH_BOOST = 10f;
+	
+	private static final float ATTRIBUTE_MATCH_BOOST = 1f;
+	
+	private static final int DUPLICATE_PATIENTS_FETCH_SIZE = 1000;
 	
 	/**
 	 * Hibernate session factory
 	 */
 	private SessionFactory sessionFactory;
 	
+	private PatientIdentifierLookup identifierLookup;
+	
+	private PatientBlockingKeys blockingKeys;
+	
+	private PersonSearchResultCache searchResultCache;
+	
 	/**
 	 * Set session factory
 	 *
@@ -74,6 +109,26 @@ public class HibernatePatientDAO implements PatientDAO {
 	 */
 	public void setSessionFactory(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
+		if (identifierLookup == null) {
+			this.identifierLookup = new PatientIdentifierLookup(sessionFactory);
+		}
+		this.blockingKeys = new PatientBlockingKeys(sessionFactory);
+	}
+	
+	/**
+	 * @param identifierLookup the lookup of the queries which are complete identifiers
+	 * @since 2.8.0
+	 */
+	public void setIdentifierLookup(PatientIdentifierLookup identifierLookup) {
+		this.identifierLookup = identifierLookup;
+	}
+	
+	/**
+	 * @param searchResultCache the cache of the results of repeated searches
+	 * @since 2.8.0
+	 */
+	public void setSearchResultCache(PersonSearchResultCache searchResultCache) {
+		this.searchResultCache = searchResultCache;
 	}
 
 	/**
@@ -86,6 +141,16 @@ public class HibernatePatientDAO implements PatientDAO {
 		return (Patient) sessionFactory.getCurrentSession().get(Patient.class, patientId);
 	}
 	
+	/**
+	 * Loads the patients with their identifiers, the names and attributes being loaded in batches
+	 * 
+	 * @see org.openmrs.api.db.PatientDAO#getPatients(java.util.Collection)
+	 */
+	@Override
+	public List<Patient> getPatients(Collection<Integer> patientIds) throws DAOException {
+		return HibernateUtil.getEntitiesByIds(sessionFactory, Patient.class, "patientId", patientIds, "identifiers");
+	}
+	
 	/**
      * @param patient  patient to be created or updated
      * @return         patient who was created or updated
@@ -93,11 +158,13 @@ public class HibernatePatientDAO implements PatientDAO {
 	 */
         @Override
 	public Patient savePatient(Patient patient) throws DAOException {
+		identifierLookup.clear();
 		if (patient.getPatientId() == null) {
 			// if we're saving a new patient, just do the normal thing
 			// and rows in the person and patient table will be created by
 			// hibernate
 			sessionFactory.getCurrentSession().saveOrUpdate(patient);
+			blockingKeys.update(patient);
 			return patient;
 		} else {
 			// if we're updating a patient, its possible that a person
@@ -114,6 +181,7 @@ public class HibernatePatientDAO implements PatientDAO {
 			// and Persons are the same objects.  So it sees a Person object in the
 			// cache and claims it is a duplicate of this Patient object.
 			sessionFactory.getCurrentSession().saveOrUpdate(patient);
+			blockingKeys.update(patient);
 			
 			return patient;
 		}
@@ -184,6 +252,9 @@ public class HibernatePatientDAO implements PatientDAO {
 			tmpLength = HibernatePersonDAO.getMaximumSearchResults();
 		}
 		
+		if (DatabaseSearchFallback.use(DatabaseSearchFallback.PATIENTS)) {
+			return findPatientsInDatabase(query, false, identifierTypes, matchIdentifierExactly, false, tmpStart, tmpLength);
+		}
 		return findPatients(query, identifierTypes, matchIdentifierExactly, tmpStart, tmpLength);
 	}
 	
@@ -207,6 +278,13 @@ public class HibernatePatientDAO implements PatientDAO {
 			tmpLength = HibernatePersonDAO.getMaximumSearchResults();
 		}
 
+		List<Integer> identifiedPatientIds = lookUpIdentifier(query, includeVoided);
+		if (identifiedPatientIds != null) {
+			return getPatients(identifiedPatientIds, tmpStart, tmpLength);
+		}
+		if (DatabaseSearchFallback.use(DatabaseSearchFallback.PATIENTS)) {
+			return findPatientsInDatabase(query, includeVoided, null, false, true, tmpStart, tmpLength);
+		}
 		List<Patient> patients = findPatients(query, includeVoided, tmpStart, tmpLength);
 
 		return new ArrayList<>(patients);
@@ -220,6 +298,88 @@ public class HibernatePatientDAO implements PatientDAO {
 		return getPatients(query, false, start, length);
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getPatients(String, boolean, Integer, Integer,
+	 *      PatientSearchStrategy)
+	 */
+	@Override
+	public List<Patient> getPatients(String query, boolean includeVoided, Integer start, Integer length,
+	        PatientSearchStrategy strategy) throws DAOException {
+		if (!isSearchResultCacheEnabled()) {
+			return searchPatients(query, includeVoided, start, length, strategy);
+		}
+		List<Object> key = PersonSearchResultCache.newKey("patients", query, includeVoided, start, length, strategy);
+		List<Integer> patientIds = searchResultCache.get(key);
+		if (patientIds != null) {
+			return new ArrayList<>(getPatients(patientIds));
+		}
+		long generation = searchResultCache.getGeneration();
+		List<Patient> patients = searchPatients(query, includeVoided, start, length, strategy);
+		searchResultCache.put(key, Collections.unmodifiableList(
+		    patients.stream().map(Patient::getPatientId).collect(Collectors.toList())), generation);
+		return patients;
+	}
+	
+	private boolean isSearchResultCacheEnabled() {
+		// results found in the database while the index is rebuilt aren't cached
+		return searchResultCache != null && !DatabaseSearchFallback.isActive() && searchResultCache.isEnabled();
+	}
+	
+	private List<Patient> searchPatients(String query, boolean includeVoided, Integer start, Integer length,
+	        PatientSearchStrategy strategy) {
+		// voided patients have no documents of their own, so they are only found per entity
+		if (strategy != PatientSearchStrategy.UNIFIED || includeVoided || DatabaseSearchFallback.isActive()) {
+			return getPatients(query, includeVoided, start, length);
+		}
+		if (StringUtils.isBlank(query) || (length != null && length < 1)) {
+			return Collections.emptyList();
+		}
+		
+		Integer tmpStart = start;
+		if (tmpStart == null || tmpStart < 0) {
+			tmpStart = 0;
+		}
+		Integer maxLength = HibernatePersonDAO.getMaximumSearchResults();
+		Integer tmpLength = length;
+		if (tmpLength == null || tmpLength > maxLength) {
+			tmpLength = maxLength;
+		}
+		List<Integer> identifiedPatientIds = lookUpIdentifier(query, false);
+		if (identifiedPatientIds != null) {
+			return getPatients(identifiedPatientIds, tmpStart, tmpLength);
+		}
+		String tmpQuery = LuceneQuery.escapeQuery(query);
+		if (isShorterThanMinSearchCharacters(tmpQuery)) {
+			return Collections.emptyList();
+		}
+		
+		return new ArrayList<>(getPatientLuceneQuery(tmpQuery).listPart(tmpStart, tmpLength).getList());
+	}
+	
+	/**
+	 * Looks the query up as a complete identifier, unless it is shorter than the searches allow
+	 * 
+	 * @see PatientIdentifierLookup#getPatientIds(String, boolean)
+	 */
+	private List<Integer> lookUpIdentifier(String query, boolean includeVoided) {
+		if (isShorterThanMinSearchCharacters(LuceneQuery.escapeQuery(query))) {
+			return null;
+		}
+		return identifierLookup.getPatientIds(query, includeVoided);
+	}
+	
+	/**
+	 * Applies {@link OpenmrsConstants#GLOBAL_PROPERTY_MIN_SEARCH_CHARACTERS} to the query of a
+	 * search, the same way for the patients and their count.
+	 */
+	private boolean isShorterThanMinSearchCharacters(String escapedQuery) {
+		String minChars = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_MIN_SEARCH_CHARACTERS);
+		if (minChars == null || !StringUtils.isNumeric(minChars)) {
+			minChars = "" + OpenmrsConstants.GLOBAL_PROPERTY_DEFAULT_MIN_SEARCH_CHARACTERS;
+		}
+		return escapedQuery.length() < Integer.valueOf(minChars);
+	}
+	
 	private void setFirstAndMaxResult(Criteria criteria, Integer start, Integer length) {
 		if (start != null) {
 			criteria.setFirstResult(start);
@@ -255,6 +415,7 @@ public class HibernatePatientDAO implements PatientDAO {
 	 */
         @Override
 	public void deletePatientIdentifierType(PatientIdentifierType patientIdentifierType) throws DAOException {
+		identifierLookup.identifierTypesChanged();
 		sessionFactory.getCurrentSession().delete(patientIdentifierType);
 	}
 	
@@ -304,6 +465,7 @@ public class HibernatePatientDAO implements PatientDAO {
 	 */
         @Override
 	public PatientIdentifierType savePatientIdentifierType(PatientIdentifierType patientIdentifierType) throws DAOException {
+		identifierLookup.identifierTypesChanged();
 		sessionFactory.getCurrentSession().saveOrUpdate(patientIdentifierType);
 		return patientIdentifierType;
 	}
@@ -313,6 +475,8 @@ public class HibernatePatientDAO implements PatientDAO {
 	 */
         @Override
 	public void deletePatient(Patient patient) throws DAOException {
+		identifierLookup.clear();
+		blockingKeys.remove(patient.getPatientId());
 		HibernatePersonDAO.deletePersonAndAttributes(sessionFactory, patient);
 	}
 	
@@ -408,162 +572,129 @@ public class HibernatePatientDAO implements PatientDAO {
      * @return           list of patients that match other patients
 	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientsByAttributes(java.util.List)
 	 */
-	@SuppressWarnings("unchecked")
-        @Override
+	@Override
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) {
-		List<Patient> patients = new ArrayList<>();
-		List<Integer> patientIds = new ArrayList<>();
-
-		if (!attributes.isEmpty()) {
-
-			String sqlString = getDuplicatePatientsSQLString(attributes);
-			if(sqlString != null) {
-
-				SQLQuery sqlquery = sessionFactory.getCurrentSession().createSQLQuery(sqlString);
-				patientIds = sqlquery.list();
-				if (!patientIds.isEmpty()) {
-					Query query = sessionFactory.getCurrentSession().createQuery(
-							"from Patient p1 where p1.patientId in (:ids)");
-					query.setParameterList("ids", patientIds);
-					patients = query.list();
-				}
-			}
+		if (attributes.isEmpty()) {
+			return new ArrayList<>();
+		}
+		String sqlString = getDuplicatePatientsSQLString(attributes);
+		if (sqlString == null) {
+			return new ArrayList<>();
+		}
 		
+		// the database groups the values, only the ids of the patients of the duplicate groups are read
+		Set<Integer> patientIds = new LinkedHashSet<>();
+		SQLQuery sqlQuery = sessionFactory.getCurrentSession().createSQLQuery(sqlString);
+		sqlQuery.setFetchSize(DUPLICATE_PATIENTS_FETCH_SIZE).setReadOnly(true);
+		try (ScrollableResults rows = sqlQuery.scroll(ScrollMode.FORWARD_ONLY)) {
+			while (rows.next()) {
+				patientIds.add(((Number) rows.get(0)).intValue());
+			}
 		}
-
-		sortDuplicatePatients(patients, patientIds);
-		return patients;
+		return patientIds.isEmpty() ? new ArrayList<>() : getPatients(patientIds);
 	}
-
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getPossibleDuplicatePatientIds(org.openmrs.Patient)
+	 */
+	@Override
+	public List<Integer> getPossibleDuplicatePatientIds(Patient patient) throws DAOException {
+		return blockingKeys.getCandidatePatientIds(patient);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#updatePatientBlockingKeys()
+	 */
+	@Override
+	public long updatePatientBlockingKeys() throws DAOException {
+		return blockingKeys.rebuild();
+	}
+	
+	/**
+	 * Builds the query of the ids of the patients having the same values for the attributes as
+	 * another patient, the values of the duplicates being grouped by the database
+	 */
 	private String getDuplicatePatientsSQLString(List<String> attributes) {
-		StringBuilder outerSelect = new StringBuilder("select distinct t1.patient_id from patient t1 ");
-		final String t5 = " = t5.";
 		Set<String> patientFieldNames = OpenmrsUtil.getDeclaredFields(Patient.class);
 		Set<String> personFieldNames = OpenmrsUtil.getDeclaredFields(Person.class);
 		Set<String> personNameFieldNames = OpenmrsUtil.getDeclaredFields(PersonName.class);
 		Set<String> identifierFieldNames = OpenmrsUtil.getDeclaredFields(PatientIdentifier.class);
-
-		List<String> whereConditions = new ArrayList<>();
-
-
-		List<String> innerFields = new ArrayList<>();
+		
+		StringBuilder outerSelect = new StringBuilder("select distinct t1.patient_id from patient t1 ");
 		StringBuilder innerSelect = new StringBuilder(" from patient p1 ");
-
+		List<String> innerFields = new ArrayList<>();
+		List<String> joinConditions = new ArrayList<>();
+		
 		for (String attribute : attributes) {
 			if (attribute != null) {
 				attribute = attribute.trim();
 			}
+			String outerField;
+			String innerField;
 			if (patientFieldNames.contains(attribute)) {
-
-				AbstractEntityPersister aep = (AbstractEntityPersister) sessionFactory.getClassMetadata(Patient.class);
-				String[] properties = aep.getPropertyColumnNames(attribute);
-				if (properties.length >= 1) {
-					attribute = properties[0];
-				}
-				whereConditions.add(" t1." + attribute + t5 + attribute);
-				innerFields.add("p1." + attribute);
+				String column = getColumnName(Patient.class, attribute);
+				outerField = "t1." + column;
+				innerField = "p1." + column;
 			} else if (personFieldNames.contains(attribute)) {
-				// check if outerSelect contains 'person' word, surrounded by spaces.
-				// otherwise it will wrongly match for example: 'person_name' etc.
-				if (!Arrays.asList(outerSelect.toString().split("\\s+")).contains("person")) {
+				if (!innerSelect.toString().contains(" person1 ")) {
 					outerSelect.append("inner join person t2 on t1.patient_id = t2.person_id ");
 					innerSelect.append("inner join person person1 on p1.patient_id = person1.person_id ");
 				}
-
-				AbstractEntityPersister aep = (AbstractEntityPersister) sessionFactory.getClassMetadata(Person.class);
-				if (aep != null) {
-					String[] properties = aep.getPropertyColumnNames(attribute);
-					if (properties != null && properties.length >= 1) {
-						attribute = properties[0];
-					}
-				}
-
-				whereConditions.add(" t2." + attribute + t5 + attribute);
-				innerFields.add("person1." + attribute);
+				String column = getColumnName(Person.class, attribute);
+				outerField = "t2." + column;
+				innerField = "person1." + column;
 			} else if (personNameFieldNames.contains(attribute)) {
-				if (!outerSelect.toString().contains("person_name")) {
+				if (!innerSelect.toString().contains(" pn1 ")) {
 					outerSelect.append("inner join person_name t3 on t1.patient_id = t3.person_id ");
 					innerSelect.append("inner join person_name pn1 on p1.patient_id = pn1.person_id ");
 				}
-
-				//Since we are firing a native query get the actual table column name from the field name of the entity
-				AbstractEntityPersister aep = (AbstractEntityPersister) sessionFactory
-						.getClassMetadata(PersonName.class);
-				if (aep != null) {
-					String[] properties = aep.getPropertyColumnNames(attribute);
-
-					if (properties != null && properties.length >= 1) {
-						attribute = properties[0];
-					}
-				}
-
-				whereConditions.add(" t3." + attribute + t5 + attribute);
-				innerFields.add("pn1." + attribute);
+				String column = getColumnName(PersonName.class, attribute);
+				outerField = "t3." + column;
+				innerField = "pn1." + column;
 			} else if (identifierFieldNames.contains(attribute)) {
-				if (!outerSelect.toString().contains("patient_identifier")) {
+				if (!innerSelect.toString().contains(" pi1 ")) {
 					outerSelect.append("inner join patient_identifier t4 on t1.patient_id = t4.patient_id ");
 					innerSelect.append("inner join patient_identifier pi1 on p1.patient_id = pi1.patient_id ");
 				}
-
-				AbstractEntityPersister aep = (AbstractEntityPersister) sessionFactory
-						.getClassMetadata(PatientIdentifier.class);
-				if (aep != null) {
-
-					String[] properties = aep.getPropertyColumnNames(attribute);
-					if (properties != null && properties.length >= 1) {
-						attribute = properties[0];
-					}
-				}
-
-				whereConditions.add(" t4." + attribute + t5 + attribute);
-				innerFields.add("pi1." + attribute);
+				String column = getColumnName(PatientIdentifier.class, attribute);
+				outerField = "t4." + column;
+				innerField = "pi1." + column;
 			} else {
 				log.warn("Unidentified attribute: " + attribute);
+				continue;
 			}
+			// aliased, the same column name may come from several tables
+			joinConditions.add(outerField + " = t5.f" + innerFields.size());
+			innerFields.add(innerField);
 		}
-		if(CollectionUtils.isNotEmpty(innerFields) || CollectionUtils.isNotEmpty(whereConditions)) {
-			String innerFieldsJoined = StringUtils.join(innerFields, ", ");
-			String whereFieldsJoined = StringUtils.join(whereConditions, " and ");
-			String innerWhereCondition = "";
-			if (!attributes.contains("includeVoided")) {
-				innerWhereCondition = " where p1.voided = false ";
-			}
-			String innerQuery = "(Select " + innerFieldsJoined + innerSelect + innerWhereCondition + " group by "
-					+ innerFieldsJoined + " having count(*) > 1" + " order by " + innerFieldsJoined + ") t5";
-			return outerSelect + ", " + innerQuery + " where " + whereFieldsJoined + ";";
+		if (innerFields.isEmpty()) {
+			return null;
 		}
-		return null;
-	}
-
-	private void sortDuplicatePatients(List<Patient> patients, List<Integer> patientIds) {
-
-		Map<Integer, Integer> patientIdOrder = new HashMap<>();
-		int startPos = 0;
-		for (Integer id : patientIds) {
-			patientIdOrder.put(id, startPos++);
+		
+		List<String> aliasedFields = new ArrayList<>();
+		for (int i = 0; i < innerFields.size(); i++) {
+			aliasedFields.add(innerFields.get(i) + " as f" + i);
 		}
-		class PatientIdComparator implements Comparator<Patient> {
-
-			private Map<Integer, Integer> sortOrder;
-
-			public PatientIdComparator(Map<Integer, Integer> sortOrder) {
-				this.sortOrder = sortOrder;
-			}
-
-			@Override
-			public int compare(Patient patient1, Patient patient2) {
-				Integer patPos1 = sortOrder.get(patient1.getPatientId());
-				if (patPos1 == null) {
-					throw new IllegalArgumentException("Bad patient encountered: " + patient1.getPatientId());
-				}
-				Integer patPos2 = sortOrder.get(patient2.getPatientId());
-				if (patPos2 == null) {
-					throw new IllegalArgumentException("Bad patient encountered: " + patient2.getPatientId());
-				}
-				return patPos1.compareTo(patPos2);
+		String innerFieldsJoined = StringUtils.join(innerFields, ", ");
+		String innerWhereCondition = attributes.contains("includeVoided") ? "" : " where p1.voided = false ";
+		String innerQuery = "(select " + StringUtils.join(aliasedFields, ", ") + innerSelect + innerWhereCondition
+		        + " group by " + innerFieldsJoined + " having count(*) > 1) t5";
+		return outerSelect + "inner join " + innerQuery + " on " + StringUtils.join(joinConditions, " and ")
+		        + " order by t1.patient_id";
+	}
+	
+	/**
+	 * Since the query is native, gets the actual table column name from the field name of the entity
+	 */
+	private String getColumnName(Class<?> entityClass, String attribute) {
+		AbstractEntityPersister aep = (AbstractEntityPersister) sessionFactory.getClassMetadata(entityClass);
+		if (aep != null) {
+			String[] columns = aep.getPropertyColumnNames(attribute);
+			if (columns != null && columns.length >= 1) {
+				return columns[0];
 			}
 		}
-		patients.sort(new PatientIdComparator(patientIdOrder));
+		return attribute;
 	}
 	
 	/**
@@ -650,6 +781,7 @@ public class HibernatePatientDAO implements PatientDAO {
         @Override
 	public PatientIdentifier savePatientIdentifier(PatientIdentifier patientIdentifier) {
 		
+		identifierLookup.clear();
 		sessionFactory.getCurrentSession().saveOrUpdate(patientIdentifier);
 		return patientIdentifier;
 		
@@ -662,6 +794,7 @@ public class HibernatePatientDAO implements PatientDAO {
         @Override
 	public void deletePatientIdentifier(PatientIdentifier patientIdentifier) throws DAOException {
 		
+		identifierLookup.clear();
 		sessionFactory.getCurrentSession().delete(patientIdentifier);
 		
 	}
@@ -687,6 +820,13 @@ public class HibernatePatientDAO implements PatientDAO {
 		if (StringUtils.isBlank(query)) {
 			return 0L;
 		}
+		List<Integer> identifiedPatientIds = lookUpIdentifier(query, includeVoided);
+		if (identifiedPatientIds != null) {
+			return (long) identifiedPatientIds.size();
+		}
+		if (DatabaseSearchFallback.use(DatabaseSearchFallback.PATIENTS)) {
+			return getCountOfPatientsFromDatabase(query, includeVoided);
+		}
 		String tmpQuery = LuceneQuery.escapeQuery(query);
 
 		LuceneQuery<PatientIdentifier> identifierQuery = getPatientIdentifierLuceneQuery(tmpQuery, includeVoided, false);
@@ -698,6 +838,42 @@ public class HibernatePatientDAO implements PatientDAO {
 
 		return identifierQuery.resultSize() + nameQuery.resultSize() + attributeQuery.resultSize();
 	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getCountOfPatients(String, boolean, PatientSearchStrategy)
+	 */
+	@Override
+	public Long getCountOfPatients(String query, boolean includeVoided, PatientSearchStrategy strategy) {
+		if (!isSearchResultCacheEnabled()) {
+			return countPatients(query, includeVoided, strategy);
+		}
+		List<Object> key = PersonSearchResultCache.newKey("patientCount", query, includeVoided, strategy);
+		Long count = searchResultCache.get(key);
+		if (count == null) {
+			long generation = searchResultCache.getGeneration();
+			count = countPatients(query, includeVoided, strategy);
+			searchResultCache.put(key, count, generation);
+		}
+		return count;
+	}
+	
+	private Long countPatients(String query, boolean includeVoided, PatientSearchStrategy strategy) {
+		if (strategy != PatientSearchStrategy.UNIFIED || includeVoided || DatabaseSearchFallback.isActive()) {
+			return getCountOfPatients(query, includeVoided);
+		}
+		if (StringUtils.isBlank(query)) {
+			return 0L;
+		}
+		List<Integer> identifiedPatientIds = lookUpIdentifier(query, false);
+		if (identifiedPatientIds != null) {
+			return (long) identifiedPatientIds.size();
+		}
+		String tmpQuery = LuceneQuery.escapeQuery(query);
+		if (isShorterThanMinSearchCharacters(tmpQuery)) {
+			return 0L;
+		}
+		return getPatientLuceneQuery(tmpQuery).resultSize();
+	}
 
     private List<Patient> findPatients(String query, boolean includeVoided) {
 		return findPatients(query, includeVoided, null, null);
@@ -732,7 +908,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		long identifiersSize = identifierQuery.resultSize();
 		if (identifiersSize > tmpStart) {
 			ListPart<Object[]> patientIdentifiers = identifierQuery.listPartProjection(tmpStart, tmpLength, "patient.personId");
-			patientIdentifiers.getList().forEach(patientIdentifier -> patients.add(getPatient((Integer) patientIdentifier[0])));
+			patients.addAll(getPatients(getIds(patientIdentifiers.getList())));
 			
 			tmpLength -= patientIdentifiers.getList().size();
 			tmpStart = 0;
@@ -774,7 +950,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		long identifiersSize = identifierQuery.resultSize();
 		if (identifiersSize > tmpStart) {
 			ListPart<Object[]> patientIdentifiers = identifierQuery.listPartProjection(tmpStart, tmpLength, "patient.personId");
-			patientIdentifiers.getList().forEach(patientIdentifier -> patients.add(getPatient((Integer) patientIdentifier[0])));
+			patients.addAll(getPatients(getIds(patientIdentifiers.getList())));
 
 			tmpLength -= patientIdentifiers.getList().size();
 			tmpStart = 0;
@@ -792,7 +968,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		long namesSize = nameQuery.resultSize();
 		if (namesSize > tmpStart) {
 			ListPart<Object[]> personNames = nameQuery.listPartProjection(tmpStart, tmpLength, "person.personId");
-			personNames.getList().forEach(personName -> patients.add(getPatient((Integer) personName[0])));
+			patients.addAll(getPatients(getIds(personNames.getList())));
 
 			tmpLength -= personNames.getList().size();
 			tmpStart = 0;
@@ -808,11 +984,150 @@ public class HibernatePatientDAO implements PatientDAO {
 		long attributesSize = attributeQuery.resultSize();
 		if (attributesSize > tmpStart) {
 			ListPart<Object[]> personAttributes = attributeQuery.listPartProjection(tmpStart, tmpLength, "person.personId");
-			personAttributes.getList().forEach(personAttribute -> patients.add(getPatient((Integer) personAttribute[0])));
+			patients.addAll(getPatients(getIds(personAttributes.getList())));
 		}
 
 		return patients;
 	}
+	/**
+	 * Finds patients in the database instead of the search index, see {@link DatabaseSearchFallback}.
+	 * 
+	 * @see #getPatientIdsFromDatabase(String, boolean, List, boolean, boolean)
+	 */
+	private List<Patient> findPatientsInDatabase(String query, boolean includeVoided,
+	        List<PatientIdentifierType> identifierTypes, boolean matchIdentifierExactly, boolean searchNames, int start,
+	        int length) {
+		List<Integer> patientIds = getPatientIdsFromDatabase(query, includeVoided, identifierTypes, matchIdentifierExactly,
+		    searchNames);
+		return getPatients(patientIds, start, length);
+	}
+	
+	/**
+	 * Loads the given page of the patients with the given ids in the order of the ids.
+	 */
+	private List<Patient> getPatients(List<Integer> patientIds, int start, int length) {
+		if (start >= patientIds.size()) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(getPatients(patientIds.subList(start, Math.min(patientIds.size(), start + length))));
+	}
+	
+	/**
+	 * Lists the ids of the patients with an identifier starting with the query first, followed by the
+	 * ids of the patients with a name of which a part starts with each word of the query, reading at
+	 * most {@link DatabaseSearchFallback#MAX_ROWS} rows.
+	 */
+	private List<Integer> getPatientIdsFromDatabase(String query, boolean includeVoided,
+	        List<PatientIdentifierType> identifierTypes, boolean matchIdentifierExactly, boolean searchNames) {
+		String tmpQuery = query.trim();
+		if (isShorterThanMinSearchCharacters(tmpQuery)) {
+			return Collections.emptyList();
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		boolean caseSensitive = Context.getAdministrationService().isDatabaseStringComparisonCaseSensitive();
+		Set<Integer> patientIds = new LinkedHashSet<>();
+		
+		CriteriaQuery<Integer> identifierQuery = cb.createQuery(Integer.class);
+		Root<Patient> patient = identifierQuery.from(Patient.class);
+		identifierQuery.select(patient.get("patientId")).distinct(true).where(createIdentifierFallbackPredicates(cb,
+		    patient, tmpQuery, includeVoided, identifierTypes, matchIdentifierExactly, caseSensitive));
+		patientIds.addAll(session.createQuery(identifierQuery).setMaxResults(DatabaseSearchFallback.MAX_ROWS).getResultList());
+		
+		if (searchNames && patientIds.size() < DatabaseSearchFallback.MAX_ROWS) {
+			CriteriaQuery<Integer> nameQuery = cb.createQuery(Integer.class);
+			patient = nameQuery.from(Patient.class);
+			nameQuery.select(patient.get("patientId")).distinct(true)
+			        .where(createNameFallbackPredicates(cb, patient, tmpQuery, includeVoided, caseSensitive));
+			patientIds.addAll(session.createQuery(nameQuery)
+			        .setMaxResults(DatabaseSearchFallback.MAX_ROWS - patientIds.size()).getResultList());
+		}
+		
+		return new ArrayList<>(patientIds);
+	}
+	
+	/**
+	 * Counts the patients with an identifier starting with the query or a name of which a part starts
+	 * with each word of the query in the database instead of the search index, see
+	 * {@link DatabaseSearchFallback}
+	 */
+	private Long getCountOfPatientsFromDatabase(String query, boolean includeVoided) {
+		String tmpQuery = query.trim();
+		if (isShorterThanMinSearchCharacters(tmpQuery)) {
+			return 0L;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		boolean caseSensitive = Context.getAdministrationService().isDatabaseStringComparisonCaseSensitive();
+		CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+		Root<Patient> patient = cq.from(Patient.class);
+		
+		Subquery<Integer> identifierQuery = cq.subquery(Integer.class);
+		Root<Patient> identifiedPatient = identifierQuery.from(Patient.class);
+		identifierQuery.select(identifiedPatient.get("patientId")).where(createIdentifierFallbackPredicates(cb,
+		    identifiedPatient, tmpQuery, includeVoided, null, false, caseSensitive));
+		
+		Subquery<Integer> nameQuery = cq.subquery(Integer.class);
+		Root<Patient> namedPatient = nameQuery.from(Patient.class);
+		nameQuery.select(namedPatient.get("patientId"))
+		        .where(createNameFallbackPredicates(cb, namedPatient, tmpQuery, includeVoided, caseSensitive));
+		
+		cq.select(cb.countDistinct(patient)).where(
+		    cb.or(patient.get("patientId").in(identifierQuery), patient.get("patientId").in(nameQuery)));
+		return session.createQuery(cq).getSingleResult();
+	}
+	
+	private Predicate[] createIdentifierFallbackPredicates(CriteriaBuilder cb, Root<Patient> patient, String query,
+	        boolean includeVoided, List<PatientIdentifierType> identifierTypes, boolean matchIdentifierExactly,
+	        boolean caseSensitive) {
+		Join<Patient, PatientIdentifier> identifier = patient.join("identifiers");
+		List<Predicate> predicates = new ArrayList<>();
+		MatchMode matchMode = matchIdentifierExactly ? MatchMode.EXACT : MatchMode.START;
+		predicates.add(like(cb, identifier.get("identifier"), matchMode, query, caseSensitive));
+		if (identifierTypes != null && !identifierTypes.isEmpty()) {
+			predicates.add(identifier.get("identifierType").in(identifierTypes));
+		}
+		if (!includeVoided) {
+			predicates.add(cb.isFalse(patient.get("voided")));
+			predicates.add(cb.isFalse(identifier.get("voided")));
+		}
+		return predicates.toArray(new Predicate[0]);
+	}
+	
+	private Predicate[] createNameFallbackPredicates(CriteriaBuilder cb, Root<Patient> patient, String query,
+	        boolean includeVoided, boolean caseSensitive) {
+		Join<Patient, PersonName> name = patient.join("names");
+		List<Predicate> predicates = new ArrayList<>();
+		for (String word : query.split("\\s+")) {
+			predicates.add(cb.or(like(cb, name.get("givenName"), MatchMode.START, word, caseSensitive),
+			    like(cb, name.get("middleName"), MatchMode.START, word, caseSensitive),
+			    like(cb, name.get("familyName"), MatchMode.START, word, caseSensitive),
+			    like(cb, name.get("familyName2"), MatchMode.START, word, caseSensitive)));
+		}
+		if (!includeVoided) {
+			predicates.add(cb.isFalse(patient.get("voided")));
+			predicates.add(cb.isFalse(name.get("voided")));
+		}
+		return predicates.toArray(new Predicate[0]);
+	}
+	
+	/**
+	 * Matches the given value regardless of case, as the index does
+	 */
+	private Predicate like(CriteriaBuilder cb, Expression<String> value, MatchMode matchMode, String query,
+	        boolean caseSensitive) {
+		if (caseSensitive) {
+			return cb.like(cb.lower(value), matchMode.toLowerCasePattern(query));
+		}
+		return cb.like(value, matchMode.toCaseSensitivePattern(query));
+	}
+	
+	private List<Integer> getIds(List<Object[]> projections) {
+		return projections.stream().map(projection -> (Integer) projection[0]).collect(Collectors.toList());
+	}
+	
 	private LuceneQuery<PatientIdentifier> getPatientIdentifierLuceneQuery(String query, List<PatientIdentifierType> identifierTypes, boolean matchExactly) {
 		LuceneQuery<PatientIdentifier> patientIdentifierLuceneQuery = getPatientIdentifierLuceneQuery(query, matchExactly);
 		List<Integer> identifierTypeIds = new ArrayList<Integer>();
@@ -861,6 +1176,61 @@ public class HibernatePatientDAO implements PatientDAO {
         return luceneQuery;
     }
 
+	/**
+	 * Builds a single query on the patient documents, which match on the identifiers, names and
+	 * searchable attributes of a patient, indexed by
+	 * {@link org.openmrs.api.db.hibernate.search.bridge.PatientSearchBridge}. Identifier matches are
+	 * ranked above name matches, which are ranked above attribute matches.
+	 *
+	 * @param query the escaped query
+	 * @return the query
+	 */
+	private LuceneQuery<Patient> getPatientLuceneQuery(String query) {
+		final String identifierQuery = StringUtils.join(tokenizeIdentifierQuery(removeIdentifierPadding(query)), " OR ");
+		final List<String> identifierFields = new ArrayList<>();
+		identifierFields.add("identifierPhrase");
+		identifierFields.add("identifierExact");
+		String identifierMatchMode = Context.getAdministrationService()
+			.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_SEARCH_MATCH_MODE);
+		if (OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_START.equals(identifierMatchMode)) {
+			identifierFields.add("identifierStart");
+		} else {
+			identifierFields.add("identifierAnywhere");
+		}
+		
+		final List<String> nameFields = new ArrayList<>(Arrays.asList("nameExact", "nameStart"));
+		String nameMatchMode = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_MODE);
+		if (OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_ANYWHERE.equals(nameMatchMode)) {
+			nameFields.add("nameAnywhere");
+		}
+		
+		final List<String> attributeFields = new ArrayList<>(Arrays.asList("attributePhrase", "attributeExact"));
+		String attributeMatchMode = Context.getAdministrationService()
+			.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PERSON_ATTRIBUTE_SEARCH_MATCH_MODE);
+		if (OpenmrsConstants.GLOBAL_PROPERTY_PERSON_ATTRIBUTE_SEARCH_MATCH_ANYWHERE.equals(attributeMatchMode)) {
+			attributeFields.add("attributeStart");
+			attributeFields.add("attributeAnywhere");
+		}
+		
+		LuceneQuery<Patient> luceneQuery = new LuceneQuery<Patient>(Patient.class, sessionFactory.getCurrentSession()) {
+			
+			@Override
+			protected org.apache.lucene.search.Query prepareQuery() throws ParseException {
+				BooleanQuery.Builder builder = new BooleanQuery.Builder();
+				builder.add(new BoostQuery(newMultipleFieldQueryParser(identifierFields, MatchType.NORMAL).parse(
+				    identifierQuery), IDENTIFIER_MATCH_BOOST), Occur.SHOULD);
+				builder.add(new BoostQuery(newMultipleFieldQueryParser(nameFields, MatchType.NORMAL).parse(query),
+				        NAME_MATCH_BOOST), Occur.SHOULD);
+				builder.add(new BoostQuery(newMultipleFieldQueryParser(attributeFields, MatchType.NORMAL).parse(query),
+				        ATTRIBUTE_MATCH_BOOST), Occur.SHOULD);
+				return builder.build();
+			}
+		};
+		luceneQuery.include("voided", false);
+		
+		return luceneQuery;
+	}
+	
 	private String removeIdentifierPadding(String query) {
 		String regex = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_REGEX, "");
 		if (Pattern.matches("^\\^.{1}\\*.*$", regex)) {
@@ -15,15 +15,18 @@ import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.openmrs.Patient;
 import org.openmrs.Person;
 import org.openmrs.PersonAddress;
 import org.openmrs.PersonAttribute;
@@ -63,6 +66,8 @@ public class HibernatePersonDAO implements PersonDAO {
 	 */
 	private SessionFactory sessionFactory;
 	
+	private PersonSearchResultCache searchResultCache;
+	
 	/**
 	 * Set session factory
 	 * 
@@ -72,6 +77,14 @@ public class HibernatePersonDAO implements PersonDAO {
 		this.sessionFactory = sessionFactory;
 	}
 	
+	/**
+	 * @param searchResultCache the cache of the results of repeated searches
+	 * @since 2.8.0
+	 */
+	public void setSearchResultCache(PersonSearchResultCache searchResultCache) {
+		this.searchResultCache = searchResultCache;
+	}
+	
 	/**
 	 * This method executes a Lucene search on persons based on the soundex filter with one search name given
 	 * 
@@ -83,13 +96,13 @@ public class HibernatePersonDAO implements PersonDAO {
 	 */
 	private Set<Person> executeSoundexOnePersonNameQuery(String name, Integer birthyear, boolean includeVoided , String gender) {
 		PersonLuceneQuery personLuceneQuery = new PersonLuceneQuery(sessionFactory);
-		String query = LuceneQuery.escapeQuery(name);
 		int maxResults = HibernatePersonDAO.getMaximumSearchResults();
 		LinkedHashSet<Person> people = new LinkedHashSet<>();
 		
-		LuceneQuery<PersonName> luceneQuery = personLuceneQuery.getSoundexPersonNameQuery(query, birthyear, false, gender);
+		LuceneQuery<PersonName> luceneQuery = personLuceneQuery.getSoundexPersonNameSearchOnNNames(new String[] { name },
+		    birthyear, false, gender);
 		ListPart<Object[]> names = luceneQuery.listPartProjection(0, maxResults, "person.personId");
-		names.getList().forEach(x -> people.add(getPerson((Integer) x[0])));
+		people.addAll(getPeopleByIds(names.getList()));
 		
 		return people;
 	}
@@ -113,7 +126,7 @@ public class HibernatePersonDAO implements PersonDAO {
 		
 		LuceneQuery<PersonName> luceneQuery = personLuceneQuery.getSoundexPersonNameSearchOnThreeNames(name1, name2, name3, birthyear, false, gender);;
 		ListPart<Object[]> names = luceneQuery.listPartProjection(0, maxResults, "person.personId");
-		names.getList().forEach(x -> people.add(getPerson((Integer) x[0])));
+		people.addAll(getPeopleByIds(names.getList()));
 		
 		return people;
 	}
@@ -135,7 +148,7 @@ public class HibernatePersonDAO implements PersonDAO {
 		
 		LuceneQuery<PersonName> luceneQuery = personLuceneQuery.getSoundexPersonNameSearchOnTwoNames(searchName1, searchName2, birthyear, false, gender);;
 		ListPart<Object[]> names = luceneQuery.listPartProjection(0, maxResults, "person.personId");
-		names.getList().forEach(x -> people.add(getPerson((Integer) x[0])));
+		people.addAll(getPeopleByIds(names.getList()));
 		
 		return people;
 	}
@@ -156,7 +169,7 @@ public class HibernatePersonDAO implements PersonDAO {
 		
 		LuceneQuery<PersonName> luceneQuery = personLuceneQuery.getSoundexPersonNameSearchOnNNames(searchNames, birthyear, includeVoided, gender);
 		ListPart<Object[]> names = luceneQuery.listPartProjection(0, maxResults, "person.personId");
-		names.getList().forEach(x -> people.add(getPerson((Integer) x[0])));
+		people.addAll(getPeopleByIds(names.getList()));
 		
 		return people;
 		
@@ -235,6 +248,23 @@ public class HibernatePersonDAO implements PersonDAO {
 		if (searchString == null) {
 			return new ArrayList<>();
 		}
+		if (searchResultCache == null || StringUtils.isBlank(searchString) || !searchResultCache.isEnabled()) {
+			return searchPeople(searchString, dead, voided);
+		}
+		List<Object> key = PersonSearchResultCache.newKey("people", searchString, dead, voided);
+		List<Integer> personIds = searchResultCache.get(key);
+		if (personIds != null) {
+			return HibernateUtil.getEntitiesByIds(sessionFactory, Person.class, "personId", personIds);
+		}
+		long generation = searchResultCache.getGeneration();
+		List<Person> people = searchPeople(searchString, dead, voided);
+		searchResultCache.put(key,
+		    Collections.unmodifiableList(people.stream().map(Person::getPersonId).collect(Collectors.toList())),
+		    generation);
+		return people;
+	}
+	
+	private List<Person> searchPeople(String searchString, Boolean dead, Boolean voided) {
 
 		int maxResults = HibernatePersonDAO.getMaximumSearchResults();
 
@@ -271,11 +301,11 @@ public class HibernatePersonDAO implements PersonDAO {
 		List<Person> people = new ArrayList<>();
 
 		ListPart<Object[]> names = nameQuery.listPartProjection(0, maxResults, "person.personId");
-		names.getList().forEach(name -> people.add(getPerson((Integer) name[0])));
+		people.addAll(getPeopleByIds(names.getList()));
 
 		LuceneQuery<PersonAttribute> attributeQuery = personLuceneQuery.getPersonAttributeQueryWithOrParser(query, includeVoided, nameQuery);
 		ListPart<Object[]> attributes = attributeQuery.listPartProjection(0, maxResults, "person.personId");
-		attributes.getList().forEach(attribute -> people.add(getPerson((Integer) attribute[0])));
+		people.addAll(getPeopleByIds(attributes.getList()));
 
 		return people;
 	}
@@ -314,6 +344,18 @@ public class HibernatePersonDAO implements PersonDAO {
 		return sessionFactory.getCurrentSession().get(Person.class, personId);
 	}
 	
+	/**
+	 * Loads the people whose ids are the first value of the given projections, in the same order
+	 * 
+	 * @param projections the projections of a search
+	 * @return the people
+	 */
+	private List<Person> getPeopleByIds(List<Object[]> projections) {
+		List<Integer> personIds = projections.stream().map(projection -> (Integer) projection[0])
+		        .collect(Collectors.toList());
+		return HibernateUtil.getEntitiesByIds(sessionFactory, Person.class, "personId", personIds);
+	}
+	
 	/**
 	 * @see org.openmrs.api.PersonService#purgePersonAttributeType(org.openmrs.PersonAttributeType)
 	 * @see org.openmrs.api.db.PersonDAO#deletePersonAttributeType(org.openmrs.PersonAttributeType)
@@ -597,6 +639,12 @@ public class HibernatePersonDAO implements PersonDAO {
 	@Override
 	public Person savePerson(Person person) throws DAOException {
 		sessionFactory.getCurrentSession().saveOrUpdate(person);
+		// e.g. a patient voided through its person when it is merged with another
+		if (person instanceof Patient) {
+			new PatientBlockingKeys(sessionFactory).update((Patient) person);
+		} else if (Boolean.TRUE.equals(person.getPersonVoided()) && person.getPersonId() != null) {
+			new PatientBlockingKeys(sessionFactory).remove(person.getPersonId());
+		}
 		return person;
 	}
 	
@@ -31,6 +31,7 @@ import org.hibernate.service.spi.SessionFactoryServiceRegistry;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleFactory;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -208,6 +209,9 @@ public class HibernateSessionFactoryBean extends LocalSessionFactoryBean impleme
 	public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
 			SessionFactoryServiceRegistry serviceRegistry) {
 		this.metadata = metadata;
+		// the session factory creates the id generators after running the integrators
+		PooledIfNotAssignedIdGenerator.selectFor(metadata,
+		    Context.getRuntimeProperties().getProperty(OpenmrsConstants.ID_GENERATOR_POOLED_ENTITIES_RUNTIME_PROPERTY));
 	}
 
 	@Override
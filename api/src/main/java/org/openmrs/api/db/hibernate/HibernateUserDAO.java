@@ -59,6 +59,8 @@ public class HibernateUserDAO implements UserDAO {
 	 */
 	private SessionFactory sessionFactory;
 	
+	private VerifiedCredentialsCache verifiedCredentialsCache;
+	
 	/**
 	 * Set session factory
 	 * 
@@ -68,6 +70,10 @@ public class HibernateUserDAO implements UserDAO {
 		this.sessionFactory = sessionFactory;
 	}
 	
+	public void setVerifiedCredentialsCache(VerifiedCredentialsCache verifiedCredentialsCache) {
+		this.verifiedCredentialsCache = verifiedCredentialsCache;
+	}
+	
 	/**
 	 * @see org.openmrs.api.UserService#saveUser(org.openmrs.User, java.lang.String, java.lang.String)
 	 */
@@ -78,6 +84,7 @@ public class HibernateUserDAO implements UserDAO {
 		boolean isNewUser = user.getUserId() == null;
 		
 		sessionFactory.getCurrentSession().saveOrUpdate(user);
+		verifiedCredentialsCache.evict(user.getUserId());
 		
 		if (isNewUser && password != null) {
 			/* In OpenMRS, we are using generation strategy as native which will convert to IDENTITY 
@@ -223,6 +230,7 @@ public class HibernateUserDAO implements UserDAO {
 	@Override
 	public void deleteUser(User user) {
 		sessionFactory.getCurrentSession().delete(user);
+		verifiedCredentialsCache.evict(user.getUserId());
 	}
 	
 	/**
@@ -577,6 +585,7 @@ public class HibernateUserDAO implements UserDAO {
 	@Override
 	public void updateLoginCredential(LoginCredential credential) {
 		sessionFactory.getCurrentSession().update(credential);
+		verifiedCredentialsCache.evict(credential.getUserId());
 	}
 	
 	/**
@@ -12,12 +12,16 @@ package org.openmrs.api.db.hibernate;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Subquery;
@@ -56,6 +60,12 @@ public class HibernateUtil {
 	
 	private static Boolean isPostgreSQLDialect = null;
 	
+	/**
+	 * The maximum number of ids bound to a single <code>in</code> clause, which matches the batch size
+	 * of the collections of persons
+	 */
+	private static final int MAX_IDS_PER_QUERY = 1000;
+	
 	/**
 	 * Check and cache whether the currect dialect is HSQL or not. This is needed because some
 	 * queries are different if in the hsql world as opposed to the mysql/postgres world
@@ -238,4 +248,52 @@ public class HibernateUtil {
 			.setFetchSize(fetchSize)
 			.scroll(ScrollMode.FORWARD_ONLY);
 	}
+
+	/**
+	 * Loads the entities with the given ids with one query per {@value #MAX_IDS_PER_QUERY} ids instead
+	 * of one query per id, e.g. to turn the ids found by a search into entities.
+	 * 
+	 * @param sessionFactory the session factory to create sessions.
+	 * @param type the class type of the entities to load.
+	 * @param idProperty the name of the id property of the entities.
+	 * @param ids the ids of the entities, null ids are ignored.
+	 * @param fetches the associations to fetch along with the entities.
+	 * @return the entities in the order of their ids, each entity once, skipping ids without an entity.
+	 * @since 2.8.0
+	 */
+	public static <T> List<T> getEntitiesByIds(SessionFactory sessionFactory, Class<T> type, String idProperty,
+	        Collection<Integer> ids, String... fetches) {
+		Map<Integer, T> entities = new LinkedHashMap<>();
+		for (Integer id : ids) {
+			if (id != null) {
+				entities.put(id, null);
+			}
+		}
+		if (entities.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		List<Integer> pending = new ArrayList<>(entities.keySet());
+		for (int start = 0; start < pending.size(); start += MAX_IDS_PER_QUERY) {
+			List<Integer> chunk = pending.subList(start, Math.min(start + MAX_IDS_PER_QUERY, pending.size()));
+			
+			CriteriaBuilder cb = session.getCriteriaBuilder();
+			CriteriaQuery<T> cq = cb.createQuery(type);
+			Root<T> root = cq.from(type);
+			for (String fetch : fetches) {
+				root.fetch(fetch, JoinType.LEFT);
+			}
+			cq.select(root).where(root.get(idProperty).in(chunk));
+			
+			// fetched collections repeat their owner in the results, which is mapped once
+			for (T entity : session.createQuery(cq).getResultList()) {
+				entities.put((Integer) session.getIdentifier(entity), entity);
+			}
+		}
+		
+		List<T> result = new ArrayList<>(entities.size());
+		entities.values().stream().filter(Objects::nonNull).forEach(result::add);
+		return result;
+	}
 }
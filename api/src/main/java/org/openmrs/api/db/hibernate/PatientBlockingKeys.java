@@ -0,0 +1,295 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonName;
+import org.openmrs.api.db.PatientBlockingKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes and stores the blocking keys of patients, which group the patients that may be
+ * duplicates of each other, for HibernatePatientDAO. The keys of a patient are:
+ * <ul>
+ * <li>the double metaphone code of each family name with the birth year and gender</li>
+ * <li>the double metaphone codes of each given and family name</li>
+ * <li>the first {@value #IDENTIFIER_PREFIX_LENGTH} letters and digits of each identifier with its
+ * type</li>
+ * </ul>
+ * The keys are kept up to date as patients are saved, voided or merged, so that a patient can be
+ * checked against the others without comparing it with every patient. Voided patients are never
+ * candidates, even if they were voided in a way which left their keys behind. {@link #rebuild()} computes the keys of all
+ * patients in one pass, e.g. for the patients which existed before the keys were introduced.
+ *
+ * @see org.openmrs.api.PatientService#getPossibleDuplicatePatients(Patient)
+ * @since 2.8.0
+ */
+public class PatientBlockingKeys {
+
+	private static final Logger log = LoggerFactory.getLogger(PatientBlockingKeys.class);
+
+	/**
+	 * The maximum number of candidates returned for a patient
+	 */
+	public static final int MAX_CANDIDATES = 1000;
+
+	static final int IDENTIFIER_PREFIX_LENGTH = 4;
+
+	private static final int BATCH_SIZE = 1000;
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	private static final DoubleMetaphone DOUBLE_METAPHONE = new DoubleMetaphone();
+
+	private final SessionFactory sessionFactory;
+
+	public PatientBlockingKeys(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	/**
+	 * @param patient the patient
+	 * @return the blocking keys of the non voided names and identifiers of the given patient
+	 */
+	public static Set<String> getBlockingKeys(Patient patient) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (PersonName name : patient.getNames()) {
+			if (!name.getVoided()) {
+				addNameKeys(keys, name.getGivenName(), name.getFamilyName(), patient.getGender(), patient.getBirthdate());
+			}
+		}
+		for (PatientIdentifier identifier : patient.getActiveIdentifiers()) {
+			addIdentifierKey(keys, identifier.getIdentifierType().getPatientIdentifierTypeId(),
+			    identifier.getIdentifier());
+		}
+		return keys;
+	}
+
+	private static void addNameKeys(Set<String> keys, String givenName, String familyName, String gender, Date birthdate) {
+		String familyNameCode = encode(familyName);
+		if (familyNameCode.isEmpty()) {
+			return;
+		}
+		String birthYear = "";
+		if (birthdate != null) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime(birthdate);
+			birthYear = String.valueOf(calendar.get(Calendar.YEAR));
+		}
+		addKey(keys, "N:" + familyNameCode + ":" + birthYear + ":" + StringUtils.lowerCase(StringUtils.trimToEmpty(gender)));
+
+		String givenNameCode = encode(givenName);
+		if (!givenNameCode.isEmpty()) {
+			addKey(keys, "G:" + givenNameCode + ":" + familyNameCode);
+		}
+	}
+
+	private static void addIdentifierKey(Set<String> keys, Integer identifierTypeId, String identifier) {
+		StringBuilder prefix = new StringBuilder();
+		for (char c : StringUtils.trimToEmpty(identifier).toCharArray()) {
+			if (Character.isLetterOrDigit(c)) {
+				prefix.append(Character.toUpperCase(c));
+				if (prefix.length() == IDENTIFIER_PREFIX_LENGTH) {
+					break;
+				}
+			}
+		}
+		if (prefix.length() > 0) {
+			addKey(keys, "I:" + identifierTypeId + ":" + prefix);
+		}
+	}
+
+	private static void addKey(Set<String> keys, String key) {
+		keys.add(StringUtils.left(key, MAX_KEY_LENGTH));
+	}
+
+	private static String encode(String name) {
+		if (StringUtils.isBlank(name)) {
+			return "";
+		}
+		return StringUtils.defaultString(DOUBLE_METAPHONE.doubleMetaphone(name.trim()));
+	}
+
+	/**
+	 * Replaces the stored blocking keys of the given patient, removing them if the patient or its
+	 * person is voided.
+	 *
+	 * @param patient the saved patient
+	 */
+	public void update(Patient patient) {
+		if (patient.getPatientId() == null) {
+			return;
+		}
+		withoutFlushing(session -> {
+			deleteKeys(session, patient.getPatientId());
+			if (!isVoided(patient)) {
+				for (String key : getBlockingKeys(patient)) {
+					session.save(new PatientBlockingKey(patient.getPatientId(), key));
+				}
+			}
+		});
+	}
+
+	private static boolean isVoided(Patient patient) {
+		return Boolean.TRUE.equals(patient.getVoided()) || Boolean.TRUE.equals(patient.getPersonVoided());
+	}
+
+	/**
+	 * @param patientId the id of the patient, the stored blocking keys of which to remove
+	 */
+	public void remove(Integer patientId) {
+		withoutFlushing(session -> deleteKeys(session, patientId));
+	}
+
+	/**
+	 * The keys are maintained while the patient is being saved or deleted, so the session must not be
+	 * flushed before the patient is complete.
+	 */
+	private void withoutFlushing(Consumer<Session> work) {
+		Session session = sessionFactory.getCurrentSession();
+		FlushMode flushMode = session.getHibernateFlushMode();
+		session.setHibernateFlushMode(FlushMode.MANUAL);
+		try {
+			work.accept(session);
+		}
+		finally {
+			session.setHibernateFlushMode(flushMode);
+		}
+	}
+
+	private void deleteKeys(Session session, Integer patientId) {
+		session.createQuery("delete from PatientBlockingKey where patientId = :patientId")
+		        .setParameter("patientId", patientId).executeUpdate();
+	}
+
+	/**
+	 * Replaces the stored blocking keys of all patients, reading the names and identifiers of the
+	 * non voided patients in one pass and writing the keys in batches.
+	 *
+	 * @return the number of stored keys
+	 */
+	public long rebuild() {
+		Session session = sessionFactory.getCurrentSession();
+		session.createQuery("delete from PatientBlockingKey").executeUpdate();
+
+		List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+		long count = 0;
+		try (ScrollableResults rows = session
+		        .createQuery("select p.patientId, p.gender, p.birthdate, n.givenName, n.familyName from Patient p "
+		                + "join p.names n where p.voided = false and n.voided = false order by p.patientId")
+		        .setFetchSize(BATCH_SIZE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+			count += storeKeys(rows, batch, row -> {
+				Set<String> keys = new LinkedHashSet<>();
+				addNameKeys(keys, (String) row[3], (String) row[4], (String) row[1], (Date) row[2]);
+				return keys;
+			});
+		}
+		try (ScrollableResults rows = session
+		        .createQuery("select p.patientId, t.patientIdentifierTypeId, i.identifier from PatientIdentifier i "
+		                + "join i.patient p join i.identifierType t where i.voided = false and p.voided = false "
+		                + "order by p.patientId")
+		        .setFetchSize(BATCH_SIZE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+			count += storeKeys(rows, batch, row -> {
+				Set<String> keys = new LinkedHashSet<>();
+				addIdentifierKey(keys, (Integer) row[1], (String) row[2]);
+				return keys;
+			});
+		}
+		log.info("Stored {} patient blocking keys", count);
+		return count;
+	}
+
+	/**
+	 * Stores the keys computed for the rows ordered by patient id, each key once per patient.
+	 */
+	private long storeKeys(ScrollableResults rows, List<Object[]> batch,
+	        Function<Object[], Set<String>> getKeys) {
+		long count = 0;
+		Integer patientId = null;
+		Set<String> patientKeys = new LinkedHashSet<>();
+		while (rows.next()) {
+			Object[] row = rows.get();
+			if (!Objects.equals(patientId, row[0])) {
+				patientId = (Integer) row[0];
+				patientKeys.clear();
+			}
+			for (String key : getKeys.apply(row)) {
+				if (patientKeys.add(key)) {
+					batch.add(new Object[] { patientId, key });
+					count++;
+				}
+			}
+			if (batch.size() >= BATCH_SIZE) {
+				insert(batch);
+			}
+		}
+		insert(batch);
+		return count;
+	}
+
+	private void insert(List<Object[]> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		sessionFactory.getCurrentSession().doWork(connection -> {
+			try (PreparedStatement statement = connection
+			        .prepareStatement("insert into patient_blocking_key (patient_id, blocking_key) values (?, ?)")) {
+				for (Object[] key : batch) {
+					statement.setInt(1, (Integer) key[0]);
+					statement.setString(2, (String) key[1]);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+		});
+		batch.clear();
+	}
+
+	/**
+	 * @param patient the patient to find candidates for
+	 * @return the ids of at most {@value #MAX_CANDIDATES} other non voided patients sharing a blocking
+	 *         key with the given patient
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Integer> getCandidatePatientIds(Patient patient) {
+		Set<String> keys = getBlockingKeys(patient);
+		if (keys.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return sessionFactory.getCurrentSession()
+		        .createQuery("select distinct k.patientId from PatientBlockingKey k, Patient p "
+		                + "where p.patientId = k.patientId and p.voided = false and p.personVoided = false "
+		                + "and k.blockingKey in (:keys) and k.patientId <> :patientId")
+		        .setParameterList("keys", keys)
+		        .setParameter("patientId", patient.getPatientId() != null ? patient.getPatientId() : -1)
+		        .setMaxResults(MAX_CANDIDATES).list();
+	}
+}
@@ -0,0 +1,360 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.api.APIException;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.openmrs.api.context.Context;
+import org.openmrs.patient.IdentifierValidator;
+import org.openmrs.patient.UnallowedIdentifierException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Resolves a patient search query, which is a complete identifier, e.g. a scanned barcode, with an
+ * equality lookup on the identifiers instead of a search of the index for HibernatePatientDAO.
+ * <p>
+ * A query is taken for an identifier if it matches the format of an identifier type or passes
+ * the check of its validator, e.g. the check digit of the LuhnIdentifierValidator. The patients
+ * found for the last {@value #MAX_RECENT_HITS} identifiers are remembered, and checked to still
+ * have the identifier whenever they are looked up again. The identifier types and their compiled
+ * formats are kept until an identifier type is saved or purged, a format which is not a valid
+ * regular expression matches no query. Both are forgotten on the other nodes too, through the
+ * {@link CacheInvalidationBus}.
+ *
+ * @see HibernatePatientDAO
+ * @since 2.8.0
+ */
+public class PatientIdentifierLookup {
+
+	private static final Logger log = LoggerFactory.getLogger(PatientIdentifierLookup.class);
+
+	/**
+	 * The number of identifiers the found patients are remembered for
+	 */
+	public static final int MAX_RECENT_HITS = 1000;
+
+	/**
+	 * The name changes are published under to the other nodes
+	 *
+	 * @see CacheInvalidationBus
+	 */
+	public static final String CACHE_NAME = "patientIdentifierLookup";
+
+	/**
+	 * The key published when identifier types changed, the changes to identifiers are published
+	 * without a key
+	 */
+	static final String IDENTIFIER_TYPES_KEY = "identifierTypes";
+
+	private final SessionFactory sessionFactory;
+
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	private final Map<String, List<Integer>> recentHits = Collections.synchronizedMap(new LinkedHashMap<String, List<Integer>>(
+	        16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<Integer>> eldest) {
+			return size() > MAX_RECENT_HITS;
+		}
+	});
+
+	/**
+	 * The unretired identifier types with their compiled formats, or null until they are loaded
+	 */
+	private List<IdentifierTypeFormat> identifierTypes;
+
+	/**
+	 * Incremented whenever the identifier types are forgotten, so that the ones loaded before it aren't
+	 * kept after it
+	 */
+	private long identifierTypesGeneration;
+
+	public PatientIdentifierLookup(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	/**
+	 * @param cacheInvalidationBus the bus used to tell other nodes about changed identifiers and types
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+		cacheInvalidationBus.addHandler(CACHE_NAME, key -> {
+			if (key == null || IDENTIFIER_TYPES_KEY.equals(key)) {
+				forgetIdentifierTypes();
+			}
+			recentHits.clear();
+		});
+	}
+
+	/**
+	 * Finds the patients with the given query as identifier if it is an identifier of an identifier
+	 * type.
+	 *
+	 * @param query the search query
+	 * @param includeVoided true if voided patients and identifiers should be matched
+	 * @return the ids of the patients ordered by id or null if the query is not an identifier or no
+	 *         patient has it, in which case it needs to be searched for
+	 */
+	public List<Integer> getPatientIds(String query, boolean includeVoided) {
+		String identifier = StringUtils.trimToEmpty(query);
+		if (identifier.isEmpty() || StringUtils.containsWhitespace(identifier)) {
+			return null;
+		}
+
+		if (!includeVoided) {
+			List<Integer> patientIds = recentHits.get(identifier);
+			if (patientIds != null) {
+				if (haveIdentifier(patientIds, identifier)) {
+					return patientIds;
+				}
+				recentHits.remove(identifier);
+			}
+		}
+
+		List<Integer> identifierTypeIds = getIdentifierTypeIds(identifier);
+		if (identifierTypeIds.isEmpty()) {
+			return null;
+		}
+		List<Integer> patientIds = getPatientIds(identifier, identifierTypeIds, includeVoided);
+		if (patientIds.isEmpty()) {
+			return null;
+		}
+		if (!includeVoided) {
+			recentHits.put(identifier, patientIds);
+		}
+		return patientIds;
+	}
+
+	/**
+	 * Forgets the patients found for identifiers, e.g. after the identifiers of a patient changed,
+	 * now and again once the current transaction completes, since other transactions may look them
+	 * up again before it commits.
+	 */
+	public void clear() {
+		recentHits.clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					recentHits.clear();
+				}
+			});
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, null);
+		}
+	}
+
+	/**
+	 * Forgets the identifier types and the patients found for identifiers after an identifier type was
+	 * saved or purged, now and again once the current transaction completes. Until then the current
+	 * transaction loads the identifier types it changed on every lookup.
+	 */
+	public void identifierTypesChanged() {
+		forgetIdentifierTypes();
+		recentHits.clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive() && !hasIdentifierTypeChangesInTransaction()) {
+			TransactionSynchronizationManager.registerSynchronization(new IdentifierTypeChanges());
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, IDENTIFIER_TYPES_KEY);
+		}
+	}
+
+	/**
+	 * @return the ids of the identifier types the given identifier matches the format or passes the
+	 *         validator of
+	 */
+	private List<Integer> getIdentifierTypeIds(String identifier) {
+		List<Integer> identifierTypeIds = new ArrayList<>();
+		for (IdentifierTypeFormat identifierType : getIdentifierTypes()) {
+			if (identifierType.format != null) {
+				if (identifierType.format.map(format -> format.matcher(identifier).matches()).orElse(false)) {
+					identifierTypeIds.add(identifierType.identifierTypeId);
+				}
+			} else if (identifierType.validator != null && isValid(identifier, identifierType.validator)) {
+				identifierTypeIds.add(identifierType.identifierTypeId);
+			}
+		}
+		return identifierTypeIds;
+	}
+
+	private List<IdentifierTypeFormat> getIdentifierTypes() {
+		if (hasIdentifierTypeChangesInTransaction()) {
+			// the changes aren't committed yet, so the types including them are not kept
+			return loadIdentifierTypes();
+		}
+		long generation;
+		synchronized (this) {
+			if (identifierTypes != null) {
+				return identifierTypes;
+			}
+			generation = identifierTypesGeneration;
+		}
+		List<IdentifierTypeFormat> loaded = loadIdentifierTypes();
+		synchronized (this) {
+			if (generation == identifierTypesGeneration) {
+				identifierTypes = loaded;
+			}
+		}
+		return loaded;
+	}
+
+	private List<IdentifierTypeFormat> loadIdentifierTypes() {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		CriteriaQuery<PatientIdentifierType> cq = cb.createQuery(PatientIdentifierType.class);
+		Root<PatientIdentifierType> root = cq.from(PatientIdentifierType.class);
+		cq.where(cb.isFalse(root.get("retired")));
+
+		List<IdentifierTypeFormat> loaded = new ArrayList<>();
+		for (PatientIdentifierType identifierType : session.createQuery(cq).getResultList()) {
+			if (StringUtils.isNotBlank(identifierType.getFormat())) {
+				loaded.add(new IdentifierTypeFormat(identifierType.getPatientIdentifierTypeId(),
+				        compile(identifierType.getFormat()), null));
+			} else if (StringUtils.isNotBlank(identifierType.getValidator())) {
+				loaded.add(new IdentifierTypeFormat(identifierType.getPatientIdentifierTypeId(), null,
+				        identifierType.getValidator()));
+			}
+		}
+		return Collections.unmodifiableList(loaded);
+	}
+
+	private synchronized void forgetIdentifierTypes() {
+		identifierTypes = null;
+		identifierTypesGeneration++;
+	}
+
+	/**
+	 * Looks for the synchronization registered by {@link #identifierTypesChanged()} rather than a
+	 * resource, since only the synchronizations are suspended while a nested transaction runs
+	 */
+	private boolean hasIdentifierTypeChangesInTransaction() {
+		return TransactionSynchronizationManager.isSynchronizationActive()
+		        && TransactionSynchronizationManager.getSynchronizations().stream()
+		                .anyMatch(synchronization -> synchronization instanceof IdentifierTypeChanges);
+	}
+
+	private static Optional<Pattern> compile(String regex) {
+		try {
+			return Optional.of(Pattern.compile(regex));
+		}
+		catch (PatternSyntaxException e) {
+			log.warn("Ignoring the identifier format {} which is not a valid regular expression", regex, e);
+			return Optional.empty();
+		}
+	}
+
+	private boolean isValid(String identifier, String validatorClassName) {
+		try {
+			IdentifierValidator validator = Context.getPatientService().getIdentifierValidator(validatorClassName);
+			return validator != null && validator.isValid(identifier);
+		}
+		catch (UnallowedIdentifierException e) {
+			return false;
+		}
+		catch (APIException e) {
+			log.warn("Cannot check identifiers with the validator {}", validatorClassName, e);
+			return false;
+		}
+	}
+
+	private List<Integer> getPatientIds(String identifier, List<Integer> identifierTypeIds, boolean includeVoided) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
+		Root<PatientIdentifier> root = cq.from(PatientIdentifier.class);
+		Join<PatientIdentifier, Patient> patient = root.join("patient");
+
+		List<Predicate> predicates = new ArrayList<>();
+		predicates.add(cb.equal(root.get("identifier"), identifier));
+		predicates.add(root.get("identifierType").get("patientIdentifierTypeId").in(identifierTypeIds));
+		if (!includeVoided) {
+			predicates.add(cb.isFalse(root.get("voided")));
+			predicates.add(cb.isFalse(patient.get("voided")));
+		}
+		cq.select(patient.get("patientId")).distinct(true).where(predicates.toArray(new Predicate[0]))
+		        .orderBy(cb.asc(patient.get("patientId")));
+
+		return session.createQuery(cq).getResultList();
+	}
+
+	/**
+	 * @return true if the patients with the given ids are not voided and have the given identifier
+	 *         unless it is voided
+	 */
+	private boolean haveIdentifier(List<Integer> patientIds, String identifier) {
+		Session session = sessionFactory.getCurrentSession();
+		for (Integer patientId : patientIds) {
+			Patient patient = session.get(Patient.class, patientId);
+			if (patient == null || patient.getVoided() || patient.getActiveIdentifiers().stream()
+			        .noneMatch(patientIdentifier -> identifier.equals(patientIdentifier.getIdentifier()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Marks a transaction which saved or purged identifier types it hasn't committed yet
+	 */
+	private final class IdentifierTypeChanges implements TransactionSynchronization {
+
+		@Override
+		public void afterCompletion(int status) {
+			forgetIdentifierTypes();
+			recentHits.clear();
+		}
+	}
+
+	private static final class IdentifierTypeFormat {
+
+		private final Integer identifierTypeId;
+
+		/**
+		 * The compiled format, empty if it is invalid or null if the type has none
+		 */
+		private final Optional<Pattern> format;
+
+		private final String validator;
+
+		private IdentifierTypeFormat(Integer identifierTypeId, Optional<Pattern> format, String validator) {
+			this.identifierTypeId = identifierTypeId;
+			this.format = format;
+			this.validator = validator;
+		}
+	}
+}
@@ -9,14 +9,29 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.hibernate.SessionFactory;
 import org.openmrs.PersonAttribute;
 import org.openmrs.PersonName;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.hibernate.search.LuceneQuery;
 import org.openmrs.util.OpenmrsConstants;
 
@@ -31,16 +46,30 @@ import org.openmrs.util.OpenmrsConstants;
 public class PersonLuceneQuery {
 
 	private SessionFactory sessionFactory;
-	static final String THREE_NAME_QUERY = "((givenNameSoundex:n1^6 OR givenNameSoundex:n2^2 OR givenNameSoundex:n3) OR " +
-		"(middleNameSoundex:n1^2 OR middleNameSoundex:n2^6 OR middleNameSoundex:n3^1) OR " +
-		"(familyNameSoundex:n1^1 OR familyNameSoundex:n2^2 OR familyNameSoundex:n3^6) OR " +
-		"(familyName2Soundex:n1^1 OR familyName2Soundex:n2^2 OR familyName2Soundex:n3^6))";
 	
-	static final String TWO_NAME_QUERY = "(( givenNameSoundex:n1^8 OR givenNameSoundex:n2^4) OR "
-		+ "(middleNameSoundex:n1^4 OR middleNameSoundex:n2^8) OR "
-		+ "(familyNameSoundex:n1^4 OR familyNameSoundex:n2^8) OR "
-		+ "(familyNameSoundex:n1^4 OR familyNameSoundex:n2^8))";
+	/**
+	 * The name fields matched by the phonetic searches, each indexed with the soundex, double
+	 * metaphone and beider-morse encodings
+	 */
+	static final String[] PHONETIC_NAME_FIELDS = { "givenName", "middleName", "familyName", "familyName2" };
+	
+	/**
+	 * The boosts of a match of the first, second and third searched name per name field in
+	 * {@link #PHONETIC_NAME_FIELDS}, favoring names found in the order they are usually written
+	 */
+	static final float[][] THREE_NAME_BOOSTS = { { 6, 2, 1 }, { 2, 6, 1 }, { 1, 2, 6 }, { 1, 2, 6 } };
+	
+	/**
+	 * The boosts of a match of the first and second searched name per name field in
+	 * {@link #PHONETIC_NAME_FIELDS}
+	 */
+	static final float[][] TWO_NAME_BOOSTS = { { 8, 4 }, { 4, 8 }, { 4, 8 }, { 4, 8 } };
 	
+	/**
+	 * The boost of a match of the double metaphone or beider-morse encoding of a name over a match
+	 * of the coarser soundex encoding alone
+	 */
+	static final float PRECISE_ENCODING_BOOST = 2f;
 	
 	public PersonLuceneQuery(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
@@ -90,12 +119,7 @@ public class PersonLuceneQuery {
 	 * @return the LuceneQuery that returns Persons with a soundex representation of the firstName and other defined search criteria
 	 */
 	public LuceneQuery<PersonName> getSoundexPersonNameSearchOnThreeNames(String n1, String n2, String n3,  Integer birthyear, boolean includeVoided, String gender) {
-		
-		String threeNameQuery =  THREE_NAME_QUERY.replace("n1", LuceneQuery.escapeQuery(n1))
-			.replace("n2", LuceneQuery.escapeQuery(n2))
-			.replace("n3", LuceneQuery.escapeQuery(n3));
-		
-		return getSoundexPersonNameQuery(threeNameQuery, birthyear, includeVoided, gender);
+		return buildPhoneticLuceneQuery(new String[] { n1, n2, n3 }, THREE_NAME_BOOSTS, birthyear, includeVoided, gender);
 	}
 	
 	/**
@@ -109,15 +133,13 @@ public class PersonLuceneQuery {
 	 * @return the LuceneQuery that returns Persons with a soundex representation of the defined names and the other defined search criteria
 	 */
 	public LuceneQuery<PersonName> getSoundexPersonNameSearchOnTwoNames(String searchName1, String searchName2,  Integer birthyear, boolean includeVoided, String gender) {
-		
-		String threeNameQuery =  TWO_NAME_QUERY.replace("n1", LuceneQuery.escapeQuery(searchName1))
-			.replace("n2", LuceneQuery.escapeQuery(searchName2));
-		
-		return getSoundexPersonNameQuery(threeNameQuery, birthyear, includeVoided, gender);
+		return buildPhoneticLuceneQuery(new String[] { searchName1, searchName2 }, TWO_NAME_BOOSTS, birthyear, includeVoided,
+		    gender);
 	}
 	
 	/**
 	 * This method creates a Lucene search query for a Person based on a soundex search on n>3 names
+	 * or a single name, matching each name to any name field with the same boost
 	 *
 	 * @param searchNames an array of names that should be searched for
 	 * @param birthyear the birthyear the searched person should have 
@@ -126,16 +148,11 @@ public class PersonLuceneQuery {
 	 * @return the LuceneQuery that returns Persons with a soundex representation of the defined names and the other defined search criteria
 	 */
 	public LuceneQuery<PersonName> getSoundexPersonNameSearchOnNNames(String[] searchNames, Integer birthyear, boolean includeVoided, String gender) {
-		List<String> fields = new ArrayList<>();
-		fields.addAll(Arrays.asList("familyNameSoundex", "familyName2Soundex", "middleNameSoundex", "givenNameSoundex"));
-		List<String> queryPart = new ArrayList<>();
-		for(String name : searchNames) {
-			for(String field : fields) {
-				queryPart.add(field + ":'" + name + "'");
-			}
+		float[][] boosts = new float[PHONETIC_NAME_FIELDS.length][searchNames.length];
+		for (float[] fieldBoosts : boosts) {
+			Arrays.fill(fieldBoosts, 1f);
 		}
-		String query = "(" + String.join(" OR ", queryPart)  +" )";
-		return buildSoundexLuceneQuery(query, fields, birthyear, includeVoided, gender);
+		return buildPhoneticLuceneQuery(searchNames, boosts, birthyear, includeVoided, gender);
 	}
 	
 	/**
@@ -176,6 +193,122 @@ public class PersonLuceneQuery {
 		LuceneQuery<PersonName> luceneQuery = LuceneQuery
 			.newQuery(PersonName.class, sessionFactory.getCurrentSession(), completeQuery, fields, LuceneQuery.MatchType.SOUNDEX).useOrQueryParser();
 		
+		return filterPersonNames(luceneQuery, includeVoided, gender);
+	}
+	
+	/**
+	 * Builds the query matching the names phonetically. Instead of parsing a query string per search,
+	 * the boolean query is assembled from the given boosts, which are fixed per number of names.
+	 * <p>
+	 * Each name is encoded the way every name field is indexed, see {@link PersonName}. A name field
+	 * matches a name if their soundex codes are equal and so are their double metaphone or their
+	 * beider-morse codes, which are more precise and rank the matches higher. A name field only
+	 * needs to match the soundex code if the name has no other codes, e.g. if it consists of digits.
+	 * 
+	 * @param names the names to search for
+	 * @param boosts the boosts of a match of each name per field in {@link #PHONETIC_NAME_FIELDS}
+	 * @param birthyear the birthyear the searched person should have or 0 for any
+	 * @param includeVoided true if voided person should be matched
+	 * @param gender of the person to match
+	 * @return the LuceneQuery that is build based on the parameters
+	 */
+	private LuceneQuery<PersonName> buildPhoneticLuceneQuery(final String[] names, final float[][] boosts,
+	        final Integer birthyear, boolean includeVoided, String gender) {
+		LuceneQuery<PersonName> luceneQuery = new LuceneQuery<PersonName>(PersonName.class,
+		        sessionFactory.getCurrentSession()) {
+			
+			@Override
+			protected Query prepareQuery() {
+				Analyzer analyzer = getFullTextSession().getSearchFactory().getAnalyzer(PersonName.class);
+				BooleanQuery.Builder namesQuery = new BooleanQuery.Builder();
+				for (int i = 0; i < names.length; i++) {
+					for (int j = 0; j < PHONETIC_NAME_FIELDS.length; j++) {
+						Query nameQuery = newPhoneticNameQuery(analyzer, PHONETIC_NAME_FIELDS[j], names[i]);
+						if (nameQuery != null) {
+							namesQuery.add(new BoostQuery(nameQuery, boosts[j][i]), Occur.SHOULD);
+						}
+					}
+				}
+				if (birthyear == 0) {
+					return namesQuery.build();
+				}
+				
+				// birthdate inside the birthyear range or is null
+				BooleanQuery.Builder birthdateQuery = new BooleanQuery.Builder();
+				birthdateQuery.add(TermRangeQuery.newStringRange("person.birthdate", String.valueOf(birthyear - 1),
+				    String.valueOf(birthyear + 1), true, true), Occur.SHOULD);
+				birthdateQuery.add(new BooleanQuery.Builder().add(new MatchAllDocsQuery(), Occur.MUST)
+				        .add(TermRangeQuery.newStringRange("person.birthdate", null, null, true, true), Occur.MUST_NOT)
+				        .build(),
+				    Occur.SHOULD);
+				
+				return new BooleanQuery.Builder().add(namesQuery.build(), Occur.MUST)
+				        .add(birthdateQuery.build(), Occur.MUST).build();
+			}
+		};
+		
+		return filterPersonNames(luceneQuery, includeVoided, gender);
+	}
+	
+	/**
+	 * @return the query matching the given name to the phonetic fields of the given name field or null
+	 *         if the name has no soundex code
+	 */
+	private static Query newPhoneticNameQuery(Analyzer analyzer, String field, String name) {
+		Query soundex = newTermsQuery(analyzer, field + "Soundex", name);
+		if (soundex == null) {
+			return null;
+		}
+		Query doubleMetaphone = newTermsQuery(analyzer, field + "DoubleMetaphone", name);
+		Query beiderMorse = newTermsQuery(analyzer, field + "BeiderMorse", name);
+		if (doubleMetaphone == null && beiderMorse == null) {
+			return soundex;
+		}
+		
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		builder.add(soundex, Occur.MUST);
+		if (doubleMetaphone != null) {
+			builder.add(new BoostQuery(doubleMetaphone, PRECISE_ENCODING_BOOST), Occur.SHOULD);
+		}
+		if (beiderMorse != null) {
+			builder.add(new BoostQuery(beiderMorse, PRECISE_ENCODING_BOOST), Occur.SHOULD);
+		}
+		builder.setMinimumNumberShouldMatch(1);
+		return builder.build();
+	}
+	
+	/**
+	 * @return the query matching any of the tokens the given text is analyzed into for the given field
+	 *         or null if there are none
+	 */
+	private static Query newTermsQuery(Analyzer analyzer, String field, String text) {
+		Set<String> tokens = new LinkedHashSet<>();
+		try (TokenStream tokenStream = analyzer.tokenStream(field, text)) {
+			CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+			tokenStream.reset();
+			while (tokenStream.incrementToken()) {
+				tokens.add(term.toString());
+			}
+			tokenStream.end();
+		}
+		catch (IOException e) {
+			throw new DAOException("Failed to analyze " + text, e);
+		}
+		
+		if (tokens.isEmpty()) {
+			return null;
+		} else if (tokens.size() == 1) {
+			return new TermQuery(new Term(field, tokens.iterator().next()));
+		}
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		for (String token : tokens) {
+			builder.add(new TermQuery(new Term(field, token)), Occur.SHOULD);
+		}
+		return builder.build();
+	}
+	
+	private LuceneQuery<PersonName> filterPersonNames(LuceneQuery<PersonName> luceneQuery, boolean includeVoided,
+	        String gender) {
 		if (!includeVoided) {
 			luceneQuery.include("voided", false);
 			luceneQuery.include("person.voided", false);
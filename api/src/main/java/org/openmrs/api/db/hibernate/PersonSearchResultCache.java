@@ -0,0 +1,283 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Hibernate;
+import org.hibernate.type.Type;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.PersonName;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.util.OpenmrsConstants;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Node local cache of the results of patient and person searches, e.g. the ids of a page of
+ * patients, for the type-ahead widgets and registration desks repeating the same searches within
+ * seconds. It is off unless the {@link OpenmrsConstants#GP_SEARCH_RESULT_CACHE_SIZE} global
+ * property is set to a positive number of results to keep.
+ * <p>
+ * All results are invalidated at once by a generation counter, which is incremented whenever a
+ * person, patient, name, identifier or searchable attribute is saved or deleted. Since this happens
+ * before the transaction commits, the counter is incremented again once the transaction completes,
+ * which invalidates the results loaded by others in the meantime. The transaction making the change
+ * sees it before the others do, so it neither reads nor adds results until it completes. Changes
+ * made by other nodes sharing the database aren't seen, so results also expire after
+ * {@link #MAX_AGE_MILLIS}.
+ *
+ * @since 2.8.0
+ */
+@Component("personSearchResultCache")
+public class PersonSearchResultCache extends EmptyInterceptor {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The time after which a result expires
+	 */
+	public static final long MAX_AGE_MILLIS = 60_000;
+
+	private static final String[] SEARCH_PROPERTIES = { OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_MODE,
+	        OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_SEARCH_MATCH_MODE,
+	        OpenmrsConstants.GLOBAL_PROPERTY_PERSON_SEARCH_MAX_RESULTS,
+	        OpenmrsConstants.GLOBAL_PROPERTY_MIN_SEARCH_CHARACTERS };
+
+	private final transient Map<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @return true if results are cached
+	 */
+	public boolean isEnabled() {
+		return getMaxSize() > 0;
+	}
+
+	/**
+	 * @return the current generation, to be passed to {@link #put(List, Object, long)} along with the
+	 *         result loaded afterwards
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Creates the key of a search, which also holds the global properties affecting the results
+	 *
+	 * @param search the name of the search
+	 * @param query the searched text, whose whitespace is normalized
+	 * @param parameters the other parameters of the search, e.g. includeVoided and the page
+	 * @return the key
+	 */
+	public static List<Object> newKey(String search, String query, Object... parameters) {
+		List<Object> key = new ArrayList<>();
+		key.add(search);
+		key.add(StringUtils.normalizeSpace(query));
+		key.addAll(Arrays.asList(parameters));
+		AdministrationService administrationService = Context.getAdministrationService();
+		for (String property : SEARCH_PROPERTIES) {
+			key.add(administrationService.getGlobalProperty(property));
+		}
+		return key;
+	}
+
+	/**
+	 * @param key the search parameters
+	 * @return the cached result or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(List<Object> key) {
+		if (hasChangesInTransaction()) {
+			misses.incrementAndGet();
+			return null;
+		}
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null || entry.generation != generation.get()
+		        || System.currentTimeMillis() - entry.created > MAX_AGE_MILLIS) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return (T) entry.result;
+	}
+
+	/**
+	 * Caches a result unless a change was made since it started loading or the current transaction
+	 * has changes which aren't committed yet
+	 *
+	 * @param key the search parameters
+	 * @param result the result, which must not be modified afterwards
+	 * @param loadedGeneration the generation from before the result was loaded
+	 */
+	public void put(List<Object> key, Object result, long loadedGeneration) {
+		int maxSize = getMaxSize();
+		if (maxSize <= 0 || hasChangesInTransaction()) {
+			return;
+		}
+		synchronized (entries) {
+			if (loadedGeneration == generation.get()) {
+				entries.put(key, new Entry(result, loadedGeneration));
+				while (entries.size() > maxSize) {
+					entries.remove(entries.keySet().iterator().next());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes every cached result
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return the number of searches answered from the cache
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of searches which had to be run while the cache was enabled
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the share of searches answered from the cache, from 0 to 1
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * @return the number of cached results, including the invalidated ones not evicted yet
+	 */
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Looks for the synchronization registered by {@link #changed(Object)} rather than a resource,
+	 * since only the synchronizations are suspended while a nested transaction runs
+	 */
+	private boolean hasChangesInTransaction() {
+		return TransactionSynchronizationManager.isSynchronizationActive() && TransactionSynchronizationManager
+		        .getSynchronizations().stream().anyMatch(synchronization -> synchronization instanceof PendingChanges);
+	}
+
+	private int getMaxSize() {
+		return Context.getAdministrationService().getGlobalPropertyAsInt(OpenmrsConstants.GP_SEARCH_RESULT_CACHE_SIZE, 0);
+	}
+
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onSave(Object, Serializable, Object[], String[], Type[])
+	 */
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		changed(entity);
+		return false;
+	}
+
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onFlushDirty(Object, Serializable, Object[], Object[],
+	 *      String[], Type[])
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		changed(entity);
+		return false;
+	}
+
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onDelete(Object, Serializable, Object[], String[], Type[])
+	 */
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		changed(entity);
+	}
+
+	private void changed(Object entity) {
+		if (!affectsSearchResults(entity)) {
+			return;
+		}
+		generation.incrementAndGet();
+		if (TransactionSynchronizationManager.isSynchronizationActive() && !hasChangesInTransaction()) {
+			TransactionSynchronizationManager.registerSynchronization(new PendingChanges());
+		}
+	}
+
+	private boolean affectsSearchResults(Object entity) {
+		if (entity instanceof PersonAttribute) {
+			PersonAttributeType type = ((PersonAttribute) entity).getAttributeType();
+			// the type isn't loaded during the flush just to check it
+			return type == null || !Hibernate.isInitialized(type) || Boolean.TRUE.equals(type.getSearchable());
+		}
+		return entity instanceof Person || entity instanceof PersonName || entity instanceof PatientIdentifier
+		        || entity instanceof PersonAttributeType;
+	}
+
+	/**
+	 * Marks a transaction with changes which aren't committed yet
+	 */
+	private final class PendingChanges implements TransactionSynchronization {
+
+		@Override
+		public void afterCompletion(int status) {
+			generation.incrementAndGet();
+		}
+	}
+
+	private static final class Entry {
+
+		private final Object result;
+
+		private final long generation;
+
+		private final long created = System.currentTimeMillis();
+
+		private Entry(Object result, long generation) {
+			this.result = result;
+			this.generation = generation;
+		}
+	}
+}
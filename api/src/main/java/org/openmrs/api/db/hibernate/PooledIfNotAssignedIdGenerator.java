@@ -0,0 +1,209 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.mapping.KeyValue;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.SimpleValue;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.openmrs.util.OpenmrsConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <b>pooled-if-not-assigned</b><br>
+ * <br>
+ * An alternative to {@link NativeIfNotAssignedIdentityGenerator} for entities that are inserted in
+ * large numbers, e.g. obs. Identity columns force Hibernate to execute each INSERT as soon as the
+ * entity is saved to find out its id, which defeats <code>hibernate.jdbc.batch_size</code>. This
+ * generator instead reserves blocks of ids from the <code>id_generator</code> table, one row per
+ * entity table, so that the inserts can be batched and the table is only hit once per block.<br>
+ * <br>
+ * Like {@link NativeIfNotAssignedIdentityGenerator}, an id assigned by the programmer wins over the
+ * generated one. The row of an entity table is created the first time an id is needed, starting
+ * after the greatest id already in the table. From then on the <code>id_generator</code> table is
+ * the only source of new ids, so every node, script or ETL job inserting rows in the entity table
+ * must take its ids from it too, otherwise their rows may collide with the generated ids. To switch
+ * an entity back to this generator after rows were inserted with another one, delete its row from
+ * the <code>id_generator</code> table first.<br>
+ * <br>
+ * The mappings keep their own generators, this one is selected per entity with the
+ * {@link OpenmrsConstants#ID_GENERATOR_POOLED_ENTITIES_RUNTIME_PROPERTY} runtime property, e.g.
+ *
+ * <pre>
+ * id_generator.pooled_entities=org.openmrs.Obs,org.openmrs.ObsReferenceRange
+ * </pre>
+ *
+ * The block size defaults to {@link #DEFAULT_INCREMENT_SIZE}. The entities are then only inserted
+ * when the session is flushed, see {@link #isSelected(SessionFactoryImplementor)}.
+ *
+ * @since 2.8.0
+ */
+public class PooledIfNotAssignedIdGenerator extends TableGenerator {
+
+	private static final Logger log = LoggerFactory.getLogger(PooledIfNotAssignedIdGenerator.class);
+
+	public static final String DEFAULT_TABLE = "id_generator";
+
+	/**
+	 * Matches the default <code>hibernate.jdbc.batch_size</code>
+	 */
+	public static final int DEFAULT_INCREMENT_SIZE = 50;
+
+	private String entityName;
+
+	private String entityTable;
+
+	private String entityIdColumn;
+
+	/**
+	 * Whether the stored value is the last id handed out or the next one, see
+	 * {@link AvailableSettings#TABLE_GENERATOR_STORE_LAST_USED}
+	 */
+	private boolean storeLastUsedValue;
+
+	private volatile boolean rowCreated;
+
+	/**
+	 * Replaces the generators of the ids of the given entities with this one, must be called before
+	 * the session factory creates its generators, e.g. by an
+	 * {@link org.hibernate.integrator.spi.Integrator}
+	 *
+	 * @param metadata the mappings of the session factory
+	 * @param entityNames comma separated names of the entities, may be blank
+	 */
+	public static void selectFor(Metadata metadata, String entityNames) {
+		if (entityNames == null) {
+			return;
+		}
+		for (String entityName : entityNames.split(",")) {
+			entityName = entityName.trim();
+			if (entityName.isEmpty()) {
+				continue;
+			}
+			PersistentClass persistentClass = metadata.getEntityBinding(entityName);
+			KeyValue identifier = persistentClass != null ? persistentClass.getIdentifier() : null;
+			if (!(identifier instanceof SimpleValue)) {
+				log.warn("Cannot use pooled ids for {}, it is not an entity with a simple id", entityName);
+				continue;
+			}
+			((SimpleValue) identifier).setIdentifierGeneratorStrategy(PooledIfNotAssignedIdGenerator.class.getName());
+			log.info("Using pooled ids for {}", entityName);
+		}
+	}
+
+	/**
+	 * Whether this generator hands out the ids of any entity, whose inserts then wait for the session
+	 * to be flushed instead of being executed when the entity is saved
+	 *
+	 * @param factory the session factory
+	 * @return true if an entity has pooled ids
+	 */
+	public static boolean isSelected(SessionFactoryImplementor factory) {
+		return factory.getMetamodel().entityPersisters().values().stream()
+		        .anyMatch(persister -> persister.getIdentifierGenerator() instanceof PooledIfNotAssignedIdGenerator);
+	}
+
+	/**
+	 * Whether this generator hands out the ids of the given entity
+	 *
+	 * @param factory the session factory
+	 * @param entityClass the class of the entity
+	 * @return true if the entity has pooled ids
+	 */
+	public static boolean isSelected(SessionFactoryImplementor factory, Class<?> entityClass) {
+		return factory.getMetamodel().entityPersister(entityClass)
+		        .getIdentifierGenerator() instanceof PooledIfNotAssignedIdGenerator;
+	}
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+		entityName = params.getProperty(ENTITY_NAME);
+		if (entityName == null) {
+			throw new MappingException("no entity name");
+		}
+		entityTable = params.getProperty(PersistentIdentifierGenerator.TABLE);
+		entityIdColumn = params.getProperty(PersistentIdentifierGenerator.PK);
+		storeLastUsedValue = serviceRegistry.getService(ConfigurationService.class)
+		        .getSetting(AvailableSettings.TABLE_GENERATOR_STORE_LAST_USED, StandardConverters.BOOLEAN, true);
+
+		Properties defaults = new Properties();
+		defaults.setProperty(TABLE_PARAM, DEFAULT_TABLE);
+		defaults.setProperty(CONFIG_PREFER_SEGMENT_PER_ENTITY, "true");
+		defaults.setProperty(INCREMENT_PARAM, String.valueOf(DEFAULT_INCREMENT_SIZE));
+		// hands out the ids of a block from the stored value up
+		defaults.setProperty(OPT_PARAM, "pooled-lo");
+		defaults.putAll(params);
+		super.configure(type, defaults, serviceRegistry);
+	}
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object entity) throws HibernateException {
+		EntityPersister persister = session.getEntityPersister(entityName, entity);
+		// Determine if an ID has been assigned.
+		Serializable id = persister.getIdentifier(entity, session);
+		if (id != null) {
+			return id;
+		}
+
+		if (!rowCreated) {
+			createRow(session);
+			rowCreated = true;
+		}
+		return super.generate(session, entity);
+	}
+
+	/**
+	 * Creates the row of the entity table in the <code>id_generator</code> table if there is none
+	 * yet, starting after the ids in the entity table
+	 */
+	private void createRow(SharedSessionContractImplementor session) {
+		String sql = "insert into " + getTableName() + " (" + getSegmentColumnName() + ", " + getValueColumnName()
+		        + ") select ?, stored_id from (select coalesce(max(" + entityIdColumn + "), 0)"
+		        + (storeLastUsedValue ? "" : " + 1") + " as stored_id from " + entityTable + ") ids"
+		        + " where not exists (select 1 from " + getTableName() + " where " + getSegmentColumnName() + " = ?)";
+		try {
+			session.getTransactionCoordinator().createIsolationDelegate().delegateWork(new AbstractReturningWork<Integer>() {
+
+				@Override
+				public Integer execute(Connection connection) throws SQLException {
+					try (PreparedStatement statement = connection.prepareStatement(sql)) {
+						statement.setString(1, getSegmentValue());
+						statement.setString(2, getSegmentValue());
+						return statement.executeUpdate();
+					}
+				}
+			}, true);
+		}
+		catch (HibernateException e) {
+			// e.g. another node created the row at the same time, which the table generator then reads
+			log.warn("Failed to create the {} row of {}", getSegmentValue(), getTableName(), e);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the second level cache regions of the entities and collections of several nodes in sync
+ * through the {@link CacheInvalidationBus}. Updates and deletes of cached entities and changes to
+ * cached collections are recorded when the transaction making them commits, with the same
+ * connection, and other nodes evict them from their regions.
+ * <p>
+ * Inserts aren't recorded, other nodes can't have cached what didn't exist. Collections replaced on
+ * an existing owner are recorded through the removal of the previous collection.
+ *
+ * @since 2.8.0
+ */
+@Component
+public class SecondLevelCacheInvalidationListener implements PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+	static final String ENTITY_PREFIX = "hibernate.entity:";
+
+	static final String COLLECTION_PREFIX = "hibernate.collection:";
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	private final Map<SharedSessionContractImplementor, PendingInvalidations> pending = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void registerListener() {
+		SessionFactoryImplementor factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+		EventListenerRegistry registry = factory.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.getEventListenerGroup(EventType.POST_UPDATE).appendListener(this);
+		registry.getEventListenerGroup(EventType.POST_DELETE).appendListener(this);
+		registry.getEventListenerGroup(EventType.POST_COLLECTION_UPDATE).appendListener(this);
+		registry.getEventListenerGroup(EventType.POST_COLLECTION_REMOVE).appendListener(this);
+
+		Cache cache = factory.getCache();
+		factory.getMetamodel().entityPersisters().values().stream().filter(EntityPersister::canWriteToCache)
+		        .forEach(persister -> addHandler(ENTITY_PREFIX + persister.getEntityName(), persister.getIdentifierType()
+		                .getReturnedClass(), id -> cache.evictEntityData(persister.getEntityName(), id),
+		            () -> cache.evictEntityData(persister.getEntityName())));
+		factory.getMetamodel().collectionPersisters().values().stream().filter(CollectionPersister::hasCache)
+		        .forEach(persister -> addHandler(COLLECTION_PREFIX + persister.getRole(), persister.getKeyType()
+		                .getReturnedClass(), id -> cache.evictCollectionData(persister.getRole(), id),
+		            () -> cache.evictCollectionData(persister.getRole())));
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (event.getPersister().canWriteToCache()) {
+			record(event.getSession(), ENTITY_PREFIX + event.getPersister().getEntityName(), event.getId());
+		}
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		if (event.getPersister().canWriteToCache()) {
+			record(event.getSession(), ENTITY_PREFIX + event.getPersister().getEntityName(), event.getId());
+		}
+	}
+
+	@Override
+	public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+		recordCollection(event);
+	}
+
+	@Override
+	public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+		recordCollection(event);
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private void recordCollection(AbstractCollectionEvent event) {
+		Serializable ownerId = event.getAffectedOwnerIdOrNull();
+		if (ownerId == null) {
+			return;
+		}
+		if (event.getCollection() != null && event.getCollection().getRole() != null) {
+			String role = event.getCollection().getRole();
+			if (event.getSession().getFactory().getMetamodel().collectionPersister(role).hasCache()) {
+				record(event.getSession(), COLLECTION_PREFIX + role, ownerId);
+			}
+			return;
+		}
+		// the removal of a collection that wasn't loaded, whose role isn't known, any cached collection of
+		// the owner may be the removed one
+		event.getSession().getFactory().getMetamodel().collectionPersisters().values().stream()
+		        .filter(CollectionPersister::hasCache)
+		        .filter(persister -> persister.getOwnerEntityPersister().getEntityName()
+		                .equals(event.getAffectedOwnerEntityName()))
+		        .forEach(persister -> record(event.getSession(), COLLECTION_PREFIX + persister.getRole(), ownerId));
+	}
+
+	private void record(EventSource session, String cacheName, Serializable id) {
+		if (!cacheInvalidationBus.isEnabled()) {
+			return;
+		}
+		pending.computeIfAbsent(session, s -> {
+			PendingInvalidations invalidations = new PendingInvalidations(s);
+			session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) invalidations);
+			session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) invalidations);
+			return invalidations;
+		}).add(cacheName, id);
+	}
+
+	private void addHandler(String cacheName, Class<?> idType, Consumer<Serializable> evict,
+	        Runnable evictAll) {
+		Function<String, Serializable> parser;
+		if (Integer.class.equals(idType)) {
+			parser = Integer::valueOf;
+		} else if (Long.class.equals(idType)) {
+			parser = Long::valueOf;
+		} else if (String.class.equals(idType)) {
+			parser = key -> key;
+		} else {
+			parser = null;
+		}
+		cacheInvalidationBus.addHandler(cacheName, key -> {
+			if (key == null || parser == null) {
+				evictAll.run();
+				return;
+			}
+			Serializable id;
+			try {
+				id = parser.apply(key);
+			}
+			catch (NumberFormatException e) {
+				evictAll.run();
+				return;
+			}
+			evict.accept(id);
+		});
+	}
+
+	/**
+	 * The invalidations recorded by a session, saved right before its transaction commits
+	 */
+	private class PendingInvalidations implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+		private final SharedSessionContractImplementor session;
+
+		private final Map<String, Set<Serializable>> invalidations = new LinkedHashMap<>();
+
+		private PendingInvalidations(SharedSessionContractImplementor session) {
+			this.session = session;
+		}
+
+		private synchronized void add(String cacheName, Serializable id) {
+			invalidations.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(id);
+		}
+
+		@Override
+		public synchronized void doBeforeTransactionCompletion(SessionImplementor sessionImplementor) {
+			pending.remove(session);
+			if (invalidations.isEmpty() || !cacheInvalidationBus.isEnabled()) {
+				return;
+			}
+			// the records are saved with the connection of the transaction, like the envers audit records
+			Session temporarySession = sessionImplementor.sessionWithOptions().connection().autoClose(false)
+			        .connectionHandlingMode(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION)
+			        .openSession();
+			try {
+				invalidations.forEach((cacheName, ids) -> ids.forEach(
+				    id -> temporarySession.save(cacheInvalidationBus.newCacheInvalidation(cacheName, id))));
+				temporarySession.flush();
+			}
+			finally {
+				temporarySession.close();
+			}
+		}
+
+		@Override
+		public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor sessionImplementor) {
+			pending.remove(session);
+		}
+	}
+}
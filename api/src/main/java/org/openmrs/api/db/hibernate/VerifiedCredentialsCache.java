@@ -0,0 +1,191 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.api.APIException;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Short lived cache of successful password verifications done by
+ * {@link HibernateContextDAO#authenticate(String, String)}, so that clients sending their
+ * credentials with every request (e.g. Basic auth) don't pay for the user lookup and the password
+ * hashing on each call. Passwords are never stored, only an HMAC of them keyed with a secret that is
+ * generated at startup and never leaves this JVM.
+ * <p>
+ * Entries expire after {@link #TIME_TO_LIVE_SECONDS} and are evicted whenever the user is saved
+ * (which covers password changes, retiring and unlocking), deleted or locked out. Evictions are
+ * repeated once the transaction completes and published to the other nodes.
+ *
+ * @since 2.8.0
+ */
+public class VerifiedCredentialsCache {
+
+	/**
+	 * The name evictions are published under to the other nodes
+	 *
+	 * @see CacheInvalidationBus
+	 */
+	public static final String CACHE_NAME = "verifiedCredentials";
+
+	static final long TIME_TO_LIVE_SECONDS = 60;
+
+	static final long MAXIMUM_SIZE = 1000;
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private final Cache<String, VerifiedCredentials> verified = CacheBuilder.newBuilder()
+	        .maximumSize(MAXIMUM_SIZE).expireAfterWrite(TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS).build();
+
+	/**
+	 * Incremented on every eviction, so that credentials verified before it aren't remembered after it
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	private final SecretKeySpec secret;
+
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	public VerifiedCredentialsCache() {
+		byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		secret = new SecretKeySpec(key, ALGORITHM);
+	}
+
+	/**
+	 * @param cacheInvalidationBus the bus used to tell other nodes about evicted users
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+		cacheInvalidationBus.addHandler(CACHE_NAME, key -> {
+			if (key == null || !NumberUtils.isDigits(key)) {
+				clear();
+			} else {
+				evictNow(Integer.valueOf(key));
+			}
+		});
+	}
+
+	/**
+	 * @return the current generation, to be passed to {@link #putVerified(String, String, Integer, long)}
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Gets the id of the user whose credentials were recently verified
+	 *
+	 * @param login the username or system id used to log in
+	 * @param password the plain text password
+	 * @return the user id or null if these credentials weren't verified recently
+	 */
+	public Integer getVerifiedUserId(String login, String password) {
+		VerifiedCredentials credentials = verified.getIfPresent(login);
+		if (credentials == null) {
+			return null;
+		}
+		return MessageDigest.isEqual(credentials.digest, digest(login, password)) ? credentials.userId : null;
+	}
+
+	/**
+	 * Remembers that the given credentials were verified for the given user, unless the user was
+	 * evicted since the verification started
+	 *
+	 * @param login the username or system id used to log in
+	 * @param password the plain text password
+	 * @param userId the id of the authenticated user
+	 * @param verificationGeneration the generation when the verification started
+	 */
+	public void putVerified(String login, String password, Integer userId, long verificationGeneration) {
+		verified.put(login, new VerifiedCredentials(userId, digest(login, password)));
+		if (generation.get() != verificationGeneration) {
+			verified.invalidate(login);
+		}
+	}
+
+	/**
+	 * Forgets all verified credentials of the given user, now and again once the current transaction
+	 * completes
+	 *
+	 * @param userId the user id
+	 */
+	public void evict(Integer userId) {
+		if (userId == null) {
+			return;
+		}
+		evictNow(userId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// a concurrent login may have verified the credentials as still stored
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					evictNow(userId);
+				}
+			});
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, userId);
+		}
+	}
+
+	/**
+	 * Forgets all verified credentials
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		verified.invalidateAll();
+	}
+
+	private void evictNow(Integer userId) {
+		generation.incrementAndGet();
+		verified.asMap().values().removeIf(credentials -> userId.equals(credentials.userId));
+	}
+
+	private byte[] digest(String login, String password) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(secret);
+			mac.update(login.getBytes(StandardCharsets.UTF_8));
+			mac.update((byte) 0);
+			return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (GeneralSecurityException e) {
+			throw new APIException("system.cannot.find.encryption.algorithm", null, e);
+		}
+	}
+
+	private static final class VerifiedCredentials {
+
+		private final Integer userId;
+
+		private final byte[] digest;
+
+		private VerifiedCredentials(Integer userId, byte[] digest) {
+			this.userId = userId;
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,670 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.search.backend.IndexingMonitor;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.spi.WorkerBuildContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the changes of an index off the committing thread. The changes of committed transactions
+ * are put in a bounded queue, which blocks the committing threads when it is full, and a writer
+ * thread per index applies them in batches, each batch being committed to the index once.
+ * <p>
+ * It is enabled by setting <code>hibernate.search.default.worker.backend</code> to the name of this
+ * class and configured with the following index properties, e.g.
+ * <code>hibernate.search.default.async_indexing.max_staleness</code>:
+ * <ul>
+ * <li><code>async_indexing.queue_size</code>: the number of changes that can wait for the writer,
+ * defaults to {@value #DEFAULT_QUEUE_SIZE}</li>
+ * <li><code>async_indexing.batch_size</code>: the maximum number of documents changed by a batch,
+ * defaults to {@value #DEFAULT_BATCH_SIZE}</li>
+ * <li><code>async_indexing.max_staleness</code>: the maximum number of milliseconds a change waits
+ * for other changes to be batched with, defaults to {@value #DEFAULT_MAX_STALENESS}</li>
+ * <li><code>async_indexing.journal</code>: whether the entities of the changes not applied yet are
+ * written to a journal next to the index, so that they can be reindexed after a crash, defaults
+ * to true for indexes with an <code>indexBase</code></li>
+ * </ul>
+ * The committing threads only append to the journal, the writer thread forces it to disk once per
+ * batch. The journal is split in segments, a segment being deleted once its changes are applied, so
+ * it only grows with the changes waiting for the writer. A batch that still fails after
+ * {@value #MAX_ATTEMPTS} attempts is left in the journal, to be reindexed after the next start.
+ * Tests and tools that need to read their changes from the index can wait for the queues with
+ * {@link #flushAll()}.
+ *
+ * @since 2.8.0
+ */
+public class AsyncBackendQueueProcessor implements BackendQueueProcessor {
+
+	private static final Logger log = LoggerFactory.getLogger(AsyncBackendQueueProcessor.class);
+
+	public static final String QUEUE_SIZE = "async_indexing.queue_size";
+
+	public static final String BATCH_SIZE = "async_indexing.batch_size";
+
+	public static final String MAX_STALENESS = "async_indexing.max_staleness";
+
+	public static final String JOURNAL = "async_indexing.journal";
+
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	public static final long DEFAULT_MAX_STALENESS = 1000;
+
+	private static final String JOURNAL_SUFFIX = ".journal";
+
+	private static final String REPLAY_SUFFIX = ".journal.replay";
+
+	/**
+	 * The size of the journal segment beyond which new changes are written to a new segment
+	 */
+	private static final long JOURNAL_SEGMENT_SIZE = 1024 * 1024;
+
+	static final int MAX_ATTEMPTS = 3;
+
+	private static final long RETRY_DELAY = 1000;
+
+	/**
+	 * Put in the queue by {@link #close()} to stop the writer once the changes before it are applied
+	 */
+	private static final Changeset STOP = new Changeset(Collections.emptyList(), null);
+
+	private static final List<AsyncBackendQueueProcessor> processors = new CopyOnWriteArrayList<>();
+
+	private IndexManager indexManager;
+
+	private BlockingQueue<Changeset> queue;
+
+	private int batchSize;
+
+	private long maxStaleness;
+
+	private Thread writer;
+
+	private volatile boolean closed;
+
+	private final Object lock = new Object();
+
+	private int unappliedChangesets;
+
+	private long queuedWorks;
+
+	private long appliedWorks;
+
+	private long appliedBatches;
+
+	private long failedWorks;
+
+	private long maxLag;
+
+	private long oldestUnappliedTime;
+
+	private File journalDirectory;
+
+	private File replayFile;
+
+	private FileChannel journal;
+
+	private long journalSegment;
+
+	private boolean journalForced = true;
+
+	/**
+	 * The number of journaled changesets not applied yet by journal segment, segments whose changes
+	 * failed to be applied are kept until the next start
+	 */
+	private final Map<Long, Integer> unappliedBySegment = new LinkedHashMap<>();
+
+	private Map<String, Set<String>> journaledEntities = Collections.emptyMap();
+
+	/**
+	 * @return the processors of the indexes
+	 */
+	public static List<AsyncBackendQueueProcessor> getProcessors() {
+		return Collections.unmodifiableList(processors);
+	}
+
+	/**
+	 * Waits until the changes queued for all indexes are applied.
+	 */
+	public static void flushAll() {
+		for (AsyncBackendQueueProcessor processor : processors) {
+			processor.flush();
+		}
+	}
+
+	/**
+	 * @see org.hibernate.search.backend.spi.BackendQueueProcessor#initialize(java.util.Properties,
+	 *      org.hibernate.search.spi.WorkerBuildContext, org.hibernate.search.indexes.spi.IndexManager)
+	 */
+	@Override
+	public void initialize(Properties props, WorkerBuildContext context, IndexManager indexManager) {
+		String indexBase = props.getProperty("indexBase");
+		File journalDirectory = null;
+		if (indexBase != null && Boolean.parseBoolean(props.getProperty(JOURNAL, "true"))) {
+			journalDirectory = new File(indexBase);
+		}
+		initialize(indexManager, Integer.parseInt(props.getProperty(QUEUE_SIZE, String.valueOf(DEFAULT_QUEUE_SIZE))),
+		    Integer.parseInt(props.getProperty(BATCH_SIZE, String.valueOf(DEFAULT_BATCH_SIZE))),
+		    Long.parseLong(props.getProperty(MAX_STALENESS, String.valueOf(DEFAULT_MAX_STALENESS))), journalDirectory);
+	}
+
+	void initialize(IndexManager indexManager, int queueSize, int batchSize, long maxStaleness, File journalDirectory) {
+		this.indexManager = indexManager;
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+		this.batchSize = batchSize;
+		this.maxStaleness = maxStaleness;
+
+		if (journalDirectory != null) {
+			openJournal(journalDirectory);
+		}
+
+		writer = new Thread(this::write, "OpenMRS search index writer - " + indexManager.getIndexName());
+		writer.setDaemon(true);
+		writer.start();
+		processors.add(this);
+	}
+
+	/**
+	 * @see org.hibernate.search.backend.spi.BackendQueueProcessor#applyWork(java.util.List,
+	 *      org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Override
+	public void applyWork(List<LuceneWork> workList, IndexingMonitor monitor) {
+		if (closed) {
+			indexManager.performOperations(workList, monitor);
+			return;
+		}
+
+		Changeset changeset = new Changeset(workList, monitor);
+		synchronized (lock) {
+			changeset.journalSegment = writeJournal(workList);
+			if (unappliedChangesets == 0) {
+				oldestUnappliedTime = changeset.queuedTime;
+			}
+			unappliedChangesets++;
+			queuedWorks += workList.size();
+		}
+
+		try {
+			queue.put(changeset);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			synchronized (lock) {
+				unappliedChangesets--;
+				queuedWorks -= workList.size();
+				failedWorks += workList.size();
+				lock.notifyAll();
+			}
+			// the journal segment of the change is kept, so it is reindexed after the next start
+			log.warn("Interrupted while queuing changes for the {} index", indexManager.getIndexName());
+		}
+	}
+
+	/**
+	 * Stream works are sent by the mass indexer, which waits for them, so they are applied right away.
+	 *
+	 * @see org.hibernate.search.backend.spi.BackendQueueProcessor#applyStreamWork(org.hibernate.search.backend.LuceneWork,
+	 *      org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Override
+	public void applyStreamWork(LuceneWork singleOperation, IndexingMonitor monitor) {
+		indexManager.performStreamOperation(singleOperation, monitor, false);
+	}
+
+	/**
+	 * Waits until the changes queued so far are applied.
+	 */
+	public void flush() {
+		synchronized (lock) {
+			while (unappliedChangesets > 0 && writer.isAlive()) {
+				try {
+					lock.wait(100);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies the queued changes and stops the writer.
+	 *
+	 * @see org.hibernate.search.backend.spi.BackendQueueProcessor#close()
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		processors.remove(this);
+		try {
+			// the writer is not interrupted, which would close the index writer if it is applying changes
+			while (writer.isAlive() && !queue.offer(STOP, 100, TimeUnit.MILLISECONDS)) {
+				log.debug("Waiting for the writer of the {} index to take queued changes", indexManager.getIndexName());
+			}
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		List<Changeset> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		remaining.remove(STOP);
+		if (!remaining.isEmpty()) {
+			apply(remaining);
+		}
+		closeJournal();
+	}
+
+	/**
+	 * @return the name of the index
+	 */
+	public String getIndexName() {
+		return indexManager.getIndexName();
+	}
+
+	/**
+	 * @return the number of changed documents waiting to be applied
+	 */
+	public long getQueuedWorks() {
+		synchronized (lock) {
+			return queuedWorks;
+		}
+	}
+
+	/**
+	 * @return the number of milliseconds the oldest change not applied yet has been waiting, or 0
+	 */
+	public long getLag() {
+		synchronized (lock) {
+			return unappliedChangesets == 0 ? 0 : System.currentTimeMillis() - oldestUnappliedTime;
+		}
+	}
+
+	/**
+	 * @return the highest number of milliseconds a change waited before being applied
+	 */
+	public long getMaxLag() {
+		synchronized (lock) {
+			return maxLag;
+		}
+	}
+
+	/**
+	 * @return the number of changed documents applied
+	 */
+	public long getAppliedWorks() {
+		synchronized (lock) {
+			return appliedWorks;
+		}
+	}
+
+	/**
+	 * @return the number of batches applied, each being committed once
+	 */
+	public long getAppliedBatches() {
+		synchronized (lock) {
+			return appliedBatches;
+		}
+	}
+
+	/**
+	 * @return the number of changed documents that failed to be applied, which are left in the
+	 *         journal
+	 */
+	public long getFailedWorks() {
+		synchronized (lock) {
+			return failedWorks;
+		}
+	}
+
+	/**
+	 * Returns the entities whose changes were journaled but not applied when the application
+	 * stopped, which need to be reindexed. The journal is kept until {@link #journalReplayed()} is
+	 * called.
+	 *
+	 * @return the ids by entity class name
+	 */
+	public Map<String, Set<String>> getJournaledEntities() {
+		return journaledEntities;
+	}
+
+	/**
+	 * Discards the journaled entities once they are reindexed.
+	 */
+	public void journalReplayed() {
+		journaledEntities = Collections.emptyMap();
+		if (replayFile != null && replayFile.exists() && !replayFile.delete()) {
+			log.warn("Failed to delete {}", replayFile);
+		}
+	}
+
+	private void write() {
+		List<Changeset> batch = new ArrayList<>();
+		boolean stopping = false;
+		while (!stopping) {
+			try {
+				Changeset first = queue.take();
+				if (first == STOP) {
+					break;
+				}
+				batch.add(first);
+				int works = first.works.size();
+				long deadline = first.queuedTime + maxStaleness;
+				while (works < batchSize && first.monitor == null) {
+					Changeset next = queue.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+					if (next == null) {
+						break;
+					}
+					if (next == STOP) {
+						stopping = true;
+						break;
+					}
+					if (next.monitor != null) {
+						// changesets of indexing tools are applied on their own for their monitor to be accurate
+						apply(batch);
+						batch.clear();
+						works = 0;
+					}
+					batch.add(next);
+					works += next.works.size();
+					if (next.monitor != null) {
+						break;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				// the writer is only stopped by the STOP changeset
+				log.debug("Interrupted while waiting for changes to the {} index", indexManager.getIndexName());
+			}
+			if (!batch.isEmpty()) {
+				apply(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Applies a batch, trying again if it fails. Once applied, the batch is counted and its journal
+	 * segments are released, otherwise it is left in the journal.
+	 */
+	private void apply(List<Changeset> batch) {
+		List<LuceneWork> works = new ArrayList<>();
+		for (Changeset changeset : batch) {
+			works.addAll(changeset.works);
+		}
+		forceJournal();
+
+		boolean applied = false;
+		for (int attempt = 1; !applied && attempt <= MAX_ATTEMPTS; attempt++) {
+			try {
+				indexManager.performOperations(works, batch.get(0).monitor);
+				applied = true;
+			}
+			catch (RuntimeException e) {
+				log.error("Failed to apply changes to the {} index, attempt {} of {}", indexManager.getIndexName(),
+				    attempt, MAX_ATTEMPTS, e);
+				if (attempt < MAX_ATTEMPTS) {
+					sleepBeforeRetry();
+				}
+			}
+		}
+
+		synchronized (lock) {
+			long now = System.currentTimeMillis();
+			maxLag = Math.max(maxLag, now - batch.get(0).queuedTime);
+			unappliedChangesets -= batch.size();
+			queuedWorks -= works.size();
+			if (applied) {
+				appliedWorks += works.size();
+				appliedBatches++;
+				for (Changeset changeset : batch) {
+					releaseJournalSegment(changeset.journalSegment);
+				}
+			} else {
+				failedWorks += works.size();
+			}
+			if (unappliedChangesets > 0) {
+				Changeset next = queue.peek();
+				oldestUnappliedTime = next != null && next != STOP ? next.queuedTime : now;
+			}
+			lock.notifyAll();
+		}
+	}
+
+	private void sleepBeforeRetry() {
+		try {
+			Thread.sleep(RETRY_DELAY);
+		}
+		catch (InterruptedException e) {
+			log.debug("Interrupted while waiting to apply changes to the {} index again", indexManager.getIndexName());
+		}
+	}
+
+	private void openJournal(File directory) {
+		journalDirectory = directory;
+		replayFile = new File(directory, indexManager.getIndexName() + REPLAY_SUFFIX);
+		try {
+			Files.createDirectories(directory.toPath());
+
+			// entities of an earlier replay that did not complete are kept along with the new ones
+			Map<String, Set<String>> entities = new LinkedHashMap<>();
+			readJournal(replayFile, entities);
+			List<File> segments = getJournalSegments();
+			for (File segment : segments) {
+				readJournal(segment, entities);
+			}
+			if (!entities.isEmpty()) {
+				log.warn("Found changes to the {} index that were not applied, they need to be reindexed",
+				    indexManager.getIndexName());
+				StringBuilder lines = new StringBuilder();
+				entities.forEach((type, ids) -> ids.forEach(id -> lines.append(type).append(' ').append(id).append('\n')));
+				Files.write(replayFile.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8),
+				    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+				    StandardOpenOption.SYNC);
+			}
+			journaledEntities = entities;
+			for (File segment : segments) {
+				Files.deleteIfExists(segment.toPath());
+			}
+
+			journalSegment = 0;
+			journal = openJournalSegment(journalSegment);
+		}
+		catch (IOException e) {
+			log.error("Failed to open the journal of the {} index, changes will not be journaled",
+			    indexManager.getIndexName(), e);
+			journal = null;
+		}
+	}
+
+	private File getJournalSegmentFile(long segment) {
+		return new File(journalDirectory, indexManager.getIndexName() + "." + segment + JOURNAL_SUFFIX);
+	}
+
+	private FileChannel openJournalSegment(long segment) throws IOException {
+		return FileChannel.open(getJournalSegmentFile(segment).toPath(), StandardOpenOption.CREATE,
+		    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * @return the journal segments of the index in the directory
+	 */
+	private List<File> getJournalSegments() {
+		String prefix = indexManager.getIndexName() + ".";
+		File[] files = journalDirectory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(JOURNAL_SUFFIX)
+		        && name.substring(prefix.length(), name.length() - JOURNAL_SUFFIX.length()).matches("\\d+"));
+		return files != null ? Arrays.asList(files) : Collections.emptyList();
+	}
+
+	private void readJournal(File file, Map<String, Set<String>> entities) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			int separator = line.indexOf(' ');
+			if (separator > 0) {
+				entities.computeIfAbsent(line.substring(0, separator), type -> new LinkedHashSet<>())
+				        .add(line.substring(separator + 1));
+			}
+		}
+	}
+
+	/**
+	 * Appends the entities of the works to the current journal segment, without forcing it to disk,
+	 * which the writer does once per batch. Must be called while holding the lock.
+	 *
+	 * @return the journal segment, or null if nothing was journaled
+	 */
+	private Long writeJournal(List<LuceneWork> works) {
+		if (journal == null) {
+			return null;
+		}
+		StringBuilder lines = new StringBuilder();
+		for (LuceneWork work : works) {
+			// works without an id, e.g. purging all documents of a type, are not replayable
+			if (work.getId() != null && work.getEntityType() != null) {
+				String id = work.getIdInString() != null ? work.getIdInString() : work.getId().toString();
+				lines.append(work.getEntityType().getName()).append(' ').append(id).append('\n');
+			}
+		}
+		if (lines.length() == 0) {
+			return null;
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				journal.write(buffer);
+			}
+			journalForced = false;
+			unappliedBySegment.merge(journalSegment, 1, Integer::sum);
+			return journalSegment;
+		}
+		catch (IOException e) {
+			log.error("Failed to journal changes to the {} index", indexManager.getIndexName(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Forces the changes journaled so far to disk, called by the writer before applying a batch.
+	 */
+	private void forceJournal() {
+		synchronized (lock) {
+			if (journal == null || journalForced) {
+				return;
+			}
+			try {
+				journal.force(false);
+				journalForced = true;
+			}
+			catch (IOException e) {
+				log.error("Failed to force the journal of the {} index", indexManager.getIndexName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Releases a journal segment once a changeset written to it is applied, deleting the segment or
+	 * emptying it if it is the current one once all its changesets are applied, and moving to a new
+	 * segment once the current one is large. Must be called while holding the lock.
+	 */
+	private void releaseJournalSegment(Long segment) {
+		if (journal == null || segment == null) {
+			return;
+		}
+		Integer unapplied = unappliedBySegment.merge(segment, -1, Integer::sum);
+		try {
+			if (unapplied != null && unapplied <= 0) {
+				unappliedBySegment.remove(segment);
+				if (segment == journalSegment) {
+					journal.truncate(0);
+					journal.position(0);
+					journalForced = true;
+				} else {
+					Files.deleteIfExists(getJournalSegmentFile(segment).toPath());
+				}
+			} else if (journal.size() >= JOURNAL_SEGMENT_SIZE) {
+				journal.force(false);
+				journal.close();
+				journalSegment++;
+				journal = openJournalSegment(journalSegment);
+				journalForced = true;
+			}
+		}
+		catch (IOException e) {
+			log.error("Failed to release the journal segment {} of the {} index", segment, indexManager.getIndexName(),
+			    e);
+		}
+	}
+
+	private void closeJournal() {
+		if (journal == null) {
+			return;
+		}
+		try {
+			synchronized (lock) {
+				journal.close();
+				// segments with changes that were not applied are kept to be read at the next start
+				if (!unappliedBySegment.containsKey(journalSegment)) {
+					Files.deleteIfExists(getJournalSegmentFile(journalSegment).toPath());
+				}
+			}
+		}
+		catch (IOException e) {
+			log.error("Failed to close the journal of the {} index", indexManager.getIndexName(), e);
+		}
+	}
+
+	private static class Changeset {
+
+		private final List<LuceneWork> works;
+
+		private final IndexingMonitor monitor;
+
+		private final long queuedTime = System.currentTimeMillis();
+
+		private Long journalSegment;
+
+		private Changeset(List<LuceneWork> works, IndexingMonitor monitor) {
+			this.works = works;
+			this.monitor = monitor;
+		}
+	}
+}
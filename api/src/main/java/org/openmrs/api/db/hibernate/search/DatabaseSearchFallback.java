@@ -0,0 +1,100 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tells the patient and concept searches to query the database instead of the search index while
+ * the index is rebuilt, see {@link SearchIndexer#isRebuilding()}, since the index is missing the
+ * entities not indexed yet until then. The searches switch back to the index once the rebuild
+ * finishes.
+ * <p>
+ * The database searches match the start of names and identifiers with <code>like</code> so that
+ * the indexes of the columns can be used, and they read at most {@value #MAX_ROWS} rows.
+ *
+ * @since 2.8.0
+ */
+public class DatabaseSearchFallback {
+
+	private static final Logger log = LoggerFactory.getLogger(DatabaseSearchFallback.class);
+
+	public static final String PATIENTS = "patients";
+
+	public static final String CONCEPTS = "concepts";
+
+	/**
+	 * The maximum number of rows read by a database search
+	 */
+	public static final int MAX_ROWS = 1000;
+
+	private static final Map<String, LongAdder> uses = new ConcurrentHashMap<>();
+
+	private static volatile boolean forced;
+
+	private DatabaseSearchFallback() {
+	}
+
+	/**
+	 * @return true if the searches should query the database
+	 */
+	public static boolean isActive() {
+		return forced || SearchIndexer.isRebuilding();
+	}
+
+	/**
+	 * Checks whether the given search should query the database and counts it if so.
+	 *
+	 * @param search the name of the search, e.g. {@link #PATIENTS}
+	 * @return true if the search should query the database
+	 */
+	public static boolean use(String search) {
+		if (!isActive()) {
+			return false;
+		}
+		uses.computeIfAbsent(search, k -> new LongAdder()).increment();
+		log.debug("Searching {} in the database since the search index is being rebuilt", search);
+		return true;
+	}
+
+	/**
+	 * Makes the searches query the database even when the index is not rebuilt, e.g. while the index
+	 * is known to be out of date.
+	 *
+	 * @param forced true to query the database, false to query the index unless it is rebuilt
+	 */
+	public static void setForced(boolean forced) {
+		DatabaseSearchFallback.forced = forced;
+	}
+
+	/**
+	 * @param search the name of the search
+	 * @return the number of times the given search queried the database
+	 */
+	public static long getUseCount(String search) {
+		LongAdder count = uses.get(search);
+		return count != null ? count.sum() : 0;
+	}
+
+	/**
+	 * @return the number of times each search queried the database
+	 */
+	public static Map<String, Long> getUseCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		uses.forEach((search, count) -> counts.put(search, count.sum()));
+		return counts;
+	}
+}
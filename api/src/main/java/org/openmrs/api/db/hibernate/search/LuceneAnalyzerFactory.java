@@ -16,6 +16,8 @@ import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
 import org.apache.lucene.analysis.ngram.EdgeNGramFilterFactory;
 import org.apache.lucene.analysis.ngram.NGramFilterFactory;
 import org.apache.lucene.analysis.standard.ClassicFilterFactory;
+import org.apache.lucene.analysis.phonetic.BeiderMorseFilterFactory;
+import org.apache.lucene.analysis.phonetic.DoubleMetaphoneFilterFactory;
 import org.apache.lucene.analysis.phonetic.PhoneticFilterFactory;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
 import org.hibernate.search.annotations.Factory;
@@ -30,6 +32,8 @@ import org.hibernate.search.cfg.SearchMapping;
  * 	startAnalyzer, which allows searching for tokens that match at the beginning
  * 	exactAnalyzer, which allows searching for tokens that are identical
  * 	anywhereAnalyzer, which allows searching for text within tokens
+ * 	soundexAnalyzer, doubleMetaphoneAnalyzer and beiderMorseAnalyzer, which allow searching for tokens that
+ * 	sound alike, from the coarsest to the most precise encoding
  *
  * @since 2.4.0
  */
@@ -65,6 +69,20 @@ public class LuceneAnalyzerFactory {
 			.filter(LowerCaseFilterFactory.class)
 			.filter(PhoneticFilterFactory.class)
 			.param("encoder", "Soundex");
+		mapping.analyzerDef(LuceneAnalyzers.DOUBLE_METAPHONE_ANALYZER, StandardTokenizerFactory.class)
+			.filter(ClassicFilterFactory.class)
+			.filter(LowerCaseFilterFactory.class)
+			.filter(DoubleMetaphoneFilterFactory.class)
+			.param("inject", "false")
+			.param("maxCodeLength", "6");
+		mapping.analyzerDef(LuceneAnalyzers.BEIDER_MORSE_ANALYZER, StandardTokenizerFactory.class)
+			.filter(ClassicFilterFactory.class)
+			.filter(LowerCaseFilterFactory.class)
+			.filter(BeiderMorseFilterFactory.class)
+			.param("nameType", "GENERIC")
+			.param("ruleType", "APPROX")
+			.param("concat", "true")
+			.param("languageSet", "auto");
 		
 		return mapping;
 	}
@@ -28,4 +28,8 @@ public class LuceneAnalyzers {
 	public static final String PHRASE_ANALYZER = "phraseAnalyzer";
 	
 	public static final String SOUNDEX_ANALYZER = "soundexAnalyzer";
+	
+	public static final String DOUBLE_METAPHONE_ANALYZER = "doubleMetaphoneAnalyzer";
+	
+	public static final String BEIDER_MORSE_ANALYZER = "beiderMorseAnalyzer";
 }
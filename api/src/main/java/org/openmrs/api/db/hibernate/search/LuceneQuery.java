@@ -10,6 +10,7 @@
 package org.openmrs.api.db.hibernate.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -18,17 +19,20 @@ import java.util.Set;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queries.TermsFilter;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.hibernate.NonUniqueResultException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.openmrs.api.db.FullTextSessionFactory;
+import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PersonAttribute;
 import org.openmrs.PersonName;
@@ -46,11 +50,20 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	
 	private Set<Term> excludeTerms = new HashSet<>();
 
-	private TermsFilter termsFilter;
+	/**
+	 * The minimum number of hits read at once when skipping elements with the same values.
+	 */
+	private static final int SKIP_SAME_PAGE_SIZE = 100;
+
+	/**
+	 * The number of hits read to count elements with distinct values, beyond which the count is
+	 * estimated.
+	 */
+	private static final int SKIP_SAME_COUNT_LIMIT = 1000;
 
-	private boolean noUniqueTerms = false;
+	private String skipSameField;
 
-	private Set<Object> skipSameValues;
+	private LuceneQuery<?> skipSameQuery;
 
 	boolean useOrQueryParser = false;
 	
@@ -252,7 +265,8 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 		if(matchType == MatchType.SOUNDEX) {
 			analyzer = getFullTextSession().getSearchFactory().getAnalyzer(getType());
 		}
-		else if (getType().isAssignableFrom(PatientIdentifier.class) || getType().isAssignableFrom(PersonName.class) || getType().isAssignableFrom(PersonAttribute.class)) {
+		else if (getType().isAssignableFrom(PatientIdentifier.class) || getType().isAssignableFrom(PersonName.class) || getType().isAssignableFrom(PersonAttribute.class)
+				|| getType().isAssignableFrom(Patient.class)) {
 			analyzer = getFullTextSession().getSearchFactory().getAnalyzer(LuceneAnalyzers.EXACT_ANALYZER);
 		} else {
 			analyzer = getFullTextSession().getSearchFactory().getAnalyzer(getType());
@@ -286,8 +300,8 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	 * <p>
 	 * Only first elements will be included in the results.
 	 * <p>
-	 * <b>Note:</b> This method must be called as last when constructing a query. When called it
-	 * will project the query and create a filter to eliminate duplicates.
+	 * <b>Note:</b> The hits are read in the order of relevance only until the requested results are
+	 * found, so {@link #resultSize()} is an estimate if there are more than 1000 hits.
 	 * 
 	 * @param field
 	 * @return this
@@ -301,50 +315,32 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	 * <p>
 	 * Only first elements will be included in the results.
 	 * <p>
-	 * <b>Note:</b> This method must be called as last when constructing a query. When called it
-	 * will project the query and create a filter to eliminate duplicates.
+	 * <b>Note:</b> The hits are read in the order of relevance only until the requested results are
+	 * found, so {@link #resultSize()} is an estimate if there are more than 1000 hits.
 	 *
 	 * @param field
 	 * @param luceneQuery results of which should be skipped too. It works only for queries, which called skipSame as well.
 	 * @return this
 	 */
 	public LuceneQuery<T> skipSame(String field, LuceneQuery<?> luceneQuery){
-		String idPropertyName = getSession().getSessionFactory().getClassMetadata(getType()).getIdentifierPropertyName();
-
-		FullTextQuery query = buildQuery();
-		query.setProjection(idPropertyName, field);
-		List<Object[]> documents = query.list();
-
-		skipSameValues = new HashSet<>();
-		if (luceneQuery != null) {
-			if (luceneQuery.skipSameValues == null) {
-				throw new IllegalArgumentException("The skipSame method must be called on the given luceneQuery before calling this method.");
-			}
-			skipSameValues.addAll(luceneQuery.skipSameValues);
+		if (luceneQuery != null && luceneQuery.skipSameField == null) {
+			throw new IllegalArgumentException("The skipSame method must be called on the given luceneQuery before calling this method.");
 		}
 
-		termsFilter = null;
-		if (!documents.isEmpty()) {
-			List<Term> terms = new ArrayList<>();
-			for (Object[] row : documents) {
-				if (skipSameValues.add(row[1])) {
-					terms.add(new Term(idPropertyName, row[0].toString()));
-				}
-			}
-			if (!terms.isEmpty()) {
-				termsFilter = new TermsFilter(terms);
-			} else {
-				noUniqueTerms = true;
-			}
-		}
+		skipSameField = field;
+		skipSameQuery = luceneQuery;
 
 		return this;
 	}
 	
 	@Override
 	public T uniqueResult() {
-		if (noUniqueTerms) {
-			return null;
+		if (skipSameField != null) {
+			List<T> list = listPart(0L, 2L).getList();
+			if (list.size() > 1) {
+				throw new NonUniqueResultException(list.size());
+			}
+			return list.isEmpty() ? null : list.get(0);
 		}
 
 		@SuppressWarnings("unchecked")
@@ -355,8 +351,8 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	
 	@Override
 	public List<T> list() {
-		if (noUniqueTerms) {
-			return Collections.emptyList();
+		if (skipSameField != null) {
+			return listPart((Long) null, (Long) null).getList();
 		}
 
 		@SuppressWarnings("unchecked")
@@ -367,8 +363,20 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	
 	@Override
 	public ListPart<T> listPart(Long firstResult, Long maxResults) {
-		if (noUniqueTerms) {
-			return ListPart.newListPart(Collections.emptyList(), firstResult, maxResults, 0L, true);
+		if (skipSameField != null) {
+			SkipSameHits hits = readSkipSamePage(firstResult, maxResults);
+			List<Object[]> rows = hits.getRows(firstResult);
+			List<T> list = Collections.emptyList();
+			if (!rows.isEmpty()) {
+				Set<Term> ids = new HashSet<>();
+				for (Object[] row : rows) {
+					ids.add(new Term(getIdPropertyName(), row[0].toString()));
+				}
+				@SuppressWarnings("unchecked")
+				List<T> results = buildQuery(ids).list();
+				list = results;
+			}
+			return ListPart.newListPart(list, firstResult, maxResults, hits.getResultSize(), hits.isExact());
 		}
 
 		FullTextQuery fullTextQuery = buildQuery();
@@ -386,16 +394,16 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	 */
 	@Override
 	public long resultSize() {
-		if (noUniqueTerms) {
-			return 0;
+		if (skipSameField != null) {
+			return readSkipSameHits(Long.MAX_VALUE, SKIP_SAME_COUNT_LIMIT).getResultSize();
 		}
 
 		return buildQuery().getResultSize();
 	}
 	
 	public List<Object[]> listProjection(String... fields) {
-		if (noUniqueTerms) {
-			return Collections.emptyList();
+		if (skipSameField != null) {
+			return listPartProjection((Long) null, (Long) null, fields).getList();
 		}
 
 		FullTextQuery fullTextQuery = buildQuery();
@@ -408,8 +416,13 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	}
 	
 	public ListPart<Object[]> listPartProjection(Long firstResult, Long maxResults, String... fields) {
-		if (noUniqueTerms) {
-			return ListPart.newListPart(Collections.emptyList(), firstResult, maxResults, 0L, true);
+		if (skipSameField != null) {
+			SkipSameHits hits = readSkipSamePage(firstResult, maxResults, fields);
+			List<Object[]> list = new ArrayList<>();
+			for (Object[] row : hits.getRows(firstResult)) {
+				list.add(Arrays.copyOfRange(row, 2, row.length));
+			}
+			return ListPart.newListPart(list, firstResult, maxResults, hits.getResultSize(), hits.isExact());
 		}
 
 		FullTextQuery fullTextQuery = buildQuery();
@@ -431,7 +444,142 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 		return listPartProjection(first, max, fields);
 	}
 	
+	private SkipSameHits readSkipSamePage(Long firstResult, Long maxResults, String... fields) {
+		long maxValues = Long.MAX_VALUE;
+		if (maxResults != null) {
+			maxValues = (firstResult != null ? firstResult : 0) + maxResults;
+		}
+		return readSkipSameHits(maxValues, Long.MAX_VALUE, fields);
+	}
+	
+	/**
+	 * Reads the hits in the order of relevance, keeping the first hit for each value of the skipSame
+	 * field, which is not matched by the query to skip, until the given number of values is found or
+	 * the given number of hits is read. Only the kept hits and a page of hits are held in memory.
+	 * <p>
+	 * The query is executed once and scrolled page by page, so each page continues from the last hit
+	 * read instead of collecting all the hits before it again.
+	 * 
+	 * @param maxValues the number of values to find
+	 * @param maxHits the number of hits to read
+	 * @param fields the fields to project in addition to the id and the skipSame field
+	 * @return the kept hits
+	 */
+	private SkipSameHits readSkipSameHits(long maxValues, long maxHits, String... fields) {
+		// a field can be projected only once, so the requested fields point to the projected ones
+		List<String> projection = new ArrayList<>(Arrays.asList(getIdPropertyName(), skipSameField));
+		int[] fieldIndexes = new int[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			if (!projection.contains(fields[i])) {
+				projection.add(fields[i]);
+			}
+			fieldIndexes[i] = projection.indexOf(fields[i]);
+		}
+		
+		int pageSize = SKIP_SAME_COUNT_LIMIT;
+		if (maxValues < SKIP_SAME_COUNT_LIMIT / 2) {
+			pageSize = (int) Math.max(2 * maxValues, SKIP_SAME_PAGE_SIZE);
+		}
+		
+		SkipSameHits hits = new SkipSameHits();
+		Set<Object> values = new HashSet<>();
+		FullTextQuery query = buildQuery();
+		query.setProjection(projection.toArray(new String[0]));
+		query.setFetchSize(pageSize);
+		ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			hits.total = query.getResultSize();
+			List<Object[]> page = new ArrayList<>(pageSize);
+			while (values.size() < maxValues && hits.read < maxHits && hits.read < hits.total) {
+				page.clear();
+				while (page.size() < pageSize && results.next()) {
+					page.add(results.get());
+				}
+				if (page.isEmpty()) {
+					hits.total = hits.read;
+					break;
+				}
+				
+				Set<Object> skippedValues = Collections.emptySet();
+				if (skipSameQuery != null) {
+					Set<Object> pageValues = new HashSet<>();
+					for (Object[] row : page) {
+						if (!values.contains(row[1])) {
+							pageValues.add(row[1]);
+						}
+					}
+					skippedValues = skipSameQuery.getMatchedValues(pageValues);
+				}
+				
+				for (Object[] row : page) {
+					if (values.size() >= maxValues || hits.read >= maxHits) {
+						break;
+					}
+					hits.read++;
+					if (!skippedValues.contains(row[1]) && values.add(row[1])) {
+						Object[] keptRow = new Object[fields.length + 2];
+						keptRow[0] = row[0];
+						keptRow[1] = row[1];
+						for (int i = 0; i < fields.length; i++) {
+							keptRow[i + 2] = row[fieldIndexes[i]];
+						}
+						hits.rows.add(keptRow);
+					}
+				}
+			}
+		}
+		finally {
+			results.close();
+		}
+		return hits;
+	}
+	
+	/**
+	 * Finds the values of the skipSame field of this query, or of the queries skipped by this query,
+	 * which are among the given values.
+	 * 
+	 * @param values the values to look for
+	 * @return the matched values
+	 */
+	private Set<Object> getMatchedValues(Set<Object> values) {
+		Set<Object> matchedValues = new HashSet<>();
+		if (values.isEmpty()) {
+			return matchedValues;
+		}
+		
+		Set<Term> terms = new HashSet<>();
+		for (Object value : values) {
+			terms.add(new Term(skipSameField, value.toString()));
+		}
+		FullTextQuery query = buildQuery(terms);
+		query.setProjection(skipSameField);
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = query.list();
+		for (Object[] row : rows) {
+			matchedValues.add(row[0]);
+		}
+		
+		if (skipSameQuery != null) {
+			Set<Object> remainingValues = new HashSet<>(values);
+			remainingValues.removeAll(matchedValues);
+			matchedValues.addAll(skipSameQuery.getMatchedValues(remainingValues));
+		}
+		return matchedValues;
+	}
+	
+	private String getIdPropertyName() {
+		return getSession().getSessionFactory().getClassMetadata(getType()).getIdentifierPropertyName();
+	}
+	
 	private FullTextQuery buildQuery() {
+		return buildQuery(null);
+	}
+	
+	/**
+	 * @param terms any of which must be matched in addition to the included terms, optional
+	 * @return the full text query
+	 */
+	private FullTextQuery buildQuery(Set<Term> terms) {
 		Query query;
 		try {
 			query = prepareQuery();
@@ -442,11 +590,14 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 		
 		FullTextQuery fullTextQuery = getFullTextSession().createFullTextQuery(query, getType());
 
-		fullTextQuery.enableFullTextFilter("termsFilterFactory").setParameter("includeTerms", includeTerms)
+		Set<Set<Term>> include = includeTerms;
+		if (terms != null) {
+			include = new HashSet<>(includeTerms);
+			include.add(terms);
+		}
+		fullTextQuery.enableFullTextFilter("termsFilterFactory").setParameter("includeTerms", include)
 				.setParameter("excludeTerms", excludeTerms);
 
-		fullTextQuery.setFilter(termsFilter);
-
 		adjustFullTextQuery(fullTextQuery);
 
 		return fullTextQuery;
@@ -461,4 +612,39 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 			fullTextQuery.setMaxResults(maxResults.intValue());
 		}
 	}
+	
+	/**
+	 * The hits kept by {@link #readSkipSameHits(long, long, String...)}.
+	 */
+	private static class SkipSameHits {
+		
+		private final List<Object[]> rows = new ArrayList<>();
+		
+		private long read = 0;
+		
+		private long total = Long.MAX_VALUE;
+		
+		/**
+		 * @return true if all hits were read
+		 */
+		public boolean isExact() {
+			return read >= total;
+		}
+		
+		/**
+		 * @return the number of kept hits if all hits were read, otherwise an estimate assuming that
+		 *         the unread hits repeat values as often as the read ones
+		 */
+		public long getResultSize() {
+			if (isExact() || read == 0) {
+				return rows.size();
+			}
+			return Math.max(rows.size(), Math.round((double) total * rows.size() / read));
+		}
+		
+		public List<Object[]> getRows(Long firstResult) {
+			int first = firstResult != null ? (int) Math.min(firstResult, rows.size()) : 0;
+			return rows.subList(first, rows.size());
+		}
+	}
 }
@@ -0,0 +1,550 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.openmrs.api.APIException;
+import org.openmrs.api.SearchIndexProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rebuilds the search index. The ids of each indexed type are split in ranges of
+ * <code>hibernate.search.indexer.partition_size</code> ids, which are loaded and indexed in parallel
+ * by <code>hibernate.search.indexer.threads</code> threads, each with its own session. The number of
+ * threads can be set per type with <code>hibernate.search.indexer.threads.</code> followed by the
+ * name of the class, e.g. to give more threads to the types with more entities.
+ * <p>
+ * The ids indexed so far are recorded in a checkpoint file, as the first and last id indexed of each
+ * range after each batch, so that a rebuild which did not finish, e.g. because the application
+ * crashed, resumes from where it stopped instead of starting over, as long as it is for the same
+ * version of the index. The recorded ids don't depend on the partition size, which can change
+ * between the two rebuilds. A rebuild holds a lock on the checkpoint file while it runs, a second
+ * rebuild with the same file fails instead of sharing it.
+ *
+ * @since 2.8.0
+ */
+public class SearchIndexer {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchIndexer.class);
+
+	public static final String THREADS = "hibernate.search.indexer.threads";
+
+	public static final String PARTITION_SIZE = "hibernate.search.indexer.partition_size";
+
+	public static final String BATCH_SIZE = "hibernate.search.indexer.batch_size";
+
+	public static final int DEFAULT_THREADS = 4;
+
+	public static final int DEFAULT_PARTITION_SIZE = 10000;
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	private static final String WHOLE_TYPE = "*";
+
+	private static final String LOCK_SUFFIX = ".lock";
+
+	private static final AtomicInteger rebuilds = new AtomicInteger();
+
+	private final SessionFactory sessionFactory;
+
+	private final Map<String, ?> properties;
+
+	private final File checkpointFile;
+
+	private final int partitionSize;
+
+	private final int batchSize;
+
+	private final Map<String, AtomicLong> totalByType = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicLong> doneByType = new ConcurrentHashMap<>();
+
+	private final List<String> types = new CopyOnWriteArrayList<>();
+
+	private volatile Date started;
+
+	private volatile Date finished;
+
+	private Writer checkpoint;
+
+	/**
+	 * @param sessionFactory the session factory to load the entities with
+	 * @param properties the properties to read the number of threads and the sizes from
+	 * @param checkpointFile the file to record the indexed ranges in or null not to record them
+	 */
+	public SearchIndexer(SessionFactory sessionFactory, Map<String, ?> properties, File checkpointFile) {
+		this.sessionFactory = sessionFactory;
+		this.properties = properties;
+		this.checkpointFile = checkpointFile;
+		this.partitionSize = getIntProperty(PARTITION_SIZE, DEFAULT_PARTITION_SIZE);
+		this.batchSize = getIntProperty(BATCH_SIZE, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param sessionFactory the session factory to load the entities with and read the properties of
+	 * @param checkpointFile the file to record the indexed ranges in or null not to record them
+	 */
+	public SearchIndexer(SessionFactory sessionFactory, File checkpointFile) {
+		this(sessionFactory, ((SessionFactoryImplementor) sessionFactory).getProperties(), checkpointFile);
+	}
+
+	/**
+	 * @return true while a rebuild of the search index is running, during which the index is missing
+	 *         the entities not indexed yet
+	 */
+	public static boolean isRebuilding() {
+		return rebuilds.get() > 0;
+	}
+
+	/**
+	 * @return the indexed types, except the subclasses of other indexed types since these are indexed
+	 *         with their superclass
+	 */
+	public List<Class<?>> getIndexedTypes() {
+		Set<Class<?>> indexedTypes;
+		try (Session session = sessionFactory.openSession()) {
+			indexedTypes = Search.getFullTextSession(session).getSearchFactory().getIndexedTypes();
+		}
+		List<Class<?>> result = new ArrayList<>();
+		for (Class<?> type : indexedTypes) {
+			boolean isSubclass = false;
+			for (Class<?> other : indexedTypes) {
+				if (other != type && other.isAssignableFrom(type)) {
+					isSubclass = true;
+					break;
+				}
+			}
+			if (!isSubclass) {
+				result.add(type);
+			}
+		}
+		result.sort((a, b) -> a.getName().compareTo(b.getName()));
+		return result;
+	}
+
+	/**
+	 * Rebuilds the index of the given types. If the checkpoint file was left by a rebuild of the same
+	 * version, the ranges it records are skipped, otherwise the index of the types is purged first.
+	 * The checkpoint file is deleted once the rebuild finishes.
+	 *
+	 * @param types the types to index
+	 * @param version the version of the index to rebuild
+	 * @throws APIException if the index could not be rebuilt
+	 */
+	public void index(Collection<Class<?>> types, String version) {
+		FileLock lock = lockCheckpoint();
+		try {
+			rebuild(types, version);
+		}
+		finally {
+			unlockCheckpoint(lock);
+		}
+	}
+
+	private void rebuild(Collection<Class<?>> types, String version) {
+		started = new Date();
+		finished = null;
+		rebuilds.incrementAndGet();
+		for (Class<?> type : types) {
+			this.types.add(type.getName());
+			totalByType.put(type.getName(), new AtomicLong());
+			doneByType.put(type.getName(), new AtomicLong());
+		}
+
+		Map<String, List<long[]>> indexedRanges = readCheckpoint(version);
+		try {
+			openCheckpoint(version, indexedRanges != null);
+			if (indexedRanges == null) {
+				indexedRanges = new HashMap<>();
+				purge(types);
+			} else {
+				log.info("Resuming the rebuild of the search index from {}", checkpointFile);
+			}
+
+			for (Class<?> type : types) {
+				indexType(type, indexedRanges.getOrDefault(type.getName(), new ArrayList<>()));
+			}
+			optimize(types);
+
+			closeCheckpoint();
+			if (checkpointFile != null) {
+				Files.deleteIfExists(checkpointFile.toPath());
+			}
+		}
+		catch (IOException e) {
+			throw new APIException("Failed to write the search index checkpoint " + checkpointFile, e);
+		}
+		finally {
+			try {
+				closeCheckpoint();
+			}
+			catch (IOException e) {
+				log.warn("Failed to close the search index checkpoint {}", checkpointFile, e);
+			}
+			finished = new Date();
+			rebuilds.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the progress of the rebuild or null if it has not started
+	 */
+	public SearchIndexProgress getProgress() {
+		if (started == null) {
+			return null;
+		}
+		Map<String, Long> total = new LinkedHashMap<>();
+		Map<String, Long> done = new LinkedHashMap<>();
+		for (String type : types) {
+			total.put(type, totalByType.get(type).get());
+			done.put(type, doneByType.get(type).get());
+		}
+		return new SearchIndexProgress(started, finished, total, done);
+	}
+
+	private void indexType(Class<?> type, List<long[]> indexedRanges) throws IOException {
+		EntityPersister persister = ((SessionFactoryImplementor) sessionFactory).getMetamodel().entityPersister(type);
+		String idProperty = persister.getIdentifierPropertyName();
+		boolean partitioned = Integer.class.equals(persister.getIdentifierType().getReturnedClass());
+
+		List<long[]> ranges = new ArrayList<>();
+		try (Session session = sessionFactory.openSession()) {
+			CriteriaBuilder cb = session.getCriteriaBuilder();
+			CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+			countQuery.select(cb.count(countQuery.from(type)));
+			totalByType.get(type.getName()).set(session.createQuery(countQuery).getSingleResult());
+
+			if (partitioned) {
+				CriteriaQuery<Object[]> boundsQuery = cb.createQuery(Object[].class);
+				Root<?> root = boundsQuery.from(type);
+				boundsQuery.multiselect(cb.min(root.get(idProperty)), cb.max(root.get(idProperty)));
+				Object[] bounds = session.createQuery(boundsQuery).getSingleResult();
+				if (bounds[0] != null) {
+					ranges = getRanges((Integer) bounds[0], (Integer) bounds[1], indexedRanges);
+				}
+			}
+		}
+
+		int threads = getIntProperty(THREADS + "." + type.getName(), getIntProperty(THREADS, DEFAULT_THREADS));
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Search indexer " + type.getSimpleName() + " "
+			        + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			if (partitioned) {
+				for (long[] range : ranges) {
+					futures.add(executor.submit(() -> indexRange(type, idProperty, range)));
+				}
+			} else if (indexedRanges.stream().noneMatch(range -> range[0] == Long.MIN_VALUE)) {
+				futures.add(executor.submit(() -> indexRange(type, idProperty, null)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("Interrupted while rebuilding the search index of " + type.getName(), e);
+		}
+		catch (ExecutionException e) {
+			throw new APIException("Failed to rebuild the search index of " + type.getName(), e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits the ids from min to max in ranges of at most the partition size, leaving out the ids
+	 * already indexed.
+	 *
+	 * @param min the lowest id
+	 * @param max the highest id
+	 * @param indexedRanges the first and last ids of the ranges already indexed
+	 * @return the first and last ids of the ranges to index
+	 */
+	private List<long[]> getRanges(long min, long max, List<long[]> indexedRanges) {
+		List<long[]> indexed = new ArrayList<>(indexedRanges);
+		indexed.sort((a, b) -> Long.compare(a[0], b[0]));
+		List<long[]> ranges = new ArrayList<>();
+		int next = 0;
+		long from = min;
+		while (from <= max) {
+			while (next < indexed.size() && indexed.get(next)[1] < from) {
+				next++;
+			}
+			if (next < indexed.size() && indexed.get(next)[0] <= from) {
+				if (indexed.get(next)[1] >= max) {
+					break;
+				}
+				from = indexed.get(next)[1] + 1;
+				continue;
+			}
+			long to = Math.min(from + partitionSize - 1, max);
+			if (next < indexed.size()) {
+				to = Math.min(to, indexed.get(next)[0] - 1);
+			}
+			ranges.add(new long[] { from, to });
+			from = to + 1;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Indexes the entities of the given type with ids in the given range, recording the last id
+	 * indexed after each batch, or all of them if no range is given.
+	 */
+	private Void indexRange(Class<?> type, String idProperty, long[] range) throws IOException {
+		AtomicLong done = doneByType.get(type.getName());
+		long count = 0;
+		try (Session session = sessionFactory.openSession()) {
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			fullTextSession.setHibernateFlushMode(FlushMode.MANUAL);
+			fullTextSession.setCacheMode(CacheMode.IGNORE);
+			fullTextSession.setDefaultReadOnly(true);
+			Transaction transaction = fullTextSession.beginTransaction();
+
+			CriteriaQuery<Object> query = buildRangeQuery(session, type, idProperty, range);
+			try (ScrollableResults results = session.createQuery(query).setFetchSize(batchSize).scroll(
+			    ScrollMode.FORWARD_ONLY)) {
+				while (results.next()) {
+					Object entity = results.get(0);
+					fullTextSession.index(entity);
+					count++;
+					done.incrementAndGet();
+					if (count % batchSize == 0) {
+						Integer lastId = range != null ? (Integer) fullTextSession.getIdentifier(entity) : null;
+						fullTextSession.flushToIndexes();
+						fullTextSession.clear();
+						if (lastId != null) {
+							writeCheckpoint(type, range[0] + " " + lastId, count);
+							count = 0;
+						}
+					}
+				}
+			}
+			fullTextSession.flushToIndexes();
+			transaction.commit();
+		}
+		writeCheckpoint(type, range == null ? WHOLE_TYPE + " " + WHOLE_TYPE : range[0] + " " + range[1], count);
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private CriteriaQuery<Object> buildRangeQuery(Session session, Class<?> type, String idProperty, long[] range) {
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		CriteriaQuery<Object> query = (CriteriaQuery<Object>) cb.createQuery(type);
+		Root<Object> root = (Root<Object>) query.from(type);
+		query.select(root);
+		if (range != null) {
+			// the ranges are within the ids of the type, so within the range of an int
+			query.where(cb.between(root.get(idProperty), (int) range[0], (int) range[1]));
+			query.orderBy(cb.asc(root.get(idProperty)));
+		}
+		return query;
+	}
+
+	private void purge(Collection<Class<?>> types) {
+		try (Session session = sessionFactory.openSession()) {
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			Transaction transaction = fullTextSession.beginTransaction();
+			for (Class<?> type : types) {
+				fullTextSession.purgeAll(type);
+			}
+			fullTextSession.flushToIndexes();
+			transaction.commit();
+		}
+	}
+
+	private void optimize(Collection<Class<?>> types) {
+		try (Session session = sessionFactory.openSession()) {
+			FullTextSession fullTextSession = Search.getFullTextSession(session);
+			for (Class<?> type : types) {
+				fullTextSession.getSearchFactory().optimize(type);
+			}
+		}
+	}
+
+	/**
+	 * @return the first and last ids of the ranges recorded per type name, the whole type being
+	 *         recorded as the range of all longs, or null if there is no checkpoint of the given version
+	 */
+	private Map<String, List<long[]>> readCheckpoint(String version) {
+		if (checkpointFile == null || !checkpointFile.exists()) {
+			return null;
+		}
+		try {
+			List<String> lines = Files.readAllLines(checkpointFile.toPath(), StandardCharsets.UTF_8);
+			if (lines.isEmpty() || !lines.get(0).equals(version)) {
+				return null;
+			}
+			Map<String, List<long[]>> ranges = new HashMap<>();
+			for (String line : lines.subList(1, lines.size())) {
+				String[] parts = line.split(" ");
+				if (parts.length != 4) {
+					// the line being written when the application stopped
+					continue;
+				}
+				long[] range = WHOLE_TYPE.equals(parts[1]) ? new long[] { Long.MIN_VALUE, Long.MAX_VALUE }
+				        : new long[] { Long.parseLong(parts[1]), Long.parseLong(parts[2]) };
+				ranges.computeIfAbsent(parts[0], k -> new ArrayList<>()).add(range);
+				AtomicLong done = doneByType.get(parts[0]);
+				if (done != null) {
+					done.addAndGet(Long.parseLong(parts[3]));
+				}
+			}
+			return ranges;
+		}
+		catch (IOException | NumberFormatException e) {
+			log.warn("Ignoring the search index checkpoint {} which could not be read", checkpointFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Locks the checkpoint file for the rebuild, so that a second rebuild with the same file, in this
+	 * or another process, fails instead of sharing it.
+	 *
+	 * @return the lock or null if there is no checkpoint file
+	 * @throws APIException if another rebuild holds the lock
+	 */
+	private FileLock lockCheckpoint() {
+		if (checkpointFile == null) {
+			return null;
+		}
+		File lockFile = new File(checkpointFile.getPath() + LOCK_SUFFIX);
+		FileChannel channel = null;
+		try {
+			lockFile.getParentFile().mkdirs();
+			channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileLock lock = channel.tryLock();
+			if (lock != null) {
+				return lock;
+			}
+		}
+		catch (OverlappingFileLockException e) {
+			// held by another rebuild in this process
+		}
+		catch (IOException e) {
+			closeQuietly(channel);
+			throw new APIException("Failed to lock the search index checkpoint " + checkpointFile, e);
+		}
+		closeQuietly(channel);
+		throw new APIException("The search index is already being rebuilt with the checkpoint " + checkpointFile);
+	}
+
+	private void unlockCheckpoint(FileLock lock) {
+		if (lock == null) {
+			return;
+		}
+		try {
+			lock.release();
+		}
+		catch (IOException e) {
+			log.warn("Failed to unlock the search index checkpoint {}", checkpointFile, e);
+		}
+		closeQuietly(lock.channel());
+	}
+
+	private void closeQuietly(FileChannel channel) {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			log.warn("Failed to close the lock of the search index checkpoint {}", checkpointFile, e);
+		}
+	}
+
+	private void openCheckpoint(String version, boolean resume) throws IOException {
+		if (checkpointFile == null) {
+			return;
+		}
+		checkpointFile.getParentFile().mkdirs();
+		if (resume) {
+			checkpoint = Files.newBufferedWriter(checkpointFile.toPath(), StandardCharsets.UTF_8,
+			    StandardOpenOption.APPEND);
+		} else {
+			checkpoint = Files.newBufferedWriter(checkpointFile.toPath(), StandardCharsets.UTF_8);
+			checkpoint.write(version + "\n");
+			checkpoint.flush();
+		}
+	}
+
+	private synchronized void writeCheckpoint(Class<?> type, String range, long count) throws IOException {
+		// the type, the first and last ids indexed and the number of entities indexed since the last line
+		if (checkpoint != null) {
+			checkpoint.write(type.getName() + " " + range + " " + count + "\n");
+			checkpoint.flush();
+		}
+	}
+
+	private synchronized void closeCheckpoint() throws IOException {
+		if (checkpoint != null) {
+			checkpoint.close();
+			checkpoint = null;
+		}
+	}
+
+	private int getIntProperty(String name, int defaultValue) {
+		Object value = properties.get(name);
+		if (value == null || value.toString().trim().isEmpty()) {
+			return defaultValue;
+		}
+		return Integer.parseInt(value.toString().trim());
+	}
+}
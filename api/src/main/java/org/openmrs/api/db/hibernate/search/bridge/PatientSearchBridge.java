@@ -0,0 +1,98 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate.search.bridge;
+
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.document.Document;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.hibernate.search.bridge.ParameterizedBridge;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+
+/**
+ * Indexes the searchable values of a {@link Patient} into the patient's own document, so that a
+ * patient can be found with a single query instead of one query per identifier, name and attribute
+ * documents.
+ * <p>
+ * The <code>values</code> parameter selects what is indexed:
+ * <ul>
+ * <li><code>identifiers</code>: the non voided identifiers</li>
+ * <li><code>names</code>: each part of the non voided names</li>
+ * <li><code>attributes</code>: the non voided attributes of searchable types</li>
+ * </ul>
+ * Nothing is indexed when the patient is embedded in another document, e.g. in the documents of
+ * {@link PatientIdentifier}, which have their own fields for those values.
+ *
+ * @since 2.8.0
+ */
+public class PatientSearchBridge implements FieldBridge, ParameterizedBridge {
+
+	public static final String VALUES_PARAMETER = "values";
+
+	public static final String IDENTIFIERS = "identifiers";
+
+	public static final String NAMES = "names";
+
+	public static final String ATTRIBUTES = "attributes";
+
+	private String values;
+
+	/**
+	 * @see org.hibernate.search.bridge.ParameterizedBridge#setParameterValues(java.util.Map)
+	 */
+	@Override
+	public void setParameterValues(Map<String, String> parameters) {
+		values = parameters.get(VALUES_PARAMETER);
+	}
+
+	/**
+	 * @see org.hibernate.search.bridge.FieldBridge#set(java.lang.String, java.lang.Object,
+	 *      org.apache.lucene.document.Document, org.hibernate.search.bridge.LuceneOptions)
+	 */
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		// embedded fields are prefixed with the path to the patient
+		if (!(value instanceof Patient) || name.contains(".")) {
+			return;
+		}
+		Patient patient = (Patient) value;
+		if (IDENTIFIERS.equals(values)) {
+			for (PatientIdentifier identifier : patient.getActiveIdentifiers()) {
+				addField(name, identifier.getIdentifier(), document, luceneOptions);
+			}
+		} else if (NAMES.equals(values)) {
+			for (PersonName personName : patient.getNames()) {
+				if (!personName.getVoided()) {
+					addField(name, personName.getGivenName(), document, luceneOptions);
+					addField(name, personName.getMiddleName(), document, luceneOptions);
+					addField(name, personName.getFamilyName(), document, luceneOptions);
+					addField(name, personName.getFamilyName2(), document, luceneOptions);
+				}
+			}
+		} else if (ATTRIBUTES.equals(values)) {
+			for (PersonAttribute attribute : patient.getActiveAttributes()) {
+				if (attribute.getAttributeType() != null && Boolean.TRUE.equals(attribute.getAttributeType().getSearchable())) {
+					addField(name, attribute.getValue(), document, luceneOptions);
+				}
+			}
+		}
+	}
+
+	private void addField(String name, String value, Document document, LuceneOptions luceneOptions) {
+		if (StringUtils.isNotBlank(value)) {
+			luceneOptions.addFieldToDocument(name, value, document);
+		}
+	}
+}
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -43,6 +44,8 @@ import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.EventListeners;
 import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.SearchIndexProgress;
+import org.openmrs.api.cache.CacheInvalidationBus;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.AdministrationDAO;
 import org.openmrs.customdatatype.CustomDatatype;
@@ -61,6 +64,7 @@ import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.util.HttpClient;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.PrivilegeConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
@@ -91,6 +95,10 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	
 	private HttpClient implementationIdHttpClient;
 	
+	private GlobalPropertyCache globalPropertyCache = new GlobalPropertyCache();
+	
+	private CacheInvalidationBus cacheInvalidationBus;
+	
 	/**
 	 * Default empty constructor
 	 */
@@ -108,6 +116,24 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	public void setEventListeners(EventListeners eventListeners) {
 		this.eventListeners = eventListeners;
 	}
+	
+	/**
+	 * @param globalPropertyCache the cache to read global property values through, it should also be
+	 *            registered as a global property listener so that it is kept up to date
+	 * @since 2.8.0
+	 */
+	public void setGlobalPropertyCache(GlobalPropertyCache globalPropertyCache) {
+		this.globalPropertyCache = globalPropertyCache;
+	}
+	
+	/**
+	 * @param cacheInvalidationBus the bus used to tell other nodes about global property changes
+	 * @since 2.8.0
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+		cacheInvalidationBus.addHandler(GlobalPropertyCache.CACHE_NAME, this::globalPropertyChangedOnOtherNode);
+	}
 		
 	/**
 	 * Static-ish variable used to cache the system variables. This is not static so that every time
@@ -164,17 +190,20 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			return null;
 		}
 		
-		GlobalProperty gp = dao.getGlobalPropertyObject(propertyName);
-		if (gp != null) {
-			if (canViewGlobalProperty(gp)) {
-				return gp.getPropertyValue();
-			} else {
-				throw new APIException("GlobalProperty.error.privilege.required.view", new Object[] {
-					gp.getViewPrivilege().getPrivilege(), propertyName });
-			}
-		} else {
-			return null;
+		return getCachedGlobalProperty(propertyName).getValue();
+	}
+	
+	/**
+	 * Gets the cached value of a global property, loading it on first access, and checks that the
+	 * authenticated user can view it
+	 */
+	private GlobalPropertyCache.Entry getCachedGlobalProperty(String propertyName) {
+		GlobalPropertyCache.Entry entry = globalPropertyCache.get(propertyName, dao::getGlobalPropertyObject);
+		if (entry.getViewPrivilege() != null && !Context.getAuthenticatedUser().hasPrivilege(entry.getViewPrivilege())) {
+			throw new APIException("GlobalProperty.error.privilege.required.view", new Object[] {
+				entry.getViewPrivilege(), propertyName });
 		}
+		return entry;
 	}
 	
 	private boolean canViewGlobalProperty(GlobalProperty property) {
@@ -280,6 +309,8 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		
 		gp.setPropertyValue(propertyValue);
 		dao.saveGlobalProperty(gp);
+		globalPropertyCache.globalPropertyChanged(gp);
+		publishGlobalPropertyChange(gp.getProperty());
 	}
 	
 	/**
@@ -321,6 +352,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		
 		notifyGlobalPropertyDelete(globalProperty.getProperty());
 		dao.deleteGlobalProperty(globalProperty);
+		publishGlobalPropertyChange(globalProperty.getProperty());
 	}
 	
 	/**
@@ -385,6 +417,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			CustomDatatypeUtil.saveIfDirty(gp);
 			dao.saveGlobalProperty(gp);
 			notifyGlobalPropertyChange(gp);
+			publishGlobalPropertyChange(gp.getProperty());
 			return gp;
 		}
 		
@@ -400,7 +433,13 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			return null;
 		}
 		
-		return dao.executeSQL(sql, selectOnly);
+		List<List<Object>> result = dao.executeSQL(sql, selectOnly);
+		if (!selectOnly) {
+			// the statement may have changed global properties behind the cache's back
+			globalPropertyCache.clear();
+			publishGlobalPropertyChange(null);
+		}
+		return result;
 	}
 	
 	/**
@@ -419,6 +458,42 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		eventListeners.getGlobalPropertyListeners().remove(listener);
 	}
 	
+	/**
+	 * Tells the other nodes sharing the database that a global property changed
+	 * 
+	 * @param propertyName the name of the changed property or null if any may have changed
+	 */
+	private void publishGlobalPropertyChange(String propertyName) {
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(GlobalPropertyCache.CACHE_NAME, propertyName);
+		}
+	}
+	
+	/**
+	 * Calls the global property listeners of this node for a change made by another node
+	 * 
+	 * @param propertyName the name of the changed property or null if any may have changed
+	 */
+	private void globalPropertyChangedOnOtherNode(String propertyName) {
+		if (propertyName == null) {
+			globalPropertyCache.clear();
+			return;
+		}
+		
+		try {
+			Context.addProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+			GlobalProperty gp = dao.getGlobalPropertyObject(propertyName);
+			if (gp == null) {
+				notifyGlobalPropertyDelete(propertyName);
+			} else {
+				notifyGlobalPropertyChange(gp);
+			}
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+		}
+	}
+	
 	/**
 	 * Calls global property listeners registered for this create/change
 	 * 
@@ -752,6 +827,44 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		}
 	}
 	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getGlobalPropertyAsInt(java.lang.String, int)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public int getGlobalPropertyAsInt(String propertyName, int defaultValue) throws APIException {
+		if (propertyName == null) {
+			return defaultValue;
+		}
+		Integer value = getCachedGlobalProperty(propertyName).getIntegerValue();
+		return value != null ? value : defaultValue;
+	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getGlobalPropertyAsBoolean(java.lang.String, boolean)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public boolean getGlobalPropertyAsBoolean(String propertyName, boolean defaultValue) throws APIException {
+		if (propertyName == null) {
+			return defaultValue;
+		}
+		Boolean value = getCachedGlobalProperty(propertyName).getBooleanValue();
+		return value != null ? value : defaultValue;
+	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getGlobalPropertyAsList(java.lang.String)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<String> getGlobalPropertyAsList(String propertyName) throws APIException {
+		if (propertyName == null) {
+			return Collections.emptyList();
+		}
+		return getCachedGlobalProperty(propertyName).getListValue();
+	}
+	
 	/**
 	 * @see org.openmrs.api.AdministrationService#getSystemInformation()
 	 */
@@ -953,6 +1066,15 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	public void updatePostgresSequence() {
 		dao.updatePostgresSequence();
 	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getSearchIndexProgress()
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public SearchIndexProgress getSearchIndexProgress() {
+		return Context.getSearchIndexProgress();
+	}
 
 	@Override
 	public List<String> getSerializerWhitelistTypes() {
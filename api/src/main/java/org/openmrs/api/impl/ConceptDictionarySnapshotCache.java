@@ -0,0 +1,319 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openmrs.api.ConceptDictionarySnapshot;
+import org.openmrs.api.ConceptDictionarySnapshot.ConceptEntry;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.ConceptDAO;
+import org.openmrs.util.OpenmrsConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Holds the current {@link ConceptDictionarySnapshot} of this node for
+ * {@link ConceptServiceImpl#getConceptDictionarySnapshot()}. It is off unless the
+ * {@link OpenmrsConstants#CONCEPT_DICTIONARY_SNAPSHOT_RUNTIME_PROPERTY} runtime property is true, in
+ * which case the snapshot is built in the background at startup.
+ * <p>
+ * Saved and purged concepts are reloaded into a new snapshot the next time it is asked for, once
+ * their transaction has completed, so that uncommitted changes are never served to other threads.
+ * They are read in a transaction of their own, one which started before the changes were committed
+ * may not see them. The thread making the changes gets a private snapshot including them in the
+ * meantime. Changes to
+ * concept sources and reference terms, which may affect the mappings of any concept, have the whole
+ * snapshot rebuilt instead.
+ *
+ * @since 2.8.0
+ */
+public class ConceptDictionarySnapshotCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ConceptDictionarySnapshotCache.class);
+
+	/**
+	 * The name concept changes are published under to the other nodes
+	 *
+	 * @see CacheInvalidationBus
+	 */
+	public static final String CACHE_NAME = "conceptDictionarySnapshot";
+
+	private final AtomicReference<ConceptDictionarySnapshot> snapshot = new AtomicReference<>();
+
+	/**
+	 * Ids of the concepts changed since the current snapshot was built
+	 */
+	private final Set<Integer> staleConceptIds = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Incremented whenever the whole snapshot must be rebuilt, so that a snapshot loaded before such
+	 * a change isn't kept after it
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	private final AtomicBoolean building = new AtomicBoolean();
+
+	private ConceptDAO dao;
+
+	private TransactionTemplate transactionTemplate;
+
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	private volatile boolean enabled = false;
+
+	public void setConceptDAO(ConceptDAO dao) {
+		this.dao = dao;
+	}
+
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * @param cacheInvalidationBus the bus used to tell other nodes about concept changes
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+		cacheInvalidationBus.addHandler(CACHE_NAME, this::changedOnOtherNode);
+	}
+
+	/**
+	 * Enables the snapshot and starts building it in the background if the runtime properties ask for
+	 * it
+	 *
+	 * @param props the runtime properties
+	 */
+	public void startup(Properties props) {
+		if (!Boolean.parseBoolean(props.getProperty(OpenmrsConstants.CONCEPT_DICTIONARY_SNAPSHOT_RUNTIME_PROPERTY))) {
+			return;
+		}
+		setEnabled(true);
+		Thread thread = new Thread(this::buildInSession, "OpenMRS-ConceptDictionarySnapshot");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Disables the snapshot and releases its memory
+	 */
+	public void shutdown() {
+		setEnabled(false);
+	}
+
+	/**
+	 * @return true if the snapshot is kept
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled whether the snapshot is kept, it is built the next time it is asked for
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		clear();
+	}
+
+	/**
+	 * Gets the current snapshot, building it or reloading the concepts changed since it was built if
+	 * needed. It must be called within a transaction.
+	 *
+	 * @return the snapshot or null if it is disabled or being built by another thread
+	 */
+	@SuppressWarnings("unchecked")
+	public ConceptDictionarySnapshot getSnapshot() {
+		if (!enabled) {
+			return null;
+		}
+		ConceptDictionarySnapshot current = refresh();
+		if (current == null) {
+			return null;
+		}
+		Set<Integer> inFlight = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+		if (inFlight != null) {
+			// this thread's own changes aren't committed yet, so the snapshot including them is not kept
+			current = current.withConcepts(inFlight, dao.getConceptDictionaryEntries(inFlight));
+		}
+		return current;
+	}
+
+	/**
+	 * Removes the snapshot so that it is rebuilt the next time it is asked for
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		snapshot.set(null);
+		staleConceptIds.clear();
+	}
+
+	/**
+	 * Has the given concept reloaded once the current transaction completes
+	 *
+	 * @param conceptId the id of the saved or purged concept
+	 */
+	@SuppressWarnings("unchecked")
+	public void conceptChanged(Integer conceptId) {
+		if (!enabled || conceptId == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			Set<Integer> inFlight = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+			if (inFlight == null) {
+				Set<Integer> conceptIds = new HashSet<>();
+				TransactionSynchronizationManager.bindResource(this, conceptIds);
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+					@Override
+					public void afterCompletion(int status) {
+						TransactionSynchronizationManager.unbindResourceIfPossible(ConceptDictionarySnapshotCache.this);
+						staleConceptIds.addAll(conceptIds);
+					}
+				});
+				inFlight = conceptIds;
+			}
+			inFlight.add(conceptId);
+		} else {
+			staleConceptIds.add(conceptId);
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, conceptId);
+		}
+	}
+
+	/**
+	 * Has the whole snapshot rebuilt, now and again once the current transaction completes
+	 */
+	public void dictionaryChanged() {
+		if (!enabled) {
+			return;
+		}
+		clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					clear();
+				}
+			});
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, null);
+		}
+	}
+
+	private ConceptDictionarySnapshot refresh() {
+		ConceptDictionarySnapshot current = snapshot.get();
+		if (current == null) {
+			return build();
+		}
+		if (!staleConceptIds.isEmpty()) {
+			Set<Integer> conceptIds = new HashSet<>(staleConceptIds);
+			// removed before they are read, so that the concepts changed again from now on are reloaded again
+			staleConceptIds.removeAll(conceptIds);
+			ConceptDictionarySnapshot previous = current;
+			boolean installed = false;
+			try {
+				current = previous.withConcepts(conceptIds, read(conceptIds));
+				// the whole snapshot may have been cleared or another thread's reload installed in the meantime
+				installed = snapshot.compareAndSet(previous, current);
+			}
+			finally {
+				if (!installed) {
+					staleConceptIds.addAll(conceptIds);
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Builds the whole snapshot unless another thread is already building it
+	 *
+	 * @return the snapshot or null if another thread is building it
+	 */
+	private ConceptDictionarySnapshot build() {
+		if (!building.compareAndSet(false, true)) {
+			return null;
+		}
+		try {
+			long expectedGeneration = generation.get();
+			Set<Integer> conceptIds = new HashSet<>(staleConceptIds);
+			staleConceptIds.removeAll(conceptIds);
+			long start = System.currentTimeMillis();
+			ConceptDictionarySnapshot built;
+			try {
+				built = ConceptDictionarySnapshot.of(read(null));
+			}
+			catch (RuntimeException e) {
+				staleConceptIds.addAll(conceptIds);
+				throw e;
+			}
+			if (generation.get() == expectedGeneration) {
+				snapshot.compareAndSet(null, built);
+			}
+			log.info("Built the concept dictionary snapshot of {} concepts in {} ms", built.size(),
+			    System.currentTimeMillis() - start);
+			return built;
+		}
+		finally {
+			building.set(false);
+		}
+	}
+
+	/**
+	 * Reads the given concepts in a transaction of their own, which sees the changes committed before
+	 * it started
+	 *
+	 * @param conceptIds the ids of the concepts, null for all of them
+	 * @return the entries of the concepts
+	 */
+	private Collection<ConceptEntry> read(Collection<Integer> conceptIds) {
+		return transactionTemplate.execute(status -> dao.getConceptDictionaryEntries(conceptIds));
+	}
+
+	private void buildInSession() {
+		try {
+			Context.openSession();
+			getSnapshot();
+		}
+		catch (Exception e) {
+			log.warn("Failed to build the concept dictionary snapshot, it will be built when first used", e);
+		}
+		finally {
+			Context.closeSession();
+		}
+	}
+
+	private void changedOnOtherNode(String conceptId) {
+		if (conceptId == null) {
+			clear();
+		} else {
+			staleConceptIds.add(Integer.valueOf(conceptId));
+		}
+	}
+}
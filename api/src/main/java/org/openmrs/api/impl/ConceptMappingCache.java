@@ -0,0 +1,384 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.ConceptDictionarySnapshot.MappingEntry;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.openmrs.api.db.ConceptDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the cache of {@link ConceptServiceImpl#getConceptIdsByMapping(String, String, boolean)}.
+ * Its entries are keyed by the lower cased code and source, see {@link #getKey(String, String, boolean)},
+ * so that saving a concept or reference term only evicts the entries of the codes and sources it was
+ * and is mapped to, instead of the whole cache.
+ * <p>
+ * The cache is sized at startup to hold an entry per concept mapping.
+ *
+ * @since 2.8.0
+ */
+public class ConceptMappingCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ConceptMappingCache.class);
+
+	public static final String CACHE_NAME = "conceptIdsByMapping";
+
+	private CacheManager cacheManager;
+
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	private ConceptDAO dao;
+
+	private TransactionTemplate transactionTemplate;
+
+	private volatile ConceptIdIndex conceptIdIndex;
+
+	/**
+	 * @param cacheManager the manager of the node local caches, it must not publish evictions itself
+	 */
+	public void setCacheManager(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	/**
+	 * @param cacheInvalidationBus the bus used to tell other nodes about evicted entries
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+	}
+
+	public void setConceptDAO(ConceptDAO dao) {
+		this.dao = dao;
+	}
+
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	/**
+	 * Gets the key of the cached concept ids of a mapping. Codes and sources are compared ignoring
+	 * case by the database, so they are lower cased to share the entry between the spellings.
+	 *
+	 * @param code the code of the reference term
+	 * @param sourceName the name or hl7 code of the source
+	 * @param includeRetired whether retired concepts are included
+	 * @return the cache key
+	 */
+	public static Object getKey(String code, String sourceName, boolean includeRetired) {
+		return new SimpleKey(StringUtils.lowerCase(code), StringUtils.lowerCase(sourceName), includeRetired);
+	}
+
+	/**
+	 * Grows the cache to hold an entry per concept mapping if it is configured smaller
+	 */
+	public void startup() {
+		Ehcache ehcache = getEhcache();
+		if (ehcache == null) {
+			return;
+		}
+		long mappingCount = transactionTemplate.execute(status -> dao.getConceptMappingCount());
+		CacheConfiguration configuration = ehcache.getCacheConfiguration();
+		if (mappingCount > configuration.getMaxEntriesLocalHeap()) {
+			configuration.setMaxEntriesLocalHeap(mappingCount);
+			log.info("Sized the {} cache for {} concept mappings", CACHE_NAME, mappingCount);
+		}
+	}
+
+	/**
+	 * Gets the mappings of a concept as stored before it is saved, to be passed to
+	 * {@link #conceptChanged(Concept, Collection)}
+	 *
+	 * @param concept the concept about to be saved or purged
+	 * @return the stored mappings of the concept
+	 */
+	public List<MappingEntry> getStoredMappings(Concept concept) {
+		if (concept.getConceptId() == null || getCache() == null) {
+			return Collections.emptyList();
+		}
+		return dao.getStoredConceptMappings(concept.getConceptId());
+	}
+
+	/**
+	 * Gets the code of a reference term as stored before it is saved, to be passed to
+	 * {@link #referenceTermChanged(ConceptReferenceTerm, MappingEntry)}
+	 *
+	 * @param term the reference term about to be saved or purged
+	 * @return the stored code of the term or null if it is new
+	 */
+	public MappingEntry getStoredCode(ConceptReferenceTerm term) {
+		if (term.getConceptReferenceTermId() == null || getCache() == null) {
+			return null;
+		}
+		return dao.getStoredConceptReferenceTermCode(term.getConceptReferenceTermId());
+	}
+
+	/**
+	 * Evicts the entries of the old and new mappings of a saved or purged concept, as well as any
+	 * other entry listing it
+	 *
+	 * @param concept the saved or purged concept
+	 * @param storedMappings the mappings of the concept before it was saved
+	 */
+	public void conceptChanged(Concept concept, Collection<MappingEntry> storedMappings) {
+		Cache cache = getCache();
+		if (cache == null) {
+			return;
+		}
+		Set<Object> keys = new HashSet<>();
+		for (MappingEntry mapping : storedMappings) {
+			addKeys(keys, mapping.getCode(), mapping.getSourceName(), mapping.getSourceHl7Code());
+		}
+		for (ConceptMap conceptMap : concept.getConceptMappings()) {
+			addKeys(keys, conceptMap.getConceptReferenceTerm());
+		}
+		// the mappings may have been changed and flushed earlier in the transaction
+		ConceptIdIndex index = getConceptIdIndex();
+		if (index != null && concept.getConceptId() != null) {
+			keys.addAll(index.getKeys(concept.getConceptId()));
+		}
+		evict(cache, keys);
+	}
+
+	/**
+	 * Evicts the entries of the old and new code of a saved or purged reference term
+	 *
+	 * @param term the saved or purged reference term
+	 * @param storedCode the code of the term before it was saved
+	 */
+	public void referenceTermChanged(ConceptReferenceTerm term, MappingEntry storedCode) {
+		Cache cache = getCache();
+		if (cache == null) {
+			return;
+		}
+		Set<Object> keys = new HashSet<>();
+		if (storedCode != null) {
+			addKeys(keys, storedCode.getCode(), storedCode.getSourceName(), storedCode.getSourceHl7Code());
+		}
+		addKeys(keys, term);
+		evict(cache, keys);
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHitCount() {
+		Ehcache ehcache = getEhcache();
+		return ehcache == null ? 0 : ehcache.getStatistics().cacheHitCount();
+	}
+
+	/**
+	 * @return the number of lookups which had to query the database
+	 */
+	public long getMissCount() {
+		Ehcache ehcache = getEhcache();
+		return ehcache == null ? 0 : ehcache.getStatistics().cacheMissCount();
+	}
+
+	/**
+	 * @return the share of lookups answered from the cache, from 0 to 1
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * @return the number of cached lookups
+	 */
+	public int getSize() {
+		Ehcache ehcache = getEhcache();
+		return ehcache == null ? 0 : ehcache.getSize();
+	}
+
+	private void addKeys(Set<Object> keys, ConceptReferenceTerm term) {
+		if (term != null) {
+			ConceptSource source = term.getConceptSource();
+			addKeys(keys, term.getCode(), source == null ? null : source.getName(),
+			    source == null ? null : source.getHl7Code());
+		}
+	}
+
+	private void addKeys(Set<Object> keys, String code, String sourceName, String sourceHl7Code) {
+		if (code == null) {
+			return;
+		}
+		// lookups may name the source by either
+		for (String source : new String[] { sourceName, sourceHl7Code }) {
+			if (source != null) {
+				keys.add(getKey(code, source, true));
+				keys.add(getKey(code, source, false));
+			}
+		}
+	}
+
+	private void evict(Cache cache, Set<Object> keys) {
+		for (Object key : keys) {
+			cache.evict(key);
+			if (cacheInvalidationBus != null) {
+				cacheInvalidationBus.publish(CACHE_NAME, key);
+			}
+		}
+		if (!keys.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+			// other threads may have cached the stored mappings again before the transaction completed
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					keys.forEach(cache::evict);
+				}
+			});
+		}
+	}
+
+	private ConceptIdIndex getConceptIdIndex() {
+		Ehcache ehcache = getEhcache();
+		if (ehcache == null) {
+			return null;
+		}
+		ConceptIdIndex index = conceptIdIndex;
+		if (index == null || index.ehcache != ehcache) {
+			synchronized (this) {
+				index = conceptIdIndex;
+				if (index == null || index.ehcache != ehcache) {
+					index = ConceptIdIndex.register(ehcache);
+					conceptIdIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	private Cache getCache() {
+		return cacheManager == null ? null : cacheManager.getCache(CACHE_NAME);
+	}
+
+	private Ehcache getEhcache() {
+		Cache cache = getCache();
+		return cache != null && cache.getNativeCache() instanceof Ehcache ? (Ehcache) cache.getNativeCache() : null;
+	}
+
+	/**
+	 * Maps the concept ids to the keys of the entries listing them, so that saving a concept finds the
+	 * entries of mappings changed earlier in the transaction without scanning the cache. Updated
+	 * entries keep the keys of the ids they no longer list, which only costs an extra eviction.
+	 */
+	private static class ConceptIdIndex extends CacheEventListenerAdapter {
+
+		private final Ehcache ehcache;
+
+		private final Map<Integer, Set<Object>> keys = new ConcurrentHashMap<>();
+
+		private ConceptIdIndex(Ehcache ehcache) {
+			this.ehcache = ehcache;
+		}
+
+		static ConceptIdIndex register(Ehcache ehcache) {
+			ConceptIdIndex index = new ConceptIdIndex(ehcache);
+			ehcache.getCacheEventNotificationService().registerListener(index);
+			for (Object key : ehcache.getKeys()) {
+				Element element = ehcache.getQuiet(key);
+				if (element != null) {
+					index.add(element);
+				}
+			}
+			return index;
+		}
+
+		Set<Object> getKeys(Integer conceptId) {
+			Set<Object> conceptKeys = keys.get(conceptId);
+			return conceptKeys == null ? Collections.emptySet() : conceptKeys;
+		}
+
+		@Override
+		public void notifyElementPut(Ehcache ehcache, Element element) throws CacheException {
+			add(element);
+		}
+
+		@Override
+		public void notifyElementUpdated(Ehcache ehcache, Element element) throws CacheException {
+			add(element);
+		}
+
+		@Override
+		public void notifyElementRemoved(Ehcache ehcache, Element element) throws CacheException {
+			remove(element);
+		}
+
+		@Override
+		public void notifyElementExpired(Ehcache ehcache, Element element) {
+			remove(element);
+		}
+
+		@Override
+		public void notifyElementEvicted(Ehcache ehcache, Element element) {
+			remove(element);
+		}
+
+		@Override
+		public void notifyRemoveAll(Ehcache ehcache) {
+			keys.clear();
+		}
+
+		private void add(Element element) {
+			if (element.getObjectValue() instanceof Collection) {
+				for (Object conceptId : (Collection<?>) element.getObjectValue()) {
+					if (conceptId instanceof Integer) {
+						keys.computeIfAbsent((Integer) conceptId, id -> ConcurrentHashMap.newKeySet())
+						        .add(element.getObjectKey());
+					}
+				}
+			}
+		}
+
+		private void remove(Element element) {
+			Object key = element.getObjectKey();
+			if (!(element.getObjectValue() instanceof Collection) || ehcache.isKeyInCache(key)) {
+				// the key may have been put again by another thread before this notification
+				return;
+			}
+			for (Object conceptId : (Collection<?>) element.getObjectValue()) {
+				if (conceptId instanceof Integer) {
+					keys.computeIfPresent((Integer) conceptId, (id, conceptKeys) -> {
+						conceptKeys.remove(key);
+						return conceptKeys.isEmpty() ? null : conceptKeys;
+					});
+				}
+			}
+		}
+	}
+}
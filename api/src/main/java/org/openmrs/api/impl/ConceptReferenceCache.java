@@ -0,0 +1,299 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.api.cache.CacheInvalidationBus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers which concept {@link ConceptServiceImpl#getConceptByReference(String)} found for a
+ * reference, per locale since references may be names. References which didn't match any concept are
+ * only remembered for {@link #NEGATIVE_TTL_MILLIS}.
+ * <p>
+ * Saving or purging a concept forgets the references to it, the references it now matches and all
+ * misses, now and again once the transaction completes. Changes to reference terms and sources, which
+ * may affect any mapping, forget everything.
+ *
+ * @since 2.8.0
+ */
+public class ConceptReferenceCache {
+
+	/**
+	 * The name changes are published under to the other nodes, which forget everything
+	 *
+	 * @see CacheInvalidationBus
+	 */
+	public static final String CACHE_NAME = "conceptByReference";
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * Returned by {@link #get(String, Locale)} for references known not to match any concept
+	 */
+	public static final int NOT_FOUND = -1;
+
+	static final long NEGATIVE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented on every invalidation, so that a concept looked up before it isn't remembered after it
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	private int maxSize = DEFAULT_MAX_SIZE;
+
+	/**
+	 * @param cacheInvalidationBus the bus used to tell other nodes about concept changes
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+		cacheInvalidationBus.addHandler(CACHE_NAME, key -> clear());
+	}
+
+	/**
+	 * @param maxSize the number of references to remember at most
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the current generation, to be passed to {@link #put(String, Locale, Integer, long)}
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * @param reference the concept reference
+	 * @param locale the locale names are looked up in
+	 * @return the id of the concept found for the reference, {@link #NOT_FOUND} if none was found or
+	 *         null if the reference isn't remembered
+	 */
+	public Integer get(String reference, Locale locale) {
+		Entry entry = entries.get(new Key(reference, locale));
+		if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.conceptId == null ? NOT_FOUND : entry.conceptId;
+	}
+
+	/**
+	 * Remembers the concept found for a reference, unless it was invalidated since the lookup started
+	 *
+	 * @param reference the concept reference
+	 * @param locale the locale names are looked up in
+	 * @param conceptId the id of the found concept or null if none was found
+	 * @param lookupGeneration the generation when the lookup started
+	 */
+	public void put(String reference, Locale locale, Integer conceptId, long lookupGeneration) {
+		if (entries.size() >= maxSize) {
+			evict();
+		}
+		long expiresAt = conceptId == null ? System.currentTimeMillis() + NEGATIVE_TTL_MILLIS : Long.MAX_VALUE;
+		entries.put(new Key(reference, locale), new Entry(conceptId, expiresAt));
+		if (generation.get() != lookupGeneration) {
+			entries.remove(new Key(reference, locale));
+		}
+	}
+
+	/**
+	 * Forgets the references to the given concept, the references it matches and all misses, now and
+	 * again once the current transaction completes
+	 *
+	 * @param concept the saved or purged concept
+	 */
+	public void conceptChanged(Concept concept) {
+		Integer conceptId = concept.getConceptId();
+		Set<String> references = getReferences(concept);
+		Predicate<Map.Entry<Key, Entry>> affected = e -> e.getValue().conceptId == null
+		        || e.getValue().conceptId.equals(conceptId) || references.contains(e.getKey().reference.toLowerCase());
+		invalidate(affected);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					invalidate(affected);
+				}
+			});
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, conceptId);
+		}
+	}
+
+	/**
+	 * Forgets everything, now and again once the current transaction completes
+	 */
+	public void dictionaryChanged() {
+		clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					clear();
+				}
+			});
+		}
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.publish(CACHE_NAME, null);
+		}
+	}
+
+	/**
+	 * Forgets every reference
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups of references which weren't remembered
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of remembered references, including the expired misses not evicted yet
+	 */
+	public int getSize() {
+		return entries.size();
+	}
+
+	private void invalidate(Predicate<Map.Entry<Key, Entry>> affected) {
+		generation.incrementAndGet();
+		entries.entrySet().removeIf(affected);
+	}
+
+	/**
+	 * Drops the expired misses and, if that isn't enough, arbitrary entries down to three quarters of
+	 * the maximum size, so that evicting isn't needed again on the next put
+	 */
+	private void evict() {
+		long now = System.currentTimeMillis();
+		entries.values().removeIf(entry -> entry.isExpired(now));
+		int target = maxSize * 3 / 4;
+		Iterator<Key> keys = entries.keySet().iterator();
+		while (entries.size() > target && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+	/**
+	 * Gets the lower cased references the given concept matches, except static constants
+	 */
+	private static Set<String> getReferences(Concept concept) {
+		Set<String> references = new HashSet<>();
+		references.add(String.valueOf(concept.getConceptId()));
+		if (concept.getUuid() != null) {
+			references.add(concept.getUuid().toLowerCase());
+		}
+		for (ConceptName name : concept.getNames()) {
+			if (name.getName() != null) {
+				references.add(name.getName().toLowerCase());
+			}
+		}
+		for (ConceptMap conceptMap : concept.getConceptMappings()) {
+			ConceptReferenceTerm term = conceptMap.getConceptReferenceTerm();
+			if (term != null && term.getCode() != null && term.getConceptSource() != null) {
+				String code = ":" + term.getCode().toLowerCase();
+				if (term.getConceptSource().getName() != null) {
+					references.add(term.getConceptSource().getName().toLowerCase() + code);
+				}
+				if (term.getConceptSource().getHl7Code() != null) {
+					references.add(term.getConceptSource().getHl7Code().toLowerCase() + code);
+				}
+			}
+		}
+		return references;
+	}
+
+	private static final class Key {
+
+		private final String reference;
+
+		private final Locale locale;
+
+		private Key(String reference, Locale locale) {
+			this.reference = reference;
+			this.locale = locale;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return reference.equals(other.reference) && Objects.equals(locale, other.locale);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(reference, locale);
+		}
+	}
+
+	private static final class Entry {
+
+		private final Integer conceptId;
+
+		private final long expiresAt;
+
+		private Entry(Integer conceptId, long expiresAt) {
+			this.conceptId = conceptId;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return now > expiresAt;
+		}
+	}
+}
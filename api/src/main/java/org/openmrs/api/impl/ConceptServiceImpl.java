@@ -18,6 +18,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,6 +57,8 @@ import org.openmrs.DrugIngredient;
 import org.openmrs.Obs;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.api.ConceptDictionarySnapshot;
+import org.openmrs.api.ConceptDictionarySnapshot.MappingEntry;
 import org.openmrs.api.ConceptInUseException;
 import org.openmrs.api.ConceptNameInUseException;
 import org.openmrs.api.ConceptService;
@@ -85,6 +89,12 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	
 	private ConceptDAO dao;
 	
+	private ConceptDictionarySnapshotCache conceptDictionarySnapshotCache;
+	
+	private ConceptMappingCache conceptMappingCache;
+	
+	private ConceptReferenceCache conceptReferenceCache;
+	
 	private static Concept trueConcept;
 	
 	private static Concept falseConcept;
@@ -93,7 +103,11 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 
 	private static final String ERROR_MESSAGE = "Error generated";
 
-	private static final String CONCEPT_IDS_BY_MAPPING_CACHE_NAME = "conceptIdsByMapping";
+	private static final String CONCEPT_IDS_BY_MAPPING_CACHE_NAME = ConceptMappingCache.CACHE_NAME;
+
+	private static final String CONCEPT_STOP_WORDS_CACHE_NAME = "conceptStopWords";
+
+	private static final int DEFAULT_SUGGESTION_LIMIT = 10;
 
 	/**
 	 * @see org.openmrs.api.ConceptService#setConceptDAO(org.openmrs.api.db.ConceptDAO)
@@ -103,6 +117,30 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		this.dao = dao;
 	}
 
+	/**
+	 * @param conceptDictionarySnapshotCache holds the in-memory snapshot of the concept dictionary
+	 * @since 2.8.0
+	 */
+	public void setConceptDictionarySnapshotCache(ConceptDictionarySnapshotCache conceptDictionarySnapshotCache) {
+		this.conceptDictionarySnapshotCache = conceptDictionarySnapshotCache;
+	}
+	
+	/**
+	 * @param conceptMappingCache evicts the cached concept ids of the mappings affected by changes
+	 * @since 2.8.0
+	 */
+	public void setConceptMappingCache(ConceptMappingCache conceptMappingCache) {
+		this.conceptMappingCache = conceptMappingCache;
+	}
+	
+	/**
+	 * @param conceptReferenceCache remembers the concepts found by reference
+	 * @since 2.8.0
+	 */
+	public void setConceptReferenceCache(ConceptReferenceCache conceptReferenceCache) {
+		this.conceptReferenceCache = conceptReferenceCache;
+	}
+
 	/**
 	 * @see org.openmrs.api.ConceptService#saveConcept(org.openmrs.Concept)
 	 * <strong>Should</strong> return the concept with new conceptID if creating new concept
@@ -113,8 +151,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
      * <strong>Should</strong> force set flag if set members exist
 	 */
 	@Override
-	@CacheEvict(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME, allEntries = true)
 	public Concept saveConcept(Concept concept) throws APIException {
+		List<MappingEntry> storedMappings = getStoredMappings(concept);
 		ensureConceptMapTypeIsSet(concept);
 
 		CustomDatatypeUtil.saveAttributesIfNecessary(concept);
@@ -183,7 +221,15 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			concept.setSet(true);
 		}
 
-		return dao.saveConcept(concept);
+		Concept savedConcept = dao.saveConcept(concept);
+		conceptChanged(savedConcept.getConceptId());
+		if (conceptMappingCache != null) {
+			conceptMappingCache.conceptChanged(savedConcept, storedMappings);
+		}
+		if (conceptReferenceCache != null) {
+			conceptReferenceCache.conceptChanged(savedConcept);
+		}
+		return savedConcept;
 	}
 
 	private void ensureConceptMapTypeIsSet(Concept concept) {
@@ -279,7 +325,16 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			}
 		}
 		
+		Integer conceptId = concept.getConceptId();
+		List<MappingEntry> storedMappings = getStoredMappings(concept);
 		dao.purgeConcept(concept);
+		if (conceptMappingCache != null) {
+			conceptMappingCache.conceptChanged(concept, storedMappings);
+		}
+		if (conceptReferenceCache != null) {
+			conceptReferenceCache.conceptChanged(concept);
+		}
+		conceptChanged(conceptId);
 	}
 	
 	/**
@@ -337,6 +392,15 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	public Concept getConcept(Integer conceptId) throws APIException {
 		return dao.getConcept(conceptId);
 	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConcepts(java.util.Collection)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Concept> getConcepts(Collection<Integer> conceptIds) throws APIException {
+		return dao.getConcepts(conceptIds);
+	}
 
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptByReference(String conceptRef)
@@ -347,6 +411,118 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		if (StringUtils.isBlank(conceptRef)) {
 			return null;
 		}
+		if (conceptReferenceCache == null) {
+			return findConceptByReference(conceptRef);
+		}
+		Locale locale = Context.getLocale();
+		long generation = conceptReferenceCache.getGeneration();
+		Integer conceptId = conceptReferenceCache.get(conceptRef, locale);
+		if (conceptId != null) {
+			if (conceptId == ConceptReferenceCache.NOT_FOUND) {
+				return null;
+			}
+			Concept concept = Context.getConceptService().getConcept(conceptId);
+			if (concept != null) {
+				return concept;
+			}
+		}
+		Concept concept = findConceptByReference(conceptRef);
+		conceptReferenceCache.put(conceptRef, locale, concept == null ? null : concept.getConceptId(), generation);
+		return concept;
+	}
+
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptsByReferences(Collection)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Concept> getConceptsByReferences(Collection<String> conceptRefs) {
+		Locale locale = Context.getLocale();
+		long generation = conceptReferenceCache == null ? 0 : conceptReferenceCache.getGeneration();
+		Map<String, Concept> found = new HashMap<>();
+		Map<String, String[]> mappingRefs = new LinkedHashMap<>();
+		Set<String> refs = new LinkedHashSet<>();
+		for (String conceptRef : conceptRefs) {
+			if (StringUtils.isNotBlank(conceptRef)) {
+				refs.add(conceptRef);
+			}
+		}
+		for (String conceptRef : refs) {
+			Integer conceptId = conceptReferenceCache == null ? null : conceptReferenceCache.get(conceptRef, locale);
+			Concept concept = conceptId == null || conceptId == ConceptReferenceCache.NOT_FOUND ? null
+			        : Context.getConceptService().getConcept(conceptId);
+			int idx = conceptRef.indexOf(":");
+			if (concept != null) {
+				found.put(conceptRef, concept);
+			} else if (conceptId == null && !isValidUuidFormat(conceptRef) && idx >= 0 && idx < conceptRef.length() - 1) {
+				mappingRefs.put(conceptRef, new String[] { conceptRef.substring(0, idx), conceptRef.substring(idx + 1) });
+			}
+		}
+		
+		// look up all mappings at once, the ambiguous or missing ones are left to getConceptByReference
+		if (!mappingRefs.isEmpty()) {
+			Set<String> sources = new HashSet<>();
+			Set<String> codes = new HashSet<>();
+			for (String[] sourceAndCode : mappingRefs.values()) {
+				sources.add(sourceAndCode[0]);
+				codes.add(sourceAndCode[1]);
+			}
+			List<ConceptMap> conceptMaps = dao.getConceptMappingsByCodes(codes, sources);
+			for (Map.Entry<String, String[]> mappingRef : mappingRefs.entrySet()) {
+				Concept concept = getMappedConcept(conceptMaps, mappingRef.getValue()[0], mappingRef.getValue()[1]);
+				if (concept != null) {
+					found.put(mappingRef.getKey(), concept);
+					if (conceptReferenceCache != null) {
+						conceptReferenceCache.put(mappingRef.getKey(), locale, concept.getConceptId(), generation);
+					}
+				}
+			}
+		}
+		
+		Map<String, Concept> concepts = new LinkedHashMap<>();
+		for (String conceptRef : refs) {
+			Concept concept = found.containsKey(conceptRef) ? found.get(conceptRef) : getConceptByReference(conceptRef);
+			if (concept != null) {
+				concepts.put(conceptRef, concept);
+			}
+		}
+		return concepts;
+	}
+
+	/**
+	 * Gets the concept mapped to the given code in the given source among the given mappings, as
+	 * {@link #getConceptByMapping(String, String)} would, or null if there is none or more than one
+	 * non-retired concept
+	 */
+	private Concept getMappedConcept(List<ConceptMap> conceptMaps, String sourceName, String code) {
+		Concept retiredConcept = null;
+		Concept concept = null;
+		for (ConceptMap conceptMap : conceptMaps) {
+			ConceptReferenceTerm term = conceptMap.getConceptReferenceTerm();
+			ConceptSource source = term.getConceptSource();
+			if (!code.equalsIgnoreCase(term.getCode())
+			        || !(sourceName.equalsIgnoreCase(source.getName()) || sourceName.equalsIgnoreCase(source.getHl7Code()))) {
+				continue;
+			}
+			Concept mappedConcept = conceptMap.getConcept();
+			if (mappedConcept.getRetired()) {
+				retiredConcept = retiredConcept == null ? mappedConcept : retiredConcept;
+			} else if (concept == null || concept.equals(mappedConcept)) {
+				concept = mappedConcept;
+			} else {
+				return null;
+			}
+		}
+		return concept != null ? concept : retiredConcept;
+	}
+
+	/**
+	 * Tries each form of concept reference in turn
+	 * 
+	 * @param conceptRef the concept reference
+	 * @return the found concept or null
+	 */
+	private Concept findConceptByReference(String conceptRef) {
 		Concept cpt = null;
 		//check if input is a valid Uuid
 		if (isValidUuidFormat(conceptRef)) {
@@ -735,10 +911,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByConceptSet(Concept c) {
-		Set<Integer> alreadySeen = new HashSet<>();
-		List<Concept> ret = new ArrayList<>();
-		explodeConceptSetHelper(c, ret, alreadySeen);
-		return ret;
+		return dao.getConceptsByConceptSet(c);
 	}
 	
 	/**
@@ -754,6 +927,15 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getSetsContainingConcept(concept);
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#isConceptInSet(org.openmrs.Concept, org.openmrs.Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public boolean isConceptInSet(Concept concept, Concept set) {
+		return dao.isConceptInSet(concept, set);
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptProposal(java.lang.Integer)
 	 */
@@ -943,30 +1125,6 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getMaxConceptId();
 	}
 	
-	/**
-	 * Utility method used by getConceptsInSet(Concept concept)
-	 * 
-	 * @param concept
-	 * @param ret
-	 * @param alreadySeen
-	 */
-	private void explodeConceptSetHelper(Concept concept, Collection<Concept> ret, Collection<Integer> alreadySeen) {
-		if (alreadySeen.contains(concept.getConceptId())) {
-			return;
-		}
-		alreadySeen.add(concept.getConceptId());
-		List<ConceptSet> cs = getConceptSetsByConcept(concept);
-		for (ConceptSet set : cs) {
-			Concept c = set.getConcept();
-			if (c.getSet()) {
-				ret.add(c);
-				explodeConceptSetHelper(c, ret, alreadySeen);
-			} else {
-				ret.add(c);
-			}
-		}
-	}
-	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptNameTagByName(java.lang.String)
 	 */
@@ -1009,6 +1167,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@CacheEvict(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME, allEntries = true)
 	public ConceptSource purgeConceptSource(ConceptSource cs) throws APIException {
+		dictionaryChanged();
 		return dao.deleteConceptSource(cs);
 	}
 	
@@ -1027,6 +1186,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@CacheEvict(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME, allEntries = true)
 	public ConceptSource saveConceptSource(ConceptSource conceptSource) throws APIException {
+		dictionaryChanged();
 		return dao.saveConceptSource(conceptSource);
 	}
 	
@@ -1230,7 +1390,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	@Transactional(readOnly = true)
-	@Cacheable(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME)
+	@Cacheable(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME,
+	        key = "T(org.openmrs.api.impl.ConceptMappingCache).getKey(#code, #sourceName, #includeRetired)")
 	public List<Integer> getConceptIdsByMapping(String code, String sourceName, boolean includeRetired) throws APIException {
 		return dao.getConceptIdsByMapping(code, sourceName, includeRetired);
 	}
@@ -1479,14 +1640,16 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	@Transactional(readOnly = true)
+	@Cacheable(value = CONCEPT_STOP_WORDS_CACHE_NAME, condition = "#locale != null")
 	public List<String> getConceptStopWords(Locale locale) {
-		return dao.getConceptStopWords(locale);
+		return Collections.unmodifiableList(dao.getConceptStopWords(locale));
 	}
 	
 	/**
 	 * @see org.openmrs.api.ConceptService#saveConceptStopWord(org.openmrs.ConceptStopWord)
 	 */
 	@Override
+	@CacheEvict(value = CONCEPT_STOP_WORDS_CACHE_NAME, allEntries = true)
 	public ConceptStopWord saveConceptStopWord(ConceptStopWord conceptStopWord) throws APIException {
 		try {
 			return dao.saveConceptStopWord(conceptStopWord);
@@ -1503,6 +1666,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#deleteConceptStopWord(Integer)
 	 */
 	@Override
+	@CacheEvict(value = CONCEPT_STOP_WORDS_CACHE_NAME, allEntries = true)
 	public void deleteConceptStopWord(Integer conceptStopWordId) throws APIException {
 		try {
 			dao.deleteConceptStopWord(conceptStopWordId);
@@ -1545,6 +1709,21 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		
 	}
 	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<ConceptSearchResult> suggestConcepts(String prefix, List<Locale> locales, Integer limit)
+	        throws APIException {
+		if (StringUtils.isBlank(prefix)) {
+			return new ArrayList<>();
+		}
+		List<Locale> searchLocales = locales == null || locales.isEmpty() ? Collections.singletonList(Context.getLocale())
+		        : locales;
+		return dao.suggestConcepts(prefix, searchLocales, limit == null ? DEFAULT_SUGGESTION_LIMIT : limit);
+	}
+	
 	/**
 	 * @see ConceptService#updateConceptIndex(Concept)
 	 */
@@ -1797,9 +1976,14 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#saveConceptReferenceTerm(org.openmrs.ConceptReferenceTerm)
 	 */
 	@Override
-	@CacheEvict(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME, allEntries = true)
 	public ConceptReferenceTerm saveConceptReferenceTerm(ConceptReferenceTerm conceptReferenceTerm) throws APIException {
-		return dao.saveConceptReferenceTerm(conceptReferenceTerm);
+		dictionaryChanged();
+		MappingEntry storedCode = getStoredCode(conceptReferenceTerm);
+		ConceptReferenceTerm savedTerm = dao.saveConceptReferenceTerm(conceptReferenceTerm);
+		if (conceptMappingCache != null) {
+			conceptMappingCache.referenceTermChanged(savedTerm, storedCode);
+		}
+		return savedTerm;
 	}
 	
 	/**
@@ -1828,12 +2012,15 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#purgeConceptReferenceTerm(org.openmrs.ConceptReferenceTerm)
 	 */
 	@Override
-	@CacheEvict(value = CONCEPT_IDS_BY_MAPPING_CACHE_NAME, allEntries = true)
 	public void purgeConceptReferenceTerm(ConceptReferenceTerm conceptReferenceTerm) throws APIException {
 		if (dao.isConceptReferenceTermInUse(conceptReferenceTerm)) {
 			throw new APIException("ConceptRefereceTerm.inUse", (Object[]) null);
 		}
+		MappingEntry storedCode = getStoredCode(conceptReferenceTerm);
 		dao.deleteConceptReferenceTerm(conceptReferenceTerm);
+		if (conceptMappingCache != null) {
+			conceptMappingCache.referenceTermChanged(conceptReferenceTerm, storedCode);
+		}
 	}
 	
 	/**
@@ -2134,4 +2321,36 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		}
 		return mappedClasses;
 	}
+
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public ConceptDictionarySnapshot getConceptDictionarySnapshot() {
+		return conceptDictionarySnapshotCache == null ? null : conceptDictionarySnapshotCache.getSnapshot();
+	}
+
+	private void conceptChanged(Integer conceptId) {
+		if (conceptDictionarySnapshotCache != null) {
+			conceptDictionarySnapshotCache.conceptChanged(conceptId);
+		}
+	}
+
+	private void dictionaryChanged() {
+		if (conceptDictionarySnapshotCache != null) {
+			conceptDictionarySnapshotCache.dictionaryChanged();
+		}
+		if (conceptReferenceCache != null) {
+			conceptReferenceCache.dictionaryChanged();
+		}
+	}
+
+	private List<MappingEntry> getStoredMappings(Concept concept) {
+		return conceptMappingCache == null ? Collections.emptyList() : conceptMappingCache.getStoredMappings(concept);
+	}
+
+	private MappingEntry getStoredCode(ConceptReferenceTerm conceptReferenceTerm) {
+		return conceptMappingCache == null ? null : conceptMappingCache.getStoredCode(conceptReferenceTerm);
+	}
 }
@@ -0,0 +1,253 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Node local, read-through cache of global property values used by
+ * {@link AdministrationServiceImpl#getGlobalProperty(String)} so that frequently read properties
+ * don't hit the database on every call. Properties that don't exist are cached too.
+ * <p>
+ * The cache is kept up to date by the global property listener notifications fired when a
+ * property is saved or purged. Since those are fired before the transaction commits, the affected
+ * entry is evicted again once the transaction completes, and nothing is added to the cache while a
+ * change is in flight, so that uncommitted or rolled back values are never served to other threads.
+ * Changes made directly in the database bypass this cache and require a call to {@link #clear()}.
+ *
+ * @since 2.8.0
+ */
+public class GlobalPropertyCache implements GlobalPropertyListener {
+
+	/**
+	 * The name global property changes are published under to the other nodes
+	 *
+	 * @see org.openmrs.api.cache.CacheInvalidationBus
+	 */
+	public static final String CACHE_NAME = "globalProperties";
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented on every eviction so that values loaded before a change aren't cached after it
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Number of changes whose transaction hasn't completed yet
+	 */
+	private final AtomicInteger pendingChanges = new AtomicInteger();
+
+	/**
+	 * Gets the cached entry for the given property, loading it if it isn't cached yet
+	 *
+	 * @param propertyName the name of the global property, case insensitive
+	 * @param loader looks up the global property in the database, may return null
+	 * @return the cached entry, never null
+	 */
+	public Entry get(String propertyName, Function<String, GlobalProperty> loader) {
+		String key = toKey(propertyName);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			return entry;
+		}
+
+		long expectedGeneration = generation.get();
+		entry = new Entry(loader.apply(propertyName));
+		if (pendingChanges.get() == 0) {
+			entries.put(key, entry);
+			if (generation.get() != expectedGeneration) {
+				// a change came in while loading, the value may already be stale
+				entries.remove(key, entry);
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes every cached value
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#globalPropertyChanged(org.openmrs.GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		evictOnCompletion(newValue.getProperty(), newValue.getUuid());
+	}
+
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#globalPropertyDeleted(java.lang.String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		evictOnCompletion(propertyName, null);
+	}
+
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#supportsPropertyName(java.lang.String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return true;
+	}
+
+	private void evictOnCompletion(String propertyName, String uuid) {
+		evict(propertyName, uuid);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			pendingChanges.incrementAndGet();
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					evict(propertyName, uuid);
+					pendingChanges.decrementAndGet();
+				}
+			});
+		}
+	}
+
+	private void evict(String propertyName, String uuid) {
+		generation.incrementAndGet();
+		if (propertyName != null) {
+			entries.remove(toKey(propertyName));
+		}
+		if (uuid != null) {
+			// the property may have been renamed
+			entries.values().removeIf(entry -> uuid.equals(entry.uuid));
+		}
+	}
+
+	private static String toKey(String propertyName) {
+		return propertyName.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The cached state of a single global property along with lazily parsed typed values
+	 */
+	public static final class Entry {
+
+		private static final Object NOT_PARSEABLE = new Object();
+
+		private final boolean exists;
+
+		private final String value;
+
+		private final String viewPrivilege;
+
+		private final String uuid;
+
+		private volatile Object intValue;
+
+		private volatile Object booleanValue;
+
+		private volatile List<String> listValue;
+
+		private Entry(GlobalProperty gp) {
+			exists = gp != null;
+			value = exists ? gp.getPropertyValue() : null;
+			viewPrivilege = exists && gp.getViewPrivilege() != null ? gp.getViewPrivilege().getPrivilege() : null;
+			uuid = exists ? gp.getUuid() : null;
+		}
+
+		/**
+		 * @return true if the global property exists in the database
+		 */
+		public boolean exists() {
+			return exists;
+		}
+
+		/**
+		 * @return the raw value of the global property
+		 */
+		public String getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the name of the privilege required to view the global property, if any
+		 */
+		public String getViewPrivilege() {
+			return viewPrivilege;
+		}
+
+		/**
+		 * @return the value as an integer or null if it is blank or not an integer
+		 */
+		public Integer getIntegerValue() {
+			Object parsed = intValue;
+			if (parsed == null) {
+				try {
+					parsed = Integer.valueOf(StringUtils.trimToEmpty(value));
+				}
+				catch (NumberFormatException e) {
+					parsed = NOT_PARSEABLE;
+				}
+				intValue = parsed;
+			}
+			return parsed == NOT_PARSEABLE ? null : (Integer) parsed;
+		}
+
+		/**
+		 * @return the value as a boolean or null if it is neither "true" nor "false", ignoring case
+		 */
+		public Boolean getBooleanValue() {
+			Object parsed = booleanValue;
+			if (parsed == null) {
+				String trimmed = StringUtils.trimToEmpty(value);
+				if ("true".equalsIgnoreCase(trimmed)) {
+					parsed = Boolean.TRUE;
+				} else if ("false".equalsIgnoreCase(trimmed)) {
+					parsed = Boolean.FALSE;
+				} else {
+					parsed = NOT_PARSEABLE;
+				}
+				booleanValue = parsed;
+			}
+			return parsed == NOT_PARSEABLE ? null : (Boolean) parsed;
+		}
+
+		/**
+		 * @return the trimmed, non blank elements of the comma separated value, never null
+		 */
+		public List<String> getListValue() {
+			List<String> parsed = listValue;
+			if (parsed == null) {
+				List<String> elements = new ArrayList<>();
+				for (String element : StringUtils.split(StringUtils.defaultString(value), ',')) {
+					if (StringUtils.isNotBlank(element)) {
+						elements.add(element.trim());
+					}
+				}
+				parsed = Collections.unmodifiableList(elements);
+				listValue = parsed;
+			}
+			return parsed;
+		}
+	}
+}
@@ -12,6 +12,7 @@ package org.openmrs.api.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -20,6 +21,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.Allergen;
@@ -51,6 +53,7 @@ import org.openmrs.api.MissingRequiredIdentifierException;
 import org.openmrs.api.ObsService;
 import org.openmrs.api.PatientIdentifierException;
 import org.openmrs.api.PatientIdentifierTypeLockedException;
+import org.openmrs.api.PatientSearchStrategy;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.ProgramWorkflowService;
@@ -62,6 +65,8 @@ import org.openmrs.api.db.hibernate.HibernateUtil;
 import org.openmrs.parameter.EncounterSearchCriteria;
 import org.openmrs.parameter.EncounterSearchCriteriaBuilder;
 import org.openmrs.patient.IdentifierValidator;
+import org.openmrs.patient.PatientSimilarity;
+import org.openmrs.patient.impl.DefaultPatientSimilarity;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
 import org.openmrs.person.PersonMergeLogData;
@@ -88,6 +93,8 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	
 	private static final Logger log = LoggerFactory.getLogger(PatientServiceImpl.class);
 	
+	private static final double DEFAULT_PATIENT_DUPLICATE_THRESHOLD = 0.8;
+	
 	private PatientDAO dao;
 	
 	/**
@@ -217,6 +224,15 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		return dao.getPatient(patientId);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getPatients(java.util.Collection)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Patient> getPatients(Collection<Integer> patientIds) throws APIException {
+		return dao.getPatients(patientIds);
+	}
+	
 	@Override
 	@Transactional(readOnly = true)
 	public Patient getPatientOrPromotePerson(Integer patientOrPersonId) {
@@ -538,6 +554,60 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		return dao.getDuplicatePatientsByAttributes(attributes);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getPossibleDuplicatePatients(org.openmrs.Patient)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Patient> getPossibleDuplicatePatients(Patient patient) throws APIException {
+		if (patient == null) {
+			return new ArrayList<>();
+		}
+		List<Patient> candidates = dao.getPatients(dao.getPossibleDuplicatePatientIds(patient));
+		
+		// scored on the calling thread, which has the session and the user context a similarity may need
+		PatientSimilarity similarity = getPatientSimilarity();
+		double threshold = getPatientDuplicateThreshold();
+		double[] scores = IntStream.range(0, candidates.size())
+		        .mapToDouble(i -> similarity.getSimilarity(patient, candidates.get(i))).toArray();
+		
+		return IntStream.range(0, candidates.size()).filter(i -> scores[i] >= threshold).boxed()
+		        .sorted(Comparator.comparingDouble(i -> -scores[i])).map(candidates::get).collect(Collectors.toList());
+	}
+	
+	private PatientSimilarity getPatientSimilarity() {
+		String className = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_PATIENT_DUPLICATE_SIMILARITY, DefaultPatientSimilarity.class.getName());
+		try {
+			return (PatientSimilarity) Context.loadClass(className).newInstance();
+		}
+		catch (ReflectiveOperationException | ClassCastException e) {
+			log.error("Global Property " + OpenmrsConstants.GP_PATIENT_DUPLICATE_SIMILARITY
+			        + " not set to an actual patient similarity class.", e);
+			return new DefaultPatientSimilarity();
+		}
+	}
+	
+	private double getPatientDuplicateThreshold() {
+		String threshold = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_PATIENT_DUPLICATE_THRESHOLD);
+		try {
+			return StringUtils.isBlank(threshold) ? DEFAULT_PATIENT_DUPLICATE_THRESHOLD : Double.parseDouble(threshold);
+		}
+		catch (NumberFormatException e) {
+			log.error("Global Property " + OpenmrsConstants.GP_PATIENT_DUPLICATE_THRESHOLD + " not set to a number.", e);
+			return DEFAULT_PATIENT_DUPLICATE_THRESHOLD;
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#updatePatientBlockingKeys()
+	 */
+	@Override
+	public long updatePatientBlockingKeys() throws APIException {
+		return dao.updatePatientBlockingKeys();
+	}
+	
 	/**
 	 * generate a relationship hash for use in mergePatients; follows the convention:
 	 * [relationshipType][A|B][relativeId]
@@ -1557,7 +1627,7 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			return count;
 		}
 		
-		return OpenmrsUtil.convertToInteger(dao.getCountOfPatients(query));
+		return OpenmrsUtil.convertToInteger(dao.getCountOfPatients(query, false, getPatientSearchStrategy()));
 	}
 	
 	/**
@@ -1571,7 +1641,20 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			return count;
 		}
 		
-		return OpenmrsUtil.convertToInteger(dao.getCountOfPatients(query, includeVoided));
+		return OpenmrsUtil.convertToInteger(dao.getCountOfPatients(query, includeVoided, getPatientSearchStrategy()));
+	}
+	
+	/**
+	 * @see PatientService#getCountOfPatients(String, boolean, PatientSearchStrategy)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Integer getCountOfPatients(String query, boolean includeVoided, PatientSearchStrategy strategy) {
+		if (StringUtils.isBlank(query)) {
+			return 0;
+		}
+		
+		return OpenmrsUtil.convertToInteger(dao.getCountOfPatients(query, includeVoided, strategy));
 	}
 	
 	/**
@@ -1585,7 +1668,7 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			return patients;
 		}
 		
-		return dao.getPatients(query, start, length);
+		return dao.getPatients(query, false, start, length, getPatientSearchStrategy());
 	}
 	
 	/**
@@ -1598,7 +1681,40 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			return Collections.emptyList();
 		}
 		
-		return dao.getPatients(query, includeVoided, start, length);
+		return dao.getPatients(query, includeVoided, start, length, getPatientSearchStrategy());
+	}
+	
+	/**
+	 * @see PatientService#getPatients(String, boolean, Integer, Integer, PatientSearchStrategy)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Patient> getPatients(String query, boolean includeVoided, Integer start, Integer length,
+	        PatientSearchStrategy strategy) throws APIException {
+		if (StringUtils.isBlank(query)) {
+			return Collections.emptyList();
+		}
+		
+		return dao.getPatients(query, includeVoided, start, length, strategy);
+	}
+	
+	/**
+	 * @return the strategy set by the global property, {@link PatientSearchStrategy#PER_ENTITY} if
+	 *         it is not set or invalid
+	 */
+	private PatientSearchStrategy getPatientSearchStrategy() {
+		String strategy = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY);
+		if (StringUtils.isNotBlank(strategy)) {
+			try {
+				return PatientSearchStrategy.valueOf(strategy.trim().toUpperCase());
+			}
+			catch (IllegalArgumentException e) {
+				log.warn("Invalid value of the global property {}: {}",
+				    OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY, strategy);
+			}
+		}
+		return PatientSearchStrategy.PER_ENTITY;
 	}
 	
 	/**
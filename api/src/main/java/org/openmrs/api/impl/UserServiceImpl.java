@@ -20,6 +20,7 @@ import org.openmrs.annotation.Logging;
 import org.openmrs.api.*;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.Daemon;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.LoginCredential;
 import org.openmrs.api.db.UserDAO;
@@ -114,6 +115,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		// TODO Check required fields for user!!
 		OpenmrsUtil.validatePassword(user.getUsername(), password, user.getSystemId());
 		
+		UserContext.invalidateCompiledPrivileges();
 		return dao.saveUser(user, password);
 	}
 	
@@ -175,6 +177,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 				+ " is already in use.");
 		}
 		
+		UserContext.invalidateCompiledPrivileges();
 		return dao.saveUser(user, null);
 	}
 	
@@ -249,6 +252,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deletePrivilege(privilege);
+		UserContext.invalidateCompiledPrivileges();
 	}
 	
 	/**
@@ -256,6 +260,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 */
 	@Override
 	public Privilege savePrivilege(Privilege privilege) throws APIException {
+		UserContext.invalidateCompiledPrivileges();
 		return dao.savePrivilege(privilege);
 	}
 	
@@ -295,6 +300,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteRole(role);
+		UserContext.invalidateCompiledPrivileges();
 	}
 	
 	/**
@@ -310,6 +316,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(role);
 		
+		UserContext.invalidateCompiledPrivileges();
 		return dao.saveRole(role);
 	}
 	
@@ -497,6 +504,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	@Override
 	public void purgeUser(User user) throws APIException {
 		dao.deleteUser(user);
+		UserContext.invalidateCompiledPrivileges();
 	}
 	
 	/**
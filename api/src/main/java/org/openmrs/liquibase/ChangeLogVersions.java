@@ -34,7 +34,7 @@ public class ChangeLogVersions {
 	 * files in openmrs-core/api/src/main/resources/liquibase/updates. If the actual change log files
 	 * and this list get out of sync, org.openmrs.liquibase.ChangeLogVersionsTest fails.
 	 */
-	private static final List<String> UPDATE_VERSIONS = Arrays.asList("1.9.x", "2.0.x", "2.1.x", "2.2.x", "2.3.x", "2.4.x", "2.5.x", "2.6.x", "2.7.x");
+	private static final List<String> UPDATE_VERSIONS = Arrays.asList("1.9.x", "2.0.x", "2.1.x", "2.2.x", "2.3.x", "2.4.x", "2.5.x", "2.6.x", "2.7.x", "2.8.x");
 	
 	public List<String> getSnapshotVersions() {
 		return SNAPSHOT_VERSIONS;
@@ -54,17 +54,24 @@ import org.slf4j.LoggerFactory;
 /**
  * Standard implementation of module class loader. <br>
  * Code adapted from the Java Plug-in Framework (JPF) - LGPL - Copyright (C)<br>
- * 2004-2006 Dmitry Olshansky
+ * 2004-2006 Dmitry Olshansky<br>
+ * <br>
+ * It is registered as parallel capable and locks per class name rather than on the whole class
+ * loader.
  */
 public class ModuleClassLoader extends URLClassLoader {
 	
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+	
 	private static final Logger log = LoggerFactory.getLogger(ModuleClassLoader.class);
 	
 	private final Module module;
 	
-	private Module[] requiredModules;
+	private volatile Module[] requiredModules;
 	
-	private Module[] awareOfModules;
+	private volatile Module[] awareOfModules;
 	
 	private Map<URI, File> libraryCache;
 	
@@ -72,7 +79,7 @@ public class ModuleClassLoader extends URLClassLoader {
 	
 	private Set<String> providedPackages = new LinkedHashSet<>();
 	
-	private boolean disposed = false;
+	private volatile boolean disposed = false;
 	
 	
 	/**
@@ -635,7 +642,7 @@ public class ModuleClassLoader extends URLClassLoader {
 	 * @return Class that has been loaded
 	 * @throws ClassNotFoundException if no class found
 	 */
-	protected synchronized Class<?> loadClass(final String name, final boolean resolve, final ModuleClassLoader requestor,
+	protected Class<?> loadClass(final String name, final boolean resolve, final ModuleClassLoader requestor,
 	        Set<String> seenModules) throws ClassNotFoundException {
 		
 		if (log.isTraceEnabled()) {
@@ -667,16 +674,20 @@ public class ModuleClassLoader extends URLClassLoader {
 			throw new ClassNotFoundException(msg);
 		}
 		
-		// Check if the class has already been loaded by this class loader
-		Class<?> result = findLoadedClass(name);
-		
-		// Try loading the class with this class loader 
-		if (result == null) {
-			try {
-				result = findClass(name);
-			}
-			catch (ClassNotFoundException e) {
-				// Continue trying...
+		Class<?> result;
+		// only threads loading the same class from this class loader wait for each other
+		synchronized (getClassLoadingLock(name)) {
+			// Check if the class has already been loaded by this class loader
+			result = findLoadedClass(name);
+			
+			// Try loading the class with this class loader 
+			if (result == null) {
+				try {
+					result = findClass(name);
+				}
+				catch (ClassNotFoundException e) {
+					// Continue trying...
+				}
 			}
 		}
 		
@@ -698,11 +709,13 @@ public class ModuleClassLoader extends URLClassLoader {
 		seenModules.add(getModule().getModuleId());
 		
 		List<Module> importedModules = new ArrayList<>();
-		if (requiredModules != null) {
-			Collections.addAll(importedModules, requiredModules);
+		Module[] required = requiredModules;
+		if (required != null) {
+			Collections.addAll(importedModules, required);
 		}
-		if (awareOfModules != null) {
-			Collections.addAll(importedModules, awareOfModules);
+		Module[] awareOf = awareOfModules;
+		if (awareOf != null) {
+			Collections.addAll(importedModules, awareOf);
 		}
 		
 		for (Module importedModule : importedModules) {
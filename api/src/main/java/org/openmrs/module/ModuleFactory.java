@@ -20,14 +20,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 import com.google.common.cache.Cache;
@@ -79,7 +77,11 @@ public class ModuleFactory {
 	protected static final Cache<Module, ModuleClassLoader> moduleClassLoaders = CacheBuilder.newBuilder().weakKeys()
 		.softValues().build();
 	
-	private static final Map<String, Set<ModuleClassLoader>> providedPackages = new ConcurrentHashMap<>();
+	// the class loaders of the started modules, guarded by the class
+	private static final Set<ModuleClassLoader> packageProviders = new LinkedHashSet<>();
+	
+	// immutable index of the class loaders providing each package, rebuilt when a module is started or stopped
+	private static volatile Map<String, Set<ModuleClassLoader>> providedPackages = Collections.emptyMap();
 	
 	// the name of the file within a module file
 	private static final String MODULE_CHANGELOG_FILENAME = "liquibase.xml";
@@ -799,41 +801,38 @@ public class ModuleFactory {
 		return module;
 	}
 	
-	private static void registerProvidedPackages(ModuleClassLoader moduleClassLoader) {
-		for (String providedPackage : moduleClassLoader.getProvidedPackages()) {
-			Set<ModuleClassLoader> newSet = new HashSet<>();
-			
-			Set<ModuleClassLoader> set = providedPackages.get(providedPackage);
-			if (set != null) {
-				newSet.addAll(set);
-			}
-			
-			newSet.add(moduleClassLoader);
-			providedPackages.put(providedPackage, newSet);
-		}
+	private static synchronized void registerProvidedPackages(ModuleClassLoader moduleClassLoader) {
+		packageProviders.add(moduleClassLoader);
+		rebuildProvidedPackages();
 	}
 	
-	private static void unregisterProvidedPackages(ModuleClassLoader moduleClassLoader) {
-		for (String providedPackage : moduleClassLoader.getProvidedPackages()) {
-			Set<ModuleClassLoader> newSet = new HashSet<>();
-			
-			Set<ModuleClassLoader> set = providedPackages.get(providedPackage);
-			if (set != null) {
-				newSet.addAll(set);
+	private static synchronized void unregisterProvidedPackages(ModuleClassLoader moduleClassLoader) {
+		packageProviders.remove(moduleClassLoader);
+		rebuildProvidedPackages();
+	}
+	
+	private static void rebuildProvidedPackages() {
+		Map<String, Set<ModuleClassLoader>> index = new HashMap<>();
+		for (ModuleClassLoader packageProvider : packageProviders) {
+			for (String providedPackage : packageProvider.getProvidedPackages()) {
+				index.computeIfAbsent(providedPackage, k -> new LinkedHashSet<>()).add(packageProvider);
 			}
-			newSet.remove(moduleClassLoader);
-			
-			providedPackages.put(providedPackage, newSet);
 		}
+		index.replaceAll((providedPackage, classLoaders) -> Collections.unmodifiableSet(classLoaders));
+		providedPackages = Collections.unmodifiableMap(index);
+		
+		// classes that weren't found may be provided by the modules now
+		OpenmrsClassLoader.getInstance().clearClassesNotFound();
 	}
 	
+	/**
+	 * Gets the class loaders of the started modules that provide the given package
+	 *
+	 * @param packageName the name of the package
+	 * @return an unmodifiable set of the module class loaders, never null
+	 */
 	public static Set<ModuleClassLoader> getModuleClassLoadersForPackage(String packageName) {
-		Set<ModuleClassLoader> set = providedPackages.get(packageName);
-		if (set == null) {
-			return Collections.emptySet();
-		} else {
-			return new HashSet<>(set);
-		}
+		return providedPackages.getOrDefault(packageName, Collections.emptySet());
 	}
 	
 	/**
@@ -0,0 +1,33 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+import org.openmrs.Patient;
+
+/**
+ * Interface for the similarity functions scoring how likely two patients are the same person when
+ * looking for possible duplicate patients. The function is set with the
+ * {@link org.openmrs.util.OpenmrsConstants#GP_PATIENT_DUPLICATE_SIMILARITY} global property.
+ * <p>
+ * The candidates are scored one after the other on the thread looking for the duplicates, so
+ * implementations may use the session and the user context of that thread.
+ *
+ * @see org.openmrs.api.PatientService#getPossibleDuplicatePatients(Patient)
+ * @since 2.8.0
+ */
+public interface PatientSimilarity {
+	
+	/**
+	 * @param patient the patient to find duplicates of
+	 * @param candidate a patient sharing a blocking key with the patient
+	 * @return the similarity of the patients from 0 for completely different to 1 for identical
+	 */
+	public double getSimilarity(Patient patient, Patient candidate);
+}
@@ -0,0 +1,110 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient.impl;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonName;
+import org.openmrs.patient.PatientSimilarity;
+
+/**
+ * Scores patients by their names, birthdate, gender and identifiers. The names weigh 0.6, compared
+ * with the Jaro-Winkler similarity of the given and family names, the birthdate 0.2, the gender 0.1
+ * and a shared identifier 0.1. Unknown birthdates and genders count half.
+ *
+ * @since 2.8.0
+ */
+public class DefaultPatientSimilarity implements PatientSimilarity {
+
+	private static final double NAME_WEIGHT = 0.6;
+
+	private static final double BIRTHDATE_WEIGHT = 0.2;
+
+	private static final double GENDER_WEIGHT = 0.1;
+
+	private static final double IDENTIFIER_WEIGHT = 0.1;
+
+	private static final JaroWinklerSimilarity JARO_WINKLER = new JaroWinklerSimilarity();
+
+	/**
+	 * @see PatientSimilarity#getSimilarity(Patient, Patient)
+	 */
+	@Override
+	public double getSimilarity(Patient patient, Patient candidate) {
+		return NAME_WEIGHT * getNameSimilarity(patient, candidate)
+		        + BIRTHDATE_WEIGHT * getBirthdateSimilarity(patient.getBirthdate(), candidate.getBirthdate())
+		        + GENDER_WEIGHT * getGenderSimilarity(patient.getGender(), candidate.getGender())
+		        + IDENTIFIER_WEIGHT * getIdentifierSimilarity(patient, candidate);
+	}
+
+	private double getNameSimilarity(Patient patient, Patient candidate) {
+		double similarity = 0;
+		for (PersonName name : patient.getNames()) {
+			if (name.getVoided()) {
+				continue;
+			}
+			for (PersonName candidateName : candidate.getNames()) {
+				if (!candidateName.getVoided()) {
+					similarity = Math.max(similarity,
+					    (getSimilarity(name.getGivenName(), candidateName.getGivenName())
+					            + getSimilarity(name.getFamilyName(), candidateName.getFamilyName())) / 2);
+				}
+			}
+		}
+		return similarity;
+	}
+
+	private double getSimilarity(String name, String candidateName) {
+		if (StringUtils.isBlank(name) || StringUtils.isBlank(candidateName)) {
+			return 0;
+		}
+		return JARO_WINKLER.apply(name.trim().toLowerCase(), candidateName.trim().toLowerCase());
+	}
+
+	private double getBirthdateSimilarity(Date birthdate, Date candidateBirthdate) {
+		if (birthdate == null || candidateBirthdate == null) {
+			return 0.5;
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(birthdate);
+		Calendar candidateCalendar = Calendar.getInstance();
+		candidateCalendar.setTime(candidateBirthdate);
+		if (calendar.get(Calendar.YEAR) != candidateCalendar.get(Calendar.YEAR)) {
+			return 0;
+		}
+		return calendar.get(Calendar.DAY_OF_YEAR) == candidateCalendar.get(Calendar.DAY_OF_YEAR) ? 1 : 0.5;
+	}
+
+	private double getGenderSimilarity(String gender, String candidateGender) {
+		if (StringUtils.isBlank(gender) || StringUtils.isBlank(candidateGender)) {
+			return 0.5;
+		}
+		return gender.equalsIgnoreCase(candidateGender) ? 1 : 0;
+	}
+
+	private double getIdentifierSimilarity(Patient patient, Patient candidate) {
+		for (PatientIdentifier identifier : patient.getActiveIdentifiers()) {
+			for (PatientIdentifier candidateIdentifier : candidate.getActiveIdentifiers()) {
+				if (Objects.equals(identifier.getIdentifierType().getPatientIdentifierTypeId(),
+				    candidateIdentifier.getIdentifierType().getPatientIdentifierTypeId())
+				        && identifier.getIdentifier().equalsIgnoreCase(candidateIdentifier.getIdentifier())) {
+					return 1;
+				}
+			}
+		}
+		return 0;
+	}
+}
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.api.APIException;
@@ -48,10 +49,17 @@ import net.sf.ehcache.CacheManager;
 
 /**
  * This classloader knows about the current ModuleClassLoaders and will attempt to load classes from
- * them if needed
+ * them if needed.<br>
+ * <br>
+ * It is registered as parallel capable, so classes with different names are loaded concurrently
+ * and only requests for the same class name wait for each other.
  */
 public class OpenmrsClassLoader extends URLClassLoader {
 	
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+	
 	private static Logger log = LoggerFactory.getLogger(OpenmrsClassLoader.class);
 	
 	private static File libCacheFolder;
@@ -67,6 +75,22 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 */
 	private Map<String, WeakReference<Class<?>>> cachedClasses = new ConcurrentHashMap<>();
 	
+	/**
+	 * Names of the classes that could not be found by the modules nor the web container, so that
+	 * repeated lookups of optional classes fail fast. Forgotten whenever a module is started or
+	 * stopped.
+	 */
+	private final Set<String> classesNotFound = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Incremented by {@link #clearClassesNotFound()} so that a lookup that started before a module
+	 * was started or stopped isn't remembered as not found
+	 */
+	private final AtomicInteger classesNotFoundGeneration = new AtomicInteger();
+	
+	// bounds the classes remembered as not found
+	private static final int MAX_CLASSES_NOT_FOUND = 10000;
+	
 	// suffix of the OpenMRS required library cache folder
 	private static final String LIBCACHESUFFIX = ".openmrs-lib-cache";
 	
@@ -137,37 +161,25 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 * <strong>Should</strong> not load class from cache if class loader has been disposed
 	 * <strong>Should</strong> load class from parent first
 	 * <strong>Should</strong> load class if two module class loaders have same packages
+	 * <strong>Should</strong> fail fast for classes that were not found before
+	 * <strong>Should</strong> look up classes that were not found again once modules changed
 	 */
 	@Override
-	public synchronized Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
+	public Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
 		// Check if the class has already been requested from this class loader
 		Class<?> c = getCachedClass(name);
 		if (c == null) {
-			// We do not try to load classes using this.findClass on purpose.
-			// All classes are loaded by web container or by module class loaders.
-			
-			// First try loading from modules such that we allow modules to load
-			// different versions of the same libraries that may already be used
-			// by core or the web container. An example is the chartsearch module
-			// which uses different versions of lucene and solr from core
-			String packageName = StringUtils.substringBeforeLast(name, ".");
-			Set<ModuleClassLoader> moduleClassLoaders = ModuleFactory.getModuleClassLoadersForPackage(packageName);
-			for (ModuleClassLoader moduleClassLoader : moduleClassLoaders) {
-				try {
-					c = moduleClassLoader.loadClass(name);
-					break;
-				}
-				catch (ClassNotFoundException e) {
-					// Continue trying...
-				}
+			if (classesNotFound.contains(name)) {
+				throw new ClassNotFoundException(name);
 			}
 			
-			if (c == null) {
-				// Finally try loading from web container
-				c = getParent().loadClass(name);
+			synchronized (getClassLoadingLock(name)) {
+				c = getCachedClass(name);
+				if (c == null) {
+					c = loadClassFromModulesOrParent(name);
+					cacheClass(name, c);
+				}
 			}
-			
-			cacheClass(name, c);
 		}
 		
 		if (resolve) {
@@ -177,6 +189,55 @@ public class OpenmrsClassLoader extends URLClassLoader {
 		return c;
 	}
 	
+	private Class<?> loadClassFromModulesOrParent(String name) throws ClassNotFoundException {
+		int generation = classesNotFoundGeneration.get();
+		
+		// We do not try to load classes using this.findClass on purpose.
+		// All classes are loaded by web container or by module class loaders.
+		
+		// First try loading from modules such that we allow modules to load
+		// different versions of the same libraries that may already be used
+		// by core or the web container. An example is the chartsearch module
+		// which uses different versions of lucene and solr from core
+		String packageName = StringUtils.substringBeforeLast(name, ".");
+		for (ModuleClassLoader moduleClassLoader : ModuleFactory.getModuleClassLoadersForPackage(packageName)) {
+			try {
+				return moduleClassLoader.loadClass(name);
+			}
+			catch (ClassNotFoundException e) {
+				// Continue trying...
+			}
+		}
+		
+		try {
+			// Finally try loading from web container
+			return getParent().loadClass(name);
+		}
+		catch (ClassNotFoundException e) {
+			if (classesNotFound.size() >= MAX_CLASSES_NOT_FOUND) {
+				classesNotFound.clear();
+			}
+			classesNotFound.add(name);
+			if (classesNotFoundGeneration.get() != generation) {
+				// a module was started or stopped during the lookup
+				classesNotFound.remove(name);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Forgets the classes that could not be found, since a module that was started may provide them
+	 *
+	 * @see ModuleFactory#startModule(org.openmrs.module.Module)
+	 * @see ModuleFactory#stopModule(org.openmrs.module.Module)
+	 * @since 2.8.0
+	 */
+	public void clearClassesNotFound() {
+		classesNotFoundGeneration.incrementAndGet();
+		classesNotFound.clear();
+	}
+	
 	private Class<?> getCachedClass(String name) {
 		WeakReference<Class<?>> ref = cachedClasses.get(name);
 		if (ref != null) {
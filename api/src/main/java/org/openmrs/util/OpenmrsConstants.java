@@ -23,6 +23,7 @@ import java.util.Properties;
 import liquibase.GlobalConfiguration;
 import org.apache.commons.io.IOUtils;
 import org.openmrs.GlobalProperty;
+import org.openmrs.api.PatientSearchStrategy;
 import org.openmrs.api.handler.ExistingVisitAssignmentHandler;
 import org.openmrs.customdatatype.datatype.BooleanDatatype;
 import org.openmrs.customdatatype.datatype.FreeTextDatatype;
@@ -177,6 +178,52 @@ public final class OpenmrsConstants {
 	 */
 	public static final String AUTO_UPDATE_DATABASE_RUNTIME_PROPERTY = "auto_update_database";
 	
+	/**
+	 * The name of the runtime property that sets how often, in seconds, this node polls the database
+	 * for cache changes made by other nodes sharing the same database. Cache changes are neither
+	 * recorded nor polled for unless it is greater than zero.
+	 * 
+	 * @see org.openmrs.api.cache.CacheInvalidationBus
+	 * @since 2.8.0
+	 */
+	public static final String CACHE_INVALIDATION_POLL_INTERVAL_RUNTIME_PROPERTY = "cache_invalidation.poll_interval";
+	
+	/**
+	 * The name of the runtime property that sets the maximum number of cache changes read from the
+	 * database by a single query
+	 * 
+	 * @see org.openmrs.api.cache.CacheInvalidationBus
+	 * @since 2.8.0
+	 */
+	public static final String CACHE_INVALIDATION_BATCH_SIZE_RUNTIME_PROPERTY = "cache_invalidation.batch_size";
+	
+	/**
+	 * The name of the runtime property that, when true, keeps an in-memory snapshot of the concept
+	 * dictionary, built in the background at startup
+	 * 
+	 * @see org.openmrs.api.ConceptService#getConceptDictionarySnapshot()
+	 * @since 2.8.0
+	 */
+	public static final String CONCEPT_DICTIONARY_SNAPSHOT_RUNTIME_PROPERTY = "concept_dictionary_snapshot.enabled";
+	
+	/**
+	 * The name of the runtime property that selects the kind of uuids given to new objects, either
+	 * {@link UuidUtil#RANDOM}, the default, or {@link UuidUtil#TIME_ORDERED}
+	 * 
+	 * @see UuidUtil#newUuid()
+	 * @since 2.8.0
+	 */
+	public static final String UUID_GENERATOR_RUNTIME_PROPERTY = "uuid.generator";
+	
+	/**
+	 * The name of the runtime property that lists, comma separated, the entities whose ids are
+	 * reserved in blocks from the id_generator table instead of being generated by the database
+	 * 
+	 * @see org.openmrs.api.db.hibernate.PooledIfNotAssignedIdGenerator
+	 * @since 2.8.0
+	 */
+	public static final String ID_GENERATOR_POOLED_ENTITIES_RUNTIME_PROPERTY = "id_generator.pooled_entities";
+	
 	/**
 	 * These words are ignored in concept and patient searches
 	 *
@@ -343,6 +390,30 @@ public final class OpenmrsConstants {
 	
 	public static final String GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_SOUNDEX = "SOUNDEX";
 	
+	/**
+	 * @see org.openmrs.api.PatientSearchStrategy
+	 * @since 2.8.0
+	 */
+	public static final String GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY = "patientSearch.strategy";
+	
+	/**
+	 * @see org.openmrs.patient.PatientSimilarity
+	 * @since 2.8.0
+	 */
+	public static final String GP_PATIENT_DUPLICATE_SIMILARITY = "patient.duplicateSimilarity";
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getPossibleDuplicatePatients(org.openmrs.Patient)
+	 * @since 2.8.0
+	 */
+	public static final String GP_PATIENT_DUPLICATE_THRESHOLD = "patient.duplicateThreshold";
+	
+	/**
+	 * @see org.openmrs.api.db.hibernate.PersonSearchResultCache
+	 * @since 2.8.0
+	 */
+	public static final String GP_SEARCH_RESULT_CACHE_SIZE = "search.resultCacheSize";
+	
 	public static final String GLOBAL_PROPERTY_PROVIDER_SEARCH_MATCH_MODE = "providerSearch.matchMode";
 	
 	public static final String GLOBAL_PROPERTY_DEFAULT_SERIALIZER = "serialization.defaultSerializer";
@@ -611,7 +682,7 @@ public final class OpenmrsConstants {
 	 *
 	 * @since 1.11
 	 */
-	public static final Integer SEARCH_INDEX_VERSION = 7;
+	public static final Integer SEARCH_INDEX_VERSION = 10;
 
 	/**
 	 * @since 1.12
@@ -807,6 +878,10 @@ public final class OpenmrsConstants {
 		        .valueOf(GLOBAL_PROPERTY_PERSON_SEARCH_MAX_RESULTS_DEFAULT_VALUE),
 		        "The maximum number of results returned by patient searches"));
 		
+		props.add(new GlobalProperty(GP_SEARCH_RESULT_CACHE_SIZE, "0",
+		        "The number of patient and person search results kept to answer repeated searches, 0 turns the "
+		                + "cache off. Results are cached on each node for at most a minute."));
+		
 		props
 		        .add(new GlobalProperty(
 		                GLOBAL_PROPERTY_GZIP_ENABLED,
@@ -947,6 +1022,20 @@ public final class OpenmrsConstants {
 		                GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_START,
 		                "Specifies how patient names are matched while searching patient. Valid values are 'ANYWHERE' or 'START'. Defaults to start if missing or invalid value is present."));
 		
+		props.add(new GlobalProperty(GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY, PatientSearchStrategy.PER_ENTITY.name(),
+		        "Specifies how patients are searched. Valid values are 'PER_ENTITY', which searches identifiers, names and "
+		                + "attributes one after another, or 'UNIFIED', which searches them at once in the patient's own "
+		                + "index document. Defaults to 'PER_ENTITY' if missing or invalid value is present."));
+		
+		props.add(new GlobalProperty(GP_PATIENT_DUPLICATE_SIMILARITY,
+		        "org.openmrs.patient.impl.DefaultPatientSimilarity",
+		        "Name of the org.openmrs.patient.PatientSimilarity class scoring how similar two patients are when "
+		                + "looking for possible duplicate patients"));
+		
+		props.add(new GlobalProperty(GP_PATIENT_DUPLICATE_THRESHOLD, "0.8",
+		        "The similarity from 0 to 1 at which a patient is a possible duplicate of another patient. Defaults to "
+		                + "0.8 if missing or invalid value is present."));
+		
 		props.add(new GlobalProperty(GP_ENABLE_CONCEPT_MAP_TYPE_MANAGEMENT, "false",
 		        "Enables or disables management of concept map types", BooleanDatatype.class, null));
 		
@@ -472,6 +472,9 @@ public class OpenmrsUtil {
 			val = OpenmrsConstants.DATABASE_NAME;
 		}
 		OpenmrsConstants.DATABASE_BUSINESS_NAME = val;
+		
+		// select the kind of uuids given to new objects
+		UuidUtil.setGenerator(p.getProperty(OpenmrsConstants.UUID_GENERATOR_RUNTIME_PROPERTY, UuidUtil.RANDOM));
 	}
 	
 	/**
@@ -40,6 +40,16 @@ public class Security {
 	private static final Logger log = LoggerFactory.getLogger(Security.class);
 	
 	private static final Random RANDOM = new SecureRandom();
+	
+	/**
+	 * Length of the hex encoded SHA-512 hashes produced by {@link #encodeString(String)}
+	 */
+	private static final int SHA512_HEX_LENGTH = 128;
+	
+	/**
+	 * Length of the hex encoded SHA-1 hashes used by old versions
+	 */
+	private static final int SHA1_HEX_LENGTH = 40;
 
 	private Security() {
 	}
@@ -64,9 +74,19 @@ public class Security {
 			throw new APIException("password.cannot.be.null", (Object[]) null);
 		}
 		
-		return hashedPassword.equals(encodeString(passwordToHash))
-			|| hashedPassword.equals(encodeStringSHA1(passwordToHash))
-			|| hashedPassword.equals(incorrectlyEncodeString(passwordToHash));
+		// the length of the stored hash tells which algorithm produced it, so only one digest is needed
+		switch (hashedPassword.length()) {
+			case SHA512_HEX_LENGTH:
+				return hashedPassword.equals(encodeString(passwordToHash));
+			case SHA1_HEX_LENGTH:
+				// the incorrect encoding only differs from the correct one when it drops leading zeros
+				return hashedPassword.equals(encodeStringSHA1(passwordToHash));
+			default:
+				if (hashedPassword.length() < SHA1_HEX_LENGTH) {
+					return hashedPassword.equals(incorrectlyEncodeString(passwordToHash));
+				}
+				return false;
+		}
 	}
 
 	/**
@@ -0,0 +1,84 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the uuids of new {@link org.openmrs.OpenmrsObject}s.
+ * <p>
+ * By default uuids are random (version 4). If the {@link OpenmrsConstants#UUID_GENERATOR_RUNTIME_PROPERTY}
+ * runtime property is set to {@link #TIME_ORDERED}, they start with the current time instead
+ * (version 7), so that new rows are added at the end of the uuid indexes rather than all over them.
+ * Time ordered uuids draw their random bits from a {@link ThreadLocalRandom} rather than the shared
+ * {@link java.security.SecureRandom}, they are unique but not unpredictable.
+ *
+ * @since 2.8.0
+ */
+public class UuidUtil {
+	
+	/**
+	 * The value of the {@link OpenmrsConstants#UUID_GENERATOR_RUNTIME_PROPERTY} runtime property for
+	 * random uuids
+	 */
+	public static final String RANDOM = "random";
+	
+	/**
+	 * The value of the {@link OpenmrsConstants#UUID_GENERATOR_RUNTIME_PROPERTY} runtime property for
+	 * time ordered uuids
+	 */
+	public static final String TIME_ORDERED = "time_ordered";
+	
+	private static volatile boolean timeOrdered = false;
+	
+	private UuidUtil() {
+	}
+	
+	/**
+	 * @return a new uuid of the configured kind
+	 * <strong>Should</strong> return a random uuid by default
+	 * <strong>Should</strong> return a time ordered uuid if configured
+	 */
+	public static String newUuid() {
+		return timeOrdered ? newTimeOrderedUuid() : UUID.randomUUID().toString();
+	}
+	
+	/**
+	 * Creates a version 7 uuid, made of the number of milliseconds since the epoch followed by 74
+	 * random bits
+	 *
+	 * @return a new time ordered uuid
+	 * <strong>Should</strong> return a version 7 uuid
+	 * <strong>Should</strong> return uuids that sort by creation time
+	 */
+	public static String newTimeOrderedUuid() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long mostSigBits = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0fffL);
+		long leastSigBits = 0x8000000000000000L | (random.nextLong() & 0x3fffffffffffffffL);
+		return new UUID(mostSigBits, leastSigBits).toString();
+	}
+	
+	/**
+	 * Selects the kind of uuids returned by {@link #newUuid()}
+	 *
+	 * @param generator {@link #TIME_ORDERED} for time ordered uuids, anything else for random ones
+	 */
+	public static void setGenerator(String generator) {
+		timeOrdered = TIME_ORDERED.equalsIgnoreCase(generator);
+	}
+	
+	/**
+	 * @return true if {@link #newUuid()} returns time ordered uuids
+	 */
+	public static boolean isTimeOrdered() {
+		return timeOrdered;
+	}
+}
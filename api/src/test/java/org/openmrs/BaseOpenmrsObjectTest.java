@@ -11,6 +11,9 @@ package org.openmrs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.hibernate.Session;
@@ -33,6 +36,57 @@ public class BaseOpenmrsObjectTest extends BaseContextSensitiveTest {
 		
 	}
 	
+	/**
+	 * @see BaseOpenmrsObject#getUuid()
+	 */
+	@Test
+	public void getUuid_shouldGenerateAUuidIfNoneWasSet() {
+		BaseOpenmrsObject o = new BaseOpenmrsObjectMock();
+		
+		assertNotNull(o.getUuid());
+		assertEquals(36, o.getUuid().length());
+	}
+	
+	/**
+	 * @see BaseOpenmrsObject#getUuid()
+	 */
+	@Test
+	public void getUuid_shouldReturnTheSameUuidEveryTime() {
+		BaseOpenmrsObject o = new BaseOpenmrsObjectMock();
+		
+		assertEquals(o.getUuid(), o.getUuid());
+		assertNotEquals(o.getUuid(), new BaseOpenmrsObjectMock().getUuid());
+	}
+	
+	/**
+	 * @see BaseOpenmrsObject#getUuid()
+	 */
+	@Test
+	public void getUuid_shouldNotGenerateAUuidIfItWasSetToNull() {
+		BaseOpenmrsObject o = new BaseOpenmrsObjectMock();
+		o.setUuid(null);
+		
+		assertNull(o.getUuid());
+	}
+	
+	/**
+	 * @see BaseOpenmrsObject#getUuid()
+	 */
+	@Test
+	public void getUuid_shouldBeGeneratedWhenANewObjectIsSaved() {
+		Location location = new Location();
+		location.setName("A location whose uuid was never read");
+		SessionFactory sessionFactory = (SessionFactory) applicationContext.getBean("sessionFactory");
+		Session session = sessionFactory.getCurrentSession();
+		session.save(location);
+		session.flush();
+		session.evict(location);
+		
+		Location saved = session.get(Location.class, location.getLocationId());
+		assertNotNull(saved.getUuid());
+		assertEquals(location.getUuid(), saved.getUuid());
+	}
+	
 	/**
 	 * @see BaseOpenmrsObject#equals(Object)
 	 */
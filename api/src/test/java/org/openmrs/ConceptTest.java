@@ -10,6 +10,7 @@
 package org.openmrs;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
@@ -22,10 +23,13 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.openmrs.api.APIException;
@@ -1059,7 +1063,83 @@ public class ConceptTest extends BaseContextSensitiveTest {
 		testConcept.addName(preferredName);
 		assertEquals(preferredName.getName(), testConcept.getPreferredName(Locale.US).getName());
 	}
-	
+
+	@Test
+	public void getPreferredName_shouldReflectChangesToTheLocalePreferredFlagOfExistingNames() {
+		Concept concept = new Concept();
+		ConceptName first = new ConceptName("first", Locale.ENGLISH);
+		ConceptName second = new ConceptName("second", Locale.ENGLISH);
+		concept.addName(first);
+		concept.addName(second);
+		first.setLocalePreferred(true);
+		assertEquals(first, concept.getPreferredName(Locale.ENGLISH, true));
+
+		first.setLocalePreferred(false);
+		second.setLocalePreferred(true);
+
+		assertEquals(second, concept.getPreferredName(Locale.ENGLISH, true));
+	}
+
+	@Test
+	public void getNames_shouldLeaveOutVoidedNamesInEveryLocaleLikeGetNames() {
+		ConceptName voidedFullySpecifiedName = newName("voided name", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, true);
+		ConceptName fullySpecifiedName = newName("name", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, false);
+		ConceptName voidedPreferredName = newName("voided synonym", Locale.ENGLISH, null, true);
+		voidedPreferredName.setLocalePreferred(true);
+		ConceptName voidedShortName = newName("vs", Locale.UK, ConceptNameType.SHORT, true);
+		ConceptName shortName = newName("n", Locale.ENGLISH, ConceptNameType.SHORT, false);
+		Concept concept = new Concept();
+		concept.setNames(new HashSet<>(Arrays.asList(voidedFullySpecifiedName, fullySpecifiedName, voidedPreferredName,
+		    voidedShortName, shortName)));
+
+		assertEquals(concept.getNames().stream().filter(name -> Locale.ENGLISH.equals(name.getLocale()))
+		        .collect(Collectors.toSet()), concept.getNames(Locale.ENGLISH));
+		assertEquals(fullySpecifiedName, concept.getFullySpecifiedName(Locale.ENGLISH));
+		assertEquals(fullySpecifiedName, concept.getPreferredName(Locale.ENGLISH));
+		assertEquals(shortName, concept.getShortNameInLocale(Locale.UK));
+		assertThat(concept.getShortNames(), contains(shortName));
+		assertEquals(new HashSet<>(concept.getNames()), new HashSet<>(concept.getCompatibleNames(Locale.ENGLISH)));
+		assertThat(concept.getNames(Locale.UK), is(empty()));
+	}
+
+	@Test
+	public void getCompatibleNames_shouldNotReturnARemovedName() {
+		Concept concept = new Concept();
+		ConceptName name = new ConceptName("name", Locale.ENGLISH);
+		ConceptName synonym = new ConceptName("synonym", Locale.UK);
+		concept.addName(name);
+		concept.addName(synonym);
+		assertThat(concept.getCompatibleNames(Locale.ENGLISH), hasItem(synonym));
+
+		concept.removeName(synonym);
+
+		assertEquals(1, concept.getCompatibleNames(Locale.ENGLISH).size());
+		assertNull(concept.getShortNameInLocale(Locale.UK));
+		assertThat(concept.getNames(Locale.UK), is(empty()));
+	}
+
+	@Test
+	public void getShortNameInLocale_shouldReflectChangesToTheLocaleOfExistingNames() {
+		Concept concept = new Concept();
+		concept.addName(new ConceptName("Giant cat", Locale.ENGLISH));
+		ConceptName shortName = new ConceptName("Gato", new Locale("es"));
+		shortName.setConceptNameType(ConceptNameType.SHORT);
+		concept.addName(shortName);
+		assertEquals(shortName, concept.getShortNameInLocale(new Locale("es", "MX")));
+
+		shortName.setLocale(Locale.FRENCH);
+
+		assertNull(concept.getShortNameInLocale(new Locale("es", "MX")));
+		assertEquals(shortName, concept.getShortNameInLocale(Locale.CANADA_FRENCH));
+	}
+
+	private ConceptName newName(String name, Locale locale, ConceptNameType type, boolean voided) {
+		ConceptName conceptName = new ConceptName(name, locale);
+		conceptName.setConceptNameType(type);
+		conceptName.setVoided(voided);
+		return conceptName;
+	}
+
 	/**
 	 * Convenient factory method to create a populated Concept with a one fully specified name and
 	 * one short name
@@ -16,16 +16,21 @@ package org.openmrs.aop;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import javax.annotation.Resource;
+import java.lang.reflect.Method;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.openmrs.Concept;
 import org.openmrs.PrivilegeListener;
 import org.openmrs.User;
+import org.openmrs.annotation.Authorized;
+import org.openmrs.annotation.AuthorizedAnnotationAttributes;
 import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.context.Context;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
@@ -99,4 +104,75 @@ public class AuthorizationAdviceTest extends BaseContextSensitiveTest {
 		assertThrows(APIAuthenticationException.class, () -> Context.getConceptService().getConcept(3));
 	}
 	
+	@Test
+	public void before_shouldNotRequireAuthenticationForMethodsWithoutAuthorizedAnnotation() throws Exception {
+		AuthorizationAdvice advice = new AuthorizationAdvice();
+		Method method = SecuredService.class.getMethod("open");
+		Context.getUserContext().logout();
+		
+		assertDoesNotThrow(() -> advice.before(method, new Object[0], null));
+		assertDoesNotThrow(() -> advice.before(method, new Object[0], null));
+	}
+	
+	@Test
+	public void before_shouldRequireAuthenticationForAnnotatedMethodsWithoutPrivileges() throws Throwable {
+		AuthorizationAdvice advice = new AuthorizationAdvice();
+		Method method = SecuredService.class.getMethod("authenticated");
+		advice.before(method, new Object[0], null);
+		
+		Context.getUserContext().logout();
+		
+		assertThrows(APIAuthenticationException.class, () -> advice.before(method, new Object[0], null));
+	}
+	
+	@Test
+	@Disabled("Designated for manual runs")
+	public void before_shouldCheckPrivilegesEfficiently() throws Throwable {
+		AuthorizationAdvice advice = new AuthorizationAdvice();
+		Method open = SecuredService.class.getMethod("open");
+		Method secured = SecuredService.class.getMethod("secured");
+		int iterations = 1000000;
+		
+		for (int i = 0; i < iterations; i++) {
+			// warm up
+			advice.before(open, null, null);
+			advice.before(secured, null, null);
+			new AuthorizedAnnotationAttributes().getAttributes(secured);
+		}
+		
+		long time = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
+			attributes.getAttributes(secured);
+			attributes.getRequireAll(secured);
+			attributes.hasAuthorizedAnnotation(secured);
+		}
+		time = System.nanoTime() - time;
+		System.out.println("Reading @Authorized reflectively took " + (time / iterations) + " ns per call");
+		
+		time = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			advice.before(open, null, null);
+		}
+		time = System.nanoTime() - time;
+		System.out.println("Authorizing a method without @Authorized took " + (time / iterations) + " ns per call");
+		
+		time = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			advice.before(secured, null, null);
+		}
+		time = System.nanoTime() - time;
+		System.out.println("Authorizing a method with @Authorized took " + (time / iterations) + " ns per call");
+	}
+	
+	public interface SecuredService {
+		
+		@Authorized(PrivilegeConstants.GET_CONCEPTS)
+		void secured();
+		
+		@Authorized
+		void authenticated();
+		
+		void open();
+	}
 }
@@ -550,6 +550,120 @@ public class AdministrationServiceTest extends BaseContextSensitiveTest {
 		assertEquals(orig, noprop);
 	}
 	
+	/**
+	 * @see AdministrationService#getGlobalPropertyAsInt(String, int)
+	 */
+	@Test
+	public void getGlobalPropertyAsInt_shouldReturnTheParsedValue() {
+		executeDataSet("org/openmrs/api/include/AdministrationServiceTest-globalproperties.xml");
+		
+		assertEquals(1234, adminService.getGlobalPropertyAsInt("valid.integer", 4));
+		assertEquals(1234, adminService.getGlobalPropertyAsInt("VALID.integer", 4));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalPropertyAsInt(String, int)
+	 */
+	@Test
+	public void getGlobalPropertyAsInt_shouldReturnDefaultValueIfPropertyDoesNotExistOrIsNotAnInteger() {
+		executeDataSet("org/openmrs/api/include/AdministrationServiceTest-globalproperties.xml");
+		
+		assertEquals(4, adminService.getGlobalPropertyAsInt("does.not.exist", 4));
+		assertEquals(4, adminService.getGlobalPropertyAsInt("valid.double", 4));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalPropertyAsBoolean(String, boolean)
+	 */
+	@Test
+	public void getGlobalPropertyAsBoolean_shouldReturnTheParsedValueIgnoringCase() {
+		adminService.saveGlobalProperty(new GlobalProperty("a.boolean.property", " TRUE "));
+		
+		assertTrue(adminService.getGlobalPropertyAsBoolean("a.boolean.property", false));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalPropertyAsBoolean(String, boolean)
+	 */
+	@Test
+	public void getGlobalPropertyAsBoolean_shouldReturnDefaultValueIfPropertyDoesNotExistOrIsNotABoolean() {
+		adminService.saveGlobalProperty(new GlobalProperty("a.boolean.property", "yes"));
+		
+		assertTrue(adminService.getGlobalPropertyAsBoolean("a.boolean.property", true));
+		assertFalse(adminService.getGlobalPropertyAsBoolean("does.not.exist", false));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalPropertyAsList(String)
+	 */
+	@Test
+	public void getGlobalPropertyAsList_shouldReturnTheTrimmedElementsSkippingBlankOnes() {
+		adminService.saveGlobalProperty(new GlobalProperty("a.list.property", " one, two ,, three,"));
+		
+		assertThat(adminService.getGlobalPropertyAsList("a.list.property"), contains("one", "two", "three"));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalPropertyAsList(String)
+	 */
+	@Test
+	public void getGlobalPropertyAsList_shouldReturnAnEmptyListIfPropertyDoesNotExist() {
+		assertThat(adminService.getGlobalPropertyAsList("does.not.exist"), emptyIterable());
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalProperty(String)
+	 */
+	@Test
+	public void getGlobalProperty_shouldReturnTheNewValueAfterThePropertyIsSaved() {
+		assertNull(adminService.getGlobalProperty("a.cached.property"));
+		
+		adminService.saveGlobalProperty(new GlobalProperty("a.cached.property", "1"));
+		assertEquals("1", adminService.getGlobalProperty("a.cached.property"));
+		assertEquals(1, adminService.getGlobalPropertyAsInt("a.cached.property", 0));
+		
+		adminService.setGlobalProperty("a.cached.property", "2");
+		assertEquals("2", adminService.getGlobalProperty("a.cached.property"));
+		assertEquals(2, adminService.getGlobalPropertyAsInt("a.cached.property", 0));
+		
+		adminService.updateGlobalProperty("a.cached.property", "3");
+		assertEquals("3", adminService.getGlobalProperty("a.cached.property"));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalProperty(String)
+	 */
+	@Test
+	public void getGlobalProperty_shouldReturnNullAfterThePropertyIsPurged() {
+		executeDataSet("org/openmrs/api/include/AdministrationServiceTest-globalproperties.xml");
+		assertEquals("anothervalue", adminService.getGlobalProperty("another-global-property"));
+		
+		adminService.purgeGlobalProperty(adminService.getGlobalPropertyObject("another-global-property"));
+		
+		assertNull(adminService.getGlobalProperty("another-global-property"));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalProperty(String)
+	 */
+	@Test
+	public void getGlobalProperty_shouldFailForCachedPropertyIfUserIsNotAllowedToView() {
+		executeDataSet(ADMIN_INITIAL_DATA_XML);
+		GlobalProperty property = getGlobalPropertyWithViewPrivilege();
+		// read the property while authenticated as the super user first
+		assertEquals(property.getPropertyValue(), adminService.getGlobalProperty(property.getProperty()));
+		
+		Context.logout();
+		Context.authenticate(getTestUserCredentials());
+		Context.addProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+		try {
+			assertThrows(APIException.class, () -> adminService.getGlobalProperty(property.getProperty()));
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+		}
+	}
+	
 	@Test
 	public void filterGlobalPropertiesByViewPrivilege_shouldFilterGlobalPropertiesIfUserIsNotAllowedToViewSomeGlobalProperties() {
 		executeDataSet(ADMIN_INITIAL_DATA_XML);
@@ -18,12 +18,14 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -41,6 +43,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -81,6 +84,10 @@ import org.openmrs.Person;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
+import org.openmrs.api.db.hibernate.search.DatabaseSearchFallback;
+import org.openmrs.api.impl.ConceptDictionarySnapshotCache;
+import org.openmrs.api.impl.ConceptMappingCache;
+import org.openmrs.api.impl.ConceptReferenceCache;
 import org.openmrs.customdatatype.datatype.FreeTextDatatype;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 import org.openmrs.util.ConceptMapTypeComparator;
@@ -117,6 +124,15 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 	@Autowired
 	CacheManager cacheManager;
 
+	@Autowired
+	ConceptDictionarySnapshotCache conceptDictionarySnapshotCache;
+
+	@Autowired
+	ConceptMappingCache conceptMappingCache;
+
+	@Autowired
+	ConceptReferenceCache conceptReferenceCache;
+
 	// For testing concept lookups by static constant
 	private static final String TEST_CONCEPT_CONSTANT_ID = "3";
  
@@ -783,6 +799,58 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertNull(Context.getConceptService().getConcept((String) null));
 	}
 	
+	/**
+	 * @see ConceptService#getConcepts(Collection)
+	 */
+	@Test
+	public void getConcepts_shouldReturnTheConceptsInTheOrderOfTheGivenIds() {
+		List<Concept> concepts = Context.getConceptService().getConcepts(Arrays.asList(5497, 3, 5089));
+		
+		assertThat(concepts.stream().map(Concept::getConceptId).collect(Collectors.toList()), contains(5497, 3, 5089));
+	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String, Locale, boolean)
+	 */
+	@Test
+	public void getConcepts_shouldSearchTheDatabaseWhileTheSearchIndexIsRebuilt() {
+		long uses = DatabaseSearchFallback.getUseCount(DatabaseSearchFallback.CONCEPTS);
+		DatabaseSearchFallback.setForced(true);
+		List<ConceptSearchResult> results;
+		try {
+			results = Context.getConceptService().getConcepts("CD4 CO", Locale.ENGLISH, false);
+		}
+		finally {
+			DatabaseSearchFallback.setForced(false);
+		}
+		
+		assertThat(results.stream().map(result -> result.getConcept().getConceptId()).collect(Collectors.toList()),
+		    contains(5497));
+		assertEquals(uses + 1, DatabaseSearchFallback.getUseCount(DatabaseSearchFallback.CONCEPTS));
+	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer, Integer)
+	 */
+	@Test
+	public void getConcepts_shouldSearchAndCountTheDatabaseRegardlessOfCaseWhileTheSearchIndexIsRebuilt() {
+		List<Locale> locales = Collections.singletonList(Locale.ENGLISH);
+		DatabaseSearchFallback.setForced(true);
+		List<ConceptSearchResult> results;
+		Integer count;
+		try {
+			results = conceptService.getConcepts("cd4 co", locales, false, null, null, null, null, null, null, null);
+			count = conceptService.getCountOfConcepts("cd4 co", locales, false, null, null, null, null, null);
+		}
+		finally {
+			DatabaseSearchFallback.setForced(false);
+		}
+		
+		assertThat(results.stream().map(result -> result.getConcept().getConceptId()).collect(Collectors.toList()),
+		    contains(5497));
+		assertEquals(1, count);
+	}
+	
 	/**
 	 * @see ConceptService#getConceptByName(String)
 	 */
@@ -1031,11 +1099,94 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		conceptService.saveConceptReferenceTerm(crt);
 		assertThat(ehcache.getSize(), is(0));
 
-		// purgeConceptReferenceTerm
+		// purgeConceptReferenceTerm only evicts the code of the purged term
 		conceptService.getConceptIdsByMapping(crt.getCode(), cs.getHl7Code(), true);
-		assertThat(ehcache.getSize(), is(1));
+		conceptService.getConceptIdsByMapping(dummyTerm.getCode(), cs.getHl7Code(), true);
+		assertThat(ehcache.getSize(), is(2));
 		conceptService.purgeConceptReferenceTerm(dummyTerm);
-		assertThat(ehcache.getSize(), is(0));
+		assertThat(ehcache.getSize(), is(1));
+		assertNotNull(cache.get(ConceptMappingCache.getKey(crt.getCode(), cs.getHl7Code(), true)));
+	}
+
+	/**
+	 * @see ConceptService#getConceptIdsByMapping(String, String, boolean)
+	 */
+	@Test
+	public void getConceptIdsByMapping_shouldShareTheCachedIdsBetweenSpellingsOfTheCodeAndSource() {
+		Cache cache = cacheManager.getCache("conceptIdsByMapping");
+		Ehcache ehcache = ((EhCacheCache) cache).getNativeCache();
+		cache.clear();
+		long hits = conceptMappingCache.getHitCount();
+
+		assertThat(conceptService.getConceptIdsByMapping("WGT234", "SSTRM", true), contains(5089));
+		assertThat(conceptService.getConceptIdsByMapping("wgt234", "sstrm", true), contains(5089));
+
+		assertThat(ehcache.getSize(), is(1));
+		assertThat(conceptMappingCache.getHitCount(), is(hits + 1));
+	}
+
+	/**
+	 * @see ConceptService#saveConcept(Concept)
+	 */
+	@Test
+	public void saveConcept_shouldOnlyEvictTheCachedConceptIdsOfTheOldAndNewMappingsOfTheConcept() {
+		Cache cache = cacheManager.getCache("conceptIdsByMapping");
+		cache.clear();
+		conceptService.getConceptIdsByMapping("WGT234", "SSTRM", false);
+		conceptService.getConceptIdsByMapping("CD41003", "Some Standardized Terminology", false);
+		assertThat(conceptService.getConceptIdsByMapping("766554", "SSTRM", true), containsInAnyOrder(16, 24));
+		assertThat(conceptService.getConceptIdsByMapping("454545", "SSTRM", true), contains(24));
+
+		// move a mapping of concept 16 from term 7 to term 10
+		Concept concept = conceptService.getConcept(16);
+		ConceptMap conceptMap = concept.getConceptMappings().stream()
+		        .filter(m -> m.getConceptReferenceTerm().getConceptReferenceTermId() == 7).findFirst().get();
+		conceptMap.setConceptReferenceTerm(conceptService.getConceptReferenceTerm(10));
+		conceptService.saveConcept(concept);
+
+		assertNull(cache.get(ConceptMappingCache.getKey("766554", "SSTRM", true)));
+		assertNull(cache.get(ConceptMappingCache.getKey("454545", "SSTRM", true)));
+		assertNotNull(cache.get(ConceptMappingCache.getKey("WGT234", "SSTRM", false)));
+		assertNotNull(cache.get(ConceptMappingCache.getKey("CD41003", "Some Standardized Terminology", false)));
+		assertThat(conceptService.getConceptIdsByMapping("766554", "SSTRM", true), contains(24));
+		assertThat(conceptService.getConceptIdsByMapping("454545", "SSTRM", true), containsInAnyOrder(16, 24));
+	}
+
+	/**
+	 * @see ConceptService#saveConcept(Concept)
+	 */
+	@Test
+	public void saveConcept_shouldEvictTheCachedConceptIdsOfMappingsTheConceptNoLongerHas() {
+		Cache cache = cacheManager.getCache("conceptIdsByMapping");
+		cache.clear();
+		assertThat(conceptService.getConceptIdsByMapping("454545", "SSTRM", true), contains(24));
+		// as if the mapping had been moved and flushed before the concept was saved
+		cache.put(ConceptMappingCache.getKey("gone", "SSTRM", true), Arrays.asList(5089, 16));
+
+		conceptService.saveConcept(conceptService.getConcept(16));
+
+		assertNull(cache.get(ConceptMappingCache.getKey("gone", "SSTRM", true)));
+		assertNotNull(cache.get(ConceptMappingCache.getKey("454545", "SSTRM", true)));
+	}
+
+	/**
+	 * @see ConceptService#saveConceptReferenceTerm(ConceptReferenceTerm)
+	 */
+	@Test
+	public void saveConceptReferenceTerm_shouldEvictTheCachedConceptIdsOfTheOldAndNewCode() {
+		Cache cache = cacheManager.getCache("conceptIdsByMapping");
+		cache.clear();
+		assertThat(conceptService.getConceptIdsByMapping("CD41003", "SSTRM", true), contains(5497));
+		assertThat(conceptService.getConceptIdsByMapping("CD41004", "SSTRM", true), is(empty()));
+		conceptService.getConceptIdsByMapping("WGT234", "SSTRM", true);
+
+		ConceptReferenceTerm term = conceptService.getConceptReferenceTerm(2);
+		term.setCode("CD41004");
+		conceptService.saveConceptReferenceTerm(term);
+
+		assertNotNull(cache.get(ConceptMappingCache.getKey("WGT234", "SSTRM", true)));
+		assertThat(conceptService.getConceptIdsByMapping("CD41003", "SSTRM", true), is(empty()));
+		assertThat(conceptService.getConceptIdsByMapping("CD41004", "SSTRM", true), contains(5497));
 	}
 	
 	/**
@@ -1862,6 +2013,57 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertThat(conceptSet, containsInAnyOrder(hasId(2), hasId(3), hasId(4), hasId(5), hasId(6)));
 	}
 	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForADirectMemberOfTheSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(2), conceptService.getConcept(1)));
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(4), conceptService.getConcept(3)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForAMemberOfANestedSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), conceptService.getConcept(1)));
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), conceptService.getConcept(3)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnFalseForAConceptNotInTheSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(1), conceptService.getConcept(3)));
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(2), conceptService.getConcept(3)));
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(7), conceptService.getConcept(1)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldSeeMembersAddedInTheCurrentTransaction() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		Concept set = conceptService.getConcept(4);
+		Concept concept = conceptService.getConcept(7);
+		assertFalse(conceptService.isConceptInSet(concept, conceptService.getConcept(1)));
+		
+		set.addSetMember(concept);
+		conceptService.saveConcept(set);
+		
+		assertTrue(conceptService.isConceptInSet(concept, conceptService.getConcept(1)));
+		assertThat(conceptService.getConceptsByConceptSet(conceptService.getConcept(1)), hasItem(hasId(7)));
+	}
+	
 	/**
 	 * @see ConceptService#saveConceptStopWord(org.openmrs.ConceptStopWord)
 	 */
@@ -2964,6 +3166,84 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertEquals(0, drugs.size());
 	}
 	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Test
+	public void suggestConcepts_shouldReturnConceptsWithANameStartingWithThePrefix() {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-names.xml");
+		
+		List<ConceptSearchResult> searchResults = conceptService.suggestConcepts("salb",
+		    Collections.singletonList(Locale.ENGLISH), null);
+		
+		assertThat(searchResults, containsInAnyOrder(hasConcept(is(conceptService.getConcept(240))),
+		    hasConcept(is(conceptService.getConcept(357))), hasConcept(is(conceptService.getConcept(798)))));
+	}
+	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Test
+	public void suggestConcepts_shouldMatchTheStartOfEveryWordOfThePrefix() {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-names.xml");
+		conceptService.saveConceptStopWord(new ConceptStopWord("OF", Locale.US));
+		
+		assertThat(conceptService.suggestConcepts("trust nowh", Collections.singletonList(Locale.ENGLISH), null),
+		    contains(hasConcept(is(conceptService.getConcept(4000)))));
+		assertThat(conceptService.suggestConcepts("tuberculosis of kn", Collections.singletonList(Locale.US), null),
+		    contains(hasConcept(is(conceptService.getConcept(1240)))));
+		assertThat(conceptService.suggestConcepts("tuberculosis x", Collections.singletonList(Locale.US), null),
+		    empty());
+	}
+	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Test
+	public void suggestConcepts_shouldReturnEachConceptOnce() {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-names.xml");
+		
+		List<ConceptSearchResult> searchResults = conceptService.suggestConcepts("trust now",
+		    Collections.singletonList(Locale.ENGLISH), null);
+		
+		assertThat(searchResults, contains(hasConcept(is(conceptService.getConcept(4000)))));
+	}
+	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Test
+	public void suggestConcepts_shouldRankPreferredNamesHigher() {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-names.xml");
+		
+		List<ConceptSearchResult> searchResults = conceptService.suggestConcepts("salbutamol",
+		    Collections.singletonList(Locale.ENGLISH), null);
+		
+		assertThat(searchResults.get(0).getConcept(), hasId(798));
+		assertThat(searchResults.get(0).getConceptName().getName(), is("SALBUTAMOL"));
+	}
+	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Test
+	public void suggestConcepts_shouldNotReturnRetiredConceptsNorVoidedNames() {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-names.xml");
+		
+		assertThat(conceptService.suggestConcepts("retired con", Collections.singletonList(Locale.ENGLISH), null),
+		    empty());
+		assertThat(conceptService.suggestConcepts("voided", Collections.singletonList(Locale.UK), null),
+		    not(hasItem(hasConcept(is(conceptService.getConcept(7))))));
+	}
+	
+	/**
+	 * @see ConceptService#suggestConcepts(String, List, Integer)
+	 */
+	@Test
+	public void suggestConcepts_shouldReturnAnEmptyListForABlankPrefix() {
+		assertThat(conceptService.suggestConcepts(" ", null, null), empty());
+	}
+	
 	/**
 	 * @see ConceptService#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer, Integer)
 	 */
@@ -3961,6 +4241,72 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertNull(conceptService.getConceptByReference("1000")); //invalid uuid but exists in standardTestDataset
 	}
 
+	/**
+	 * @see ConceptService#getConceptByReference(String)
+	 */
+	@Test
+	public void getConceptByReference_shouldFindAConceptMappedAfterTheReferenceWasNotFound() {
+		assertNull(conceptService.getConceptByReference("SSTRM:unique code"));
+
+		Concept concept = conceptService.getConcept(5497);
+		ConceptMap map = new ConceptMap();
+		map.getConceptReferenceTerm().setCode("unique code");
+		map.getConceptReferenceTerm().setConceptSource(conceptService.getConceptSource(1));
+		concept.addConceptMapping(map);
+		conceptService.saveConcept(concept);
+
+		assertEquals(concept, conceptService.getConceptByReference("SSTRM:unique code"));
+	}
+
+	/**
+	 * @see ConceptService#getConceptByReference(String)
+	 */
+	@Test
+	public void getConceptByReference_shouldNotFindAConceptByAMappingRemovedAfterItWasFound() {
+		Concept concept = conceptService.getConceptByReference("SSTRM:WGT234");
+		assertEquals(5089, concept.getId().intValue());
+		long hits = conceptReferenceCache.getHitCount();
+		assertEquals(concept, conceptService.getConceptByReference("SSTRM:WGT234"));
+		assertEquals(hits + 1, conceptReferenceCache.getHitCount());
+
+		concept.removeConceptMapping(concept.getConceptMappings().stream()
+		        .filter(m -> m.getConceptReferenceTerm().getCode().equals("WGT234")).findFirst().get());
+		conceptService.saveConcept(concept);
+
+		assertNull(conceptService.getConceptByReference("SSTRM:WGT234"));
+	}
+
+	/**
+	 * @see ConceptService#getConceptsByReferences(Collection)
+	 */
+	@Test
+	public void getConceptsByReferences_shouldFindConceptsByEveryFormOfReference() {
+		Map<String, Concept> concepts = conceptService.getConceptsByReferences(Arrays.asList("SSTRM:454545",
+		    TEST_CONCEPT_CONSTANT_UUID, TEST_CONCEPT_CONSTANT_ID, TEST_CONCEPT_CONSTANT_NAME, "sct:2332523",
+		    "org.openmrs.api.ConceptServiceTest.TEST_CONCEPT_CONSTANT_ID"));
+
+		assertThat(concepts.keySet(), contains("SSTRM:454545", TEST_CONCEPT_CONSTANT_UUID, TEST_CONCEPT_CONSTANT_ID,
+		    TEST_CONCEPT_CONSTANT_NAME, "sct:2332523", "org.openmrs.api.ConceptServiceTest.TEST_CONCEPT_CONSTANT_ID"));
+		assertEquals(24, concepts.get("SSTRM:454545").getId().intValue());
+		assertEquals(60, concepts.get(TEST_CONCEPT_CONSTANT_UUID).getId().intValue());
+		assertEquals(3, concepts.get(TEST_CONCEPT_CONSTANT_ID).getId().intValue());
+		assertEquals(3, concepts.get(TEST_CONCEPT_CONSTANT_NAME).getId().intValue());
+		assertEquals(5089, concepts.get("sct:2332523").getId().intValue());
+		assertEquals(3, concepts.get("org.openmrs.api.ConceptServiceTest.TEST_CONCEPT_CONSTANT_ID").getId().intValue());
+	}
+
+	/**
+	 * @see ConceptService#getConceptsByReferences(Collection)
+	 */
+	@Test
+	public void getConceptsByReferences_shouldLeaveOutTheReferencesWhichDoNotMatchAnyConcept() {
+		Map<String, Concept> concepts = conceptService.getConceptsByReferences(Arrays.asList("SSTRM:no such code",
+		    "", null, "SSTRM:WGT234", "no such name", "1000"));
+
+		assertThat(concepts.keySet(), contains("SSTRM:WGT234"));
+		assertEquals(5089, concepts.get("SSTRM:WGT234").getId().intValue());
+	}
+
 	/**
 	 * @see ConceptService#getConceptReferenceRangesByConceptId(Integer) 
 	 */
@@ -4016,4 +4362,121 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 
 		assertEquals(34, conceptReferenceRange.getId());
 	}
+
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldReturnNullIfTheSnapshotIsDisabled() {
+		assertNull(conceptService.getConceptDictionarySnapshot());
+	}
+
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldLookUpConceptsByIdUuidMappingAndName() {
+		conceptDictionarySnapshotCache.setEnabled(true);
+
+		ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+
+		assertEquals(conceptService.getAllConcepts().size(), snapshot.size());
+		ConceptDictionarySnapshot.ConceptEntry weight = snapshot.getConcept(5089);
+		assertEquals("c607c80f-1ea9-4da3-bb88-6276ce8868dd", weight.getUuid());
+		assertEquals("WEIGHT (KG)", weight.getPreferredName(Locale.UK).getName());
+		assertSame(weight, snapshot.getConceptByUuid("c607c80f-1ea9-4da3-bb88-6276ce8868dd"));
+		assertEquals(Collections.singletonList(weight), snapshot.getConceptsByMapping("WGT234", "SSTRM", false));
+		assertEquals(Collections.singletonList(weight),
+		    snapshot.getConceptsByMapping("wgt234", "Some Standardized Terminology", false));
+		assertTrue(snapshot.getConceptsByName("weight (kg)", false).contains(weight));
+		assertNull(snapshot.getConcept(-1));
+	}
+
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldIncludeTheAnswersAndSetMembersOfConcepts() {
+		conceptDictionarySnapshotCache.setEnabled(true);
+
+		ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+
+		int[] answerIds = snapshot.getConcept(21).getAnswerIds();
+		Arrays.sort(answerIds);
+		assertArrayEquals(new int[] { 7, 8, 22 }, answerIds);
+		int[] setMemberIds = conceptService.getConcept(23).getSetMembers().stream().mapToInt(Concept::getConceptId)
+		        .toArray();
+		assertArrayEquals(setMemberIds, snapshot.getConcept(23).getSetMemberIds());
+		assertTrue(snapshot.getConcept(23).isSet());
+	}
+
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldIncludeConceptsSavedInTheCurrentTransaction() {
+		conceptDictionarySnapshotCache.setEnabled(true);
+		int size = conceptService.getConceptDictionarySnapshot().size();
+
+		Concept concept = conceptService.saveConcept(newSnapshotTestConcept());
+
+		ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+		assertEquals(size + 1, snapshot.size());
+		assertEquals(concept.getUuid(), snapshot.getConcept(concept.getConceptId()).getUuid());
+		assertEquals(Collections.singletonList(snapshot.getConcept(concept.getConceptId())),
+		    snapshot.getConceptsByName("a snapshot concept", false));
+	}
+
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldNotIncludePurgedConcepts() {
+		conceptDictionarySnapshotCache.setEnabled(true);
+		Concept concept = conceptService.saveConcept(newSnapshotTestConcept());
+		assertNotNull(conceptService.getConceptDictionarySnapshot().getConcept(concept.getConceptId()));
+
+		conceptService.purgeConcept(concept);
+
+		ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+		assertNull(snapshot.getConcept(concept.getConceptId()));
+		assertTrue(snapshot.getConceptsByName("a snapshot concept", true).isEmpty());
+	}
+
+	/**
+	 * @see ConceptService#getConceptDictionarySnapshot()
+	 */
+	@Test
+	public void getConceptDictionarySnapshot_shouldLayTheConceptsChangedInTheCurrentTransactionOverTheSharedSnapshot() {
+		conceptDictionarySnapshotCache.setEnabled(true);
+		ConceptDictionarySnapshot shared = conceptService.getConceptDictionarySnapshot();
+		Concept weight = conceptService.getConcept(5089);
+		weight.getConceptMappings().clear();
+		weight.setUuid("snapshot-weight-uuid");
+		conceptService.saveConcept(weight);
+
+		ConceptDictionarySnapshot snapshot = conceptService.getConceptDictionarySnapshot();
+
+		assertEquals(shared.size(), snapshot.size());
+		assertNull(snapshot.getConceptByUuid("c607c80f-1ea9-4da3-bb88-6276ce8868dd"));
+		assertSame(snapshot.getConcept(5089), snapshot.getConceptByUuid("snapshot-weight-uuid"));
+		assertTrue(snapshot.getConceptsByMapping("WGT234", "SSTRM", false).isEmpty());
+		assertEquals(Collections.singletonList(snapshot.getConcept(5089)),
+		    snapshot.getConceptsByName("weight (kg)", false));
+		assertSame(shared.getConcept(5497), snapshot.getConcept(5497));
+	}
+
+	@AfterEach
+	public void disableConceptDictionarySnapshot() {
+		conceptDictionarySnapshotCache.setEnabled(false);
+	}
+
+	private Concept newSnapshotTestConcept() {
+		Concept concept = new Concept();
+		concept.setDatatype(conceptService.getConceptDatatypeByName("N/A"));
+		concept.setConceptClass(conceptService.getConceptClass(1));
+		concept.addName(new ConceptName("a snapshot concept", Locale.US));
+		concept.addDescription(new ConceptDescription("some description", null));
+		return concept;
+	}
 }
@@ -68,6 +68,8 @@ import org.openmrs.RelationshipType;
 import org.openmrs.User;
 import org.openmrs.Visit;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.PersonSearchResultCache;
+import org.openmrs.api.db.hibernate.search.DatabaseSearchFallback;
 import org.openmrs.api.impl.PatientServiceImpl;
 import org.openmrs.api.impl.PatientServiceImplTest;
 import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
@@ -80,6 +82,9 @@ import org.openmrs.test.TestUtil;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * This class tests methods in the PatientService class TODO Add methods to test all methods in
@@ -620,6 +625,89 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		assertNull(Context.getPatientService().getPatient(1234512093));
 	}
 	
+	/**
+	 * Creates an unsaved patient with the names, gender and birthdate of the given patient, a letter of
+	 * the family name being changed
+	 */
+	private Patient createSimilarPatient(Patient patient) {
+		Patient similarPatient = new Patient();
+		PersonName name = patient.getPersonName();
+		similarPatient.addName(new PersonName(name.getGivenName(), null, name.getFamilyName().replace('o', 'a')));
+		similarPatient.setGender(patient.getGender());
+		similarPatient.setBirthdate(patient.getBirthdate());
+		return similarPatient;
+	}
+	
+	/**
+	 * @see PatientService#getPossibleDuplicatePatients(Patient)
+	 */
+	@Test
+	public void getPossibleDuplicatePatients_shouldFindPatientsWithSimilarNamesAndTheSameBirthYearAndGender() {
+		Patient patient = patientService.getPatient(2);
+		patientService.updatePatientBlockingKeys();
+		
+		List<Patient> duplicates = patientService.getPossibleDuplicatePatients(createSimilarPatient(patient));
+		
+		assertEquals(patient, duplicates.get(0));
+	}
+	
+	/**
+	 * @see PatientService#getPossibleDuplicatePatients(Patient)
+	 */
+	@Test
+	public void getPossibleDuplicatePatients_shouldFindASavedPatientWithoutUpdatingTheBlockingKeys() {
+		Patient patient = patientService.getPatient(2);
+		assertThat(patientService.getPossibleDuplicatePatients(createSimilarPatient(patient)), is(empty()));
+		
+		patientService.savePatient(patient);
+		
+		assertEquals(Collections.singletonList(patient), patientService.getPossibleDuplicatePatients(createSimilarPatient(patient)));
+	}
+	
+	/**
+	 * @see PatientService#getPossibleDuplicatePatients(Patient)
+	 */
+	@Test
+	public void getPossibleDuplicatePatients_shouldNotReturnPatientsBelowTheSimilarityThreshold() {
+		Patient patient = patientService.getPatient(2);
+		patientService.updatePatientBlockingKeys();
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_PATIENT_DUPLICATE_THRESHOLD, "1"));
+		
+		assertThat(patientService.getPossibleDuplicatePatients(createSimilarPatient(patient)), is(empty()));
+	}
+	
+	/**
+	 * @see PatientService#getPossibleDuplicatePatients(Patient)
+	 */
+	@Test
+	public void getPossibleDuplicatePatients_shouldNotReturnPatientsVoidedThroughTheirPerson() {
+		Patient patient = patientService.getPatient(2);
+		Patient similarPatient = createSimilarPatient(patient);
+		patientService.updatePatientBlockingKeys();
+		
+		Context.getPersonService().voidPerson(Context.getPersonService().getPerson(2), "duplicate");
+		
+		assertThat(patientService.getPossibleDuplicatePatients(similarPatient), is(empty()));
+	}
+	
+	/**
+	 * @see PatientService#getPossibleDuplicatePatients(Patient)
+	 */
+	@Test
+	public void getPossibleDuplicatePatients_shouldNotReturnVoidedPatientsWhichStillHaveBlockingKeys() {
+		Patient patient = patientService.getPatient(2);
+		Patient similarPatient = createSimilarPatient(patient);
+		patientService.updatePatientBlockingKeys();
+		
+		// e.g. voided by a script
+		Context.flushSession();
+		Context.getAdministrationService().executeSQL("update patient set voided = true where patient_id = 2", false);
+		Context.clearSession();
+		
+		assertThat(patientService.getPossibleDuplicatePatients(similarPatient), is(empty()));
+	}
+	
 	/**
 	 * @see PatientServiceImpl#mergePatients(Patient,Patient)
 	 */
@@ -1227,6 +1315,67 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		assertNull(patient);
 	}
 	
+	/**
+	 * @see PatientService#getPatients(Collection)
+	 */
+	@Test
+	public void getPatients_shouldReturnThePatientsInTheOrderOfTheGivenIds() {
+		List<Patient> patients = Context.getPatientService().getPatients(Arrays.asList(7, 2, 6));
+		
+		assertEquals(Arrays.asList(7, 2, 6), patients.stream().map(Patient::getPatientId).collect(Collectors.toList()));
+	}
+	
+	/**
+	 * @see PatientService#getPatients(Collection)
+	 */
+	@Test
+	public void getPatients_shouldSkipIdsWithoutAPatient() {
+		List<Patient> patients = Context.getPatientService().getPatients(Arrays.asList(7, 10000, null, 2, 7));
+		
+		assertEquals(Arrays.asList(7, 2), patients.stream().map(Patient::getPatientId).collect(Collectors.toList()));
+	}
+	
+	/**
+	 * @see PatientService#getPatients(String, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldSearchTheDatabaseWhileTheSearchIndexIsRebuilt() {
+		long uses = DatabaseSearchFallback.getUseCount(DatabaseSearchFallback.PATIENTS);
+		DatabaseSearchFallback.setForced(true);
+		try {
+			List<Patient> patients = Context.getPatientService().getPatients("101-", 0, null);
+			assertEquals(Arrays.asList(2), patients.stream().map(Patient::getPatientId).collect(Collectors.toList()));
+			
+			patients = Context.getPatientService().getPatients("Horatio Hornblower2", 0, null);
+			assertEquals(Arrays.asList(2), patients.stream().map(Patient::getPatientId).collect(Collectors.toList()));
+			
+			assertEquals(1, Context.getPatientService().getCountOfPatients("Chebask").intValue());
+		}
+		finally {
+			DatabaseSearchFallback.setForced(false);
+		}
+		assertEquals(uses + 3, DatabaseSearchFallback.getUseCount(DatabaseSearchFallback.PATIENTS));
+	}
+	
+	/**
+	 * @see PatientService#getPatients(String, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldSearchAndCountTheDatabaseRegardlessOfCaseWhileTheSearchIndexIsRebuilt() {
+		DatabaseSearchFallback.setForced(true);
+		try {
+			List<Patient> patients = Context.getPatientService().getPatients("horatio hornblower2", 0, null);
+			assertEquals(Arrays.asList(2), patients.stream().map(Patient::getPatientId).collect(Collectors.toList()));
+			
+			assertEquals(1, Context.getPatientService().getCountOfPatients("CHEBASK").intValue());
+			assertEquals(1, Context.getPatientService().getCountOfPatients("horatio hornblower2").intValue());
+			assertEquals(0, Context.getPatientService().getCountOfPatients("h").intValue());
+		}
+		finally {
+			DatabaseSearchFallback.setForced(false);
+		}
+	}
+	
 	/**
 	 * @see PatientService#getPatientByExample(Patient)
 	 */
@@ -2032,6 +2181,76 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		assertEquals(1, Context.getPatientService().getPatients("1234-4").size());
 	}
 	
+	/**
+	 * @see PatientService#getPatients(String, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldAnswerRepeatedSearchesFromTheResultCache() {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_SEARCH_RESULT_CACHE_SIZE, "10"));
+		PersonSearchResultCache cache = Context.getRegisteredComponent("personSearchResultCache",
+		    PersonSearchResultCache.class);
+		long hits = cache.getHitCount();
+		
+		List<Patient> patients = patientService.getPatients("Hornblower", false, 0, 10);
+		
+		assertEquals(patients, patientService.getPatients(" Hornblower ", false, 0, 10));
+		assertEquals(hits + 1, cache.getHitCount());
+	}
+	
+	/**
+	 * @see PatientService#getPatients(String, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldNotAnswerFromTheResultCacheOnceAPatientIsSaved() {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_SEARCH_RESULT_CACHE_SIZE, "10"));
+		int count = patientService.getPatients("Hornblower", false, 0, 10).size();
+		
+		Patient patient = patientService.getPatient(6);
+		patient.addName(new PersonName("Horatio", null, "Hornblower"));
+		patientService.savePatient(patient);
+		updateSearchIndex();
+		
+		assertEquals(count + 1, patientService.getPatients("Hornblower", false, 0, 10).size());
+	}
+	
+	/**
+	 * @see PatientService#getPatients(String, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldAnswerFromTheResultCacheOnlyTheTransactionsWithoutUncommittedChanges() {
+		PersonSearchResultCache cache = Context.getRegisteredComponent("personSearchResultCache",
+		    PersonSearchResultCache.class);
+		TransactionTemplate transaction = new TransactionTemplate(
+		        Context.getRegisteredComponent("transactionManager", PlatformTransactionManager.class));
+		transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		GlobalProperty size = transaction.execute(status -> Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_SEARCH_RESULT_CACHE_SIZE, "10")));
+		try {
+			Patient patient = patientService.getPatient(6);
+			patient.addName(new PersonName("Horatio", null, "Hornblower"));
+			patientService.savePatient(patient);
+			Context.flushSession();
+			long hits = cache.getHitCount();
+			
+			// another transaction doesn't see the change and keeps using the cache
+			transaction.executeWithoutResult(status -> {
+				patientService.getPatients("Hornblower", false, 0, 10);
+				patientService.getPatients("Hornblower", false, 0, 10);
+			});
+			assertEquals(hits + 1, cache.getHitCount());
+			
+			patientService.getPatients("Hornblower", false, 0, 10);
+			assertEquals(hits + 1, cache.getHitCount());
+		}
+		finally {
+			transaction.executeWithoutResult(status -> Context.getAdministrationService().purgeGlobalProperty(
+			    Context.getAdministrationService().getGlobalPropertyObject(size.getProperty())));
+			cache.clear();
+		}
+	}
+	
 	/**
 	 * @see PatientService#getPatientIdentifier(Integer patientId)
 	 */
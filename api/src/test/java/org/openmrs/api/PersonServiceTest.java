@@ -51,6 +51,7 @@ import org.openmrs.Relationship;
 import org.openmrs.RelationshipType;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.PersonSearchResultCache;
 import org.openmrs.person.PersonMergeLog;
 import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
@@ -584,6 +585,25 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		assertTrue(containsId(matches, 1011));
 	}
 	
+	/**
+	 * @see PersonService#getSimilarPeople(String,Integer,String)
+	 */
+	@Test
+	public void getSimilarPeople_shouldNotMatchNamesWithTheSameSoundexButADifferentPronunciation() throws Exception {
+		executeDataSet("org/openmrs/api/include/PersonServiceTest-names.xml");
+		Person person = new Person();
+		person.setGender("M");
+		person.addName(new PersonName("Derek", null, null));
+		person = Context.getPersonService().savePerson(person);
+		updateSearchIndex();
+
+		Set<Person> matches = Context.getPersonService().getSimilarPeople("Darius", null, "M");
+
+		assertTrue(containsId(matches, 1000));
+		assertFalse(containsId(matches, person.getPersonId()));
+		assertTrue(containsId(Context.getPersonService().getSimilarPeople("Derik", null, "M"), person.getPersonId()));
+	}
+
 	/**
 	 * @see PersonService#getPeople(String,Boolean)
 	 */
@@ -599,6 +619,31 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		assertTrue(TestUtil.containsId(people, 5));
 	}
 	
+	/**
+	 * @see PersonService#getPeople(String,Boolean)
+	 */
+	@Test
+	public void getPeople_shouldNotAnswerFromTheResultCacheOnceANameIsSaved() throws Exception {
+		executeDataSet("org/openmrs/api/include/PersonServiceTest-extranames.xml");
+		updateSearchIndex();
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_SEARCH_RESULT_CACHE_SIZE, "10"));
+		PersonSearchResultCache cache = Context.getRegisteredComponent("personSearchResultCache",
+		    PersonSearchResultCache.class);
+		
+		assertEquals(3, Context.getPersonService().getPeople("Johnson", false).size());
+		long hits = cache.getHitCount();
+		assertEquals(3, Context.getPersonService().getPeople("Johnson", false).size());
+		assertEquals(hits + 1, cache.getHitCount());
+		
+		Person person = Context.getPersonService().getPerson(1);
+		person.addName(new PersonName("Robert", null, "Johnson"));
+		Context.getPersonService().savePerson(person);
+		updateSearchIndex();
+		
+		assertEquals(4, Context.getPersonService().getPeople("Johnson", false).size());
+	}
+	
 	/**
 	 * @see PersonService#getSimilarPeople(String,Integer,String)
 	 */
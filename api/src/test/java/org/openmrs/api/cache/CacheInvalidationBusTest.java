@@ -0,0 +1,301 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptSource;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.CacheInvalidationDAO;
+import org.openmrs.api.db.hibernate.ConceptSetIndex;
+import org.openmrs.api.impl.ConceptMappingCache;
+import org.openmrs.api.impl.GlobalPropertyCache;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests {@link CacheInvalidationBus} with two nodes sharing the same database, the one of the
+ * application context and another one with its own caches.
+ */
+public class CacheInvalidationBusTest extends BaseContextSensitiveTest {
+
+	/**
+	 * The cache evicted by {@link org.openmrs.api.ConceptService#saveConceptSource(ConceptSource)}
+	 */
+	private static final String CACHE_NAME = "conceptIdsByMapping";
+
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	@Autowired
+	private CacheInvalidationDAO cacheInvalidationDAO;
+
+	@Autowired
+	@Qualifier("apiCacheManager")
+	private CacheManager apiCacheManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Properties props;
+
+	private CacheInvalidationBus otherNode;
+
+	private Cache otherNodeCache;
+
+	@BeforeEach
+	public void startNodes() {
+		props = new Properties();
+		// long enough for the scheduled polls not to interfere with the tests
+		props.setProperty(OpenmrsConstants.CACHE_INVALIDATION_POLL_INTERVAL_RUNTIME_PROPERTY, "3600");
+		props.setProperty(OpenmrsConstants.CACHE_INVALIDATION_BATCH_SIZE_RUNTIME_PROPERTY, "2");
+		cacheInvalidationBus.startup(props);
+
+		ConcurrentMapCacheManager otherNodeCacheManager = new ConcurrentMapCacheManager(CACHE_NAME);
+		otherNode = newNode(otherNodeCacheManager);
+		otherNode.startup(props);
+		otherNodeCache = otherNodeCacheManager.getCache(CACHE_NAME);
+		otherNodeCache.put("a", 1);
+		otherNodeCache.put("b", 2);
+	}
+
+	@AfterEach
+	public void stopNodes() {
+		cacheInvalidationBus.shutdown();
+		otherNode.shutdown();
+	}
+
+	private CacheInvalidationBus newNode(CacheManager cacheManager) {
+		CacheInvalidationBus node = new CacheInvalidationBus();
+		node.setCacheInvalidationDAO(cacheInvalidationDAO);
+		node.setCacheManager(cacheManager);
+		node.setTransactionManager(Context.getRegisteredComponent("transactionManager", PlatformTransactionManager.class));
+		return node;
+	}
+
+	/**
+	 * @see CacheInvalidationBus#poll()
+	 */
+	@Test
+	public void poll_shouldEvictTheKeysInvalidatedByAnotherNode() {
+		cacheInvalidationBus.publish(CACHE_NAME, "a");
+
+		assertEquals(1, otherNode.poll());
+		assertNull(otherNodeCache.get("a"));
+		assertNotNull(otherNodeCache.get("b"));
+	}
+
+	/**
+	 * @see CacheInvalidationBus#poll()
+	 */
+	@Test
+	public void poll_shouldClearCachesClearedByAnotherNode() {
+		cacheInvalidationBus.publish(CACHE_NAME, null);
+
+		assertEquals(1, otherNode.poll());
+		assertNull(otherNodeCache.get("a"));
+		assertNull(otherNodeCache.get("b"));
+	}
+
+	/**
+	 * @see CacheInvalidationBus#poll()
+	 */
+	@Test
+	public void poll_shouldApplyEachInvalidationOnceAcrossBatches() {
+		for (int i = 0; i < 5; i++) {
+			cacheInvalidationBus.publish(CACHE_NAME, "key" + i);
+		}
+
+		assertEquals(5, otherNode.poll());
+		assertEquals(0, otherNode.poll());
+	}
+
+	/**
+	 * @see CacheInvalidationBus#poll()
+	 */
+	@Test
+	public void poll_shouldIgnoreInvalidationsPublishedByTheSameNode() {
+		otherNode.publish(CACHE_NAME, "a");
+
+		assertEquals(0, otherNode.poll());
+		assertNotNull(otherNodeCache.get("a"));
+	}
+
+	/**
+	 * @see CacheInvalidationBus#publish(String, Object)
+	 */
+	@Test
+	public void publish_shouldNotRecordInvalidationsIfNotStarted() {
+		newNode(new ConcurrentMapCacheManager()).publish(CACHE_NAME, "a");
+
+		assertEquals(0, otherNode.poll());
+	}
+
+	/**
+	 * @see CacheInvalidationBus#publish(String, Object)
+	 */
+	@Test
+	public void publish_shouldBeCalledWhenAServiceMethodEvictsACache() {
+		ConceptSource source = Context.getConceptService().getConceptSource(1);
+		source.setDescription("changed");
+		Context.getConceptService().saveConceptSource(source);
+
+		// along with the concepts remembered by reference
+		assertEquals(2, otherNode.poll());
+		assertNull(otherNodeCache.get("a"));
+	}
+
+	/**
+	 * @see CacheInvalidationBus#addHandler(String, java.util.function.Consumer)
+	 */
+	@Test
+	public void addHandler_shouldReceiveGlobalPropertyChangesMadeByAnotherNode() {
+		List<String> changed = new ArrayList<>();
+		otherNode.addHandler(GlobalPropertyCache.CACHE_NAME, changed::add);
+
+		Context.getAdministrationService().saveGlobalProperty(new GlobalProperty("a.shared.property", "value"));
+		otherNode.poll();
+
+		assertThat(changed, contains("a.shared.property"));
+	}
+
+	/**
+	 * @see org.openmrs.api.db.hibernate.ConceptSetIndex
+	 */
+	@Test
+	public void poll_shouldReloadTheMembersOfASetChangedByAnotherNode() {
+		Concept set = Context.getConceptService().getConcept(23);
+		assertTrue(Context.getConceptService().getConceptsByConceptSet(set).stream()
+		        .anyMatch(concept -> concept.getConceptId() == 18));
+
+		// the other node removes a member from the set
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		transaction.executeWithoutResult(status -> Context.getAdministrationService()
+		        .executeSQL("delete from concept_set where concept_set_id = 1", false));
+		try {
+			otherNode.publish(ConceptSetIndex.CACHE_NAME, 23);
+			cacheInvalidationBus.poll();
+
+			assertTrue(Context.getConceptService().getConceptsByConceptSet(set).stream()
+			        .noneMatch(concept -> concept.getConceptId() == 18));
+		}
+		finally {
+			transaction.executeWithoutResult(status -> {
+				Context.getAdministrationService().executeSQL(
+				    "insert into concept_set (concept_set_id, concept_id, concept_set, sort_weight, creator, date_created, uuid)"
+				            + " values (1, 18, 23, 0.0, 1, '2008-08-18 12:38:58.0', '1a111827-639f-4cb4-961f-1e025bf88d90')",
+				    false);
+				cacheInvalidationDAO.deleteCacheInvalidationsCreatedBefore(new Date(System.currentTimeMillis() + 60000));
+			});
+		}
+	}
+
+	/**
+	 * @see org.openmrs.api.db.hibernate.ConceptSetIndex
+	 */
+	@Test
+	public void publish_shouldBeCalledWhenAConceptIsSaved() {
+		List<String> changed = new ArrayList<>();
+		otherNode.addHandler(ConceptSetIndex.CACHE_NAME, changed::add);
+
+		Context.getConceptService().saveConcept(Context.getConceptService().getConcept(23));
+		otherNode.poll();
+
+		assertThat(changed, hasItem("23"));
+	}
+
+	/**
+	 * @see CacheInvalidationBus#poll()
+	 */
+	@Test
+	public void poll_shouldEvictEhcacheEntriesByTheirKey() {
+		Cache cache = apiCacheManager.getCache(CACHE_NAME);
+		Object key = ConceptMappingCache.getKey("WGT234", "SSTRM", false);
+		cache.put(key, Collections.singletonList(5089));
+		cache.put(ConceptMappingCache.getKey("WGT234", "SSTRM", true), Collections.singletonList(5089));
+
+		otherNode.publish(CACHE_NAME, key);
+
+		assertEquals(1, cacheInvalidationBus.poll());
+		assertNull(cache.get(key));
+		assertNotNull(cache.get(ConceptMappingCache.getKey("WGT234", "SSTRM", true)));
+	}
+
+	/**
+	 * @see CacheInvalidationBus#startup(Properties)
+	 */
+	@Test
+	public void startup_shouldReadTheRecordsWhoseTransactionMayStillBeInFlight() {
+		cacheInvalidationBus.publish(CACHE_NAME, "a");
+		otherNode.shutdown();
+
+		otherNode.startup(props);
+
+		assertEquals(1, otherNode.poll());
+		assertNull(otherNodeCache.get("a"));
+	}
+
+	/**
+	 * @see org.openmrs.api.db.hibernate.SecondLevelCacheInvalidationListener
+	 */
+	@Test
+	public void publish_shouldBeCalledWhenACommittedTransactionUpdatesACachedEntity() {
+		List<String> changed = new ArrayList<>();
+		otherNode.addHandler("hibernate.entity:" + GlobalProperty.class.getName(), changed::add);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		GlobalProperty property = transaction.execute(status -> Context.getAdministrationService()
+		        .saveGlobalProperty(new GlobalProperty("a.cached.property", "value")));
+		try {
+			transaction.executeWithoutResult(status -> {
+				GlobalProperty stored = Context.getAdministrationService().getGlobalPropertyObject("a.cached.property");
+				stored.setPropertyValue("changed");
+				Context.getAdministrationService().saveGlobalProperty(stored);
+			});
+
+			otherNode.poll();
+
+			assertThat(changed, contains("a.cached.property"));
+		}
+		finally {
+			transaction.executeWithoutResult(status -> {
+				Context.getAdministrationService().purgeGlobalProperty(
+				    Context.getAdministrationService().getGlobalPropertyObject(property.getProperty()));
+				cacheInvalidationDAO.deleteCacheInvalidationsCreatedBefore(new Date(System.currentTimeMillis() + 60000));
+			});
+		}
+	}
+}
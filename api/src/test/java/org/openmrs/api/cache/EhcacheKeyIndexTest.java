@@ -0,0 +1,96 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link EhcacheKeyIndex}
+ */
+public class EhcacheKeyIndexTest {
+
+	private CacheManager cacheManager;
+
+	private Cache cache;
+
+	private EhcacheKeyIndex index;
+
+	@BeforeEach
+	public void createCache() {
+		cacheManager = new CacheManager(new Configuration().name(EhcacheKeyIndexTest.class.getName()));
+		cache = new Cache(new CacheConfiguration("keys", 100));
+		cacheManager.addCache(cache);
+		index = EhcacheKeyIndex.register(cache);
+	}
+
+	@AfterEach
+	public void shutdownCache() {
+		cacheManager.shutdown();
+	}
+
+	/**
+	 * @see EhcacheKeyIndex#evict(net.sf.ehcache.Ehcache, String)
+	 */
+	@Test
+	public void evict_shouldRemoveEveryKeySharingTheString() {
+		cache.put(new Element(1, "integer"));
+		cache.put(new Element(1L, "long"));
+
+		index.evict(cache, "1");
+
+		assertFalse(cache.isKeyInCache(1));
+		assertFalse(cache.isKeyInCache(1L));
+	}
+
+	/**
+	 * @see EhcacheKeyIndex#size()
+	 */
+	@Test
+	public void size_shouldNotCountAStringOnceTheKeysSharingItAreRemoved() {
+		cache.put(new Element(1, "integer"));
+		cache.put(new Element(1L, "long"));
+
+		cache.remove(1);
+		index.evict(cache, "1");
+
+		assertFalse(cache.isKeyInCache(1L));
+		assertEquals(0, index.size());
+	}
+
+	/**
+	 * @see EhcacheKeyIndex#evict(net.sf.ehcache.Ehcache, String)
+	 */
+	@Test
+	public void evict_shouldOnlyRemoveTheRemainingKeyOfAStringWhichWasShared() {
+		cache.put(new Element(1, "integer"));
+		cache.put(new Element(1L, "long"));
+		cache.remove(1L);
+		cache.put(new Element(1, "integer again"));
+
+		index.evict(cache, "1");
+
+		assertFalse(cache.isKeyInCache(1));
+		assertEquals(0, index.size());
+		cache.put(new Element(2, "two"));
+		assertTrue(cache.isKeyInCache(2));
+		assertEquals(1, index.size());
+	}
+}
@@ -19,11 +19,19 @@ import static org.mockito.MockitoAnnotations.openMocks;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.openmrs.api.APIException;
+import org.openmrs.api.PatientService;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 import org.openmrs.util.DatabaseUpdateException;
 import org.openmrs.util.InputRequiredException;
@@ -96,4 +104,70 @@ public class ServiceContextTest extends BaseContextSensitiveTest {
 		verify(spiedServiceContext, never()).getMessageService();
 		verify(spiedServiceContext, never()).getMessageSourceService();
 	}
+	
+	/**
+	 * @see ServiceContext#getService(Class)
+	 */
+	@Test
+	public void getService_shouldRaiseApiExceptionWithNullClass() {
+		assertThrows(APIException.class, () -> serviceContext.getService(null));
+	}
+	
+	/**
+	 * @see ServiceContext#getService(Class)
+	 */
+	@Test
+	public void getService_shouldWaitWhileTheContextIsRefreshing() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		serviceContext.startRefreshingContext();
+		try {
+			Future<PatientService> service = executor.submit(() -> serviceContext.getService(PatientService.class));
+			
+			assertThrows(TimeoutException.class, () -> service.get(200, TimeUnit.MILLISECONDS));
+			serviceContext.doneRefreshingContext();
+			assertNotNull(service.get(5, TimeUnit.SECONDS));
+		}
+		finally {
+			serviceContext.doneRefreshingContext();
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	@Disabled("Designated for manual runs")
+	public void getService_shouldScaleWithTheNumberOfThreads() throws Exception {
+		int iterations = 10000000;
+		for (int threads : new int[] { 1, 8, 32 }) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				for (int round = 0; round < 2; round++) {
+					// the first round warms up
+					CountDownLatch start = new CountDownLatch(1);
+					List<Future<?>> futures = new ArrayList<>();
+					for (int i = 0; i < threads; i++) {
+						futures.add(executor.submit(() -> {
+							start.await();
+							for (int j = 0; j < iterations / threads; j++) {
+								serviceContext.getService(PatientService.class);
+							}
+							return null;
+						}));
+					}
+					long time = System.nanoTime();
+					start.countDown();
+					for (Future<?> future : futures) {
+						future.get();
+					}
+					time = System.nanoTime() - time;
+					if (round > 0) {
+						System.out.println("Getting a service with " + threads + " threads: "
+						        + (iterations * 1000L / Math.max(1, time / 1000000)) + " calls per second");
+					}
+				}
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+	}
 }
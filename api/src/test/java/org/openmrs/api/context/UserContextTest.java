@@ -9,11 +9,16 @@
  */
 package org.openmrs.api.context;
 
+import java.util.Collections;
+import java.util.HashSet;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.UserService;
@@ -24,6 +29,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class UserContextTest extends BaseContextSensitiveTest {
 	
@@ -111,4 +118,54 @@ public class UserContextTest extends BaseContextSensitiveTest {
 		// assert
 		assertThat(locationId, nullValue());
 	}
+
+	@Test
+	void hasPrivilege_shouldReflectRolesAddedAfterPrivilegesWereCompiled() {
+		UserContext userContext = new UserContext(Context.getAuthenticationScheme());
+		userContext.authenticate(new UsernamePasswordCredentials(testUser.getUsername(), "Test1234"));
+		assertFalse(userContext.hasPrivilege("Some Custom Privilege"));
+		
+		Role role = new Role("Custom Role");
+		role.addPrivilege(new Privilege("Some Custom Privilege"));
+		userContext.getAuthenticatedUser().addRole(role);
+		
+		assertTrue(userContext.hasPrivilege("Some Custom Privilege"));
+		assertTrue(userContext.hasPrivilege("some custom privilege"));
+	}
+	
+	@Test
+	void hasPrivilege_shouldRecompilePrivilegesWhenInvalidated() {
+		UserContext userContext = new UserContext(Context.getAuthenticationScheme());
+		userContext.authenticate(new UsernamePasswordCredentials(testUser.getUsername(), "Test1234"));
+		Role role = new Role("Custom Role");
+		role.setPrivileges(new HashSet<>());
+		userContext.getAuthenticatedUser().addRole(role);
+		assertFalse(userContext.hasPrivilege("Some Custom Privilege"));
+		
+		role.getPrivileges().add(new Privilege("Some Custom Privilege"));
+		UserContext.invalidateCompiledPrivileges();
+		
+		assertTrue(userContext.hasPrivilege("Some Custom Privilege"));
+	}
+
+	@Test
+	void hasPrivilege_shouldReflectPrivilegesAndRolesReplacedAfterPrivilegesWereCompiled() {
+		UserContext userContext = new UserContext(Context.getAuthenticationScheme());
+		userContext.authenticate(new UsernamePasswordCredentials(testUser.getUsername(), "Test1234"));
+		Role role = new Role("Custom Role");
+		role.setPrivileges(new HashSet<>());
+		userContext.getAuthenticatedUser().addRole(role);
+		assertFalse(userContext.hasPrivilege("Some Custom Privilege"));
+
+		role.setPrivileges(new HashSet<>(Collections.singleton(new Privilege("Some Custom Privilege"))));
+		assertTrue(userContext.hasPrivilege("Some Custom Privilege"));
+
+		Role inheritingRole = new Role("Inheriting Role");
+		inheritingRole.setInheritedRoles(new HashSet<>());
+		userContext.getAuthenticatedUser().setRoles(new HashSet<>(Collections.singleton(inheritingRole)));
+		assertFalse(userContext.hasPrivilege("Some Custom Privilege"));
+
+		inheritingRole.setInheritedRoles(new HashSet<>(Collections.singleton(role)));
+		assertTrue(userContext.hasPrivilege("Some Custom Privilege"));
+	}
 }
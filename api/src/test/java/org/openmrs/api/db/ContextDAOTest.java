@@ -14,6 +14,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -31,7 +32,9 @@ import org.openmrs.api.UserService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.db.hibernate.HibernateContextDAO;
+import org.openmrs.api.db.hibernate.VerifiedCredentialsCache;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.PrivilegeConstants;
 import org.springframework.stereotype.Component;
 
@@ -268,6 +271,70 @@ public class ContextDAOTest extends BaseContextSensitiveTest {
 		dao.authenticate("incorrect", "test");
 	}
 	
+	/**
+	 * @see ContextDAO#authenticate(String,String)
+	 */
+	@Test
+	public void authenticate_shouldAuthenticateRepeatedlyWithTheSameCredentials() {
+		User first = dao.authenticate("admin", "test");
+		User second = dao.authenticate("admin", "test");
+		assertEquals(first, second);
+		assertThrows(ContextAuthenticationException.class, () -> dao.authenticate("admin", "wrong"));
+	}
+	
+	/**
+	 * @see ContextDAO#authenticate(String,String)
+	 */
+	@Test
+	public void authenticate_shouldNotAuthenticateWithTheOldPasswordAfterItWasChanged() {
+		User user = dao.authenticate("admin", "test");
+		
+		Context.getUserService().changePassword(user, "test", "Newpassword123");
+		
+		assertThrows(ContextAuthenticationException.class, () -> dao.authenticate("admin", "test"));
+		assertEquals(user, dao.authenticate("admin", "Newpassword123"));
+	}
+	
+	/**
+	 * @see ContextDAO#authenticate(String,String)
+	 */
+	@Test
+	public void authenticate_shouldNotAuthenticateARetiredUserWithRecentlyVerifiedCredentials() {
+		User user = dao.authenticate("1-8", "test");
+		
+		Context.getUserService().retireUser(user, "test");
+		
+		assertThrows(ContextAuthenticationException.class, () -> dao.authenticate("1-8", "test"));
+	}
+	
+	/**
+	 * @see ContextDAO#authenticate(String,String)
+	 */
+	@Test
+	public void authenticate_shouldNotAuthenticateALockedOutUserWithRecentlyVerifiedCredentials() {
+		User user = dao.authenticate("admin", "test");
+		
+		user.setUserProperty(OpenmrsConstants.USER_PROPERTY_LOCKOUT_TIMESTAMP, String.valueOf(System.currentTimeMillis()));
+		
+		assertThrows(ContextAuthenticationException.class, () -> dao.authenticate("admin", "test"));
+	}
+	
+	/**
+	 * @see VerifiedCredentialsCache#putVerified(String,String,Integer,long)
+	 */
+	@Test
+	public void putVerified_shouldNotRememberCredentialsVerifiedBeforeTheUserWasEvicted() {
+		VerifiedCredentialsCache cache = (VerifiedCredentialsCache) applicationContext.getBean("verifiedCredentialsCache");
+		long generation = cache.getGeneration();
+		cache.evict(1);
+		
+		cache.putVerified("admin", "test", 1, generation);
+		
+		assertNull(cache.getVerifiedUserId("admin", "test"));
+		cache.putVerified("admin", "test", 1, cache.getGeneration());
+		assertEquals(1, cache.getVerifiedUserId("admin", "test"));
+	}
+	
 	/**
 	 * #1580: If you type your password wrong, then log in correctly, the API will not lock you out
 	 * after multiple login attempts in the future
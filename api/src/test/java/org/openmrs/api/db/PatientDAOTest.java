@@ -50,6 +50,7 @@ import org.openmrs.PersonAttributeType;
 import org.openmrs.PersonName;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.LocationService;
+import org.openmrs.api.PatientSearchStrategy;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.context.Context;
@@ -2050,6 +2051,129 @@ public class PatientDAOTest extends BaseContextSensitiveTest {
 		List<Patient> patients = dao.getPatients("voided-bravo", false, 0, 11);
 		assertEquals(0, patients.size());
 	}
+	
+	/**
+	 * @see PatientDAO#getPatients(String, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldPageThroughPatientsWithSeveralMatchingNames() {
+		Patient patient = patientService.getPatient(45);
+		for (int i = 0; i < 5; i++) {
+			patient.addName(new PersonName("alpha", "other" + i, "name"));
+		}
+		dao.savePatient(patient);
+		updateSearchIndex();
+		
+		List<Patient> firstPage = dao.getPatients("alpha", false, 0, 1);
+		List<Patient> secondPage = dao.getPatients("alpha", false, 1, 1);
+		
+		assertEquals(1, firstPage.size());
+		assertEquals(1, secondPage.size());
+		assertThat(Arrays.asList(firstPage.get(0), secondPage.get(0)), containsInAnyOrder(patientService.getPatient(44),
+		    patient));
+		assertThat(dao.getPatients("alpha", false, 2, 1), is(empty()));
+		assertEquals(2, dao.getCountOfPatients("alpha").intValue());
+	}
+	
+	/**
+	 * @see PatientDAO#getPatients(String, boolean, Integer, Integer, PatientSearchStrategy)
+	 */
+	@Test
+	public void getPatients_shouldFindPatientsByIdentifierNameAndSearchableAttributeWithTheUnifiedStrategy() {
+		assertThat(dao.getPatients("42-42-42", false, 0, 11, PatientSearchStrategy.UNIFIED),
+		    contains(patientService.getPatient(42)));
+		assertThat(dao.getPatients("Baggins", false, 0, 11, PatientSearchStrategy.UNIFIED),
+		    containsInAnyOrder(patientService.getPatient(42), patientService.getPatient(43)));
+		assertThat(dao.getPatients("337-4820", false, 0, 11, PatientSearchStrategy.UNIFIED),
+		    contains(patientService.getPatient(43)));
+		assertThat(dao.getPatients("Porridge", false, 0, 11, PatientSearchStrategy.UNIFIED), is(empty()));
+		assertThat(dao.getPatients("voided-42", false, 0, 11, PatientSearchStrategy.UNIFIED), is(empty()));
+	}
+	
+	/**
+	 * @see PatientDAO#getPatients(String, boolean, Integer, Integer, PatientSearchStrategy)
+	 */
+	@Test
+	public void getPatients_shouldRankIdentifierMatchesFirstWithTheUnifiedStrategy() {
+		Patient patient = patientService.getPatient(48);
+		patient.addIdentifier(new PatientIdentifier("kilo", patientService.getPatientIdentifierType(5), locationService
+		        .getLocation(1)));
+		patientService.savePatient(patient);
+		updateSearchIndex();
+		
+		List<Patient> patients = dao.getPatients("kilo", false, 0, 11, PatientSearchStrategy.UNIFIED);
+		
+		assertThat(patients, containsInAnyOrder(patient, patientService.getPatient(46), patientService.getPatient(47)));
+		assertEquals(patient, patients.get(0));
+	}
+	
+	/**
+	 * @see PatientDAO#getPatients(String, boolean, Integer, Integer, PatientSearchStrategy)
+	 */
+	@Test
+	public void getPatients_shouldNotFindPatientsByVoidedNamesWithTheUnifiedStrategy() {
+		assertThat(dao.getPatients("voided-delta", false, 0, 11, PatientSearchStrategy.UNIFIED), is(empty()));
+		assertThat(dao.getPatients("voided-bravo", false, 0, 11, PatientSearchStrategy.UNIFIED), is(empty()));
+		assertEquals(1, dao.getPatients("voided-bravo", true, 0, 11, PatientSearchStrategy.UNIFIED).size());
+	}
+	
+	/**
+	 * @see PatientDAO#getPatients(String, boolean, Integer, Integer, PatientSearchStrategy)
+	 */
+	@Test
+	public void getPatients_shouldFindPatientsByUpdatedNamesWithTheUnifiedStrategy() {
+		Patient patient = patientService.getPatient(44);
+		for (PersonName name : patient.getNames()) {
+			if ("alpha".equals(name.getGivenName())) {
+				name.setGivenName("zulu");
+			}
+		}
+		dao.savePatient(patient);
+		updateSearchIndex();
+		
+		assertThat(dao.getPatients("zulu", false, 0, 11, PatientSearchStrategy.UNIFIED), contains(patient));
+		assertThat(dao.getPatients("alpha", false, 0, 11, PatientSearchStrategy.UNIFIED),
+		    contains(patientService.getPatient(45)));
+	}
+	
+	/**
+	 * @see PatientDAO#getCountOfPatients(String, boolean, PatientSearchStrategy)
+	 */
+	@Test
+	public void getCountOfPatients_shouldCountEachMatchingPatientOnceWithTheUnifiedStrategy() {
+		// patient 42 matches on a name and an attribute
+		assertEquals(2, dao.getCountOfPatients("Senior", false, PatientSearchStrategy.UNIFIED).intValue());
+		assertEquals(dao.getPatients("Senior", false, 0, 11, PatientSearchStrategy.UNIFIED).size(),
+		    dao.getCountOfPatients("Senior", false, PatientSearchStrategy.UNIFIED).intValue());
+	}
+	
+	/**
+	 * @see PatientDAO#getCountOfPatients(String, boolean, PatientSearchStrategy)
+	 */
+	@Test
+	public void getCountOfPatients_shouldApplyTheMinimumSearchCharactersLikeTheUnifiedSearch() {
+		globalPropertiesTestHelper.setGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_MIN_SEARCH_CHARACTERS, "7");
+		
+		assertThat(dao.getPatients("Senior", false, 0, 11, PatientSearchStrategy.UNIFIED), is(empty()));
+		assertEquals(0, dao.getCountOfPatients("Senior", false, PatientSearchStrategy.UNIFIED).intValue());
+	}
+	
+	/**
+	 * @see PatientService#getPatients(String, Integer, Integer)
+	 */
+	@Test
+	public void getPatients_shouldUseTheSearchStrategyOfTheGlobalProperty() {
+		globalPropertiesTestHelper.setGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY,
+		    PatientSearchStrategy.UNIFIED.name());
+		assertEquals(dao.getPatients("kilo", false, 0, 11, PatientSearchStrategy.UNIFIED), patientService.getPatients(
+		    "kilo", 0, 11));
+		assertEquals(dao.getCountOfPatients("kilo", false, PatientSearchStrategy.UNIFIED).intValue(), patientService
+		        .getCountOfPatients("kilo").intValue());
+		
+		globalPropertiesTestHelper.setGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_STRATEGY, "invalid");
+		assertEquals(dao.getPatients("kilo", false, 0, 11, PatientSearchStrategy.PER_ENTITY), patientService.getPatients(
+		    "kilo", 0, 11));
+	}
 	/**
 	 * @see HibernatePatientDAO#getDuplicatePatientsByAttributes(List)
 	 */
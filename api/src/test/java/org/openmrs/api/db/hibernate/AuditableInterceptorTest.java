@@ -9,6 +9,7 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
@@ -238,6 +239,24 @@ public class AuditableInterceptorTest extends BaseContextSensitiveTest {
 		assertFalse(result);
 	}
 	
+	/**
+	 * @see AuditableInterceptor#onSave(Object,Serializable,Object[],String[],Type[])
+	 */
+	@Test
+	public void onSave_shouldSetTheUuidIfItWasNull() {
+		AuditableInterceptor interceptor = new AuditableInterceptor();
+		
+		User u = new User();
+		
+		String[] propertyNames = new String[] { "uuid", "creator", "dateCreated" };
+		Object[] currentState = new Object[] { null, 0, new Date() };
+		
+		boolean result = interceptor.onSave(u, 0, currentState, propertyNames, null);
+		assertTrue(result);
+		assertNotNull(currentState[0]);
+		assertEquals(u.getUuid(), currentState[0]);
+	}
+	
 	/**
 	 * @see AuditableInterceptor#onSave(Object,Serializable,Object[],String[],Type[])
 	 */
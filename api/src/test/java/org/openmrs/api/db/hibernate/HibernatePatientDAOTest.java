@@ -12,8 +12,10 @@ package org.openmrs.api.db.hibernate;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.sql.Date;
@@ -22,15 +24,19 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.openmrs.GlobalProperty;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
 import org.openmrs.api.context.Context;
+import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
 
 public class HibernatePatientDAOTest extends BaseContextSensitiveTest {
 
@@ -38,11 +44,14 @@ public class HibernatePatientDAOTest extends BaseContextSensitiveTest {
 	
 	private HibernatePersonDAO hibernatePersonDAO;
 
+	private SessionFactory sessionFactory;
+
 	@BeforeEach
 	public void beforeEach() {
 		updateSearchIndex();
 		hibernatePatientDao = (HibernatePatientDAO) applicationContext.getBean("patientDAO");
 		hibernatePersonDAO = (HibernatePersonDAO) applicationContext.getBean("personDAO");
+		sessionFactory = (SessionFactory) applicationContext.getBean("sessionFactory");
 	}
 
 	@Test
@@ -291,4 +300,76 @@ public class HibernatePatientDAOTest extends BaseContextSensitiveTest {
 		// then
 		assertThat(duplicatePatients.size(), equalTo(2));
 	}
+
+	@Test
+	public void getPatients_shouldFindAPatientByAValidIdentifierWithoutSearchingTheIndex() {
+		// given
+		String identifier = new LuhnIdentifierValidator().getValidIdentifier("7531");
+		Person person = new Person();
+		person.addName(new PersonName("Ioan", "Theo", "Fletcher"));
+		person = hibernatePersonDAO.savePerson(person);
+		Patient patient = new Patient(person);
+		patient.addIdentifier(new PatientIdentifier(identifier, new PatientIdentifierType(1), null));
+		hibernatePatientDao.savePatient(patient);
+		Context.flushSession();
+
+		// when
+		List<Patient> patients = hibernatePatientDao.getPatients(identifier, false, 0, 10);
+
+		// then
+		assertThat(patients, contains(patient));
+		assertThat(hibernatePatientDao.getCountOfPatients(identifier, false), equalTo(1L));
+		// not an identifier, so searched in the index
+		assertThat(new PatientIdentifierLookup(sessionFactory).getPatientIds(identifier.substring(0,
+		    identifier.length() - 1), false), nullValue());
+	}
+
+	@Test
+	public void getPatients_shouldIgnoreAnIdentifierFormatWhichIsNotAValidRegularExpression() {
+		// given
+		PatientIdentifierType invalidFormat = Context.getPatientService().getPatientIdentifierType(1);
+		invalidFormat.setFormat("[0-9");
+		Context.getPatientService().savePatientIdentifierType(invalidFormat);
+		PatientIdentifierType validFormat = Context.getPatientService().getPatientIdentifierType(2);
+		validFormat.setFormat("[0-9]+");
+		Context.getPatientService().savePatientIdentifierType(validFormat);
+
+		// when
+		List<Integer> patientIds = new PatientIdentifierLookup(sessionFactory).getPatientIds("101", false);
+
+		// then
+		assertThat(patientIds, contains(2));
+	}
+
+	@Test
+	public void getPatients_shouldUseTheFormatOfAnIdentifierTypeOnceItIsSaved() {
+		// given
+		PatientIdentifierLookup lookup = Context.getRegisteredComponent("patientIdentifierLookup",
+		    PatientIdentifierLookup.class);
+		assertThat(lookup.getPatientIds("101", false), nullValue());
+		PatientIdentifierType identifierType = Context.getPatientService().getPatientIdentifierType(2);
+		identifierType.setFormat("[0-9]+");
+
+		// when
+		Context.getPatientService().savePatientIdentifierType(identifierType);
+
+		// then
+		assertThat(lookup.getPatientIds("101", false), contains(2));
+	}
+
+	@Test
+	public void getPatients_shouldNotLookUpIdentifiersShorterThanTheMinimumSearchCharacters() {
+		// given
+		PatientIdentifierType identifierType = Context.getPatientService().getPatientIdentifierType(2);
+		identifierType.setFormat("[0-9]+");
+		Context.getPatientService().savePatientIdentifierType(identifierType);
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_MIN_SEARCH_CHARACTERS, "4"));
+
+		// when
+		List<Patient> patients = hibernatePatientDao.getPatients("101", false, 0, 10);
+
+		// then
+		assertThat(patients, equalTo(emptyList()));
+	}
 }
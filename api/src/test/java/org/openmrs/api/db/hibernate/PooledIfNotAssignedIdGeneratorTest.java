@@ -0,0 +1,256 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.relational.internal.SqlStringGenerationContextImpl;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.mapping.SimpleValue;
+import org.hibernate.stat.Statistics;
+import org.hibernate.type.IntegerType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openmrs.Concept;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests {@link PooledIfNotAssignedIdGenerator} configured for {@link Obs}
+ */
+public class PooledIfNotAssignedIdGeneratorTest extends BaseContextSensitiveTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	private PooledIfNotAssignedIdGenerator generator;
+
+	@BeforeEach
+	public void setUp() {
+		// created by liquibase, the mappings don't use the generator by default
+		try (Session otherSession = sessionFactory.openSession()) {
+			otherSession.beginTransaction();
+			otherSession.createNativeQuery("create table if not exists id_generator (sequence_name varchar(255) not null"
+			        + " primary key, next_val bigint)").executeUpdate();
+			otherSession.getTransaction().commit();
+		}
+		deleteStoredValue();
+		generator = newGenerator();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		deleteStoredValue();
+	}
+
+	/**
+	 * @see PooledIfNotAssignedIdGenerator#generate(SharedSessionContractImplementor, Object)
+	 */
+	@Test
+	public void generate_shouldReturnTheAssignedId() {
+		Obs obs = new Obs();
+		obs.setObsId(123456);
+
+		assertEquals(123456, generator.generate(getSession(), obs));
+	}
+
+	/**
+	 * @see PooledIfNotAssignedIdGenerator#generate(SharedSessionContractImplementor, Object)
+	 */
+	@Test
+	public void generate_shouldGenerateUniqueIdsGreaterThanTheExistingOnes() throws SQLException {
+		long maxId = getMaxObsId();
+		Set<Integer> ids = new HashSet<>();
+		for (int i = 0; i < 2 * PooledIfNotAssignedIdGenerator.DEFAULT_INCREMENT_SIZE + 1; i++) {
+			Integer id = (Integer) generator.generate(getSession(), new Obs());
+			assertThat(id.longValue(), greaterThan(maxId));
+			ids.add(id);
+		}
+		assertEquals(2 * PooledIfNotAssignedIdGenerator.DEFAULT_INCREMENT_SIZE + 1, ids.size());
+	}
+
+	/**
+	 * @see PooledIfNotAssignedIdGenerator#generate(SharedSessionContractImplementor, Object)
+	 */
+	@Test
+	public void generate_shouldContinueFromTheStoredValueOnceTheEntityHasARow() throws SQLException {
+		int storedValue = (int) getMaxObsId() + 1000;
+		generator.generate(getSession(), new Obs());
+		updateStoredValue(storedValue);
+
+		// the stored value is the last id handed out by default
+		assertEquals(storedValue + 1, newGenerator().generate(getSession(), new Obs()));
+	}
+
+	/**
+	 * @see PooledIfNotAssignedIdGenerator#generate(SharedSessionContractImplementor, Object)
+	 */
+	@Test
+	public void generate_shouldNotGiveTheIdsOfABlockToTwoGenerators() {
+		PooledIfNotAssignedIdGenerator otherGenerator = newGenerator();
+		Set<Integer> ids = new HashSet<>();
+		for (int i = 0; i < 2 * PooledIfNotAssignedIdGenerator.DEFAULT_INCREMENT_SIZE; i++) {
+			ids.add((Integer) generator.generate(getSession(), new Obs()));
+			ids.add((Integer) otherGenerator.generate(getSession(), new Obs()));
+		}
+		assertEquals(4 * PooledIfNotAssignedIdGenerator.DEFAULT_INCREMENT_SIZE, ids.size());
+	}
+
+	/**
+	 * @see PooledIfNotAssignedIdGenerator#selectFor(org.hibernate.boot.Metadata, String)
+	 */
+	@Test
+	public void selectFor_shouldReplaceTheGeneratorsOfTheGivenEntities() {
+		HibernateSessionFactoryBean sessionFactoryBean = getSessionFactoryBean();
+		SimpleValue identifier = (SimpleValue) sessionFactoryBean.getMetadata().getEntityBinding(Obs.class.getName())
+		        .getIdentifier();
+		String strategy = identifier.getIdentifierGeneratorStrategy();
+		try {
+			PooledIfNotAssignedIdGenerator.selectFor(sessionFactoryBean.getMetadata(),
+			    " org.openmrs.Obs , org.openmrs.NoSuchEntity,");
+
+			assertEquals(PooledIfNotAssignedIdGenerator.class.getName(), identifier.getIdentifierGeneratorStrategy());
+		}
+		finally {
+			identifier.setIdentifierGeneratorStrategy(strategy);
+		}
+	}
+
+	/**
+	 * @see PooledIfNotAssignedIdGenerator#isSelected(SessionFactoryImplementor, Class)
+	 */
+	@Test
+	public void isSelected_shouldBeFalseForEntitiesKeepingTheGeneratorsOfTheirMappings() {
+		SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+
+		assertFalse(PooledIfNotAssignedIdGenerator.isSelected(factory, Obs.class));
+		assertFalse(PooledIfNotAssignedIdGenerator.isSelected(factory));
+	}
+
+	/**
+	 * Needs <code>id_generator.pooled_entities=org.openmrs.Obs,org.openmrs.ObsReferenceRange</code>
+	 * in the runtime properties to compare with the database generated ids
+	 */
+	@Test
+	@Disabled("Designated for manual runs")
+	public void generate_shouldReduceTheRoundTripsToSaveAnEncounterWithObs() {
+		Statistics statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			for (int i = 0; i < 10; i++) {
+				Encounter encounter = newEncounterWithObs(100);
+				statistics.clear();
+				long start = System.nanoTime();
+				Context.getEncounterService().saveEncounter(encounter);
+				Context.flushSession();
+				long time = System.nanoTime() - start;
+				Context.clearSession();
+
+				System.out.println("Saved an encounter with 100 obs in " + (time / 1000000) + "ms using "
+				        + statistics.getPrepareStatementCount() + " statements of which "
+				        + statistics.getQueryExecutionCount() + " queries");
+			}
+		}
+		finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
+
+	private PooledIfNotAssignedIdGenerator newGenerator() {
+		SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+		Properties params = new Properties();
+		params.setProperty(IdentifierGenerator.ENTITY_NAME, Obs.class.getName());
+		params.setProperty(PersistentIdentifierGenerator.TABLE, "obs");
+		params.setProperty(PersistentIdentifierGenerator.PK, "obs_id");
+		PooledIfNotAssignedIdGenerator newGenerator = new PooledIfNotAssignedIdGenerator();
+		newGenerator.configure(IntegerType.INSTANCE, params, factory.getServiceRegistry());
+		newGenerator.registerExportables(getSessionFactoryBean().getMetadata().getDatabase());
+		newGenerator.initialize(SqlStringGenerationContextImpl.forTests(factory.getJdbcServices().getJdbcEnvironment()));
+		return newGenerator;
+	}
+
+	private HibernateSessionFactoryBean getSessionFactoryBean() {
+		return (HibernateSessionFactoryBean) applicationContext.getBean("&sessionFactory");
+	}
+
+	private Encounter newEncounterWithObs(int count) {
+		Encounter encounter = new Encounter();
+		encounter.setPatient(Context.getPatientService().getPatient(7));
+		encounter.setEncounterType(Context.getEncounterService().getEncounterType(1));
+		encounter.setLocation(Context.getLocationService().getLocation(1));
+		encounter.setEncounterDatetime(new Date());
+		Concept weight = Context.getConceptService().getConcept(5089);
+		for (int i = 0; i < count; i++) {
+			Obs obs = new Obs();
+			obs.setConcept(weight);
+			// within the absolute range of weight, which other tests may narrow
+			obs.setValueNumeric((double) (i % 50));
+			encounter.addObs(obs);
+		}
+		return encounter;
+	}
+
+	private SharedSessionContractImplementor getSession() {
+		return (SharedSessionContractImplementor) sessionFactory.getCurrentSession();
+	}
+
+	private long getMaxObsId() throws SQLException {
+		try (PreparedStatement statement = getConnection().prepareStatement("select max(obs_id) from obs");
+		        ResultSet resultSet = statement.executeQuery()) {
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+	/**
+	 * Sets the next value stored for obs in a transaction of its own, the generator having created
+	 * the row
+	 */
+	private void updateStoredValue(int value) {
+		try (Session otherSession = sessionFactory.openSession()) {
+			otherSession.beginTransaction();
+			otherSession.createNativeQuery("update id_generator set next_val = :value where sequence_name = 'obs'")
+			        .setParameter("value", value).executeUpdate();
+			otherSession.getTransaction().commit();
+		}
+	}
+
+	/**
+	 * Deletes the row of obs, which the generator creates in a transaction of its own
+	 */
+	private void deleteStoredValue() {
+		try (Session otherSession = sessionFactory.openSession()) {
+			otherSession.beginTransaction();
+			otherSession.createNativeQuery("delete from id_generator where sequence_name = 'obs'").executeUpdate();
+			otherSession.getTransaction().commit();
+		}
+	}
+}
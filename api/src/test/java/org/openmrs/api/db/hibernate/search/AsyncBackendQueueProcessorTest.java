@@ -0,0 +1,240 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hibernate.search.backend.DeleteLuceneWork;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.spi.impl.PojoIndexedTypeIdentifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.openmrs.PersonName;
+
+public class AsyncBackendQueueProcessorTest {
+
+	private static final String INDEX_NAME = PersonName.class.getName();
+
+	@TempDir
+	public Path indexBase;
+
+	private IndexManager indexManager;
+
+	@BeforeEach
+	public void setUp() {
+		indexManager = mock(IndexManager.class);
+		when(indexManager.getIndexName()).thenReturn(INDEX_NAME);
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#applyWork(List, org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Test
+	public void applyWork_shouldApplyTheQueuedChangesInBatches() {
+		AsyncBackendQueueProcessor processor = new AsyncBackendQueueProcessor();
+		processor.initialize(indexManager, 10, 3, 60000, null);
+		try {
+			processor.applyWork(Collections.singletonList(newWork(1)), null);
+			processor.applyWork(Collections.singletonList(newWork(2)), null);
+			processor.applyWork(Collections.singletonList(newWork(3)), null);
+			processor.flush();
+
+			@SuppressWarnings("unchecked")
+			ArgumentCaptor<List<LuceneWork>> works = ArgumentCaptor.forClass(List.class);
+			verify(indexManager, times(1)).performOperations(works.capture(), isNull());
+			assertEquals(3, works.getValue().size());
+			assertEquals(1, processor.getAppliedBatches());
+			assertEquals(3, processor.getAppliedWorks());
+			assertEquals(0, processor.getQueuedWorks());
+		}
+		finally {
+			processor.close();
+		}
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#applyWork(List, org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Test
+	public void applyWork_shouldApplyAChangeOnceItReachesTheMaxStaleness() {
+		AsyncBackendQueueProcessor processor = new AsyncBackendQueueProcessor();
+		processor.initialize(indexManager, 10, 1000, 50, null);
+		try {
+			processor.applyWork(Collections.singletonList(newWork(1)), null);
+			processor.flush();
+
+			verify(indexManager).performOperations(any(), isNull());
+			assertEquals(0, processor.getLag());
+			assertEquals(1, processor.getAppliedWorks());
+		}
+		finally {
+			processor.close();
+		}
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#getJournaledEntities()
+	 */
+	@Test
+	public void getJournaledEntities_shouldReturnTheEntitiesOfChangesNotAppliedBeforeAStop() throws Exception {
+		CountDownLatch applied = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			applied.await();
+			return null;
+		}).when(indexManager).performOperations(any(), any());
+
+		AsyncBackendQueueProcessor stopped = new AsyncBackendQueueProcessor();
+		stopped.initialize(indexManager, 10, 1000, 0, indexBase.toFile());
+		AsyncBackendQueueProcessor restarted = new AsyncBackendQueueProcessor();
+		try {
+			stopped.applyWork(Arrays.asList(newWork(7), newWork(8)), null);
+
+			restarted.initialize(indexManager, 10, 1000, 0, indexBase.toFile());
+
+			assertThat(restarted.getJournaledEntities().get(PersonName.class.getName()), contains("7", "8"));
+			File replay = new File(indexBase.toFile(), INDEX_NAME + ".journal.replay");
+			assertTrue(replay.exists());
+			restarted.journalReplayed();
+			assertTrue(restarted.getJournaledEntities().isEmpty());
+			assertFalse(replay.exists());
+		}
+		finally {
+			applied.countDown();
+			stopped.close();
+			restarted.close();
+		}
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#applyWork(List, org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Test
+	public void applyWork_shouldApplyAFailedBatchAgain() {
+		doThrow(new IllegalStateException("index not available")).doNothing().when(indexManager).performOperations(any(),
+		    any());
+		AsyncBackendQueueProcessor processor = new AsyncBackendQueueProcessor();
+		processor.initialize(indexManager, 10, 1000, 0, null);
+		try {
+			processor.applyWork(Collections.singletonList(newWork(1)), null);
+			processor.flush();
+
+			verify(indexManager, times(2)).performOperations(any(), isNull());
+			assertEquals(1, processor.getAppliedWorks());
+			assertEquals(0, processor.getFailedWorks());
+		}
+		finally {
+			processor.close();
+		}
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#applyWork(List, org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Test
+	public void applyWork_shouldKeepTheChangesOfABatchThatKeepsFailingInTheJournal() {
+		doThrow(new IllegalStateException("index not available")).when(indexManager).performOperations(any(), any());
+		AsyncBackendQueueProcessor failing = new AsyncBackendQueueProcessor();
+		failing.initialize(indexManager, 10, 1000, 0, indexBase.toFile());
+		try {
+			failing.applyWork(Collections.singletonList(newWork(7)), null);
+			failing.flush();
+
+			verify(indexManager, times(AsyncBackendQueueProcessor.MAX_ATTEMPTS)).performOperations(any(), isNull());
+			assertEquals(0, failing.getAppliedWorks());
+			assertEquals(1, failing.getFailedWorks());
+			assertEquals(0, failing.getQueuedWorks());
+		}
+		finally {
+			failing.close();
+		}
+
+		AsyncBackendQueueProcessor restarted = new AsyncBackendQueueProcessor();
+		restarted.initialize(indexManager, 10, 1000, 0, indexBase.toFile());
+		try {
+			assertThat(restarted.getJournaledEntities().get(PersonName.class.getName()), contains("7"));
+		}
+		finally {
+			restarted.close();
+		}
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#applyWork(List, org.hibernate.search.backend.IndexingMonitor)
+	 */
+	@Test
+	public void applyWork_shouldEmptyTheJournalOnceTheChangesAreApplied() {
+		AsyncBackendQueueProcessor processor = new AsyncBackendQueueProcessor();
+		processor.initialize(indexManager, 10, 1000, 0, indexBase.toFile());
+		try {
+			processor.applyWork(Arrays.asList(newWork(7), newWork(8)), null);
+			processor.flush();
+
+			assertEquals(0, new File(indexBase.toFile(), INDEX_NAME + ".0.journal").length());
+		}
+		finally {
+			processor.close();
+		}
+	}
+
+	/**
+	 * @see AsyncBackendQueueProcessor#close()
+	 */
+	@Test
+	public void close_shouldLetTheWriterFinishApplyingChangesWithoutInterruptingIt() throws Exception {
+		CountDownLatch applying = new CountDownLatch(1);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		doAnswer(invocation -> {
+			applying.countDown();
+			try {
+				Thread.sleep(200);
+			}
+			catch (InterruptedException e) {
+				interrupted.set(true);
+			}
+			return null;
+		}).when(indexManager).performOperations(any(), any());
+		AsyncBackendQueueProcessor processor = new AsyncBackendQueueProcessor();
+		processor.initialize(indexManager, 10, 1000, 0, null);
+
+		processor.applyWork(Collections.singletonList(newWork(1)), null);
+		applying.await();
+		processor.close();
+
+		assertFalse(interrupted.get());
+		assertEquals(1, processor.getAppliedWorks());
+	}
+
+	private LuceneWork newWork(Integer id) {
+		return new DeleteLuceneWork(id, id.toString(), new PojoIndexedTypeIdentifier(PersonName.class));
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openmrs.Drug;
+import org.openmrs.PersonName;
+import org.openmrs.api.APIException;
+import org.openmrs.api.SearchIndexProgress;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+
+public class SearchIndexerTest extends BaseContextSensitiveTest {
+
+	private static final String VERSION = "1";
+
+	@TempDir
+	public Path tempDir;
+
+	private SessionFactory sessionFactory;
+
+	private Map<String, Object> properties;
+
+	private File checkpoint;
+
+	@BeforeEach
+	public void setUp() {
+		sessionFactory = (SessionFactory) applicationContext.getBean("sessionFactory");
+		properties = new HashMap<>();
+		properties.put(SearchIndexer.THREADS, "2");
+		properties.put(SearchIndexer.PARTITION_SIZE, "2");
+		checkpoint = tempDir.resolve("indexes.checkpoint").toFile();
+	}
+
+	@AfterEach
+	public void restoreIndex() {
+		Context.updateSearchIndexForType(Drug.class);
+	}
+
+	/**
+	 * @see SearchIndexer#index(java.util.Collection, String)
+	 */
+	@Test
+	public void index_shouldIndexAllEntitiesOfTheTypesAndDeleteTheCheckpoint() {
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, properties, checkpoint);
+
+		indexer.index(Collections.singletonList(Drug.class), VERSION);
+
+		SearchIndexProgress progress = indexer.getProgress();
+		assertFalse(progress.isRunning());
+		assertTrue(progress.getTotal(Drug.class.getName()) > 0);
+		assertEquals(progress.getTotal(Drug.class.getName()), progress.getDone(Drug.class.getName()));
+		assertEquals(0, progress.getEta());
+		assertFalse(checkpoint.exists());
+	}
+
+	/**
+	 * @see SearchIndexer#index(java.util.Collection, String)
+	 */
+	@Test
+	public void index_shouldSkipTheRangesRecordedByACheckpointOfTheSameVersion() throws Exception {
+		List<Integer> ids = getDrugIds();
+		Files.write(checkpoint.toPath(), Arrays.asList(VERSION, Drug.class.getName() + " " + ids.get(0) + " "
+		        + ids.get(ids.size() - 1) + " 7"), StandardCharsets.UTF_8);
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, properties, checkpoint);
+
+		indexer.index(Collections.singletonList(Drug.class), VERSION);
+
+		assertEquals(7, indexer.getProgress().getDone(Drug.class.getName()));
+		assertFalse(checkpoint.exists());
+	}
+
+	/**
+	 * @see SearchIndexer#index(java.util.Collection, String)
+	 */
+	@Test
+	public void index_shouldResumeFromTheLastIndexedIdWithAnotherPartitionSize() throws Exception {
+		List<Integer> ids = getDrugIds();
+		// recorded by a rebuild with partitions of one id
+		Files.write(checkpoint.toPath(), Arrays.asList(VERSION, Drug.class.getName() + " " + ids.get(0) + " "
+		        + ids.get(0) + " 1"), StandardCharsets.UTF_8);
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, properties, checkpoint);
+
+		indexer.index(Collections.singletonList(Drug.class), VERSION);
+
+		SearchIndexProgress progress = indexer.getProgress();
+		assertEquals(ids.size(), progress.getTotal(Drug.class.getName()));
+		assertEquals(ids.size(), progress.getDone(Drug.class.getName()));
+	}
+
+	/**
+	 * @see SearchIndexer#index(java.util.Collection, String)
+	 */
+	@Test
+	public void index_shouldIndexAllEntitiesWithTheGreatestPartitionSize() {
+		properties.put(SearchIndexer.PARTITION_SIZE, String.valueOf(Integer.MAX_VALUE));
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, properties, checkpoint);
+
+		indexer.index(Collections.singletonList(Drug.class), VERSION);
+
+		assertEquals(getDrugIds().size(), indexer.getProgress().getDone(Drug.class.getName()));
+	}
+
+	/**
+	 * @see SearchIndexer#index(java.util.Collection, String)
+	 */
+	@Test
+	public void index_shouldFailIfAnotherRebuildUsesTheCheckpoint() throws Exception {
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, properties, checkpoint);
+		try (FileChannel channel = FileChannel.open(tempDir.resolve("indexes.checkpoint.lock"),
+		    StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+
+			assertThrows(APIException.class, () -> indexer.index(Collections.singletonList(Drug.class), VERSION));
+		}
+		assertNull(indexer.getProgress());
+	}
+
+	/**
+	 * @see SearchIndexer#getIndexedTypes()
+	 */
+	@Test
+	public void getIndexedTypes_shouldReturnTheIndexedTypes() {
+		SearchIndexer indexer = new SearchIndexer(sessionFactory, properties, null);
+
+		assertTrue(indexer.getIndexedTypes().contains(PersonName.class));
+		assertTrue(indexer.getIndexedTypes().contains(Drug.class));
+	}
+
+	private List<Integer> getDrugIds() {
+		return Context.getConceptService().getAllDrugs().stream().map(Drug::getDrugId).sorted()
+		        .collect(Collectors.toList());
+	}
+}
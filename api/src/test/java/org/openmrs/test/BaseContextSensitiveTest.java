@@ -27,6 +27,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -74,6 +75,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.openmrs.ConceptName;
 import org.openmrs.Drug;
+import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PersonAttribute;
 import org.openmrs.PersonName;
@@ -84,6 +86,12 @@ import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.context.ContextMockHelper;
 import org.openmrs.api.context.Credentials;
 import org.openmrs.api.context.UsernamePasswordCredentials;
+import org.openmrs.api.db.hibernate.ConceptSetIndex;
+import org.openmrs.api.db.hibernate.PatientIdentifierLookup;
+import org.openmrs.api.db.hibernate.PersonSearchResultCache;
+import org.openmrs.api.db.hibernate.VerifiedCredentialsCache;
+import org.openmrs.api.impl.ConceptReferenceCache;
+import org.openmrs.api.impl.GlobalPropertyCache;
 import org.openmrs.module.ModuleConstants;
 import org.openmrs.util.DatabaseUtil;
 import org.openmrs.util.OpenmrsClassLoader;
@@ -91,6 +99,7 @@ import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
@@ -836,12 +845,37 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 			//Do the actual update/insert:
 			//insert new rows, update existing rows, and leave others alone
 			DatabaseOperation.REFRESH.execute(dbUnitConn, dataset);
+			
+			// global properties and people in the dataset bypass the service layer
+			clearGlobalPropertyCache();
+			clearSearchResultCache();
+			conceptSetsChanged(connection);
+			((PatientIdentifierLookup) applicationContext.getBean("patientIdentifierLookup")).identifierTypesChanged();
+			clearConceptReferenceCache();
+			clearVerifiedCredentialsCache();
 		}
 		catch (DatabaseUnitException | SQLException e) {
 			throw new DatabaseUnitRuntimeException(e);
 		}
 	}
 	
+	/**
+	 * Has the sets in the database reloaded like the ones changed by the current transaction, since
+	 * the concept set index only sees the sets committed by others
+	 * 
+	 * @param connection the connection the dataset was run on
+	 */
+	private void conceptSetsChanged(Connection connection) throws SQLException {
+		ConceptSetIndex conceptSetIndex = (ConceptSetIndex) applicationContext.getBean("conceptSetIndex");
+		try (Statement statement = connection.createStatement();
+		        ResultSet resultSet = statement.executeQuery(
+		            "select concept_set from concept_set union select concept_id from concept where is_set = true")) {
+			while (resultSet.next()) {
+				conceptSetIndex.changedInSession(resultSet.getInt(1));
+			}
+		}
+	}
+	
 	protected IDatabaseConnection setupDatabaseConnection(Connection connection) throws DatabaseUnitException {
 		IDatabaseConnection dbUnitConn = new DatabaseConnection(connection);
 		DatabaseConfig config = dbUnitConn.getConfig();
@@ -889,6 +923,12 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 			
 			connection.commit();
 			
+			clearGlobalPropertyCache();
+			clearSearchResultCache();
+			clearConceptSetIndex();
+			clearConceptReferenceCache();
+			clearVerifiedCredentialsCache();
+			
 			updateSearchIndex();
 			
 			isBaseSetup = false;
@@ -908,6 +948,75 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		sf.getCache().evictEntityRegions();
 	}
 	
+	/**
+	 * Clears the cached global property values, needed whenever global properties are changed
+	 * directly in the database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@Before
+	public void clearGlobalPropertyCache() {
+		((GlobalPropertyCache) applicationContext.getBean("globalPropertyCache")).clear();
+	}
+	
+	/**
+	 * Clears the cached search results, needed whenever people are changed directly in the database
+	 * e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@Before
+	public void clearSearchResultCache() {
+		((PersonSearchResultCache) applicationContext.getBean("personSearchResultCache")).clear();
+	}
+	
+	/**
+	 * Clears the graph of concept sets, needed whenever concept sets are changed directly in the
+	 * database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@Before
+	public void clearConceptSetIndex() {
+		((ConceptSetIndex) applicationContext.getBean("conceptSetIndex")).clear();
+	}
+	
+	/**
+	 * Clears the concepts remembered by reference, needed whenever concepts are changed directly in
+	 * the database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@Before
+	public void clearConceptReferenceCache() {
+		((ConceptReferenceCache) applicationContext.getBean("conceptReferenceCache")).clear();
+	}
+	
+	/**
+	 * Clears the recently verified credentials, needed whenever users are changed directly in the
+	 * database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@Before
+	public void clearVerifiedCredentialsCache() {
+		((VerifiedCredentialsCache) applicationContext.getBean("verifiedCredentialsCache")).clear();
+	}
+	
+	/**
+	 * Clears the caches of the service methods, whose values may have been read within a transaction
+	 * that was rolled back at the end of a previous test
+	 * 
+	 * @since 2.8.0
+	 */
+	@Before
+	public void clearApiCaches() {
+		CacheManager cacheManager = (CacheManager) applicationContext.getBean("apiCacheManager");
+		for (String cacheName : cacheManager.getCacheNames()) {
+			cacheManager.getCache(cacheName).clear();
+		}
+	}
+	
 	/**
 	 * This method is run before all test methods that extend this {@link BaseContextSensitiveTest}
 	 * unless you annotate your method with the "@SkipBaseSetup" annotation After running this
@@ -967,7 +1076,7 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 	
 	public Class<?>[] getIndexedTypes() {
 		return new Class<?>[] { ConceptName.class, Drug.class, PersonName.class, PersonAttribute.class,
-				PatientIdentifier.class};
+				PatientIdentifier.class, Patient.class};
 	}
 	
 	/**
@@ -26,6 +26,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -64,6 +65,7 @@ import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openmrs.ConceptName;
 import org.openmrs.Drug;
+import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PersonAttribute;
 import org.openmrs.PersonName;
@@ -74,6 +76,12 @@ import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.context.ContextMockHelper;
 import org.openmrs.api.context.Credentials;
 import org.openmrs.api.context.UsernamePasswordCredentials;
+import org.openmrs.api.db.hibernate.ConceptSetIndex;
+import org.openmrs.api.db.hibernate.PatientIdentifierLookup;
+import org.openmrs.api.db.hibernate.PersonSearchResultCache;
+import org.openmrs.api.db.hibernate.VerifiedCredentialsCache;
+import org.openmrs.api.impl.ConceptReferenceCache;
+import org.openmrs.api.impl.GlobalPropertyCache;
 import org.openmrs.module.ModuleConstants;
 import org.openmrs.test.Containers;
 import org.openmrs.test.OpenmrsMetadataHandler;
@@ -88,6 +96,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
@@ -827,6 +836,14 @@ public abstract class BaseContextSensitiveTest {
 			//insert new rows, update existing rows, and leave others alone
 			DatabaseOperation.REFRESH.execute(dbUnitConn, dataset);
 			
+			// global properties and people in the dataset bypass the service layer
+			clearGlobalPropertyCache();
+			clearSearchResultCache();
+			conceptSetsChanged(connection);
+			((PatientIdentifierLookup) applicationContext.getBean("patientIdentifierLookup")).identifierTypesChanged();
+			clearConceptReferenceCache();
+			clearVerifiedCredentialsCache();
+			
 			if (isPostgreSQL()) {
 				Context.getAdministrationService().updatePostgresSequence();
 			}
@@ -836,6 +853,23 @@ public abstract class BaseContextSensitiveTest {
 		}
 	}
 	
+	/**
+	 * Has the sets in the database reloaded like the ones changed by the current transaction, since
+	 * the concept set index only sees the sets committed by others
+	 * 
+	 * @param connection the connection the dataset was run on
+	 */
+	private void conceptSetsChanged(Connection connection) throws SQLException {
+		ConceptSetIndex conceptSetIndex = (ConceptSetIndex) applicationContext.getBean("conceptSetIndex");
+		try (Statement statement = connection.createStatement();
+		        ResultSet resultSet = statement.executeQuery(
+		            "select concept_set from concept_set union select concept_id from concept where is_set = true")) {
+			while (resultSet.next()) {
+				conceptSetIndex.changedInSession(resultSet.getInt(1));
+			}
+		}
+	}
+	
 	protected boolean isPostgreSQL() {
 		return "postgres".equals(System.getProperty("database"));
 	}
@@ -889,6 +923,12 @@ public abstract class BaseContextSensitiveTest {
 			
 			connection.commit();
 			
+			clearGlobalPropertyCache();
+			clearSearchResultCache();
+			clearConceptSetIndex();
+			clearConceptReferenceCache();
+			clearVerifiedCredentialsCache();
+			
 			updateSearchIndex();
 			
 			isBaseSetup = false;
@@ -917,6 +957,75 @@ public abstract class BaseContextSensitiveTest {
 		sf.getCache().evictEntityRegions();
 	}
 	
+	/**
+	 * Clears the cached global property values, needed whenever global properties are changed
+	 * directly in the database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@BeforeEach
+	public void clearGlobalPropertyCache() {
+		((GlobalPropertyCache) applicationContext.getBean("globalPropertyCache")).clear();
+	}
+	
+	/**
+	 * Clears the cached search results, needed whenever people are changed directly in the database
+	 * e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@BeforeEach
+	public void clearSearchResultCache() {
+		((PersonSearchResultCache) applicationContext.getBean("personSearchResultCache")).clear();
+	}
+	
+	/**
+	 * Clears the graph of concept sets, needed whenever concept sets are changed directly in the
+	 * database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@BeforeEach
+	public void clearConceptSetIndex() {
+		((ConceptSetIndex) applicationContext.getBean("conceptSetIndex")).clear();
+	}
+	
+	/**
+	 * Clears the concepts remembered by reference, needed whenever concepts are changed directly in
+	 * the database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@BeforeEach
+	public void clearConceptReferenceCache() {
+		((ConceptReferenceCache) applicationContext.getBean("conceptReferenceCache")).clear();
+	}
+	
+	/**
+	 * Clears the recently verified credentials, needed whenever users are changed directly in the
+	 * database e.g. by a dataset
+	 * 
+	 * @since 2.8.0
+	 */
+	@BeforeEach
+	public void clearVerifiedCredentialsCache() {
+		((VerifiedCredentialsCache) applicationContext.getBean("verifiedCredentialsCache")).clear();
+	}
+	
+	/**
+	 * Clears the caches of the service methods, whose values may have been read within a transaction
+	 * that was rolled back at the end of a previous test
+	 * 
+	 * @since 2.8.0
+	 */
+	@BeforeEach
+	public void clearApiCaches() {
+		CacheManager cacheManager = (CacheManager) applicationContext.getBean("apiCacheManager");
+		for (String cacheName : cacheManager.getCacheNames()) {
+			cacheManager.getCache(cacheName).clear();
+		}
+	}
+	
 	/**
 	 * This method is run before all test methods that extend this {@link BaseContextSensitiveTest}
 	 * unless you annotate your method with the "@SkipBaseSetup" annotation After running this
@@ -976,7 +1085,7 @@ public abstract class BaseContextSensitiveTest {
 	
 	public Class<?>[] getIndexedTypes() {
 		return new Class<?>[] { ConceptName.class, Drug.class, PersonName.class, PersonAttribute.class,
-				PatientIdentifier.class};
+				PatientIdentifier.class, Patient.class};
 	}
 	
 	/**
@@ -0,0 +1,88 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link OpenmrsClassLoader}
+ */
+public class OpenmrsClassLoaderTest {
+	
+	private static final String MISSING_CLASS = "org.openmrs.util.NoSuchClass";
+	
+	@Test
+	public void shouldBeParallelCapable() {
+		assertTrue(OpenmrsClassLoader.getInstance().isRegisteredAsParallelCapable());
+	}
+	
+	/**
+	 * @see OpenmrsClassLoader#loadClass(String, boolean)
+	 */
+	@Test
+	public void loadClass_shouldFailFastForClassesThatWereNotFoundBefore() throws Exception {
+		ClassLoader parent = mock(ClassLoader.class);
+		when(parent.loadClass(MISSING_CLASS)).thenThrow(new ClassNotFoundException(MISSING_CLASS));
+		OpenmrsClassLoader classLoader = newClassLoader(parent);
+		
+		assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(MISSING_CLASS));
+		assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(MISSING_CLASS));
+		
+		verify(parent, times(1)).loadClass(MISSING_CLASS);
+	}
+	
+	/**
+	 * @see OpenmrsClassLoader#loadClass(String, boolean)
+	 */
+	@Test
+	public void loadClass_shouldLookUpClassesThatWereNotFoundAgainOnceModulesChanged() throws Exception {
+		ClassLoader parent = mock(ClassLoader.class);
+		when(parent.loadClass(MISSING_CLASS)).thenThrow(new ClassNotFoundException(MISSING_CLASS));
+		OpenmrsClassLoader classLoader = newClassLoader(parent);
+		
+		assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(MISSING_CLASS));
+		classLoader.clearClassesNotFound();
+		assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(MISSING_CLASS));
+		
+		verify(parent, times(2)).loadClass(MISSING_CLASS);
+	}
+	
+	/**
+	 * @see OpenmrsClassLoader#loadClass(String, boolean)
+	 */
+	@Test
+	public void loadClass_shouldLoadClassFromParent() throws Exception {
+		assertEquals(OpenmrsUtil.class, OpenmrsClassLoader.getInstance().loadClass(OpenmrsUtil.class.getName()));
+	}
+	
+	/**
+	 * Creates a class loader with the given parent, keeping the shared instance that the constructor
+	 * replaces
+	 */
+	private OpenmrsClassLoader newClassLoader(ClassLoader parent) throws ReflectiveOperationException {
+		OpenmrsClassLoader instance = OpenmrsClassLoader.getInstance();
+		OpenmrsClassLoader classLoader = new OpenmrsClassLoader(parent);
+		Field field = Class.forName(OpenmrsClassLoader.class.getName() + "$OpenmrsClassLoaderHolder")
+		        .getDeclaredField("INSTANCE");
+		field.setAccessible(true);
+		field.set(null, instance);
+		return classLoader;
+	}
+}
@@ -10,6 +10,7 @@
 package org.openmrs.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Base64;
@@ -72,6 +73,17 @@ public class SecurityTest {
 		        + "c788c6ad82a157b712392ca695dfcf2eed193d7f"));
 	}
 	
+	/**
+	 * @see Security#hashMatches(String,String)
+	 */
+	@Test
+	public void hashMatches_shouldNotMatchStringsHashedWithADifferentSalt() {
+		String hash = Security.encodeString("test" + "salt");
+		assertTrue(Security.hashMatches(hash, "test" + "salt"));
+		assertFalse(Security.hashMatches(hash, "test" + "othersalt"));
+		assertFalse(Security.hashMatches("4a1750c8607d0fa237de36c6305715c223415189", "test" + "othersalt"));
+	}
+	
 	/**
 	 * @see Security#decrypt(String)
 	 */
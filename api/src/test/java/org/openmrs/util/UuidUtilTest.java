@@ -0,0 +1,73 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class UuidUtilTest {
+
+	@AfterEach
+	public void resetGenerator() {
+		UuidUtil.setGenerator(UuidUtil.RANDOM);
+	}
+
+	/**
+	 * @see UuidUtil#newUuid()
+	 */
+	@Test
+	public void newUuid_shouldReturnARandomUuidByDefault() {
+		assertEquals(4, UUID.fromString(UuidUtil.newUuid()).version());
+	}
+
+	/**
+	 * @see UuidUtil#newUuid()
+	 */
+	@Test
+	public void newUuid_shouldReturnATimeOrderedUuidIfConfigured() {
+		UuidUtil.setGenerator(UuidUtil.TIME_ORDERED);
+
+		assertEquals(7, UUID.fromString(UuidUtil.newUuid()).version());
+	}
+
+	/**
+	 * @see UuidUtil#newTimeOrderedUuid()
+	 */
+	@Test
+	public void newTimeOrderedUuid_shouldReturnAVersion7Uuid() {
+		long before = System.currentTimeMillis();
+		UUID uuid = UUID.fromString(UuidUtil.newTimeOrderedUuid());
+		long after = System.currentTimeMillis();
+
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+		long timestamp = uuid.getMostSignificantBits() >>> 16;
+		assertThat(before - 1, lessThan(timestamp));
+		assertThat(timestamp, lessThan(after + 1));
+	}
+
+	/**
+	 * @see UuidUtil#newTimeOrderedUuid()
+	 */
+	@Test
+	public void newTimeOrderedUuid_shouldReturnUuidsThatSortByCreationTime() throws InterruptedException {
+		String first = UuidUtil.newTimeOrderedUuid();
+		Thread.sleep(2);
+		String second = UuidUtil.newTimeOrderedUuid();
+
+		assertThat(first.compareTo(second), lessThan(0));
+	}
+}
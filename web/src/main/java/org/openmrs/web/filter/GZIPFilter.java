@@ -34,10 +34,6 @@ public class GZIPFilter extends OncePerRequestFilter {
 	
 	private static final Logger log = LoggerFactory.getLogger(GZIPFilter.class);
 	
-	private Boolean cachedGZipEnabledFlag = null;
-	
-	private String cachedGZipCompressedRequestForPathAccepted = null;
-	
 	/**
 	 * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(javax.servlet.http.HttpServletRequest,
 	 *      javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
@@ -117,26 +113,18 @@ public class GZIPFilter extends OncePerRequestFilter {
 	}
 	
 	/**
-	 * Returns global property gzip.enabled as boolean
+	 * Returns global property gzip.enabled as boolean. The value is read from the global property
+	 * cache on every request so that changes, including those made on other nodes, apply right away.
 	 */
 	private boolean isGZIPEnabled() {
-		if (cachedGZipEnabledFlag != null) {
-			return cachedGZipEnabledFlag;
-		}
-		
 		try {
 			Context.addProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
 			
-			String gzipEnabled = Context.getAdministrationService().getGlobalProperty(
-			    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_ENABLED, "");
-
-			cachedGZipEnabledFlag = Boolean.valueOf(gzipEnabled);
-			return cachedGZipEnabledFlag;
+			return Context.getAdministrationService().getGlobalPropertyAsBoolean(
+			    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_ENABLED, false);
 		}
 		catch (Exception e) {
 			log.warn("Unable to get the global property: " + OpenmrsConstants.GLOBAL_PROPERTY_GZIP_ENABLED, e);
-			// not caching the enabled flag here in case it becomes available
-			// before the next request
 			
 			return false;
 		}
@@ -150,12 +138,8 @@ public class GZIPFilter extends OncePerRequestFilter {
 	 */
 	private boolean isCompressedRequestForPathAccepted(String path) {
 		try {
-			if (cachedGZipCompressedRequestForPathAccepted == null) {
-				cachedGZipCompressedRequestForPathAccepted = Context.getAdministrationService().getGlobalProperty(
-				    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_ACCEPT_COMPRESSED_REQUESTS_FOR_PATHS, "");
-			}
-			
-			for (String acceptPath : cachedGZipCompressedRequestForPathAccepted.split(",")) {
+			for (String acceptPath : Context.getAdministrationService().getGlobalPropertyAsList(
+			    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_ACCEPT_COMPRESSED_REQUESTS_FOR_PATHS)) {
 				if (path.matches(acceptPath)) {
 					return true;
 				}